@@ -0,0 +1,58 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.config.RobotConfig;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The drivetrain's control loop math, run at the control rate: speeds to module states, then each module's optimize
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DrivetrainBenchmark {
+
+  public SwerveDriveKinematics kinematics;
+  public double controlPeriodSeconds;
+  public double maxSpeedMetersPerSecond;
+  public double vx = 2.1;
+  public double vy = -0.8;
+  public double omega = 1.3;
+
+  public SwerveModuleState desiredState = new SwerveModuleState(3.0, Rotation2d.fromDegrees(170));
+  public Rotation2d currentAngle = Rotation2d.fromDegrees(-20);
+
+  @Setup(Level.Trial)
+  public void setup() {
+    var config = RobotConfig.getDefault();
+    kinematics =
+      new SwerveDriveKinematics(
+        config.FrontLeftSwerveModule.getModuleLocation(),
+        config.FrontRightSwerveModule.getModuleLocation(),
+        config.RearLeftSwerveModule.getModuleLocation(),
+        config.RearRightSwerveModule.getModuleLocation()
+      );
+    controlPeriodSeconds = config.Drivetrain.ControlLoopPeriodSeconds;
+    maxSpeedMetersPerSecond = config.Drivetrain.MaxSpeedMetersPerSecond;
+  }
+
+  @Benchmark
+  public SwerveModuleState[] calculateModuleStates() {
+    return Drivetrain.calculateModuleStates(kinematics, vx, vy, omega, controlPeriodSeconds, maxSpeedMetersPerSecond);
+  }
+
+  @Benchmark
+  public SwerveModuleState optimize() {
+    return SwerveModule.optimize(desiredState, currentAngle);
+  }
+}
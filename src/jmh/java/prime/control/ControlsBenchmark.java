@@ -0,0 +1,33 @@
+package prime.control;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Joystick shaping, run on every axis of both controllers each loop
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ControlsBenchmark {
+
+  // Inside the deadband, just outside it, and at full deflection
+  @Param({ "0.05", "0.15", "-1.0" })
+  public double input;
+
+  @Benchmark
+  public double linearScaledDeadband() {
+    return Controls.linearScaledDeadband(input, Controls.AXIS_DEADBAND);
+  }
+
+  @Benchmark
+  public double cubicScaledDeadband() {
+    return Controls.cubicScaledDeadband(input, Controls.AXIS_DEADBAND, 0.3);
+  }
+}
@@ -0,0 +1,67 @@
+package prime.control.LEDs.Patterns;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import prime.control.LEDs.Color;
+
+/**
+ * One frame of each LED pattern, computed 142 times a second by the LED notifier
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LEDPatternBenchmark {
+
+  private static final int PIXELS = 40;
+
+  public AddressableLEDBuffer buffer;
+  public SolidPattern solid;
+  public BlinkPattern blink;
+  public PulsePattern pulse;
+  public ChasePattern chase;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    // The patterns read the FPGA clock
+    HAL.initialize(500, 0);
+
+    buffer = new AddressableLEDBuffer(PIXELS);
+    solid = new SolidPattern(Color.GREEN);
+    blink = new BlinkPattern(Color.RED, 0.5);
+    pulse = new PulsePattern(Color.RED, 0.5);
+    chase = new ChasePattern(Color.GREEN, 1, false);
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer solid() {
+    solid.updateBuffer(0, PIXELS, buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer blink() {
+    blink.updateBuffer(0, PIXELS, buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer pulse() {
+    pulse.updateBuffer(0, PIXELS, buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer chase() {
+    chase.updateBuffer(0, PIXELS, buffer);
+    return buffer;
+  }
+}
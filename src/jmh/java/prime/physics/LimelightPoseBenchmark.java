@@ -0,0 +1,31 @@
+package prime.physics;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Building a pose from Limelight botpose data, done for each accepted vision measurement
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LimelightPoseBenchmark {
+
+  public double[] botPose = { 2.5, 5.5, 0.0, 0.0, 0.0, 180.0, 35.0, 2.0, 0.4, 3.1, 0.2 };
+  public Matrix<N3, N1> stdDeviations = VecBuilder.fill(0.5, 0.5, 9999999);
+  public double timestamp = 42.0;
+
+  @Benchmark
+  public LimelightPose construct() {
+    return new LimelightPose(botPose, stdDeviations, timestamp);
+  }
+}
@@ -0,0 +1,78 @@
+package prime.physics;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * WPILib's pose estimator against the EKF, per odometry update and per vision measurement 50ms late
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwervePoseEstimatorBenchmark {
+
+  private static final double PERIOD = 0.01;
+
+  @Param({ "wpilib", "ekf" })
+  public String estimator;
+
+  public SwervePoseEstimator poseEstimator;
+  public SwerveModulePosition[] positions;
+  public Rotation2d gyroAngle = Rotation2d.fromDegrees(30);
+  public Pose2d visionPose = new Pose2d(1, 2, Rotation2d.fromDegrees(30));
+  public Matrix<N3, N1> stdDeviations = VecBuilder.fill(0.5, 0.5, 9999999);
+  public double timestamp;
+
+  @Setup
+  public void setup() {
+    var locations = new Translation2d[] {
+      new Translation2d(0.34, 0.26),
+      new Translation2d(0.34, -0.26),
+      new Translation2d(-0.34, 0.26),
+      new Translation2d(-0.34, -0.26),
+    };
+    positions = new SwerveModulePosition[locations.length];
+    for (int i = 0; i < positions.length; i++) positions[i] = new SwerveModulePosition();
+
+    poseEstimator =
+      estimator.equals("ekf")
+        ? new EkfSwervePoseEstimator(locations, gyroAngle, positions, new Pose2d(), 0.05, 2, 10, 0.002, 0.02, 150)
+        : new WpilibSwervePoseEstimator(
+          new SwerveDrivePoseEstimator(new SwerveDriveKinematics(locations), gyroAngle, positions, new Pose2d())
+        );
+
+    // Fill the history, so vision replays from a full buffer
+    for (int i = 0; i < 200; i++) update();
+  }
+
+  @Benchmark
+  public void update() {
+    timestamp += PERIOD;
+    for (var position : positions) position.distanceMeters += 0.02;
+    poseEstimator.addImuSample(0.5, 0.1, 0);
+    poseEstimator.updateWithTime(timestamp, gyroAngle, positions);
+  }
+
+  @Benchmark
+  public void updateWithVision() {
+    update();
+    poseEstimator.addVisionMeasurement(visionPose, timestamp - 0.05, stdDeviations);
+  }
+}
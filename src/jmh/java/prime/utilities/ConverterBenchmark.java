@@ -0,0 +1,62 @@
+package prime.utilities;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The unit conversions used by the swerve modules and mechanisms every control loop
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConverterBenchmark {
+
+  private static final double GEAR_RATIO = 6.75;
+  private static final double CIRCUMFERENCE_METERS = Math.PI * 0.1016;
+
+  public double rotations = 12.34;
+  public double metersPerSecond = 3.2;
+  public double counts = 20480;
+  public Rotation2d rotation = Rotation2d.fromDegrees(37);
+
+  @Benchmark
+  public double ctreRotationsToMeters() {
+    return CTREConverter.rotationsToMeters(rotations, CIRCUMFERENCE_METERS, GEAR_RATIO);
+  }
+
+  @Benchmark
+  public double ctreMetersToRotations() {
+    return CTREConverter.metersToRotations(metersPerSecond, CIRCUMFERENCE_METERS, GEAR_RATIO);
+  }
+
+  @Benchmark
+  public Rotation2d ctreFalconTicksToRotation() {
+    return CTREConverter.falconTicksToRotation(counts, GEAR_RATIO);
+  }
+
+  @Benchmark
+  public double ctreRotationToFalconTicks() {
+    return CTREConverter.rotationToFalconTicks(rotation, GEAR_RATIO);
+  }
+
+  @Benchmark
+  public double revNeoToMPS() {
+    return REVConverter.neoToMPS(counts, CIRCUMFERENCE_METERS, GEAR_RATIO);
+  }
+
+  @Benchmark
+  public Rotation2d revNeoToRotation() {
+    return REVConverter.neoToRotation(counts, GEAR_RATIO);
+  }
+
+  @Benchmark
+  public double revRotationToNeo() {
+    return REVConverter.rotationToNeo(rotation, GEAR_RATIO);
+  }
+}
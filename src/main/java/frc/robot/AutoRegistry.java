@@ -0,0 +1,313 @@
+package frc.robot;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.auto.NamedCommands;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.util.GeometryUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Loads every PathPlanner auto once and builds auto commands from the cached data.
+ *
+ * The .auto and .path files are parsed on a background thread at startup, and each path is flipped for the red
+ * alliance ahead of time. While disabled, {@link #prepare} builds the selected auto for the current alliance so that
+ * autonomousInit only has to schedule it. Commands are only ever built on the main thread.
+ */
+public class AutoRegistry {
+
+  private static final File AUTOS_DIRECTORY = new File(Filesystem.getDeployDirectory(), "pathplanner/autos");
+
+  /**
+   * A parsed .auto file
+   */
+  private static class AutoData {
+
+    public Pose2d StartingPose;
+    public Pose2d FlippedStartingPose;
+    public JSONObject CommandJson;
+  }
+
+  /**
+   * A parsed .path file and its red alliance version
+   */
+  private static class PathData {
+
+    public PathPlannerPath Path;
+    public PathPlannerPath FlippedPath;
+  }
+
+  private final List<String> m_autoNames;
+  private final Consumer<Pose2d> m_resetPose;
+
+  // Written by the loader thread, read after m_loaded counts down
+  private final HashMap<String, AutoData> m_autos = new HashMap<>();
+  private final HashMap<String, PathData> m_paths = new HashMap<>();
+  private final CountDownLatch m_loaded = new CountDownLatch(1);
+
+  // The auto built ahead of time, main thread only
+  private String m_preparedName;
+  private boolean m_preparedForRed;
+  private Command m_preparedCommand;
+
+  /**
+   * Lists the autos in the deploy directory and starts parsing them in the background
+   * @param resetPose Resets the robot's pose to an auto's starting pose
+   */
+  public AutoRegistry(Consumer<Pose2d> resetPose) {
+    m_resetPose = resetPose;
+
+    var autoFiles = AUTOS_DIRECTORY.list((dir, name) -> name.endsWith(".auto"));
+    m_autoNames = new ArrayList<>();
+    if (autoFiles != null) {
+      Arrays.sort(autoFiles);
+      for (var file : autoFiles) m_autoNames.add(file.substring(0, file.length() - ".auto".length()));
+    }
+
+    var loader = new Thread(this::loadAll, "AutoRegistry");
+    loader.setDaemon(true);
+    loader.start();
+  }
+
+  public List<String> getAutoNames() {
+    return m_autoNames;
+  }
+
+  /**
+   * Builds a chooser with every auto
+   * @param defaultAutoName
+   */
+  public SendableChooser<String> buildChooser(String defaultAutoName) {
+    var chooser = new SendableChooser<String>();
+    chooser.addOption("None", "");
+
+    for (var name : m_autoNames) {
+      if (name.equals(defaultAutoName)) chooser.setDefaultOption(name, name); else chooser.addOption(name, name);
+    }
+
+    return chooser;
+  }
+
+  public boolean isLoaded() {
+    return m_loaded.getCount() == 0;
+  }
+
+  /**
+   * Builds an auto ahead of time if it isn't already built. Cheap to call every loop while disabled
+   * @param autoName
+   * @param onRedAlliance
+   */
+  public void prepare(String autoName, boolean onRedAlliance) {
+    if (!isLoaded() || autoName == null || autoName.isEmpty()) return;
+    if (autoName.equals(m_preparedName) && onRedAlliance == m_preparedForRed) return;
+
+    m_preparedCommand = buildCommand(autoName, onRedAlliance);
+    m_preparedName = autoName;
+    m_preparedForRed = onRedAlliance;
+  }
+
+  /**
+   * Gets the command for an auto, using the prepared one when it matches. Waits for loading to finish if needed
+   * @param autoName
+   * @param onRedAlliance
+   * @return The auto command, or null if there is no auto with that name
+   */
+  public Command getCommand(String autoName, boolean onRedAlliance) {
+    if (autoName == null || autoName.isEmpty()) return null;
+
+    if (!autoName.equals(m_preparedName) || onRedAlliance != m_preparedForRed) {
+      awaitLoaded();
+      m_preparedCommand = buildCommand(autoName, onRedAlliance);
+      m_preparedName = autoName;
+      m_preparedForRed = onRedAlliance;
+    }
+
+    // A command can only be scheduled from one place, so build the next one fresh
+    var command = m_preparedCommand;
+    m_preparedName = null;
+    m_preparedCommand = null;
+
+    return command;
+  }
+
+  /**
+   * Gets the blue alliance paths of an auto, in the order they're followed
+   * @param autoName
+   */
+  public List<PathPlannerPath> getPaths(String autoName) {
+    awaitLoaded();
+
+    var paths = new ArrayList<PathPlannerPath>();
+    var auto = m_autos.get(autoName);
+    if (auto != null) collectPaths(auto.CommandJson, paths);
+
+    return paths;
+  }
+
+  //#region Loading
+
+  private void loadAll() {
+    var parser = new JSONParser();
+    var startNanos = System.nanoTime();
+
+    for (var autoName : m_autoNames) {
+      try (var reader = new FileReader(new File(AUTOS_DIRECTORY, autoName + ".auto"))) {
+        var json = (JSONObject) parser.parse(reader);
+        var auto = new AutoData();
+        auto.CommandJson = (JSONObject) json.get("command");
+        auto.StartingPose = parseStartingPose((JSONObject) json.get("startingPose"));
+        if (auto.StartingPose != null) auto.FlippedStartingPose = GeometryUtil.flipFieldPose(auto.StartingPose);
+
+        loadPaths(auto.CommandJson);
+        m_autos.put(autoName, auto);
+      } catch (Exception e) {
+        var message = "[AutoRegistry:ERROR] Failed to load auto " + autoName + ": " + e.getMessage();
+        DriverStation.reportError(message, false);
+      }
+    }
+
+    m_loaded.countDown();
+    System.out.printf(
+      "[AutoRegistry] Loaded %d autos and %d paths in %.0fms%n",
+      m_autos.size(),
+      m_paths.size(),
+      (System.nanoTime() - startNanos) / 1e6
+    );
+  }
+
+  /**
+   * Parses every path an auto's commands use that hasn't been parsed yet
+   */
+  private void loadPaths(JSONObject commandJson) {
+    var data = (JSONObject) commandJson.get("data");
+
+    switch ((String) commandJson.get("type")) {
+      case "path":
+        var pathName = (String) data.get("pathName");
+        if (m_paths.containsKey(pathName)) return;
+
+        var pathData = new PathData();
+        pathData.Path = PathPlannerPath.fromPathFile(pathName);
+        pathData.FlippedPath = pathData.Path.flipPath();
+        pathData.FlippedPath.preventFlipping = true; // Already flipped, don't let the follower flip it back
+        m_paths.put(pathName, pathData);
+        break;
+      case "sequential":
+      case "parallel":
+      case "race":
+      case "deadline":
+        for (var child : (JSONArray) data.get("commands")) loadPaths((JSONObject) child);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static Pose2d parseStartingPose(JSONObject json) {
+    if (json == null) return null;
+
+    var position = (JSONObject) json.get("position");
+    return new Pose2d(
+      ((Number) position.get("x")).doubleValue(),
+      ((Number) position.get("y")).doubleValue(),
+      Rotation2d.fromDegrees(((Number) json.get("rotation")).doubleValue())
+    );
+  }
+
+  private void awaitLoaded() {
+    try {
+      m_loaded.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  //#endregion
+
+  //#region Building
+
+  private Command buildCommand(String autoName, boolean onRedAlliance) {
+    var auto = m_autos.get(autoName);
+    if (auto == null) return null;
+
+    var command = buildCommand(auto.CommandJson, onRedAlliance);
+
+    // Reset to the starting pose when the auto starts, like PathPlannerAuto does
+    var startingPose = onRedAlliance ? auto.FlippedStartingPose : auto.StartingPose;
+    if (startingPose != null) command = Commands.runOnce(() -> m_resetPose.accept(startingPose)).andThen(command);
+
+    return command.withName(autoName);
+  }
+
+  private Command buildCommand(JSONObject commandJson, boolean onRedAlliance) {
+    var data = (JSONObject) commandJson.get("data");
+
+    switch ((String) commandJson.get("type")) {
+      case "wait":
+        return Commands.waitSeconds(((Number) data.get("waitTime")).doubleValue());
+      case "named":
+        var name = (String) data.get("name");
+        if (!NamedCommands.hasCommand(name)) {
+          DriverStation.reportWarning("[AutoRegistry:WARNING] Named command not registered: " + name, false);
+          return Commands.none();
+        }
+
+        return NamedCommands.getCommand(name);
+      case "path":
+        var pathData = m_paths.get((String) data.get("pathName"));
+
+        return AutoBuilder.followPath(onRedAlliance ? pathData.FlippedPath : pathData.Path);
+      case "sequential":
+        return Commands.sequence(buildChildren(data, onRedAlliance));
+      case "parallel":
+        return Commands.parallel(buildChildren(data, onRedAlliance));
+      case "race":
+        return Commands.race(buildChildren(data, onRedAlliance));
+      case "deadline":
+        var children = buildChildren(data, onRedAlliance);
+
+        return Commands.deadline(children[0], Arrays.copyOfRange(children, 1, children.length));
+      default:
+        return Commands.none();
+    }
+  }
+
+  private Command[] buildChildren(JSONObject data, boolean onRedAlliance) {
+    var childrenJson = (JSONArray) data.get("commands");
+    var children = new Command[childrenJson.size()];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = buildCommand((JSONObject) childrenJson.get(i), onRedAlliance);
+    }
+
+    return children;
+  }
+
+  private void collectPaths(JSONObject commandJson, List<PathPlannerPath> paths) {
+    var data = (JSONObject) commandJson.get("data");
+    var type = (String) commandJson.get("type");
+
+    if (type.equals("path")) {
+      paths.add(m_paths.get((String) data.get("pathName")).Path);
+    } else if (data.get("commands") != null) {
+      for (var child : (JSONArray) data.get("commands")) collectPaths((JSONObject) child, paths);
+    }
+  }
+
+  //#endregion
+}
@@ -0,0 +1,118 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.config.LoggingConfig;
+import prime.logging.BlackBox;
+import prime.logging.BlackBox.EventType;
+import prime.logging.FlightRecorder;
+import prime.logging.RecorderChannel;
+
+/**
+ * Feeds robot-wide data (battery, PDH currents, loop times, command events) into the black box and watches for
+ * the conditions that should dump it: brownouts, loop overrun streaks and exceptions.
+ */
+public class Diagnostics {
+
+  private static final double EXCEPTION_DUMP_TIMEOUT_SECONDS = 2;
+
+  private LoggingConfig m_config;
+  private PowerDistribution m_pdh;
+  private double m_loopPeriodSeconds;
+
+  // Black box channels
+  private int b_batteryVoltage;
+  private int b_brownedOut;
+  private int b_loopPeriodMs;
+  private int[] b_pdhCurrents;
+
+  // Flight recorder channels, used for post-match brownout analysis
+  private RecorderChannel r_batteryVoltage = FlightRecorder.doubleChannel("Robot/BatteryVoltage", 0);
+  private RecorderChannel r_brownedOut = FlightRecorder.booleanChannel("Robot/BrownedOut", 0);
+
+  // Trigger state
+  private long m_lastLoopStartMicros = 0;
+  private int m_overrunStreak = 0;
+  private boolean m_wasBrownedOut = false;
+
+  /**
+   * Registers the robot-wide black box channels and command event hooks
+   * @param config
+   * @param pdh
+   * @param loopPeriodSeconds The nominal main loop period
+   */
+  public Diagnostics(LoggingConfig config, PowerDistribution pdh, double loopPeriodSeconds) {
+    m_config = config;
+    m_pdh = pdh;
+    m_loopPeriodSeconds = loopPeriodSeconds;
+
+    b_batteryVoltage = BlackBox.channel("Robot/BatteryVoltage");
+    b_brownedOut = BlackBox.channel("Robot/BrownedOut");
+    b_loopPeriodMs = BlackBox.channel("Robot/LoopPeriod (ms)");
+
+    b_pdhCurrents = new int[m_pdh.getNumChannels()];
+    for (int i = 0; i < b_pdhCurrents.length; i++) {
+      b_pdhCurrents[i] = BlackBox.channel("PDH/Channel" + i + " (A)");
+    }
+
+    // Record command events. These lambdas don't capture anything, so they don't allocate when called
+    var scheduler = CommandScheduler.getInstance();
+    scheduler.onCommandInitialize(command -> BlackBox.event(EventType.CommandInitialized, command.getName()));
+    scheduler.onCommandFinish(command -> BlackBox.event(EventType.CommandFinished, command.getName()));
+    scheduler.onCommandInterrupt(command -> BlackBox.event(EventType.CommandInterrupted, command.getName()));
+
+    // Dump on exceptions thrown from any other thread, from the main loop's next frame, then let the previous
+    // handler report it
+    var previousHandler = Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+      BlackBox.requestTrigger("UncaughtException");
+
+      if (previousHandler != null) previousHandler.uncaughtException(thread, e); else e.printStackTrace();
+    });
+
+    BlackBox.start(FlightRecorder.getDefaultDirectory(), m_config.BlackBoxDurationSeconds, 1 / loopPeriodSeconds);
+  }
+
+  /**
+   * Samples robot-wide channels, commits a black box frame and checks the dump triggers. Call once per main loop
+   */
+  public void periodic() {
+    // Loop period, measured start to start
+    var loopStartMicros = RobotController.getFPGATime();
+    var loopPeriodSeconds = m_lastLoopStartMicros == 0
+      ? m_loopPeriodSeconds
+      : (loopStartMicros - m_lastLoopStartMicros) / 1e6;
+    m_lastLoopStartMicros = loopStartMicros;
+    BlackBox.set(b_loopPeriodMs, loopPeriodSeconds * 1000);
+
+    // Power
+    var brownedOut = RobotController.isBrownedOut();
+    var batteryVoltage = RobotController.getBatteryVoltage();
+    BlackBox.set(b_batteryVoltage, batteryVoltage);
+    BlackBox.set(b_brownedOut, brownedOut ? 1 : 0);
+    r_batteryVoltage.record(batteryVoltage);
+    r_brownedOut.record(brownedOut);
+    for (int i = 0; i < b_pdhCurrents.length; i++) {
+      BlackBox.set(b_pdhCurrents[i], m_pdh.getCurrent(i));
+    }
+
+    BlackBox.commitFrame();
+
+    // Brownout trigger, on the rising edge
+    if (brownedOut && !m_wasBrownedOut) BlackBox.trigger("Brownout");
+    m_wasBrownedOut = brownedOut;
+
+    // Overrun streak trigger
+    m_overrunStreak = loopPeriodSeconds > m_loopPeriodSeconds * 1.5 ? m_overrunStreak + 1 : 0;
+    if (m_overrunStreak == m_config.BlackBoxOverrunStreak) BlackBox.trigger("LoopOverrunStreak");
+  }
+
+  /**
+   * Dumps the black box because an exception was thrown from robot code. Waits for the file, since the exception is
+   * rethrown and ends the robot program
+   */
+  public void onException() {
+    BlackBox.triggerAndWait("Exception", EXCEPTION_DUMP_TIMEOUT_SECONDS);
+  }
+}
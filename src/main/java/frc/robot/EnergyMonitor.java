@@ -0,0 +1,259 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import frc.robot.config.RobotConfig;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
+
+/**
+ * Adds up how much charge and energy each mechanism draws from the battery, per match phase and per command.
+ *
+ * A background notifier samples every PDH channel and integrates amp-hours and watt-hours for the mechanism the
+ * channel belongs to. Channels that aren't mapped count as "Other". A mechanism's energy is also charged to the
+ * command that requires its subsystem at the time. Totals are published once a second under Energy/, and the full
+ * breakdown is written to the log each time the robot is disabled.
+ *
+ * Totals start from zero when an FMS match starts, and otherwise add up from boot.
+ */
+public class EnergyMonitor {
+
+  private static final String[] PHASES = { "Disabled", "Autonomous", "Teleop", "Test" };
+  private static final String NO_COMMAND = "(none)";
+  private static final int PUBLISH_DECIMATION = 10;
+
+  /**
+   * The PDH channels of one mechanism and the subsystem that drives them
+   */
+  private static class Group {
+
+    public final String Name;
+    public final int[] Channels;
+    public final Subsystem Subsystem;
+
+    Group(String name, int[] channels, Subsystem subsystem) {
+      Name = name;
+      Channels = channels;
+      Subsystem = subsystem;
+    }
+  }
+
+  private final PowerDistribution m_pdh;
+  private final Notifier m_notifier;
+  private final ArrayList<Group> m_groups = new ArrayList<>();
+
+  // Guarded by this
+  private final double[][] m_ampHours;
+  private final double[][] m_wattHours;
+  private final String[] m_activeCommands;
+  private final HashMap<String, double[]> m_commandEnergy = new HashMap<>();
+  private long m_lastSampleMicros = 0;
+
+  // Background thread only
+  private final double[] m_channelCurrents;
+  private final double[] m_groupCurrents;
+
+  private final DoubleSignal[] t_groupAmpHours;
+  private final DoubleSignal[] t_groupWattHours;
+  private final DoubleSignal[] t_phaseWattHours;
+  private final DoubleSignal t_totalWattHours;
+
+  /**
+   * Maps the PDH channels to mechanisms and starts sampling
+   * @param config
+   * @param container
+   */
+  public EnergyMonitor(RobotConfig config, RobotContainer container) {
+    m_pdh = container.PowerDistribution;
+    var power = config.Power;
+    addGroup("Drive/" + config.FrontLeftSwerveModule.ModuleName, power.FrontLeftModuleChannels, container.Drivetrain);
+    addGroup("Drive/" + config.FrontRightSwerveModule.ModuleName, power.FrontRightModuleChannels, container.Drivetrain);
+    addGroup("Drive/" + config.RearLeftSwerveModule.ModuleName, power.RearLeftModuleChannels, container.Drivetrain);
+    addGroup("Drive/" + config.RearRightSwerveModule.ModuleName, power.RearRightModuleChannels, container.Drivetrain);
+    addGroup("Shooter", power.ShooterChannels, container.Shooter);
+    addGroup("Intake", power.IntakeChannels, container.Intake);
+    addGroup("Climbers", power.ClimbersChannels, container.Climbers);
+    addGroup("Compressor", power.CompressorChannels, null);
+    addGroup("Other", getUnmappedChannels(m_pdh.getNumChannels()), null);
+
+    var groupCount = m_groups.size();
+    m_ampHours = new double[groupCount][PHASES.length];
+    m_wattHours = new double[groupCount][PHASES.length];
+    m_activeCommands = new String[groupCount];
+    m_channelCurrents = new double[m_pdh.getNumChannels()];
+    m_groupCurrents = new double[groupCount];
+
+    t_groupAmpHours = new DoubleSignal[groupCount];
+    t_groupWattHours = new DoubleSignal[groupCount];
+    for (int g = 0; g < groupCount; g++) {
+      var prefix = "Energy/" + m_groups.get(g).Name;
+      t_groupAmpHours[g] = Telemetry.doubleSignal(prefix + "/AmpHours", LogLevel.Essential, PUBLISH_DECIMATION);
+      t_groupWattHours[g] = Telemetry.doubleSignal(prefix + "/WattHours", LogLevel.Essential, PUBLISH_DECIMATION);
+    }
+
+    t_phaseWattHours = new DoubleSignal[PHASES.length];
+    for (int p = 0; p < PHASES.length; p++) {
+      t_phaseWattHours[p] =
+        Telemetry.doubleSignal("Energy/Phase/" + PHASES[p] + " (Wh)", LogLevel.Essential, PUBLISH_DECIMATION);
+    }
+    t_totalWattHours = Telemetry.doubleSignal("Energy/Total (Wh)", LogLevel.Essential, PUBLISH_DECIMATION);
+
+    m_notifier = new Notifier(this::sample);
+    m_notifier.setName("EnergyMonitor");
+    m_notifier.startPeriodic(power.EnergySamplePeriodSeconds);
+  }
+
+  /**
+   * Notes which command each mechanism is running, so its energy is charged to it. Call once per main loop
+   */
+  public void periodic() {
+    var scheduler = CommandScheduler.getInstance();
+
+    synchronized (this) {
+      for (int g = 0; g < m_activeCommands.length; g++) {
+        var subsystem = m_groups.get(g).Subsystem;
+        var command = subsystem != null ? scheduler.requiring(subsystem) : null;
+        m_activeCommands[g] = command != null ? command.getName() : NO_COMMAND;
+      }
+    }
+  }
+
+  /**
+   * Publishes the per mechanism and per phase totals. Call at the telemetry rate, they're published once a second
+   */
+  public synchronized void publishTelemetry() {
+    var totalWattHours = 0.0;
+
+    for (int g = 0; g < m_groups.size(); g++) {
+      var ampHours = 0.0;
+      var wattHours = 0.0;
+      for (int p = 0; p < PHASES.length; p++) {
+        ampHours += m_ampHours[g][p];
+        wattHours += m_wattHours[g][p];
+      }
+
+      t_groupAmpHours[g].set(ampHours);
+      t_groupWattHours[g].set(wattHours);
+      totalWattHours += wattHours;
+    }
+
+    for (int p = 0; p < PHASES.length; p++) {
+      var phaseWattHours = 0.0;
+      for (int g = 0; g < m_groups.size(); g++) phaseWattHours += m_wattHours[g][p];
+
+      t_phaseWattHours[p].set(phaseWattHours);
+    }
+
+    t_totalWattHours.set(totalWattHours);
+  }
+
+  /**
+   * Writes every total to the log: by mechanism and phase, then by command
+   */
+  public synchronized void logSummary() {
+    var summary = new StringBuilder("[EnergyMonitor] Energy used:");
+
+    for (int g = 0; g < m_groups.size(); g++) {
+      summary.append(String.format("%n  %s:", m_groups.get(g).Name));
+      for (int p = 0; p < PHASES.length; p++) {
+        summary.append(String.format(" %s %.3fAh %.2fWh", PHASES[p], m_ampHours[g][p], m_wattHours[g][p]));
+      }
+    }
+
+    summary.append(String.format("%n  By command:"));
+    for (Map.Entry<String, double[]> entry : new TreeMap<>(m_commandEnergy).entrySet()) {
+      var energy = entry.getValue();
+      summary.append(String.format("%n    %s: %.3fAh %.2fWh", entry.getKey(), energy[0], energy[1]));
+    }
+
+    DataLogManager.log(summary.toString());
+  }
+
+  /**
+   * Starts every total from zero, e.g. at the start of a match
+   */
+  public synchronized void reset() {
+    for (int g = 0; g < m_groups.size(); g++) {
+      for (int p = 0; p < PHASES.length; p++) {
+        m_ampHours[g][p] = 0;
+        m_wattHours[g][p] = 0;
+      }
+    }
+
+    m_commandEnergy.clear();
+  }
+
+  //#region Sampling
+
+  private void sample() {
+    for (int i = 0; i < m_channelCurrents.length; i++) m_channelCurrents[i] = m_pdh.getCurrent(i);
+    for (int g = 0; g < m_groups.size(); g++) {
+      var current = 0.0;
+      for (var channel : m_groups.get(g).Channels) current += m_channelCurrents[channel];
+      m_groupCurrents[g] = current;
+    }
+
+    var voltage = m_pdh.getVoltage();
+    var phase = getPhase();
+    var now = RobotController.getFPGATime();
+
+    synchronized (this) {
+      var hours = m_lastSampleMicros == 0 ? 0 : (now - m_lastSampleMicros) / 3.6e9;
+      m_lastSampleMicros = now;
+
+      for (int g = 0; g < m_groupCurrents.length; g++) {
+        var ampHours = m_groupCurrents[g] * hours;
+        var wattHours = ampHours * voltage;
+        m_ampHours[g][phase] += ampHours;
+        m_wattHours[g][phase] += wattHours;
+
+        // Only allocates the first time a command is seen
+        var commandName = m_activeCommands[g] != null ? m_activeCommands[g] : NO_COMMAND;
+        var commandEnergy = m_commandEnergy.get(commandName);
+        if (commandEnergy == null) {
+          commandEnergy = new double[2];
+          m_commandEnergy.put(commandName, commandEnergy);
+        }
+        commandEnergy[0] += ampHours;
+        commandEnergy[1] += wattHours;
+      }
+    }
+  }
+
+  private static int getPhase() {
+    if (DriverStation.isDisabled()) return 0;
+    if (DriverStation.isAutonomous()) return 1;
+
+    return DriverStation.isTest() ? 3 : 2;
+  }
+
+  //#endregion
+
+  private void addGroup(String name, int[] channels, Subsystem subsystem) {
+    m_groups.add(new Group(name, channels, subsystem));
+  }
+
+  private int[] getUnmappedChannels(int channelCount) {
+    var mapped = new boolean[channelCount];
+    for (var group : m_groups) {
+      for (var channel : group.Channels) mapped[channel] = true;
+    }
+
+    var unmapped = new ArrayList<Integer>();
+    for (int i = 0; i < channelCount; i++) {
+      if (!mapped[i]) unmapped.add(i);
+    }
+
+    return unmapped.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
@@ -0,0 +1,204 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.config.PowerConfig;
+import prime.logging.BooleanSignal;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
+import prime.physics.ThermalMonitor;
+
+/**
+ * Splits a total current budget between the mechanisms by priority and keeps the battery out of brownout.
+ *
+ * A background notifier samples the battery voltage and PDH channel currents, shrinks the budget as the battery sags
+ * and hands it out: every motor gets its minimum, then what's left goes to drive, steering, shooter and intake in
+ * that order, up to their maximums. Limits are only written to the devices when they change by a full step, since
+ * each write waits on the CAN bus. The compressor only runs when the budget has room for it, and never during auto,
+ * shooting or climbing.
+ *
+ * The same thread steps the motor thermal models in {@link ThermalMonitor}. As the drive or intake motors heat up,
+ * their limits come down so that none of them would reach its thermal limit within the horizon, settling at the
+ * current they can sustain instead of cutting out mid-match.
+ *
+ * The budget and limits are published under Power/.
+ */
+public class PowerManager {
+
+  private static final int DRIVE_MOTOR_COUNT = 4;
+  private static final int INTAKE_MOTOR_COUNT = 3;
+  private static final int VOLTAGE_FILTER_TAPS = 5;
+
+  private final PowerConfig m_config;
+  private final RobotContainer m_container;
+  private final Notifier m_notifier;
+  private final LinearFilter m_voltageFilter = LinearFilter.movingAverage(VOLTAGE_FILTER_TAPS);
+  private final int m_pdhChannelCount;
+
+  // Background thread only
+  private double m_remainingAmps;
+  private boolean m_voltageFilterSeeded = false;
+
+  // Written by the background thread, read on the main thread
+  private volatile double m_appliedDriveAmps = Double.NaN;
+  private volatile double m_appliedDriveStatorAmps = Double.NaN;
+  private volatile double m_appliedSteeringAmps = Double.NaN;
+  private volatile double m_appliedShooterAmps = Double.NaN;
+  private volatile double m_appliedIntakeAmps = Double.NaN;
+  private volatile double m_batteryVoltage;
+  private volatile double m_budgetAmps;
+  private volatile double m_measuredAmps;
+  private volatile boolean m_compressorBudgeted = true;
+
+  // Main thread only
+  private boolean m_compressorEnabled = true;
+
+  private DoubleSignal t_batteryVoltage = Telemetry.doubleSignal("Power/BatteryVoltage", LogLevel.Essential);
+  private DoubleSignal t_budget = Telemetry.doubleSignal("Power/Budget (A)", LogLevel.Essential);
+  private DoubleSignal t_measured = Telemetry.doubleSignal("Power/MeasuredCurrent (A)", LogLevel.Essential);
+  private DoubleSignal t_driveLimit = Telemetry.doubleSignal("Power/DriveLimit (A)", LogLevel.Level2);
+  private DoubleSignal t_driveStatorLimit = Telemetry.doubleSignal("Power/DriveStatorLimit (A)", LogLevel.Level2);
+  private DoubleSignal t_steeringLimit = Telemetry.doubleSignal("Power/SteeringLimit (A)", LogLevel.Level2);
+  private DoubleSignal t_shooterLimit = Telemetry.doubleSignal("Power/ShooterLimit (A)", LogLevel.Level2);
+  private DoubleSignal t_intakeLimit = Telemetry.doubleSignal("Power/IntakeLimit (A)", LogLevel.Level2);
+  private BooleanSignal t_compressorEnabled = Telemetry.booleanSignal("Power/CompressorEnabled", LogLevel.Essential);
+
+  /**
+   * Starts sampling and applying limits in the background
+   * @param config
+   * @param container
+   */
+  public PowerManager(PowerConfig config, RobotContainer container) {
+    m_config = config;
+    m_container = container;
+    m_pdhChannelCount = container.PowerDistribution.getNumChannels();
+
+    m_notifier = new Notifier(this::update);
+    m_notifier.setName("PowerManager");
+    if (config.Enabled) m_notifier.startPeriodic(config.SamplePeriodSeconds);
+  }
+
+  /**
+   * Turns the compressor on or off. Call once per main loop
+   */
+  public void periodic() {
+    var enable =
+      m_compressorBudgeted &&
+      !DriverStation.isAutonomousEnabled() &&
+      !m_container.Shooter.isShooting() &&
+      !m_container.Climbers.areClimbControlsEnabled();
+    if (enable == m_compressorEnabled) return;
+
+    if (enable) m_container.Compressor.enableDigital(); else m_container.Compressor.disable();
+    m_compressorEnabled = enable;
+  }
+
+  /**
+   * Publishes the budget and the limits last applied
+   */
+  public void publishTelemetry() {
+    t_batteryVoltage.set(m_batteryVoltage);
+    t_budget.set(m_budgetAmps);
+    t_measured.set(m_measuredAmps);
+    t_driveLimit.set(m_appliedDriveAmps);
+    t_driveStatorLimit.set(m_appliedDriveStatorAmps);
+    t_steeringLimit.set(m_appliedSteeringAmps);
+    t_shooterLimit.set(m_appliedShooterAmps);
+    t_intakeLimit.set(m_appliedIntakeAmps);
+    t_compressorEnabled.set(m_compressorEnabled);
+  }
+
+  //#region Budgeting
+
+  private void update() {
+    // Fill the average with the first sample, rather than the zeros it starts with, which would read as a sag
+    var batteryVoltage = RobotController.getBatteryVoltage();
+    if (!m_voltageFilterSeeded) {
+      for (int i = 1; i < VOLTAGE_FILTER_TAPS; i++) m_voltageFilter.calculate(batteryVoltage);
+      m_voltageFilterSeeded = true;
+    }
+    var voltage = m_voltageFilter.calculate(batteryVoltage);
+    var measuredAmps = 0.0;
+    for (int i = 0; i < m_pdhChannelCount; i++) measuredAmps += m_container.PowerDistribution.getCurrent(i);
+
+    // Full budget above the sag voltage, shrinking linearly to the minimum at the floor
+    var sag = (voltage - m_config.SagFloorVolts) / (m_config.SagStartVolts - m_config.SagFloorVolts);
+    var budgetAmps =
+      m_config.TotalCurrentBudgetAmps * MathUtil.interpolate(m_config.MinBudgetFraction, 1, MathUtil.clamp(sag, 0, 1));
+
+    // The hottest drive motor sets the drive stator limit, and the hottest intake motor caps the intake limit
+    ThermalMonitor.update();
+    var driveStatorAmps = getDriveStatorLimit();
+    var intakeMaxAmps = Math.max(
+      m_config.IntakeMinAmps,
+      Math.min(m_config.IntakeMaxAmps, ThermalMonitor.getAllowedAmps("Intake", m_config.ThermalHorizonSeconds))
+    );
+
+    // Everyone gets their minimum first, then the rest goes out by priority
+    var driveMinimumAmps = DRIVE_MOTOR_COUNT * (m_config.DriveMinAmps + m_config.SteeringMinAmps);
+    var mechanismMinimumAmps = m_config.ShooterMinAmps + INTAKE_MOTOR_COUNT * m_config.IntakeMinAmps;
+    m_remainingAmps = budgetAmps - driveMinimumAmps - mechanismMinimumAmps;
+    var driveAmps = allocate(m_config.DriveMinAmps, m_config.DriveMaxAmps, DRIVE_MOTOR_COUNT);
+    var steeringAmps = allocate(m_config.SteeringMinAmps, m_config.SteeringMaxAmps, DRIVE_MOTOR_COUNT);
+    var shooterAmps = allocate(m_config.ShooterMinAmps, m_config.ShooterMaxAmps, 1);
+    var intakeAmps = allocate(m_config.IntakeMinAmps, intakeMaxAmps, INTAKE_MOTOR_COUNT);
+
+    if (
+      driveAmps != m_appliedDriveAmps ||
+      driveStatorAmps != m_appliedDriveStatorAmps ||
+      steeringAmps != m_appliedSteeringAmps
+    ) {
+      m_container.Drivetrain.setCurrentLimits(driveAmps, driveStatorAmps, (int) steeringAmps);
+      m_appliedDriveAmps = driveAmps;
+      m_appliedDriveStatorAmps = driveStatorAmps;
+      m_appliedSteeringAmps = steeringAmps;
+    }
+
+    if (shooterAmps != m_appliedShooterAmps) {
+      m_container.Shooter.setCurrentLimit(shooterAmps);
+      m_appliedShooterAmps = shooterAmps;
+    }
+
+    if (intakeAmps != m_appliedIntakeAmps) {
+      m_container.Intake.setCurrentLimit((int) intakeAmps);
+      m_appliedIntakeAmps = intakeAmps;
+    }
+
+    m_compressorBudgeted = m_remainingAmps >= m_config.CompressorAmps;
+    m_batteryVoltage = voltage;
+    m_budgetAmps = budgetAmps;
+    m_measuredAmps = measuredAmps;
+  }
+
+  /**
+   * Gives a group of motors as much of the remaining budget as they can use, rounded down to the limit step
+   * @return The limit for each motor
+   */
+  private double allocate(double minAmps, double maxAmps, int motorCount) {
+    var extraAmps = MathUtil.clamp(m_remainingAmps / motorCount, 0, maxAmps - minAmps);
+    var limitAmps = minAmps + Math.floor(extraAmps / m_config.LimitStepAmps) * m_config.LimitStepAmps;
+    m_remainingAmps -= (limitAmps - minAmps) * motorCount;
+
+    return limitAmps;
+  }
+
+  /**
+   * Gets the drive stator limit that keeps every drive motor off its thermal limit for the horizon, rounded down to
+   * the limit step
+   * @return The limit, or infinity while the drive motors are cool enough to leave it off
+   */
+  private double getDriveStatorLimit() {
+    var allowedAmps = ThermalMonitor.getAllowedAmps("Drive", m_config.ThermalHorizonSeconds);
+    if (allowedAmps >= m_config.DriveStatorMaxAmps) return Double.POSITIVE_INFINITY;
+
+    var limitAmps = Math.floor(allowedAmps / m_config.LimitStepAmps) * m_config.LimitStepAmps;
+
+    return Math.max(m_config.DriveStatorMinAmps, limitAmps);
+  }
+
+  //#endregion
+}
@@ -8,46 +8,161 @@ import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import edu.wpi.first.wpilibj2.command.Commands;
 import frc.robot.config.RobotConfig;
+import prime.can.CanBusManager;
+import prime.can.DeviceConfigurator;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.Patterns.BlinkPattern;
 import prime.control.LEDs.Patterns.ChasePattern;
 import prime.control.LEDs.Patterns.LEDPattern;
 import prime.control.LEDs.Patterns.PulsePattern;
+import prime.diagnostics.ClassDataArchive;
+import prime.diagnostics.LoopProfiler;
+import prime.diagnostics.ProfiledSection;
+import prime.diagnostics.StartupTimer;
+import prime.logging.FlightRecorder;
+import prime.logging.Telemetry;
+import prime.physics.ThermalMonitor;
+import prime.utilities.TuningStore;
 
 public class Robot extends TimedRobot {
 
+  private static final double DEVICE_CONFIG_TIMEOUT_SECONDS = 10;
+
   private RobotContainer m_robotContainer;
+  private Diagnostics m_diagnostics;
+  private Warmup m_warmup;
+  private PowerManager m_powerManager;
+  private EnergyMonitor m_energyMonitor;
+  private ClassDataArchive m_classDataArchive;
   private Command m_autonomousCommand;
+  private ProfiledSection m_telemetryProfile = LoopProfiler.section("Robot/Telemetry");
 
   @Override
   public void robotInit() {
+    var startupTimer = new StartupTimer();
+    var config = RobotConfig.getDefault();
+    TuningStore.load();
+    config.applyTuning();
+    LoopProfiler.setLoopBudget(getPeriod());
+    m_classDataArchive = new ClassDataArchive();
+    startupTimer.mark("Config");
+
     // Start L2 logging
     DataLogManager.start();
     DriverStation.startDataLog(DataLogManager.getLog());
 
-    // Initialize the robot container
-    m_robotContainer = new RobotContainer(RobotConfig.getDefault());
+    // Start the flight recorder for high-rate signals that bypass NetworkTables
+    FlightRecorder.start(
+      FlightRecorder.getDefaultDirectory(),
+      config.Logging.RecorderMaxFileSizeBytes,
+      config.Logging.RecorderDiskBudgetBytes
+    );
+    startupTimer.mark("Logging");
+
+    // Initialize the robot container, then wait for the CAN devices it configures in the background
+    m_robotContainer = new RobotContainer(config);
+    startupTimer.mark("RobotContainer");
+    DeviceConfigurator.awaitAll(DEVICE_CONFIG_TIMEOUT_SECONDS);
+    startupTimer.mark("DeviceConfig");
+    CanBusManager.apply();
+    startupTimer.mark("CanBus");
+
+    // Start the black box once every subsystem has registered its channels
+    m_diagnostics = new Diagnostics(config.Logging, m_robotContainer.PowerDistribution, getPeriod());
+    m_warmup = new Warmup(config, m_robotContainer);
+    m_powerManager = new PowerManager(config.Power, m_robotContainer);
+    m_energyMonitor = new EnergyMonitor(config, m_robotContainer);
+
+    // Drive control runs faster than the main loop and telemetry runs slower. All of these run on the main thread,
+    // offset from the main loop so they don't stack up in the same slot
+    if (m_robotContainer.Drivetrain != null) {
+      addPeriodic(m_robotContainer.Drivetrain::controlPeriodic, config.Drivetrain.ControlLoopPeriodSeconds, 0.005);
+    }
+    addPeriodic(this::telemetryPeriodic, config.Logging.TelemetryPeriodSeconds, 0.015);
+    startupTimer.mark("Diagnostics");
+    startupTimer.finish();
   }
 
   @Override
   public void disabledInit() {
+    LoopProfiler.reset();
+    m_energyMonitor.logSummary();
     m_robotContainer.LEDs.setStripPersistentPattern(new PulsePattern(onRedAlliance() ? Color.RED : Color.BLUE, 2));
   }
 
+  /**
+   * Builds the selected auto and warms up the JIT while disabled, so the first enabled loop runs compiled code and
+   * autonomousInit only has to schedule the auto. Once warm-up is done, the class data archive is rewritten if the
+   * jar has changed since it was made
+   */
+  @Override
+  public void disabledPeriodic() {
+    m_robotContainer.prepareAutonomousCommand();
+    m_warmup.disabledPeriodic();
+
+    if (m_warmup.isFinished() && !DriverStation.isFMSAttached()) m_classDataArchive.dumpIfNeeded();
+  }
+
   /**
    * This function is called every robot packet, no matter the mode. Use this for
    * things that you want ran during all modes.
    */
   @Override
   public void robotPeriodic() {
-    CommandScheduler.getInstance().run();
+    LoopProfiler.beginLoop();
+    m_warmup.loopStarted();
+
+    try {
+      CommandScheduler.getInstance().run();
+    } catch (RuntimeException e) {
+      m_diagnostics.onException();
+      throw e;
+    }
+
+    m_diagnostics.periodic();
+    m_powerManager.periodic();
+    m_energyMonitor.periodic();
+
+    // Only publish essential telemetry while connected to the field
+    Telemetry.setCompetitionMode(DriverStation.isFMSAttached());
 
-    m_robotContainer.DriverDashboard.AllianceBox.setBoolean(onRedAlliance());
+    LoopProfiler.endLoop();
+  }
+
+  /**
+   * Publishes dashboard and telemetry values at the telemetry rate
+   */
+  private void telemetryPeriodic() {
+    m_telemetryProfile.start();
+
+    m_robotContainer.publishTelemetry();
+    CanBusManager.publishTelemetry();
+    ThermalMonitor.publishTelemetry();
+    m_powerManager.publishTelemetry();
+    m_energyMonitor.publishTelemetry();
+    m_robotContainer.DriverDashboard.AllianceBox.set(onRedAlliance());
+
+    m_telemetryProfile.stop();
+  }
+
+  /**
+   * Sags the simulated battery with the current drawn by the mechanism models
+   */
+  @Override
+  public void simulationPeriodic() {
+    RoboRioSim.setVInVoltage(
+      BatterySim.calculate(
+        m_robotContainer.Drivetrain.getSimulatedCurrentDrawAmps(),
+        m_robotContainer.Shooter.getSimulatedCurrentDrawAmps(),
+        m_robotContainer.Intake.getSimulatedCurrentDrawAmps()
+      )
+    );
   }
 
   /**
@@ -55,6 +170,10 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void autonomousInit() {
+    LoopProfiler.reset();
+
+    // Count energy from the start of the match
+    if (DriverStation.isFMSAttached()) m_energyMonitor.reset();
     m_robotContainer.LEDs.setStripPersistentPattern(new BlinkPattern(onRedAlliance() ? Color.RED : Color.BLUE, 0.250));
 
     // Cancel any auto command that's still running and reset the subsystem states
@@ -70,7 +189,7 @@ public class Robot extends TimedRobot {
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // Exit without scheduling an auto command if none is selected
-    if (m_autonomousCommand == null || m_autonomousCommand == Commands.none()) {
+    if (m_autonomousCommand == null) {
       DriverStation.reportError("[ERROR] >> No auto command selected", false);
       m_robotContainer.Drivetrain.resetGyro();
     } else {
@@ -90,6 +209,7 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void teleopInit() {
+    LoopProfiler.reset();
     if (m_autonomousCommand != null) {
       // Cancel the auto command if it's still running
       m_autonomousCommand.cancel();
@@ -116,6 +236,13 @@ public class Robot extends TimedRobot {
     CommandScheduler.getInstance().cancelAll();
   }
 
+  /**
+   * Gets the robot container, e.g. for simulation harnesses that drive the robot from outside
+   */
+  public RobotContainer getRobotContainer() {
+    return m_robotContainer;
+  }
+
   public static boolean onRedAlliance() {
     var alliance = DriverStation.getAlliance();
 
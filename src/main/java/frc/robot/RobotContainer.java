@@ -4,14 +4,15 @@
 
 package frc.robot;
 
-import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
-import com.pathplanner.lib.commands.PathPlannerAuto;
 import edu.wpi.first.wpilibj.Compressor;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.PowerDistribution.ModuleType;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
@@ -22,6 +23,8 @@ import java.util.Map;
 import prime.control.Controls;
 import prime.control.HolonomicControlStyle;
 import prime.control.PrimeXboxController;
+import prime.diagnostics.LoopProfiler;
+import prime.logging.BlackBox;
 
 public class RobotContainer {
 
@@ -35,18 +38,26 @@ public class RobotContainer {
   public Climbers Climbers;
   public PwmLEDs LEDs;
   public Compressor Compressor;
+  public PowerDistribution PowerDistribution;
   public DriverDashboard DriverDashboard;
+  public AutoRegistry Autos;
 
   private CombinedCommands m_combinedCommands;
+  private Command m_autonomousOverride;
 
   public RobotContainer(RobotConfig config) {
     // Save new config
     m_config = config;
 
     try {
+      // Mark the start of the input phase before any triggers are bound to the scheduler's button loop
+      LoopProfiler.beginInputBindings(CommandScheduler.getInstance().getDefaultButtonLoop());
+
       m_driverController = new PrimeXboxController(Controls.DRIVER_PORT);
       m_operatorController = new PrimeXboxController(Controls.OPERATOR_PORT);
 
+      PowerDistribution = new PowerDistribution(m_config.PowerDistributionModuleId, ModuleType.kRev);
+
       // Create new subsystems
       LEDs = new PwmLEDs(m_config.LEDs);
       DriverDashboard = new DriverDashboard(m_config);
@@ -67,36 +78,90 @@ public class RobotContainer {
 
       // Create Auto chooser and Auto tab in Shuffleboard
       configAutonomousDashboardItems();
+      configTuningDashboardItems();
 
       // Reconfigure bindings
       configureDriverControls();
       configureOperatorControls();
+
+      LoopProfiler.endInputBindings(CommandScheduler.getInstance().getDefaultButtonLoop());
     } catch (Exception e) {
       DriverStation.reportError("[ERROR] >> Failed to configure robot: " + e.getMessage(), e.getStackTrace());
     }
   }
 
   /**
-   * Configures the autonomous dashboard items
+   * Configures the autonomous dashboard items. The autos are parsed in the background, so this doesn't build any
+   * auto commands
    */
   public void configAutonomousDashboardItems() {
-    // Build an auto chooser. This will use Commands.none() as the default option.
-    DriverDashboard.addAutoChooser(AutoBuilder.buildAutoChooser("Straight Park"));
-
-    // Add all autos to the auto tab
-    var possibleAutos = AutoBuilder.getAllAutoNames();
-    for (int i = 0; i < possibleAutos.size(); i++) {
-      var autoCommand = new PathPlannerAuto(possibleAutos.get(i));
-      DriverDashboard.AutoTab.add(possibleAutos.get(i), autoCommand).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+    Autos = new AutoRegistry(Drivetrain::setEstimatorPose);
+
+    // Build an auto chooser
+    DriverDashboard.addAutoChooser(Autos.buildChooser("Straight Park"));
+
+    // Add all autos to the auto tab. Each button builds its auto when pressed
+    for (var autoName : Autos.getAutoNames()) {
+      var autoCommand = Commands
+        .deferredProxy(() -> Autos.getCommand(autoName, Robot.onRedAlliance()))
+        .withName(autoName);
+      DriverDashboard.AutoTab.add(autoName, autoCommand).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
     }
   }
 
+  /**
+   * Adds the routines that measure and tune the robot to the tuning tab. Results are saved on the robot and
+   * override the config at the next boot
+   */
+  public void configTuningDashboardItems() {
+    var tab = DriverDashboard.TuningTab;
+    tab.add("Drive Feedforward", Drivetrain.characterizeCommand()).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+    tab.add("Shooter Feedforward", Shooter.characterizeCommand()).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+    tab.add("Arm Feedforward", Intake.characterizeArmCommand()).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+    tab
+      .add("Wheel Radius", Drivetrain.calibrateWheelRadiusCommand())
+      .withWidget(BuiltInWidgets.kCommand)
+      .withSize(2, 1);
+    tab.add("Steering PID", Drivetrain.autotuneSteeringCommand()).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+    tab.add("Snap-To PID", Drivetrain.autotuneSnapToCommand()).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+    tab.add("Arm PID", Intake.autotuneArmCommand()).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+  }
+
+  /**
+   * Builds the selected auto ahead of time for the current alliance. Call periodically while disabled
+   */
+  public void prepareAutonomousCommand() {
+    if (m_autonomousOverride == null) Autos.prepare(DriverDashboard.AutoChooser.getSelected(), Robot.onRedAlliance());
+  }
+
   /**
    * Returns the selected autonomous command to run
    * @return
    */
   public Command getAutonomousCommand() {
-    return DriverDashboard.AutoChooser.getSelected();
+    if (m_autonomousOverride != null) return m_autonomousOverride;
+
+    return Autos.getCommand(DriverDashboard.AutoChooser.getSelected(), Robot.onRedAlliance());
+  }
+
+  /**
+   * Overrides the dashboard auto chooser, e.g. when a simulation harness runs every auto in turn
+   * @param command The command to run in autonomous, or null to use the chooser again
+   */
+  public void setAutonomousOverride(Command command) {
+    m_autonomousOverride = command;
+  }
+
+  /**
+   * Publishes dashboard and telemetry values for every subsystem. Runs at the telemetry rate, slower than the main loop
+   */
+  public void publishTelemetry() {
+    Drivetrain.publishTelemetry();
+    Drivetrain.LimelightRear.publishTelemetry();
+    Drivetrain.LimelightFront.publishTelemetry();
+    Shooter.publishTelemetry();
+    Intake.publishTelemetry();
+    Climbers.publishTelemetry();
   }
 
   /**
@@ -105,6 +170,9 @@ public class RobotContainer {
   public void configureDriverControls() {
     // Controls for Driving
     m_driverController.a().onTrue(Drivetrain.resetGyroCommand());
+
+    // Dump the black box so the last few seconds can be reviewed after something went wrong
+    m_driverController.back().onTrue(Commands.runOnce(() -> BlackBox.trigger("Manual")).ignoringDisable(true));
     Drivetrain.setDefaultCommand(
       Drivetrain.defaultDriveCommand(
         m_driverController.getSwerveControlProfile(
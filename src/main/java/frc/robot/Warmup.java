@@ -0,0 +1,167 @@
+package frc.robot;
+
+import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.config.RobotConfig;
+
+/**
+ * Runs the code the first enabled loop depends on while the robot is disabled, so the JVM has loaded its classes and
+ * the JIT has compiled it before the match starts.
+ *
+ * The work is split into short slices, one per disabled loop, until the configured number of iterations has run.
+ * Warm-up duration and the first enabled loop period are published under Robot/Warmup; turn warm-up off in
+ * {@link frc.robot.config.WarmupConfig} to compare the first loop without it.
+ */
+public class Warmup {
+
+  private static final int TRAJECTORY_REGENERATE_INTERVAL = 200;
+
+  private final RobotConfig m_config;
+  private final RobotContainer m_container;
+
+  // Path following, on a scratch controller
+  private PPHolonomicDriveController m_pathController;
+  private PathPlannerPath m_path;
+  private PathPlannerTrajectory m_trajectory;
+  private final Transform2d m_trackingError = new Transform2d(0.05, -0.03, Rotation2d.fromDegrees(2));
+
+  private int m_iteration = 0;
+  private long m_startNanos = 0;
+  private long m_busyNanos = 0;
+  private boolean m_finished = false;
+
+  // First enabled loop measurement
+  private long m_lastLoopStartNanos = 0;
+  private long m_lastLoopPeriodNanos = 0;
+  private boolean m_wasEnabled = false;
+  private int m_enabledLoops = 0;
+
+  public Warmup(RobotConfig config, RobotContainer container) {
+    m_config = config;
+    m_container = container;
+    m_finished = !config.Warmup.Enabled;
+  }
+
+  /**
+   * Runs one slice of warm-up. Call every disabled loop; does nothing once warm-up is done
+   */
+  public void disabledPeriodic() {
+    if (m_finished) return;
+
+    // Path following needs the autos, which load in the background
+    if (m_pathController == null && !setupPathFollowing()) return;
+
+    var sliceStart = System.nanoTime();
+    if (m_startNanos == 0) m_startNanos = sliceStart;
+
+    var sliceEnd = sliceStart + (long) (m_config.Warmup.SliceSeconds * 1e9);
+    while (System.nanoTime() < sliceEnd && m_iteration < m_config.Warmup.Iterations) {
+      m_container.Drivetrain.warmupStep(m_iteration);
+      pathFollowingStep(m_iteration);
+      m_iteration++;
+    }
+    m_busyNanos += System.nanoTime() - sliceStart;
+
+    if (m_iteration >= m_config.Warmup.Iterations) finish();
+  }
+
+  public boolean isFinished() {
+    return m_finished;
+  }
+
+  /**
+   * Measures loop periods until the first enabled loop has completed, then publishes it. Call at the start of every
+   * robotPeriodic
+   */
+  public void loopStarted() {
+    var now = System.nanoTime();
+    var loopPeriodNanos = m_lastLoopStartNanos == 0 ? 0 : now - m_lastLoopStartNanos;
+    m_lastLoopStartNanos = now;
+
+    var enabled = DriverStation.isEnabled();
+    if (enabled && m_enabledLoops < 2) {
+      // The loop that enabled includes the mode init, the next one includes the first command and path steps
+      m_enabledLoops++;
+      if (m_enabledLoops == 2) {
+        var firstLoopMs = Math.max(m_lastLoopPeriodNanos, loopPeriodNanos) / 1e6;
+        SmartDashboard.putNumber("Robot/Warmup/FirstEnabledLoop (ms)", firstLoopMs);
+        System.out.printf("[Warmup] First enabled loop took %.1fms (warm-up %s)%n", firstLoopMs, getStatus());
+      }
+    } else if (!enabled && m_wasEnabled) {
+      m_enabledLoops = 0;
+    }
+
+    m_wasEnabled = enabled;
+    m_lastLoopPeriodNanos = loopPeriodNanos;
+  }
+
+  private boolean setupPathFollowing() {
+    var autos = m_container.Autos;
+    if (!autos.isLoaded()) return false;
+
+    for (var autoName : autos.getAutoNames()) {
+      var paths = autos.getPaths(autoName);
+      if (!paths.isEmpty()) {
+        m_path = paths.get(0);
+        break;
+      }
+    }
+
+    var drivetrainConfig = m_config.Drivetrain;
+    m_pathController =
+      new PPHolonomicDriveController(
+        drivetrainConfig.PathingTranslationPid.toPIDConstants(),
+        drivetrainConfig.PathingRotationPid.toPIDConstants(),
+        drivetrainConfig.MaxSpeedMetersPerSecond,
+        m_config.FrontLeftSwerveModule.getModuleLocation().getNorm()
+      );
+
+    return true;
+  }
+
+  /**
+   * Samples the trajectory and runs the holonomic controller on a pose slightly off of it. The trajectory is
+   * regenerated now and then, since that's what FollowPathCommand does when it starts
+   */
+  private void pathFollowingStep(int iteration) {
+    if (m_path == null) return;
+
+    if (m_trajectory == null || iteration % TRAJECTORY_REGENERATE_INTERVAL == 0) {
+      m_trajectory = m_path.getTrajectory(new ChassisSpeeds(), new Rotation2d());
+    }
+
+    var time = (iteration * m_config.Drivetrain.ControlLoopPeriodSeconds) % m_trajectory.getTotalTimeSeconds();
+    var targetState = m_trajectory.sample(time);
+    var currentPose = targetState.getTargetHolonomicPose().plus(m_trackingError);
+    m_pathController.calculateRobotRelativeSpeeds(currentPose, targetState);
+  }
+
+  private void finish() {
+    m_finished = true;
+    m_container.Drivetrain.finishWarmup();
+    m_pathController = null;
+    m_trajectory = null;
+
+    var durationMs = (System.nanoTime() - m_startNanos) / 1e6;
+    SmartDashboard.putNumber("Robot/Warmup/Duration (ms)", durationMs);
+    SmartDashboard.putNumber("Robot/Warmup/BusyTime (ms)", m_busyNanos / 1e6);
+    System.out.printf(
+      "[Warmup] Ran %d iterations in %.0fms (%.0fms of loop time)%n",
+      m_iteration,
+      durationMs,
+      m_busyNanos / 1e6
+    );
+  }
+
+  private String getStatus() {
+    if (!m_config.Warmup.Enabled) return "disabled";
+
+    return m_finished ? "complete" : m_iteration + "/" + m_config.Warmup.Iterations + " iterations";
+  }
+}
@@ -0,0 +1,114 @@
+package frc.robot.analysis;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import prime.logging.WpilogScanner;
+
+/**
+ * Computes post-match metrics (cycle times, snap-to alignment, loop times, vision acceptance and brownouts) from a set
+ * of .wpilog files, one file per core at a time, and writes them as JSON.
+ *
+ * Directories are not searched recursively, so point it at the FlightRecorder directory (logs/recorder) or the
+ * DataLogManager directory, not both, or a match will be counted twice. Run it with
+ * "./gradlew analyzeLogs -PlogDir=path/to/logs".
+ */
+public final class MatchLogAnalyzer {
+
+  private MatchLogAnalyzer() {}
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("Usage: MatchLogAnalyzer <log file or directory>... [--out report.json]");
+      System.exit(1);
+    }
+
+    File reportFile = null;
+    var files = new ArrayList<File>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--out") && i + 1 < args.length) {
+        reportFile = new File(args[++i]);
+      } else {
+        addLogFiles(new File(args[i]), files);
+      }
+    }
+
+    var startNanos = System.nanoTime();
+    var executor = Executors.newFixedThreadPool(
+      Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors()))
+    );
+    var results = new ArrayList<Future<MatchMetrics>>(files.size());
+    for (var file : files) {
+      results.add(executor.submit(() -> analyze(file)));
+    }
+
+    var event = new MatchMetrics();
+    var perFile = new JSONArray();
+    for (int i = 0; i < files.size(); i++) {
+      var fileJson = new JSONObject();
+      fileJson.put("file", files.get(i).getName());
+
+      try {
+        var metrics = results.get(i).get();
+        event.merge(metrics);
+        fileJson.put("metrics", metrics.toJson());
+      } catch (ExecutionException e) {
+        fileJson.put("error", e.getCause().getMessage());
+        System.err.println("[MatchLogAnalyzer] Failed to read " + files.get(i) + ": " + e.getCause().getMessage());
+      }
+
+      perFile.add(fileJson);
+    }
+    executor.shutdown();
+
+    var report = new JSONObject();
+    report.put("files", perFile);
+    report.put("event", event.toJson());
+
+    if (reportFile != null) {
+      if (reportFile.getAbsoluteFile().getParentFile() != null) reportFile.getAbsoluteFile().getParentFile().mkdirs();
+      try (var writer = new FileWriter(reportFile)) {
+        writer.write(report.toJSONString());
+      }
+    } else {
+      System.out.println(report.toJSONString());
+    }
+
+    System.err.printf(
+      "[MatchLogAnalyzer] Analyzed %d logs in %.2fs%n",
+      files.size(),
+      (System.nanoTime() - startNanos) / 1e9
+    );
+  }
+
+  private static MatchMetrics analyze(File file) throws IOException {
+    var metrics = new MatchMetrics();
+    WpilogScanner.scan(file, metrics);
+
+    return metrics;
+  }
+
+  /**
+   * Adds a log file, or every log file directly inside a directory, in name order. Replay outputs are skipped
+   */
+  private static void addLogFiles(File path, ArrayList<File> files) {
+    if (!path.isDirectory()) {
+      files.add(path);
+      return;
+    }
+
+    var children = path.listFiles((dir, name) -> name.endsWith(".wpilog") && !name.endsWith("_replay.wpilog"));
+    if (children == null) return;
+
+    Arrays.sort(children);
+    files.addAll(Arrays.asList(children));
+  }
+}
@@ -0,0 +1,287 @@
+package frc.robot.analysis;
+
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import org.json.simple.JSONObject;
+import prime.diagnostics.LatencyHistogram;
+import prime.logging.WpilogScanner;
+
+/**
+ * Computes the post-match metrics for one log as it's scanned, and merges them across logs.
+ *
+ * Entries are matched by the end of their name, so the same metrics come out of FlightRecorder logs ("Shooter/...")
+ * and DataLogManager logs ("NT:/SmartDashboard/Shooter/..."), as long as the channel was logged.
+ */
+public class MatchMetrics implements WpilogScanner.RecordHandler {
+
+  // Entry roles
+  private static final int NONE = 0;
+  private static final int NOTE_DETECTED = 1;
+  private static final int SNAP_TO_ENABLED = 2;
+  private static final int SNAP_TO_ALIGNED = 3;
+  private static final int LOOP_PERIOD = 4;
+  private static final int PERIODIC_TIME = 5;
+  private static final int REAR_ACCEPTED = 6;
+  private static final int FRONT_ACCEPTED = 7;
+  private static final int BROWNED_OUT = 8;
+  private static final int BATTERY_VOLTAGE = 9;
+
+  /**
+   * Count, mean, min and max of a set of durations
+   */
+  public static class Summary {
+
+    public long Count;
+    public double TotalSeconds;
+    public double MinSeconds = Double.POSITIVE_INFINITY;
+    public double MaxSeconds;
+
+    public void add(double seconds) {
+      Count++;
+      TotalSeconds += seconds;
+      MinSeconds = Math.min(MinSeconds, seconds);
+      MaxSeconds = Math.max(MaxSeconds, seconds);
+    }
+
+    public void merge(Summary other) {
+      Count += other.Count;
+      TotalSeconds += other.TotalSeconds;
+      MinSeconds = Math.min(MinSeconds, other.MinSeconds);
+      MaxSeconds = Math.max(MaxSeconds, other.MaxSeconds);
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson() {
+      var json = new JSONObject();
+      json.put("count", Count);
+      json.put("totalSeconds", TotalSeconds);
+      json.put("meanSeconds", Count > 0 ? TotalSeconds / Count : null);
+      json.put("minSeconds", Count > 0 ? MinSeconds : null);
+      json.put("maxSeconds", Count > 0 ? MaxSeconds : null);
+
+      return json;
+    }
+  }
+
+  private int[] m_roles = new int[256];
+
+  // Cycles. A note is loaded on the rising edge of NoteDetected and shot on the falling edge
+  public final Summary IntakeToShot = new Summary();
+  public final Summary ShotToShot = new Summary();
+  private boolean m_noteDetected = false;
+  private long m_noteLoadedMicros = -1;
+  private long m_lastShotMicros = -1;
+
+  // Snap-to
+  public final Summary SnapToTimeToAlign = new Summary();
+  public double SnapToEnabledSeconds;
+  public double SnapToAlignedSeconds;
+  private boolean m_snapToEnabled = false;
+  private boolean m_snapToAligned = false;
+  private boolean m_snapToHasAligned = false;
+  private long m_snapToEnabledMicros = -1;
+  private long m_snapToLastMicros = -1;
+
+  // Loop times
+  public final LatencyHistogram LoopPeriod = new LatencyHistogram();
+  public final LatencyHistogram PeriodicTime = new LatencyHistogram();
+
+  // Vision, over the frames that had a valid target
+  public long RearVisionSamples;
+  public long RearVisionAccepted;
+  public long FrontVisionSamples;
+  public long FrontVisionAccepted;
+
+  // Brownouts
+  public final Summary Brownouts = new Summary();
+  public double MinBatteryVoltage = Double.POSITIVE_INFINITY;
+  private boolean m_brownedOut = false;
+  private long m_brownoutStartMicros = -1;
+
+  @Override
+  public boolean onStart(int entry, String name, String type) {
+    var role = getRole(name, type);
+    if (role == NONE) return false;
+
+    if (entry >= m_roles.length) m_roles = Arrays.copyOf(m_roles, Math.max(m_roles.length * 2, entry + 1));
+    m_roles[entry] = role;
+
+    return true;
+  }
+
+  @Override
+  public void onRecord(int entry, long timestampMicros, MappedByteBuffer buffer, int offset, int size) {
+    switch (m_roles[entry]) {
+      case NOTE_DETECTED:
+        onNoteDetected(buffer.get(offset) != 0, timestampMicros);
+        break;
+      case SNAP_TO_ENABLED:
+        onSnapTo(buffer.get(offset) != 0, m_snapToAligned, timestampMicros);
+        break;
+      case SNAP_TO_ALIGNED:
+        onSnapTo(m_snapToEnabled, buffer.get(offset) != 0, timestampMicros);
+        break;
+      case LOOP_PERIOD:
+        LoopPeriod.record((long) (buffer.getDouble(offset) * 1e6));
+        break;
+      case PERIODIC_TIME:
+        PeriodicTime.record((long) (buffer.getDouble(offset) * 1e6));
+        break;
+      case REAR_ACCEPTED:
+        RearVisionSamples++;
+        if (buffer.get(offset) != 0) RearVisionAccepted++;
+        break;
+      case FRONT_ACCEPTED:
+        FrontVisionSamples++;
+        if (buffer.get(offset) != 0) FrontVisionAccepted++;
+        break;
+      case BROWNED_OUT:
+        onBrownedOut(buffer.get(offset) != 0, timestampMicros);
+        break;
+      case BATTERY_VOLTAGE:
+        MinBatteryVoltage = Math.min(MinBatteryVoltage, buffer.getDouble(offset));
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Adds another log's metrics to these. Only call after both logs have been fully scanned
+   * @param other
+   */
+  public void merge(MatchMetrics other) {
+    IntakeToShot.merge(other.IntakeToShot);
+    ShotToShot.merge(other.ShotToShot);
+    SnapToTimeToAlign.merge(other.SnapToTimeToAlign);
+    SnapToEnabledSeconds += other.SnapToEnabledSeconds;
+    SnapToAlignedSeconds += other.SnapToAlignedSeconds;
+    LoopPeriod.merge(other.LoopPeriod);
+    PeriodicTime.merge(other.PeriodicTime);
+    RearVisionSamples += other.RearVisionSamples;
+    RearVisionAccepted += other.RearVisionAccepted;
+    FrontVisionSamples += other.FrontVisionSamples;
+    FrontVisionAccepted += other.FrontVisionAccepted;
+    Brownouts.merge(other.Brownouts);
+    MinBatteryVoltage = Math.min(MinBatteryVoltage, other.MinBatteryVoltage);
+  }
+
+  @SuppressWarnings("unchecked")
+  public JSONObject toJson() {
+    var cycles = new JSONObject();
+    cycles.put("intakeToShot", IntakeToShot.toJson());
+    cycles.put("shotToShot", ShotToShot.toJson());
+
+    var snapTo = new JSONObject();
+    snapTo.put("enabledSeconds", SnapToEnabledSeconds);
+    snapTo.put("alignedSeconds", SnapToAlignedSeconds);
+    snapTo.put("alignedFraction", SnapToEnabledSeconds > 0 ? SnapToAlignedSeconds / SnapToEnabledSeconds : null);
+    snapTo.put("timeToAlign", SnapToTimeToAlign.toJson());
+
+    var loopTimes = new JSONObject();
+    loopTimes.put("loopPeriod", histogramToJson(LoopPeriod));
+    loopTimes.put("periodicTime", histogramToJson(PeriodicTime));
+
+    var vision = new JSONObject();
+    vision.put("rearSamples", RearVisionSamples);
+    vision.put("rearAcceptanceRate", RearVisionSamples > 0 ? (double) RearVisionAccepted / RearVisionSamples : null);
+    vision.put("frontSamples", FrontVisionSamples);
+    vision.put(
+      "frontAcceptanceRate",
+      FrontVisionSamples > 0 ? (double) FrontVisionAccepted / FrontVisionSamples : null
+    );
+
+    var power = new JSONObject();
+    power.put("brownouts", Brownouts.toJson());
+    power.put("minBatteryVoltage", Double.isFinite(MinBatteryVoltage) ? MinBatteryVoltage : null);
+
+    var json = new JSONObject();
+    json.put("cycles", cycles);
+    json.put("snapTo", snapTo);
+    json.put("loopTimes", loopTimes);
+    json.put("vision", vision);
+    json.put("power", power);
+
+    return json;
+  }
+
+  //#region Metrics
+
+  private void onNoteDetected(boolean detected, long timestampMicros) {
+    if (detected && !m_noteDetected) {
+      m_noteLoadedMicros = timestampMicros;
+    } else if (!detected && m_noteDetected) {
+      if (m_noteLoadedMicros >= 0) IntakeToShot.add((timestampMicros - m_noteLoadedMicros) / 1e6);
+      if (m_lastShotMicros >= 0) ShotToShot.add((timestampMicros - m_lastShotMicros) / 1e6);
+      m_lastShotMicros = timestampMicros;
+    }
+
+    m_noteDetected = detected;
+  }
+
+  /**
+   * Integrates the time spent enabled and aligned since the last snap-to sample, then takes the new state
+   */
+  private void onSnapTo(boolean enabled, boolean aligned, long timestampMicros) {
+    if (m_snapToLastMicros >= 0 && m_snapToEnabled) {
+      var dt = (timestampMicros - m_snapToLastMicros) / 1e6;
+      SnapToEnabledSeconds += dt;
+      if (m_snapToAligned) SnapToAlignedSeconds += dt;
+    }
+
+    if (enabled && !m_snapToEnabled) {
+      m_snapToEnabledMicros = timestampMicros;
+      m_snapToHasAligned = false;
+    }
+
+    if (enabled && aligned && !m_snapToHasAligned && m_snapToEnabledMicros >= 0) {
+      SnapToTimeToAlign.add((timestampMicros - m_snapToEnabledMicros) / 1e6);
+      m_snapToHasAligned = true;
+    }
+
+    m_snapToEnabled = enabled;
+    m_snapToAligned = aligned;
+    m_snapToLastMicros = timestampMicros;
+  }
+
+  private void onBrownedOut(boolean brownedOut, long timestampMicros) {
+    if (brownedOut && !m_brownedOut) {
+      m_brownoutStartMicros = timestampMicros;
+    } else if (!brownedOut && m_brownedOut && m_brownoutStartMicros >= 0) {
+      Brownouts.add((timestampMicros - m_brownoutStartMicros) / 1e6);
+    }
+
+    m_brownedOut = brownedOut;
+  }
+
+  //#endregion
+
+  private static int getRole(String name, String type) {
+    if (type.equals("boolean")) {
+      if (name.endsWith("Shooter/NoteDetected")) return NOTE_DETECTED;
+      if (name.endsWith("Drive/SnapTo/Enabled")) return SNAP_TO_ENABLED;
+      if (name.endsWith("Drive/SnapTo/Aligned")) return SNAP_TO_ALIGNED;
+      if (name.endsWith("Drive/Vision/Rear/Accepted")) return REAR_ACCEPTED;
+      if (name.endsWith("Drive/Vision/Front/Accepted")) return FRONT_ACCEPTED;
+      if (name.endsWith("Robot/BrownedOut")) return BROWNED_OUT;
+    } else if (type.equals("double")) {
+      if (name.endsWith("Robot/LoopPeriod (ms)")) return LOOP_PERIOD;
+      if (name.endsWith("Robot/PeriodicTime (ms)")) return PERIODIC_TIME;
+      if (name.endsWith("Robot/BatteryVoltage")) return BATTERY_VOLTAGE;
+    }
+
+    return NONE;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static JSONObject histogramToJson(LatencyHistogram histogram) {
+    var json = new JSONObject();
+    json.put("count", histogram.getCount());
+    json.put("p50Ms", histogram.getPercentileMs(0.5));
+    json.put("p95Ms", histogram.getPercentileMs(0.95));
+    json.put("p99Ms", histogram.getPercentileMs(0.99));
+    json.put("maxMs", histogram.getMaxMs());
+
+    return json;
+  }
+}
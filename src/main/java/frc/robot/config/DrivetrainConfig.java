@@ -19,6 +19,7 @@ public class DrivetrainConfig {
   // Control properties
   public double DriveDeadband;
   public double DeadbandCurveWeight;
+  public double ControlLoopPeriodSeconds;
 
   // PID configs
   public PrimePIDConstants DrivePID;
@@ -31,6 +32,28 @@ public class DrivetrainConfig {
   public String LimelightRearName;
   public String LimelightFrontName;
 
+  // Traction monitoring
+  public double ModuleSlipThresholdMetersPerSecond;
+  public double ChassisSlipThresholdMetersPerSecond;
+  public double CollisionThresholdG;
+  public double TractionRecoverySeconds;
+  public double TractionLossAccelerationMetersPerSecondSquared;
+  public double TractionLossVisionSeconds;
+  public double TractionLossVisionStdDevScale;
+
+  // Pose estimation. The EKF estimator fuses the IMU as well, the default is WPILib's
+  public boolean UseEkfPoseEstimator;
+  public double EkfWheelVelocityStdDev;
+  public double EkfAccelerationStdDev;
+  public double EkfAngularAccelerationStdDev;
+  public double EkfGyroStdDevRadians;
+  public double EkfYawRateStdDev;
+  public double EkfHistorySeconds;
+
+  // Settle times the autotuner proposes gains for
+  public double SteeringTargetSettleSeconds;
+  public double SnapToTargetSettleSeconds;
+
   /**
    * Gets a default instance of a DrivetrainConfig with all properties set to 2024 robot values
    */
@@ -44,6 +67,7 @@ public class DrivetrainConfig {
     PigeonId = 1;
     DriveDeadband = 0.15;
     DeadbandCurveWeight = 0.5;
+    ControlLoopPeriodSeconds = 0.01; // 100Hz, twice the main loop rate
     DrivePID = new PrimePIDConstants(0.019, 0, 0, 0, 0.091, 0, 0.05);
     SteeringPID = new PrimePIDConstants(2, 0, 0);
     SnapToPID = new PrimePIDConstants(6, 0, 0);
@@ -51,5 +75,21 @@ public class DrivetrainConfig {
     PathingRotationPid = new PrimePIDConstants(2, 0, 0);
     LimelightRearName = "limelight-rear";
     LimelightFrontName = "limelight-front";
+    ModuleSlipThresholdMetersPerSecond = 0.4; // How far a module can disagree with the others
+    ChassisSlipThresholdMetersPerSecond = 0.5; // How far the wheels can disagree with the IMU
+    CollisionThresholdG = 1.5; // More than the wheels' grip can produce
+    TractionRecoverySeconds = 0.25;
+    TractionLossAccelerationMetersPerSecondSquared = 3;
+    TractionLossVisionSeconds = 1.5; // Odometry error from a slip lingers until vision corrects it
+    TractionLossVisionStdDevScale = 0.5;
+    UseEkfPoseEstimator = false;
+    EkfWheelVelocityStdDev = 0.05; // m/s
+    EkfAccelerationStdDev = 2; // m/s², bumps and slip the IMU misses
+    EkfAngularAccelerationStdDev = 10; // rad/s²
+    EkfGyroStdDevRadians = 0.002;
+    EkfYawRateStdDev = 0.02; // rad/s
+    EkfHistorySeconds = 1.5; // As long as WPILib keeps for vision latency
+    SteeringTargetSettleSeconds = 0.15;
+    SnapToTargetSettleSeconds = 0.5;
   }
 }
@@ -14,6 +14,13 @@ public class IntakeConfig {
 
   public PrimePIDConstants IntakeAnglePid;
   public double PositionDelta;
+  public double ArmTargetSettleSeconds; // The settle time the autotuner proposes a gain for
+
+  // The arm's angle from horizontal against the top and bottom limit switches, PositionDelta apart, and the voltage
+  // that holds it at horizontal, kG, which characterization measures
+  public double ArmStowedAngleDegrees;
+  public double ArmDeployedAngleDegrees;
+  public double ArmGravityVolts;
 
   public int TopLimitSwitchChannel;
   public int BottomLimitSwitchChannel;
@@ -30,6 +37,10 @@ public class IntakeConfig {
     NeoRightInverted = true;
     IntakeAnglePid = new PrimePIDConstants(0.05, 0, 0);
     PositionDelta = 49;
+    ArmTargetSettleSeconds = 0.75;
+    ArmStowedAngleDegrees = 90;
+    ArmDeployedAngleDegrees = -10;
+    ArmGravityVolts = 0;
     TopLimitSwitchChannel = 4;
     BottomLimitSwitchChannel = 5;
   }
@@ -0,0 +1,23 @@
+package frc.robot.config;
+
+public class LoggingConfig {
+
+  public long RecorderMaxFileSizeBytes;
+  public long RecorderDiskBudgetBytes;
+
+  public double BlackBoxDurationSeconds;
+  public int BlackBoxOverrunStreak;
+
+  public double TelemetryPeriodSeconds;
+
+  /**
+   * Creates a new instance of LoggingConfig with default values
+   */
+  public LoggingConfig() {
+    RecorderMaxFileSizeBytes = 32L * 1024 * 1024; // 32 MB per file
+    RecorderDiskBudgetBytes = 512L * 1024 * 1024; // 512 MB of recordings on the roboRIO
+    BlackBoxDurationSeconds = 10;
+    BlackBoxOverrunStreak = 5;
+    TelemetryPeriodSeconds = 0.1; // Dashboards and telemetry update at 10Hz
+  }
+}
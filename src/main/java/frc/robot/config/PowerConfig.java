@@ -0,0 +1,81 @@
+package frc.robot.config;
+
+public class PowerConfig {
+
+  public boolean Enabled;
+  public double SamplePeriodSeconds;
+
+  // Total current budget, shrunk as the battery sags
+  public double TotalCurrentBudgetAmps;
+  public double SagStartVolts;
+  public double SagFloorVolts;
+  public double MinBudgetFraction;
+
+  // Per motor limits, handed out in this order: drive, steering, shooter, intake. The maximums are the limits the
+  // motors are configured with, so the budget only ever lowers them
+  public double DriveMinAmps;
+  public double DriveMaxAmps;
+  public double SteeringMinAmps;
+  public double SteeringMaxAmps;
+  public double ShooterMinAmps;
+  public double ShooterMaxAmps;
+  public double IntakeMinAmps;
+  public double IntakeMaxAmps;
+
+  // The compressor runs only when this much budget is left over
+  public double CompressorAmps;
+
+  // Limits are rounded down to this step, so small budget changes don't write to the devices
+  public double LimitStepAmps;
+
+  // Limits are lowered as motors heat up, so none of them would reach its thermal limit within the horizon. The drive
+  // motors are derated with a stator limit, which is left off while the allowed current is above its maximum
+  public double ThermalHorizonSeconds;
+  public double DriveStatorMinAmps;
+  public double DriveStatorMaxAmps;
+
+  // PDH channels of each mechanism, for energy accounting. Placeholders, check them against the robot's wiring
+  public double EnergySamplePeriodSeconds;
+  public int[] FrontLeftModuleChannels;
+  public int[] FrontRightModuleChannels;
+  public int[] RearLeftModuleChannels;
+  public int[] RearRightModuleChannels;
+  public int[] ShooterChannels;
+  public int[] IntakeChannels;
+  public int[] ClimbersChannels;
+  public int[] CompressorChannels;
+
+  /**
+   * Creates a new instance of PowerConfig with default values
+   */
+  public PowerConfig() {
+    Enabled = true;
+    SamplePeriodSeconds = 0.05;
+    TotalCurrentBudgetAmps = 755; // Every maximum plus the compressor, so only a sag or heat cuts the limits
+    SagStartVolts = 10.0; // Start cutting the budget here
+    SagFloorVolts = 7.5; // Budget is at its minimum here, just above the roboRIO's 6.8V brownout
+    MinBudgetFraction = 0.5;
+    DriveMinAmps = 25;
+    DriveMaxAmps = 40; // The drive supply limit in SwerveModuleConfig
+    SteeringMinAmps = 15;
+    SteeringMaxAmps = 100; // The steering stall limit in SwerveModule
+    ShooterMinAmps = 20;
+    ShooterMaxAmps = 60;
+    IntakeMinAmps = 15;
+    IntakeMaxAmps = 40; // The stall limit in Intake
+    CompressorAmps = 15;
+    LimitStepAmps = 5;
+    ThermalHorizonSeconds = 30;
+    DriveStatorMinAmps = 40; // About what a Falcon 500 can sustain
+    DriveStatorMaxAmps = 120;
+    EnergySamplePeriodSeconds = 0.01;
+    FrontLeftModuleChannels = new int[] { 0, 1 }; // Drive, steering
+    FrontRightModuleChannels = new int[] { 2, 3 };
+    RearLeftModuleChannels = new int[] { 4, 5 };
+    RearRightModuleChannels = new int[] { 6, 7 };
+    ShooterChannels = new int[] { 8, 9 }; // TalonFX, VictorSPX
+    IntakeChannels = new int[] { 10, 11, 12 }; // Rollers, left angle, right angle
+    ClimbersChannels = new int[] { 13, 14 };
+    CompressorChannels = new int[] { 15 }; // The pneumatic hub
+  }
+}
@@ -1,6 +1,7 @@
 package frc.robot.config;
 
 import edu.wpi.first.math.geometry.Translation2d;
+import prime.utilities.TuningStore;
 
 public class RobotConfig {
 
@@ -14,7 +15,11 @@ public class RobotConfig {
   public ShooterConfig Shooter;
   public ClimbersConfig Climbers;
   public LEDConfig LEDs;
+  public LoggingConfig Logging;
+  public WarmupConfig Warmup;
+  public PowerConfig Power;
   public int PneumaticsModuleId;
+  public int PowerDistributionModuleId;
 
   public RobotConfig() {
     Name = "[none]";
@@ -35,7 +40,11 @@ public class RobotConfig {
     config.Shooter = new ShooterConfig();
     config.Climbers = new ClimbersConfig();
     config.LEDs = new LEDConfig();
+    config.Logging = new LoggingConfig();
+    config.Warmup = new WarmupConfig();
+    config.Power = new PowerConfig();
     config.PneumaticsModuleId = 30;
+    config.PowerDistributionModuleId = 1;
 
     var wheelLocationAbsoluteX = config.Drivetrain.TrackWidthMeters / 2;
     var wheelLocationAbsoluteY = config.Drivetrain.WheelBaseMeters / 2;
@@ -99,6 +108,29 @@ public class RobotConfig {
     return config;
   }
 
+  /**
+   * Overrides the defaults with results measured on the robot. Call after {@link TuningStore#load()}
+   */
+  public void applyTuning() {
+    TuningStore.apply("Drive/Feedforward", Drivetrain.DrivePID);
+    TuningStore.apply("Drive/SteeringPID", Drivetrain.SteeringPID);
+    TuningStore.apply("Drive/SnapToPID", Drivetrain.SnapToPID);
+    TuningStore.apply("Intake/ArmPID", Intake.IntakeAnglePid);
+
+    // Only the arm's gravity term is fed forward, its kS, kV and kA are recorded for tuning
+    var armFeedforward = TuningStore.get("Intake/Arm/Feedforward");
+    if (armFeedforward != null) Intake.ArmGravityVolts = armFeedforward.getOrDefault("kG", Intake.ArmGravityVolts);
+
+    var wheel = TuningStore.get("Drive/WheelDiameter");
+    if (wheel != null && wheel.containsKey("DiameterMeters")) {
+      var diameter = wheel.get("DiameterMeters");
+      FrontLeftSwerveModule.setDriveWheelDiameter(diameter);
+      FrontRightSwerveModule.setDriveWheelDiameter(diameter);
+      RearLeftSwerveModule.setDriveWheelDiameter(diameter);
+      RearRightSwerveModule.setDriveWheelDiameter(diameter);
+    }
+  }
+
   @Override
   public String toString() {
     return Name;
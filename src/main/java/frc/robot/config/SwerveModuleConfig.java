@@ -56,7 +56,15 @@ public class SwerveModuleConfig {
     ModuleLocationYMeters = location.getY();
 
     DriveGearRatio = driveGearRatio;
-    DriveWheelDiameterMeters = driveWheelDiameterMeters;
+    setDriveWheelDiameter(driveWheelDiameterMeters);
+  }
+
+  /**
+   * Sets the wheel diameter and the circumference derived from it
+   * @param diameterMeters
+   */
+  public void setDriveWheelDiameter(double diameterMeters) {
+    DriveWheelDiameterMeters = diameterMeters;
     DriveWheelCircumferenceMeters = Math.PI * DriveWheelDiameterMeters;
   }
 
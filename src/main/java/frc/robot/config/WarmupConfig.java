@@ -0,0 +1,17 @@
+package frc.robot.config;
+
+public class WarmupConfig {
+
+  public boolean Enabled;
+  public int Iterations;
+  public double SliceSeconds;
+
+  /**
+   * Creates a new instance of WarmupConfig with default values
+   */
+  public WarmupConfig() {
+    Enabled = true;
+    Iterations = 20000; // Comfortably past the JIT's C2 compile thresholds
+    SliceSeconds = 0.004; // Time spent warming up in each disabled loop
+  }
+}
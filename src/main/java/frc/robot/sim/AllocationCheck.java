@@ -0,0 +1,191 @@
+package frc.robot.sim;
+
+import frc.robot.RobotContainer;
+import frc.robot.config.RobotConfig;
+import frc.robot.subsystems.Limelight;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import prime.diagnostics.AllocationCounter;
+import prime.diagnostics.LoopProfiler;
+
+/**
+ * Runs the robot in the simulator in each mode and fails when a loop section or background thread allocates more
+ * than its budget, or doesn't exist, e.g. after it was renamed. GC pauses on the roboRIO's small heap are our most
+ * common cause of loop overruns, so new allocations in periodic code should be a deliberate choice.
+ *
+ * Budgets are mean bytes per main loop that the section ran in. Run it with "./gradlew checkAllocations", which
+ * also writes build/reports/allocations.json.
+ */
+public final class AllocationCheck {
+
+  private static final double SETTLE_SECONDS = 1.0;
+  private static final int MEASURED_LOOPS = 500;
+
+  // Main thread sections, from the LoopProfiler
+  private static final List<Map.Entry<String, Long>> SECTION_BUDGETS = List.of(
+    Map.entry("Robot/Periodic", 32_768L),
+    Map.entry("Drive/Control", 16_384L),
+    Map.entry("Drive/Periodic", 8_192L),
+    Map.entry("Shooter/Periodic", 1_024L),
+    Map.entry("Robot/Telemetry", 16_384L)
+  );
+
+  // Background threads
+  private static final String LED_THREAD = "LEDs";
+  private static final long LED_BUDGET_BYTES_PER_LOOP = 1_024L;
+  private static final long LIMELIGHT_BUDGET_BYTES_PER_BLINK = 4_096L;
+
+  private static final String[] MODES = { "Disabled", "Autonomous", "Teleop" };
+
+  private static final ArrayList<String> s_failures = new ArrayList<>();
+
+  private AllocationCheck() {}
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws Exception {
+    var reportFile = new File(args.length > 0 ? args[0] : "build/reports/allocations.json");
+
+    if (!AllocationCounter.isSupported()) {
+      System.err.println("[AllocationCheck] This JVM doesn't support per-thread allocation counters");
+      System.exit(1);
+    }
+
+    var container = SimHarness.startRobot().getRobotContainer();
+    LoopProfiler.setAllocationTracking(true);
+    SimHarness.step(SETTLE_SECONDS);
+
+    var report = new JSONObject();
+    var modes = new JSONArray();
+    for (var mode : MODES) modes.add(checkMode(mode));
+    report.put("modes", modes);
+    report.put("limelights", checkLimelights(container));
+
+    var failures = new JSONArray();
+    failures.addAll(s_failures);
+    report.put("failures", failures);
+
+    writeReport(report, reportFile);
+
+    if (!s_failures.isEmpty()) {
+      for (var failure : s_failures) System.err.println("[AllocationCheck] Failed: " + failure);
+      System.exit(1);
+    }
+
+    System.out.println("[AllocationCheck] Everything is within budget. Wrote " + reportFile.getAbsolutePath());
+    System.exit(0);
+  }
+
+  /**
+   * Enters a mode, lets its init allocations pass, then measures a fixed number of loops
+   */
+  @SuppressWarnings("unchecked")
+  private static JSONObject checkMode(String mode) {
+    SimHarness.setMode(!mode.equals("Disabled"), mode.equals("Autonomous"));
+    SimHarness.step(SETTLE_SECONDS);
+
+    // The robot thread is parked in the notifier between steps, so the sections are safe to reset from here
+    LoopProfiler.reset();
+    var ledThread = findThread(LED_THREAD);
+    if (ledThread == null) fail(mode + " has no " + LED_THREAD + " thread");
+    var ledStartBytes = ledThread != null ? AllocationCounter.threadBytes(ledThread.getId()) : 0;
+
+    SimHarness.step(MEASURED_LOOPS * SimHarness.MAIN_LOOP_SECONDS);
+
+    var result = new JSONObject();
+    result.put("mode", mode);
+
+    var sections = new JSONObject();
+    for (var budget : SECTION_BUDGETS) {
+      var section = LoopProfiler.getSection(budget.getKey());
+      if (section == null) {
+        fail(mode + " has no " + budget.getKey() + " loop section");
+        continue;
+      }
+
+      var sectionJson = new JSONObject();
+      sectionJson.put("meanBytesPerLoop", section.getMeanLoopBytes());
+      sectionJson.put("maxBytesPerLoop", section.getMaxLoopBytes());
+      sectionJson.put("budgetBytesPerLoop", budget.getValue());
+      sections.put(budget.getKey(), sectionJson);
+
+      checkBudget(mode + " " + budget.getKey(), section.getMeanLoopBytes(), budget.getValue());
+    }
+    result.put("sections", sections);
+
+    if (ledThread != null) {
+      var ledBytes = AllocationCounter.threadBytes(ledThread.getId()) - ledStartBytes;
+      var ledBytesPerLoop = (double) ledBytes / MEASURED_LOOPS;
+      result.put("ledBytesPerLoop", ledBytesPerLoop);
+      checkBudget(mode + " " + LED_THREAD + " thread", ledBytesPerLoop, LED_BUDGET_BYTES_PER_LOOP);
+    }
+
+    System.out.println("[AllocationCheck] " + result.toJSONString());
+    return result;
+  }
+
+  /**
+   * Blinks each Limelight's LEDs twice and measures the second blink, since the first creates the thread
+   */
+  @SuppressWarnings("unchecked")
+  private static JSONObject checkLimelights(RobotContainer container) throws InterruptedException {
+    var result = new JSONObject();
+
+    var config = RobotConfig.getDefault().Drivetrain;
+    checkLimelight(config.LimelightRearName, container.Drivetrain.LimelightRear, result);
+    checkLimelight(config.LimelightFrontName, container.Drivetrain.LimelightFront, result);
+
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void checkLimelight(String name, Limelight limelight, JSONObject result) throws InterruptedException {
+    limelight.blinkLed(1);
+    Thread.sleep(500);
+
+    var thread = findThread("Limelight/" + name);
+    if (thread == null) {
+      fail("Blinking the LEDs of Limelight " + name + " didn't start its Limelight/" + name + " thread");
+      return;
+    }
+
+    var startBytes = AllocationCounter.threadBytes(thread.getId());
+    limelight.blinkLed(1);
+    Thread.sleep(500);
+
+    var bytesPerBlink = AllocationCounter.threadBytes(thread.getId()) - startBytes;
+    result.put(name, bytesPerBlink);
+    checkBudget(thread.getName() + " thread", bytesPerBlink, LIMELIGHT_BUDGET_BYTES_PER_BLINK);
+  }
+
+  private static void checkBudget(String name, double bytes, long budgetBytes) {
+    if (bytes > budgetBytes) {
+      fail(String.format("%s allocated %.0f bytes, over its budget of %d", name, bytes, budgetBytes));
+    }
+  }
+
+  private static void fail(String message) {
+    s_failures.add(message);
+  }
+
+  private static Thread findThread(String name) {
+    for (var thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals(name)) return thread;
+    }
+
+    return null;
+  }
+
+  private static void writeReport(JSONObject report, File file) throws IOException {
+    file.getParentFile().mkdirs();
+
+    try (var writer = new FileWriter(file)) {
+      writer.write(report.toJSONString());
+    }
+  }
+}
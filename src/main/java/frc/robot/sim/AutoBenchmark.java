@@ -0,0 +1,130 @@
+package frc.robot.sim;
+
+import com.pathplanner.lib.path.PathPlannerPath;
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Robot;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import prime.diagnostics.AllocationCounter;
+import prime.diagnostics.LoopProfiler;
+
+/**
+ * Runs every PathPlanner auto in the simulator as fast as the CPU allows and writes a JSON report.
+ *
+ * The HAL clock is paused and stepped by hand (see {@link SimHarness}), so every run sees the same deterministic time.
+ * Run it with "./gradlew simulateAutos".
+ */
+public final class AutoBenchmark {
+
+  private static final double SETTLE_SECONDS = 1.0;
+  private static final double AUTO_TIMEOUT_SECONDS = 15.0;
+
+  private static Robot s_robot;
+
+  private AutoBenchmark() {}
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws Exception {
+    var reportFile = new File(args.length > 0 ? args[0] : "build/reports/autos.json");
+
+    s_robot = SimHarness.startRobot();
+    SimHarness.step(SETTLE_SECONDS);
+
+    var report = new JSONArray();
+    for (var autoName : s_robot.getRobotContainer().Autos.getAutoNames()) {
+      var result = runAuto(autoName, SimHarness.getRobotThread().getId());
+      report.add(result);
+      System.out.println("[AutoBenchmark] " + result.toJSONString());
+    }
+
+    writeReport(report, reportFile);
+    System.out.println("[AutoBenchmark] Wrote " + report.size() + " results to " + reportFile.getAbsolutePath());
+
+    // The robot loop never returns on its own
+    System.exit(0);
+  }
+
+  /**
+   * Runs one auto from a disabled start and measures it
+   */
+  @SuppressWarnings("unchecked")
+  private static JSONObject runAuto(String autoName, long robotThreadId) {
+    var container = s_robot.getRobotContainer();
+    var autoCommand = container.Autos.getCommand(autoName, false);
+    container.setAutonomousOverride(autoCommand);
+
+    // Enable in autonomous. autonomousInit schedules the override and resets the profiler
+    SimHarness.setMode(true, true);
+
+    var startBytes = AllocationCounter.threadBytes(robotThreadId);
+    var elapsed = 0.0;
+    var started = false;
+
+    while (elapsed < AUTO_TIMEOUT_SECONDS) {
+      SimHarness.step(SimHarness.STEP_SECONDS);
+      elapsed += SimHarness.STEP_SECONDS;
+
+      if (autoCommand.isScheduled()) {
+        started = true;
+      } else if (started) {
+        break;
+      }
+    }
+
+    var allocatedBytes = AllocationCounter.threadBytes(robotThreadId) - startBytes;
+    var completed = started && !autoCommand.isScheduled();
+    var loopHistogram = LoopProfiler.getPeriodicHistogram();
+    var loopCount = Math.max(1, Math.round(elapsed / SimHarness.MAIN_LOOP_SECONDS));
+
+    var groundTruth = container.Drivetrain.getSimGroundTruthPose();
+    var estimated = container.Drivetrain.getPose();
+    var target = getFinalPose(container.Autos.getPaths(autoName));
+
+    var result = new JSONObject();
+    result.put("name", autoName);
+    result.put("completed", completed);
+    result.put("completionSeconds", completed ? elapsed : null);
+    if (target != null) {
+      result.put("finalPoseErrorMeters", target.getTranslation().getDistance(groundTruth.getTranslation()));
+      result.put(
+        "finalHeadingErrorDegrees",
+        Math.abs(target.getRotation().minus(groundTruth.getRotation()).getDegrees())
+      );
+    }
+    result.put("estimatorErrorMeters", estimated.getTranslation().getDistance(groundTruth.getTranslation()));
+    result.put("p99LoopMs", loopHistogram.getPercentileMs(0.99));
+    result.put("peakLoopMs", loopHistogram.getMaxMs());
+    result.put("allocatedBytesPerLoop", allocatedBytes / loopCount);
+
+    // Disable and let the robot come to rest before the next auto
+    SimHarness.setMode(false, false);
+    SimHarness.step(SETTLE_SECONDS);
+    container.setAutonomousOverride(null);
+
+    return result;
+  }
+
+  /**
+   * Gets the pose at the end of the last path in an auto, or null if it has no paths
+   */
+  private static Pose2d getFinalPose(List<PathPlannerPath> paths) {
+    if (paths.isEmpty()) return null;
+
+    var lastPath = paths.get(paths.size() - 1);
+    var poses = lastPath.getPathPoses();
+
+    return new Pose2d(poses.get(poses.size() - 1).getTranslation(), lastPath.getGoalEndState().getRotation());
+  }
+
+  private static void writeReport(JSONArray report, File file) throws IOException {
+    file.getParentFile().mkdirs();
+
+    try (var writer = new FileWriter(file)) {
+      writer.write(report.toJSONString());
+    }
+  }
+}
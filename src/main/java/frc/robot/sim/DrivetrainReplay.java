@@ -0,0 +1,115 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import frc.robot.config.RobotConfig;
+import frc.robot.subsystems.DrivetrainEstimator;
+import frc.robot.subsystems.DrivetrainInputs;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays the drivetrain inputs recorded in a match log through {@link DrivetrainEstimator} as fast as the CPU allows,
+ * and writes the new estimator outputs to a separate log. Change the estimator or its trust parameters, then replay
+ * to compare against what the robot estimated on the field.
+ *
+ * Run it with "./gradlew replayDrive -PreplayLog=path/to/FRC_log.wpilog".
+ */
+public final class DrivetrainReplay {
+
+  private DrivetrainReplay() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: DrivetrainReplay <input.wpilog> [output.wpilog]");
+      System.exit(1);
+    }
+
+    var inputFile = new File(args[0]);
+    var outputFile = args.length > 1
+      ? new File(args[1])
+      : new File(inputFile.getParentFile(), inputFile.getName().replace(".wpilog", "") + "_replay.wpilog");
+
+    var reader = new DataLogReader(inputFile.getPath());
+    if (!reader.isValid()) throw new IOException("Not a valid WPILOG file: " + inputFile);
+
+    var config = RobotConfig.getDefault();
+    var kinematics = new SwerveDriveKinematics(
+      config.FrontLeftSwerveModule.getModuleLocation(),
+      config.FrontRightSwerveModule.getModuleLocation(),
+      config.RearLeftSwerveModule.getModuleLocation(),
+      config.RearRightSwerveModule.getModuleLocation()
+    );
+
+    var outputLog = new DataLog(outputFile.getAbsoluteFile().getParent(), outputFile.getName());
+    var estimatedPoseEntry = new DoubleArrayLogEntry(outputLog, "Replay/EstimatedPose");
+    var rearAcceptedEntry = new BooleanLogEntry(outputLog, "Replay/Vision/Rear/Accepted");
+    var frontAcceptedEntry = new BooleanLogEntry(outputLog, "Replay/Vision/Front/Accepted");
+    var poseValues = new double[3];
+
+    var inputs = new DrivetrainInputs();
+    DrivetrainEstimator estimator = null;
+    int odometryId = -1, visionId = -1, resetId = -1;
+    long odometryCount = 0, visionCount = 0;
+    var startNanos = System.nanoTime();
+
+    for (var record : reader) {
+      if (record.isStart()) {
+        var start = record.getStartData();
+
+        if (start.name.equals(DrivetrainInputs.ODOMETRY_ENTRY)) odometryId = start.entry;
+        else if (start.name.equals(DrivetrainInputs.VISION_ENTRY)) visionId = start.entry;
+        else if (start.name.equals(DrivetrainInputs.RESET_ENTRY)) resetId = start.entry;
+
+        continue;
+      }
+
+      if (record.isControl()) continue;
+
+      var entry = record.getEntry();
+      var timestamp = record.getTimestamp();
+
+      if (entry == odometryId) {
+        inputs.readOdometry(record.getDoubleArray(), timestamp);
+
+        // The robot creates its estimator from the first odometry sample, at the origin
+        if (estimator == null) estimator = new DrivetrainEstimator(config, kinematics, inputs, new Pose2d());
+        estimator.updateOdometry(inputs);
+        odometryCount++;
+      } else if (entry == resetId) {
+        var pose = inputs.readReset(record.getDoubleArray(), timestamp);
+
+        if (estimator == null) estimator = new DrivetrainEstimator(config, kinematics, inputs, pose);
+        estimator.resetPosition(inputs, pose);
+      } else if (entry == visionId && estimator != null) {
+        inputs.readVision(record.getDoubleArray(), timestamp);
+        estimator.evaluateVision(inputs);
+        rearAcceptedEntry.append(estimator.RearAccepted, timestamp);
+        frontAcceptedEntry.append(estimator.FrontAccepted, timestamp);
+        visionCount++;
+      } else {
+        continue;
+      }
+
+      var estimatedPose = estimator.getEstimatedPosition();
+      poseValues[0] = estimatedPose.getX();
+      poseValues[1] = estimatedPose.getY();
+      poseValues[2] = estimatedPose.getRotation().getDegrees();
+      estimatedPoseEntry.append(poseValues, timestamp);
+    }
+
+    outputLog.close();
+
+    System.out.printf(
+      "[DrivetrainReplay] Replayed %d odometry and %d vision samples in %.2fs, wrote %s%n",
+      odometryCount,
+      visionCount,
+      (System.nanoTime() - startNanos) / 1e9,
+      outputFile.getAbsolutePath()
+    );
+  }
+}
@@ -0,0 +1,272 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.config.RobotConfig;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import prime.physics.EkfSwervePoseEstimator;
+import prime.physics.SwervePoseEstimator;
+import prime.physics.WpilibSwervePoseEstimator;
+
+/**
+ * Drives a simulated robot along a seeded course and feeds the same noisy wheel, gyro, IMU and late vision samples to
+ * WPILib's pose estimator and the EKF, then writes how far each strayed from the ground truth and how long each took
+ * per update to a JSON report.
+ *
+ * The course has what the robot simulator's ideal modules never do: a module spinning out with the rest of the wheels
+ * overrunning, and the robot being shoved sideways with its wheels not turning. Run it with
+ * "./gradlew benchmarkEstimators".
+ */
+public final class EstimatorBenchmark {
+
+  private static final double PERIOD_SECONDS = 0.01;
+  private static final double DURATION_SECONDS = 60;
+  private static final int WARMUP_RUNS = 3;
+  private static final long[] SEEDS = { 1, 2, 3, 4, 5 };
+
+  // Sensor noise
+  private static final double WHEEL_NOISE = 0.02; // m/s
+  private static final double GYRO_NOISE = 0.001; // rad
+  private static final double YAW_RATE_NOISE = 0.01; // rad/s
+  private static final double ACCELERATION_NOISE = 0.2; // m/s²
+  private static final double ACCELERATION_BIAS = 0.05; // m/s²
+  private static final double VISION_NOISE = 0.1; // m
+  private static final double VISION_PERIOD_SECONDS = 0.04;
+  private static final double MIN_VISION_LATENCY = 0.03;
+  private static final double MAX_VISION_LATENCY = 0.08;
+
+  private static final String[] ESTIMATORS = { "wpilib", "ekf" };
+
+  /** A vision measurement on its way to the estimators */
+  private static class PendingVision {
+
+    double CaptureTimestamp;
+    double ArrivalTimestamp;
+    Pose2d Pose;
+  }
+
+  /** One estimator's results for one run */
+  private static class Result {
+
+    double SquaredErrorSum;
+    double SquaredHeadingErrorSum;
+    double MaxError;
+    double FinalError;
+    int Samples;
+    long[] UpdateNanos;
+    long VisionNanos;
+    int VisionCount;
+  }
+
+  private EstimatorBenchmark() {}
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws IOException {
+    var reportFile = new File(args.length > 0 ? args[0] : "build/reports/estimators.json");
+    var config = RobotConfig.getDefault();
+
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      for (var estimator : ESTIMATORS) run(config, estimator, i + 100);
+    }
+
+    var report = new JSONArray();
+    for (var estimator : ESTIMATORS) {
+      var squaredErrorSum = 0.0;
+      var squaredHeadingErrorSum = 0.0;
+      var maxError = 0.0;
+      var finalErrorSum = 0.0;
+      var samples = 0;
+      var visionNanos = 0L;
+      var visionCount = 0;
+      var updateNanos = new ArrayList<Long>();
+
+      for (var seed : SEEDS) {
+        var result = run(config, estimator, seed);
+        squaredErrorSum += result.SquaredErrorSum;
+        squaredHeadingErrorSum += result.SquaredHeadingErrorSum;
+        maxError = Math.max(maxError, result.MaxError);
+        finalErrorSum += result.FinalError;
+        samples += result.Samples;
+        visionNanos += result.VisionNanos;
+        visionCount += result.VisionCount;
+        for (var nanos : result.UpdateNanos) updateNanos.add(nanos);
+      }
+
+      var sortedNanos = updateNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+
+      var json = new JSONObject();
+      json.put("estimator", estimator);
+      json.put("rmsErrorMeters", Math.sqrt(squaredErrorSum / samples));
+      json.put("maxErrorMeters", maxError);
+      json.put("meanFinalErrorMeters", finalErrorSum / SEEDS.length);
+      json.put("rmsHeadingErrorDegrees", Math.toDegrees(Math.sqrt(squaredHeadingErrorSum / samples)));
+      json.put("meanUpdateNanos", Arrays.stream(sortedNanos).average().orElse(0));
+      json.put("p99UpdateNanos", sortedNanos[(int) (sortedNanos.length * 0.99)]);
+      json.put("meanVisionNanos", visionCount > 0 ? visionNanos / visionCount : 0);
+      report.add(json);
+      System.out.println("[EstimatorBenchmark] " + json.toJSONString());
+    }
+
+    reportFile.getParentFile().mkdirs();
+    try (var writer = new FileWriter(reportFile)) {
+      writer.write(report.toJSONString());
+    }
+    System.out.println("[EstimatorBenchmark] Wrote " + report.size() + " results to " + reportFile.getAbsolutePath());
+  }
+
+  /**
+   * Drives the course once with one estimator
+   */
+  private static Result run(RobotConfig config, String estimatorName, long seed) {
+    var random = new Random(seed);
+    var locations = new Translation2d[] {
+      config.FrontLeftSwerveModule.getModuleLocation(),
+      config.FrontRightSwerveModule.getModuleLocation(),
+      config.RearLeftSwerveModule.getModuleLocation(),
+      config.RearRightSwerveModule.getModuleLocation(),
+    };
+    var positions = new SwerveModulePosition[locations.length];
+    for (int i = 0; i < positions.length; i++) positions[i] = new SwerveModulePosition();
+
+    var estimator = createEstimator(config, estimatorName, locations, positions);
+    var visionStdDevs = VecBuilder.fill(VISION_NOISE * 1.5, VISION_NOISE * 1.5, 9999999);
+    var pending = new ArrayList<PendingVision>();
+
+    var steps = (int) (DURATION_SECONDS / PERIOD_SECONDS);
+    var result = new Result();
+    result.UpdateNanos = new long[steps];
+
+    double x = 0, y = 0, heading = 0;
+    double lastVx = 0, lastVy = 0;
+    var nextVisionTimestamp = 0.0;
+
+    for (int step = 1; step <= steps; step++) {
+      var t = step * PERIOD_SECONDS;
+
+      // The commanded course, field-relative, and a shove the wheels don't see
+      var driveVx = 3 * Math.sin(0.4 * t);
+      var driveVy = 2 * Math.sin(0.7 * t + 1);
+      var omega = 2 * Math.sin(0.5 * t);
+      var shoved = t % 10 >= 8 && t % 10 < 8.5;
+      var vx = driveVx;
+      var vy = driveVy + (shoved ? 1 : 0);
+
+      x += vx * PERIOD_SECONDS;
+      y += vy * PERIOD_SECONDS;
+      heading += omega * PERIOD_SECONDS;
+
+      var cos = Math.cos(heading);
+      var sin = Math.sin(heading);
+
+      // Wheels, with the drive overrunning and the first module spinning out while slipping
+      var slipping = t % 10 >= 5 && t % 10 < 6;
+      var overrun = slipping ? 1.3 : 1;
+      var wheelVx = (cos * driveVx + sin * driveVy) * overrun;
+      var wheelVy = (-sin * driveVx + cos * driveVy) * overrun;
+      for (int i = 0; i < positions.length; i++) {
+        var moduleVx = wheelVx - omega * locations[i].getY() + random.nextGaussian() * WHEEL_NOISE;
+        var moduleVy = wheelVy + omega * locations[i].getX() + random.nextGaussian() * WHEEL_NOISE;
+        if (slipping && i == 0) moduleVx += 1;
+
+        positions[i].distanceMeters += Math.hypot(moduleVx, moduleVy) * PERIOD_SECONDS;
+        positions[i].angle = new Rotation2d(moduleVx, moduleVy);
+      }
+
+      // IMU, robot-relative
+      var ax = (vx - lastVx) / PERIOD_SECONDS;
+      var ay = (vy - lastVy) / PERIOD_SECONDS;
+      lastVx = vx;
+      lastVy = vy;
+      estimator.addImuSample(
+        cos * ax + sin * ay + ACCELERATION_BIAS + random.nextGaussian() * ACCELERATION_NOISE,
+        -sin * ax + cos * ay + ACCELERATION_BIAS + random.nextGaussian() * ACCELERATION_NOISE,
+        omega + random.nextGaussian() * YAW_RATE_NOISE
+      );
+      var gyroAngle = new Rotation2d(heading + random.nextGaussian() * GYRO_NOISE);
+
+      var start = System.nanoTime();
+      estimator.updateWithTime(t, gyroAngle, positions);
+      result.UpdateNanos[step - 1] = System.nanoTime() - start;
+
+      // Vision, only seeing tags half the time, arriving late
+      if (t >= nextVisionTimestamp) {
+        nextVisionTimestamp = t + VISION_PERIOD_SECONDS;
+        if (t % 6 < 3) {
+          var vision = new PendingVision();
+          vision.CaptureTimestamp = t;
+          vision.ArrivalTimestamp =
+            t + MIN_VISION_LATENCY + random.nextDouble() * (MAX_VISION_LATENCY - MIN_VISION_LATENCY);
+          vision.Pose =
+            new Pose2d(
+              x + random.nextGaussian() * VISION_NOISE,
+              y + random.nextGaussian() * VISION_NOISE,
+              new Rotation2d(heading)
+            );
+          pending.add(vision);
+        }
+      }
+
+      for (var iterator = pending.iterator(); iterator.hasNext();) {
+        var vision = iterator.next();
+        if (vision.ArrivalTimestamp > t) continue;
+
+        start = System.nanoTime();
+        estimator.addVisionMeasurement(vision.Pose, vision.CaptureTimestamp, visionStdDevs);
+        result.VisionNanos += System.nanoTime() - start;
+        result.VisionCount++;
+        iterator.remove();
+      }
+
+      var estimate = estimator.getEstimatedPosition();
+      var error = Math.hypot(estimate.getX() - x, estimate.getY() - y);
+      var headingError = MathUtil.angleModulus(estimate.getRotation().getRadians() - heading);
+      result.SquaredErrorSum += error * error;
+      result.SquaredHeadingErrorSum += headingError * headingError;
+      result.MaxError = Math.max(result.MaxError, error);
+      result.FinalError = error;
+      result.Samples++;
+    }
+
+    return result;
+  }
+
+  private static SwervePoseEstimator createEstimator(
+    RobotConfig config,
+    String name,
+    Translation2d[] locations,
+    SwerveModulePosition[] positions
+  ) {
+    var drivetrain = config.Drivetrain;
+    if (name.equals("ekf")) {
+      return new EkfSwervePoseEstimator(
+        locations,
+        new Rotation2d(),
+        positions,
+        new Pose2d(),
+        drivetrain.EkfWheelVelocityStdDev,
+        drivetrain.EkfAccelerationStdDev,
+        drivetrain.EkfAngularAccelerationStdDev,
+        drivetrain.EkfGyroStdDevRadians,
+        drivetrain.EkfYawRateStdDev,
+        (int) Math.ceil(drivetrain.EkfHistorySeconds / PERIOD_SECONDS)
+      );
+    }
+
+    return new WpilibSwervePoseEstimator(
+      new SwerveDrivePoseEstimator(new SwerveDriveKinematics(locations), new Rotation2d(), positions, new Pose2d())
+    );
+  }
+}
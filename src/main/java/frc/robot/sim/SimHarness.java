@@ -0,0 +1,77 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Robot;
+
+/**
+ * Starts the robot in the simulator with the HAL clock paused, for desktop tools that step time by hand.
+ *
+ * Timer, Notifier, the robot loops and the LED patterns all read the paused clock, so every run sees the same
+ * deterministic time.
+ */
+final class SimHarness {
+
+  static final double STEP_SECONDS = 0.005;
+  static final double MAIN_LOOP_SECONDS = 0.02;
+
+  private static volatile Robot s_robot;
+  private static Thread s_robotThread;
+
+  private SimHarness() {}
+
+  /**
+   * Initializes the HAL, pauses the clock and starts the robot disabled on the blue alliance. Returns once the robot
+   * container has been built
+   */
+  static Robot startRobot() throws InterruptedException {
+    if (!HAL.initialize(500, 0)) throw new IllegalStateException("Failed to initialize the HAL");
+
+    // Take control of the clock before anything starts reading it
+    SimHooks.pauseTiming();
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    // The robot is created on its own thread, the same way RobotBase.startRobot runs it
+    s_robotThread =
+      new Thread(
+        () -> {
+          s_robot = new Robot();
+          s_robot.startCompetition();
+        },
+        "Robot"
+      );
+    s_robotThread.setDaemon(true);
+    s_robotThread.start();
+
+    while (s_robot == null || s_robot.getRobotContainer() == null) Thread.sleep(10);
+
+    return s_robot;
+  }
+
+  static Thread getRobotThread() {
+    return s_robotThread;
+  }
+
+  /**
+   * Changes the driver station mode
+   * @param enabled
+   * @param autonomous
+   */
+  static void setMode(boolean enabled, boolean autonomous) {
+    DriverStationSim.setAutonomous(autonomous);
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.notifyNewData();
+  }
+
+  /**
+   * Steps the paused HAL clock. Each step waits for the notifiers it wakes to finish
+   */
+  static void step(double seconds) {
+    for (var t = 0.0; t < seconds; t += STEP_SECONDS) SimHooks.stepTiming(STEP_SECONDS);
+  }
+}
@@ -1,14 +1,17 @@
 package frc.robot.subsystems;
 
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.ParamEnum;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.VictorSPXControlMode;
 import com.ctre.phoenix.motorcontrol.can.VictorSPX;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
@@ -17,6 +20,13 @@ import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
 import frc.robot.config.ClimbersConfig;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
+import prime.can.DeviceConfigurator;
+import prime.logging.BooleanSignal;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
+import prime.movers.LazyDoubleSolenoid;
+import prime.movers.LazyVictorSPX;
 
 public class Climbers extends SubsystemBase {
 
@@ -30,20 +40,36 @@ public class Climbers extends SubsystemBase {
   private DriverDashboard m_driverDashboard;
 
   // Motors
-  private VictorSPX m_leftVictorSPX;
-  private VictorSPX m_rightVictorSPX;
+  private static final double OPEN_LOOP_RAMP_SECONDS = 0.5;
+  private LazyVictorSPX m_leftVictorSPX;
+  private LazyVictorSPX m_rightVictorSPX;
 
   // Limit Switches
   private DigitalInput m_leftLimitSwitch;
   private DigitalInput m_rightLimitSwitch;
 
   // Clutch Solenoids
-  private DoubleSolenoid m_clutchSolenoidLeft;
-  private DoubleSolenoid m_clutchSolenoidRight;
+  private LazyDoubleSolenoid m_clutchSolenoidLeft;
+  private LazyDoubleSolenoid m_clutchSolenoidRight;
 
   // Member to track if the climb controls are enabled
   private boolean m_climbControlsEnabled = false;
 
+  // Simulation model, only created when running in simulation
+  private static final double SIM_TRAVEL_METERS = 0.6;
+  private static final double SIM_FREE_SPEED_METERS_PER_SECOND = 0.4;
+  private double m_simLeftPositionMeters = 0;
+  private double m_simRightPositionMeters = 0;
+  private DIOSim m_leftLimitSwitchSim;
+  private DIOSim m_rightLimitSwitchSim;
+
+  // Level2 logging
+  private BooleanSignal t_controlsEnabled = Telemetry.booleanSignal("Climbers/ControlsEnabled", LogLevel.Level2);
+  private DoubleSignal t_leftMotorOutput = Telemetry.doubleSignal("Climbers/LeftMotorOutput", LogLevel.Level2);
+  private DoubleSignal t_rightMotorOutput = Telemetry.doubleSignal("Climbers/RightMotorOutput", LogLevel.Level2);
+  private BooleanSignal t_leftLimitSwitch = Telemetry.booleanSignal("Climbers/LeftLimitSwitch", LogLevel.Level2);
+  private BooleanSignal t_rightLimitSwitch = Telemetry.booleanSignal("Climbers/RightLimitSwitch", LogLevel.Level2);
+
   /**
    * Creates a new Climbers subsystem
    * @param config
@@ -52,30 +78,33 @@ public class Climbers extends SubsystemBase {
     m_config = config;
     m_driverDashboard = dashboard;
 
-    m_leftVictorSPX = new VictorSPX(config.VictorSPXLeftCanID);
-    m_leftVictorSPX.configFactoryDefault();
+    m_leftVictorSPX = new LazyVictorSPX(config.VictorSPXLeftCanID);
+    configureMotor("Climbers/Left", m_leftVictorSPX);
     m_leftVictorSPX.setInverted(config.LeftInverted);
     m_leftVictorSPX.setNeutralMode(NeutralMode.Brake);
-    m_leftVictorSPX.configOpenloopRamp(0.5);
 
-    m_rightVictorSPX = new VictorSPX(config.VictorSPXRightCanID);
-    m_rightVictorSPX.configFactoryDefault();
+    m_rightVictorSPX = new LazyVictorSPX(config.VictorSPXRightCanID);
+    configureMotor("Climbers/Right", m_rightVictorSPX);
     m_rightVictorSPX.setInverted(config.RightInverted);
     m_rightVictorSPX.setNeutralMode(NeutralMode.Brake);
-    m_rightVictorSPX.configOpenloopRamp(0.5);
 
     m_leftLimitSwitch = new DigitalInput(config.LeftLimitSwitchDIOChannel);
     m_rightLimitSwitch = new DigitalInput(config.RightLimitSwitchDIOChannel);
 
+    if (RobotBase.isSimulation()) {
+      m_leftLimitSwitchSim = new DIOSim(m_leftLimitSwitch);
+      m_rightLimitSwitchSim = new DIOSim(m_rightLimitSwitch);
+    }
+
     m_clutchSolenoidLeft =
-      new DoubleSolenoid(
+      new LazyDoubleSolenoid(
         30,
         PneumaticsModuleType.REVPH,
         m_config.LeftSolenoidForwardChannel,
         m_config.LeftSolenoidReverseChannel
       );
     m_clutchSolenoidRight =
-      new DoubleSolenoid(
+      new LazyDoubleSolenoid(
         30,
         PneumaticsModuleType.REVPH,
         m_config.RightSolenoidForwardChannel,
@@ -83,8 +112,29 @@ public class Climbers extends SubsystemBase {
       );
   }
 
+  /**
+   * Writes the motor's saved settings in the background, unless it already has them. Inversion and neutral mode
+   * aren't saved on the device, so they're set on every boot
+   */
+  private static void configureMotor(String name, VictorSPX motor) {
+    DeviceConfigurator.configure(
+      name,
+      "factoryDefault;openLoopRamp=" + OPEN_LOOP_RAMP_SECONDS,
+      () -> Math.abs(motor.configGetParameter(ParamEnum.eOpenloopRamp, 0) - OPEN_LOOP_RAMP_SECONDS) < 0.01,
+      () -> {
+        var ok = motor.configFactoryDefault() == ErrorCode.OK;
+
+        return ok && motor.configOpenloopRamp(OPEN_LOOP_RAMP_SECONDS) == ErrorCode.OK;
+      }
+    );
+  }
+
   //#region Control Methods
 
+  public boolean areClimbControlsEnabled() {
+    return m_climbControlsEnabled;
+  }
+
   /**
    * Raises the desired climber arm
    * @param side The side to raise
@@ -145,20 +195,38 @@ public class Climbers extends SubsystemBase {
     }
   }
 
-  @Override
-  public void periodic() {
+  /**
+   * Publishes dashboard and telemetry values at the telemetry rate
+   */
+  public void publishTelemetry() {
     // d_leftLimitEntry.setBoolean(m_leftLimitSwitch.get());
     // d_rightLimitEntry.setBoolean(m_rightLimitSwitch.get());
-    m_driverDashboard.ClimberControlsActiveBox.setBoolean(m_climbControlsEnabled);
+    m_driverDashboard.ClimberControlsActiveBox.set(m_climbControlsEnabled);
 
     // Level2 Logging
-    SmartDashboard.putBoolean("Climbers/ControlsEnabled", m_climbControlsEnabled);
+    t_controlsEnabled.set(m_climbControlsEnabled);
+
+    t_leftMotorOutput.set(m_leftVictorSPX.getMotorOutputPercent());
+    t_rightMotorOutput.set(m_rightVictorSPX.getMotorOutputPercent());
+
+    t_leftLimitSwitch.set(m_leftLimitSwitch.get());
+    t_rightLimitSwitch.set(m_rightLimitSwitch.get());
+  }
+
+  /**
+   * Moves the simulated arms proportionally to the motor outputs and trips the limit switches at the top of travel
+   */
+  @Override
+  public void simulationPeriodic() {
+    var step = SIM_FREE_SPEED_METERS_PER_SECOND * TimedRobot.kDefaultPeriod;
 
-    SmartDashboard.putNumber("Climbers/LeftMotorOutput", m_leftVictorSPX.getMotorOutputPercent());
-    SmartDashboard.putNumber("Climbers/RightMotorOutput", m_rightVictorSPX.getMotorOutputPercent());
+    m_simLeftPositionMeters =
+      MathUtil.clamp(m_simLeftPositionMeters + m_leftVictorSPX.getMotorOutputPercent() * step, 0, SIM_TRAVEL_METERS);
+    m_simRightPositionMeters =
+      MathUtil.clamp(m_simRightPositionMeters + m_rightVictorSPX.getMotorOutputPercent() * step, 0, SIM_TRAVEL_METERS);
 
-    SmartDashboard.putBoolean("Climbers/LeftLimitSwitch", m_leftLimitSwitch.get());
-    SmartDashboard.putBoolean("Climbers/RightLimitSwitch", m_rightLimitSwitch.get());
+    m_leftLimitSwitchSim.setValue(m_simLeftPositionMeters >= SIM_TRAVEL_METERS);
+    m_rightLimitSwitchSim.setValue(m_simRightPositionMeters >= SIM_TRAVEL_METERS);
   }
 
   //#endregion
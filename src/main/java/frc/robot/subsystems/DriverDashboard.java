@@ -5,58 +5,78 @@ import edu.wpi.first.cscore.UsbCamera;
 import edu.wpi.first.cscore.VideoMode;
 import edu.wpi.first.networktables.GenericEntry;
 import edu.wpi.first.util.PixelFormat;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
-import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.config.RobotConfig;
 import java.util.Map;
+import prime.logging.BooleanSignal;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
 
 public class DriverDashboard {
 
   public ShuffleboardTab DriverTab = Shuffleboard.getTab("Driver");
   public ShuffleboardTab AutoTab = Shuffleboard.getTab("Auto Commands");
+  public ShuffleboardTab TuningTab = Shuffleboard.getTab("Tuning");
 
   public UsbCamera m_frontColorCam;
-  public SendableChooser<Command> AutoChooser;
-  public GenericEntry AllianceBox = DriverTab
-    .add("Alliance", false)
-    .withPosition(15, 0)
-    .withSize(2, 3)
-    .withWidget(BuiltInWidgets.kBooleanBox)
-    .withProperties(Map.of("Color when true", "#FF0000", "Color when false", "#0000FF"))
-    .getEntry();
+  public SendableChooser<String> AutoChooser;
+  public BooleanSignal AllianceBox = Telemetry.booleanEntry(
+    DriverTab
+      .add("Alliance", false)
+      .withPosition(15, 0)
+      .withSize(2, 3)
+      .withWidget(BuiltInWidgets.kBooleanBox)
+      .withProperties(Map.of("Color when true", "#FF0000", "Color when false", "#0000FF"))
+      .getEntry(),
+    LogLevel.Essential
+  );
 
   // Drive
   public Field2d FieldWidget = new Field2d();
-  public GenericEntry HeadingGyro = DriverTab
-    .add("Current Heading", 0)
-    .withWidget(BuiltInWidgets.kGyro)
-    .withPosition(12, 0)
-    .withSize(3, 3)
-    .withProperties(Map.of("Counter clockwise", true, "Major tick spacing", 45.0, "Minor tick spacing", 15.0))
-    .getEntry();
-  public GenericEntry RearApTagIdField = DriverTab
-    .add("Rear APTag", 0)
-    .withWidget(BuiltInWidgets.kTextView)
-    .withPosition(12, 3)
-    .withSize(2, 1)
-    .getEntry();
-  public GenericEntry FrontApTagIdField = DriverTab
-    .add("Front APTag", 0)
-    .withWidget(BuiltInWidgets.kTextView)
-    .withPosition(14, 3)
-    .withSize(2, 1)
-    .getEntry();
-  public GenericEntry RearApTagOffsetDial = DriverTab
-    .add("Rear APTag X Offset", 0)
-    .withWidget(BuiltInWidgets.kDial)
-    .withProperties(Map.of("Min", -29.8, "Max", 29.8))
-    .withPosition(12, 4)
-    .withSize(2, 3)
-    .getEntry();
+  public DoubleSignal HeadingGyro = Telemetry.doubleEntry(
+    DriverTab
+      .add("Current Heading", 0)
+      .withWidget(BuiltInWidgets.kGyro)
+      .withPosition(12, 0)
+      .withSize(3, 3)
+      .withProperties(Map.of("Counter clockwise", true, "Major tick spacing", 45.0, "Minor tick spacing", 15.0))
+      .getEntry(),
+    LogLevel.Essential
+  );
+  public DoubleSignal RearApTagIdField = Telemetry.doubleEntry(
+    DriverTab
+      .add("Rear APTag", 0)
+      .withWidget(BuiltInWidgets.kTextView)
+      .withPosition(12, 3)
+      .withSize(2, 1)
+      .getEntry(),
+    LogLevel.Essential
+  );
+  public DoubleSignal FrontApTagIdField = Telemetry.doubleEntry(
+    DriverTab
+      .add("Front APTag", 0)
+      .withWidget(BuiltInWidgets.kTextView)
+      .withPosition(14, 3)
+      .withSize(2, 1)
+      .getEntry(),
+    LogLevel.Essential
+  );
+  public DoubleSignal RearApTagOffsetDial = Telemetry.doubleEntry(
+    DriverTab
+      .add("Rear APTag X Offset", 0)
+      .withWidget(BuiltInWidgets.kDial)
+      .withProperties(Map.of("Min", -29.8, "Max", 29.8))
+      .withPosition(12, 4)
+      .withSize(2, 3)
+      .getEntry(),
+    LogLevel.Essential
+  );
   public GenericEntry FrontPoseEstimationSwitch = DriverTab
     .add("F Pose Est.", true)
     .withWidget(BuiltInWidgets.kToggleSwitch)
@@ -71,12 +91,15 @@ public class DriverDashboard {
     .getEntry();
 
   // Climbers
-  public GenericEntry ClimberControlsActiveBox = DriverTab
-    .add("Climbers Enabled", false)
-    .withWidget(BuiltInWidgets.kBooleanBox)
-    .withPosition(5, 6)
-    .withSize(3, 2)
-    .getEntry();
+  public BooleanSignal ClimberControlsActiveBox = Telemetry.booleanEntry(
+    DriverTab
+      .add("Climbers Enabled", false)
+      .withWidget(BuiltInWidgets.kBooleanBox)
+      .withPosition(5, 6)
+      .withSize(3, 2)
+      .getEntry(),
+    LogLevel.Essential
+  );
 
   /**
    * Constructs a new DriverDashboard and adds complex widgets that must be created in the constructor
@@ -93,10 +116,13 @@ public class DriverDashboard {
     //   .withSize(6, 6)
     //   .withWidget(BuiltInWidgets.kCameraStream)
     //   .withProperties(Map.of("Show controls", false, "Show crosshair", false));
-    m_frontColorCam = CameraServer.startAutomaticCapture();
-    m_frontColorCam.setResolution(320, 240);
-    m_frontColorCam.setFPS(20);
-    m_frontColorCam.setPixelFormat(PixelFormat.kMJPEG);
+    // There's no USB camera to capture from in simulation
+    if (RobotBase.isReal()) {
+      m_frontColorCam = CameraServer.startAutomaticCapture();
+      m_frontColorCam.setResolution(320, 240);
+      m_frontColorCam.setFPS(20);
+      m_frontColorCam.setPixelFormat(PixelFormat.kMJPEG);
+    }
 
     // DriverTab
     //   .add(m_frontColorCam)
@@ -112,7 +138,7 @@ public class DriverDashboard {
    * Adds an auto chooser to the Shuffleboard and configures it
    * @param chooser
    */
-  public void addAutoChooser(SendableChooser<Command> chooser) {
+  public void addAutoChooser(SendableChooser<String> chooser) {
     AutoChooser = chooser;
     DriverTab.add(AutoChooser).withWidget(BuiltInWidgets.kComboBoxChooser).withPosition(0, 6).withSize(5, 2);
   }
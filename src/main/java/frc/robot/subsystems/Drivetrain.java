@@ -1,5 +1,6 @@
 package frc.robot.subsystems;
 
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
 import com.pathplanner.lib.auto.AutoBuilder;
@@ -9,29 +10,49 @@ import com.pathplanner.lib.util.PathPlannerLogging;
 import com.pathplanner.lib.util.ReplanningConfig;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
-import edu.wpi.first.networktables.GenericEntry;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Robot;
 import frc.robot.config.RobotConfig;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import prime.can.CanBusManager;
+import prime.can.DeviceConfigurator;
+import prime.control.FeedforwardCharacterization;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.Patterns.PulsePattern;
 import prime.control.LEDs.Patterns.SolidPattern;
+import prime.control.RelayAutotuner;
 import prime.control.SwerveControlSuppliers;
+import prime.diagnostics.LoopProfiler;
+import prime.diagnostics.ProfiledSection;
+import prime.logging.BooleanSignal;
+import prime.logging.DoubleSignal;
+import prime.logging.FlightRecorder;
+import prime.logging.LogLevel;
+import prime.logging.RecorderChannel;
+import prime.logging.StructSignal;
+import prime.logging.Telemetry;
+import prime.utilities.CTREConverter;
+import prime.utilities.TuningStore;
 
 public class Drivetrain extends SubsystemBase {
 
@@ -41,42 +62,183 @@ public class Drivetrain extends SubsystemBase {
   // Shuffleboard Drivetrain tab configuration
   private DriverDashboard m_driverDashboard;
   private ShuffleboardTab d_drivetrainTab = Shuffleboard.getTab("Drivetrain");
-  public GenericEntry d_snapToEnabledEntry = d_drivetrainTab
-    .add("SnapTo Enabled", false)
-    .withWidget(BuiltInWidgets.kBooleanBox)
-    .withPosition(0, 0)
-    .withSize(2, 2)
-    .getEntry();
-  private GenericEntry d_currentHeading = d_drivetrainTab
-    .add("Current Heading", 0)
-    .withWidget(BuiltInWidgets.kGyro)
-    .withPosition(14, 0)
-    .withSize(4, 5)
-    .withProperties(Map.of("Counter clockwise", true, "Major tick spacing", 45.0, "Minor tick spacing", 15.0))
-    .getEntry();
-  private GenericEntry d_snapAngle = d_drivetrainTab
-    .add("SnapTo Angle", 0)
-    .withWidget(BuiltInWidgets.kGyro)
-    .withPosition(2, 0)
-    .withSize(4, 5)
-    .withProperties(Map.of("Counter clockwise", true, "Major tick spacing", 45.0, "Minor tick spacing", 15.0))
-    .getEntry();
+  public BooleanSignal d_snapToEnabledEntry = Telemetry.booleanEntry(
+    d_drivetrainTab
+      .add("SnapTo Enabled", false)
+      .withWidget(BuiltInWidgets.kBooleanBox)
+      .withPosition(0, 0)
+      .withSize(2, 2)
+      .getEntry(),
+    LogLevel.Essential
+  );
+  private DoubleSignal d_currentHeading = Telemetry.doubleEntry(
+    d_drivetrainTab
+      .add("Current Heading", 0)
+      .withWidget(BuiltInWidgets.kGyro)
+      .withPosition(14, 0)
+      .withSize(4, 5)
+      .withProperties(Map.of("Counter clockwise", true, "Major tick spacing", 45.0, "Minor tick spacing", 15.0))
+      .getEntry(),
+    LogLevel.Essential
+  );
+  private DoubleSignal d_snapAngle = Telemetry.doubleEntry(
+    d_drivetrainTab
+      .add("SnapTo Angle", 0)
+      .withWidget(BuiltInWidgets.kGyro)
+      .withPosition(2, 0)
+      .withSize(4, 5)
+      .withProperties(Map.of("Counter clockwise", true, "Major tick spacing", 45.0, "Minor tick spacing", 15.0))
+      .getEntry(),
+    LogLevel.Essential
+  );
+
+  private ProfiledSection p_periodic = LoopProfiler.section("Drive/Periodic");
+  private ProfiledSection p_control = LoopProfiler.section("Drive/Control");
+
+  // Level2 logging
+  private DoubleSignal t_chassisSpeedX = Telemetry.doubleSignal("Drive/MeasuredChassisSpeeds/X (m/s)", LogLevel.Level2);
+  private DoubleSignal t_chassisSpeedY = Telemetry.doubleSignal("Drive/MeasuredChassisSpeeds/Y (m/s)", LogLevel.Level2);
+  private DoubleSignal t_chassisSpeedZ = Telemetry.doubleSignal(
+    "Drive/MeasuredChassisSpeeds/Z (rad/s)",
+    LogLevel.Level2
+  );
+  private DoubleSignal t_gyroDegrees = Telemetry.doubleSignal("Drive/Gyro (deg)", LogLevel.Level2);
+  private DoubleSignal t_accelerationX = Telemetry.doubleSignal("Drive/Acceleration/X", LogLevel.Debug);
+  private DoubleSignal t_accelerationY = Telemetry.doubleSignal("Drive/Acceleration/Y", LogLevel.Debug);
+  private DoubleSignal t_accelerationZ = Telemetry.doubleSignal("Drive/Acceleration/Z", LogLevel.Debug);
+  private StructSignal<Pose2d> t_estimatedPose = Telemetry.structSignal(
+    "Drive/EstimatedPose",
+    Pose2d.struct,
+    LogLevel.Essential,
+    1
+  );
+  private BooleanSignal t_snapToEnabled = Telemetry.booleanSignal("Drive/SnapTo/Enabled", LogLevel.Level2);
+  private DoubleSignal t_snapToSetpointRad = Telemetry.doubleSignal("Drive/SnapTo/Setpoint (rad)", LogLevel.Level2);
+  private DoubleSignal t_snapToSetpointDeg = Telemetry.doubleSignal("Drive/SnapTo/Setpoint (deg)", LogLevel.Level2);
+  private BooleanSignal t_withinTrustedVelocity = Telemetry.booleanSignal(
+    "Drive/PoseEstimation/WithinTrustedVelocity",
+    LogLevel.Level2
+  );
+  private BooleanSignal t_rearEstimationEnabled = Telemetry.booleanSignal(
+    "Drive/PoseEstimation/RearEstimationEnabled",
+    LogLevel.Level2
+  );
+  private BooleanSignal t_frontEstimationEnabled = Telemetry.booleanSignal(
+    "Drive/PoseEstimation/FrontEstimationEnabled",
+    LogLevel.Level2
+  );
+  private BooleanSignal t_rearIsValidTarget = Telemetry.booleanSignal(
+    "Drive/PoseEstimation/Rear/IsValidTarget",
+    LogLevel.Level2
+  );
+  private BooleanSignal t_frontIsValidTarget = Telemetry.booleanSignal(
+    "Drive/PoseEstimation/Front/IsValidTarget",
+    LogLevel.Level2
+  );
+  private BooleanSignal t_favoringVision = Telemetry.booleanSignal(
+    "Drive/PoseEstimation/FavoringVision",
+    LogLevel.Level2
+  );
+  private BooleanSignal t_tractionLost = Telemetry.booleanSignal("Drive/Traction/TractionLost", LogLevel.Essential);
+  private BooleanSignal t_chassisSlipping = Telemetry.booleanSignal("Drive/Traction/ChassisSlipping", LogLevel.Level2);
+  private BooleanSignal t_collisionDetected = Telemetry.booleanSignal(
+    "Drive/Traction/CollisionDetected",
+    LogLevel.Level2
+  );
+  private DoubleSignal t_slippingModules = Telemetry.doubleSignal("Drive/Traction/SlippingModules", LogLevel.Level2);
+  private DoubleSignal t_chassisVelocityError = Telemetry.doubleSignal(
+    "Drive/Traction/ChassisVelocityError (m/s)",
+    LogLevel.Level2
+  );
+
+  // Flight recorder channels, recorded at full rate
+  private RecorderChannel r_gyroYaw = FlightRecorder.doubleChannel("Drive/Gyro (deg)", 0);
+  private RecorderChannel r_estimatedPoseX = FlightRecorder.doubleChannel("Drive/EstimatedPose/X (m)", 0);
+  private RecorderChannel r_estimatedPoseY = FlightRecorder.doubleChannel("Drive/EstimatedPose/Y (m)", 0);
+  private RecorderChannel r_estimatedPoseDeg = FlightRecorder.doubleChannel("Drive/EstimatedPose/Omega (deg)", 0);
+  private RecorderChannel r_rearTargetId = FlightRecorder.integerChannel("Drive/Vision/Rear/TargetId", 0);
+  private RecorderChannel r_rearTargetOffset = FlightRecorder.doubleChannel("Drive/Vision/Rear/HorizontalOffset", 0);
+  private RecorderChannel r_rearAccepted = FlightRecorder.booleanChannel("Drive/Vision/Rear/Accepted", 0);
+  private RecorderChannel r_frontTargetId = FlightRecorder.integerChannel("Drive/Vision/Front/TargetId", 0);
+  private RecorderChannel r_frontAccepted = FlightRecorder.booleanChannel("Drive/Vision/Front/Accepted", 0);
+  private RecorderChannel r_visionPoseX = FlightRecorder.doubleChannel("Drive/Vision/MeasuredPose/X (m)", 0);
+  private RecorderChannel r_visionPoseY = FlightRecorder.doubleChannel("Drive/Vision/MeasuredPose/Y (m)", 0);
+  private RecorderChannel r_snapToEnabled = FlightRecorder.booleanChannel("Drive/SnapTo/Enabled", 0);
+  private RecorderChannel r_snapToAligned = FlightRecorder.booleanChannel("Drive/SnapTo/Aligned", 0);
+  private RecorderChannel r_tractionLost = FlightRecorder.booleanChannel("Drive/Traction/TractionLost", 0);
+  private RecorderChannel r_slippingModules = FlightRecorder.integerChannel("Drive/Traction/SlippingModules", 0);
+
+  // Simulation ground truth, integrated from the simulated module states
+  private Pose2d m_simGroundTruthPose = new Pose2d();
+  private double m_simYawDegrees = 0;
+  private ChassisSpeeds m_simLastSpeeds = new ChassisSpeeds();
+  private double m_simAccelerationXG = 0;
+  private double m_simAccelerationYG = 0;
+  private double m_simYawRateDegreesPerSecond = 0;
+  private StructSignal<Pose2d> t_simGroundTruthPose;
+  private DoubleSignal t_simPoseError;
+  private RecorderChannel r_simPoseError;
 
   // Gyro and swerve module controller
   public Pigeon2 m_gyro;
+  private StatusSignal<Double> m_accelerationX;
+  private StatusSignal<Double> m_accelerationY;
+  private StatusSignal<Double> m_yawRate;
   private SwerveController m_swerveController;
 
   // Vision, Kinematics, odometry
   public Limelight LimelightRear;
   public Limelight LimelightFront;
   private SwerveDriveKinematics m_kinematics;
-  private SwerveDrivePoseEstimator m_poseEstimator;
+  private DrivetrainInputs m_inputs = new DrivetrainInputs();
+  private DrivetrainEstimator m_estimator;
   public boolean EnableContinuousPoseEstimationFront = true;
   public boolean EnableContinuousPoseEstimationRear = true;
 
   // Snap-to PID
   public boolean m_snapToGyroEnabled = false;
   public PIDController m_snapToRotationController;
+  private double m_snapToOutput = 0;
+
+  // Speeds requested by commands, consumed by the control loop
+  private static final double DRIVE_REQUEST_TIMEOUT_SECONDS = 0.1;
+  private final ChassisSpeeds m_requestedSpeeds = new ChassisSpeeds();
+  private double m_requestTimestamp = 0;
+
+  // Translation commanded on the last control loop, for limiting acceleration while traction is lost
+  private double m_lastCommandedVx = 0;
+  private double m_lastCommandedVy = 0;
+
+  // Set while characterization drives the modules, which the control loop hands over to it
+  private static final double CHARACTERIZATION_MAX_TRAVEL_METERS = 2.5;
+  private boolean m_characterizing = false;
+  private FeedforwardCharacterization m_characterization;
+
+  // Wheel radius calibration, spinning in place once the rotation has ramped up
+  private static final double WHEEL_CALIBRATION_OMEGA_RADIANS_PER_SECOND = 1.5;
+  private static final double WHEEL_CALIBRATION_ACCELERATION = 1.5; // rad/s²
+  private static final double WHEEL_CALIBRATION_SETTLE_SECONDS = 1.5;
+  private static final double WHEEL_CALIBRATION_ROTATIONS = 3;
+  private static final double WHEEL_CALIBRATION_MAX_CHANGE = 0.1; // Fraction of the configured diameter
+  private WheelRadiusCalibration m_wheelCalibration;
+
+  // Relay autotuning, which takes the steering or snap-to loop over from its controller
+  private static final double STEERING_RELAY_OUTPUT = 0.3; // Duty cycle
+  private static final double STEERING_RELAY_HYSTERESIS = 0.5 / 360; // Rotations
+  private static final double SNAP_TO_RELAY_OUTPUT = 2; // rad/s
+  private static final double SNAP_TO_RELAY_HYSTERESIS = Math.toRadians(1);
+  private static final int AUTOTUNE_CYCLES = 5;
+  private static final double AUTOTUNE_TIMEOUT_SECONDS = 10;
+  private boolean m_steeringAutotuning = false;
+  private RelayAutotuner[] m_steeringAutotuners;
+  private RelayAutotuner m_snapToAutotuner;
+  private final double[] m_steeringHeadings = new double[4];
+  private final double[] m_steeringOutputs = new double[4];
+
+  // JIT warm-up, run on scratch inputs while disabled
+  private final ChassisSpeeds m_warmupSpeeds = new ChassisSpeeds();
+  private final DrivetrainInputs m_warmupInputs = new DrivetrainInputs();
+  private DrivetrainEstimator m_warmupEstimator;
 
   /**
    * Creates a new Drivetrain.
@@ -89,13 +251,42 @@ public class Drivetrain extends SubsystemBase {
 
     // Create gyro
     m_gyro = new Pigeon2(config.Drivetrain.PigeonId);
-    m_gyro.getConfigurator().apply(new Pigeon2Configuration());
+    var gyroConfig = new Pigeon2Configuration();
+    DeviceConfigurator.configure(
+      "Drive/Pigeon2",
+      gyroConfig.toString(),
+      DeviceConfigurator.ALWAYS_WRITE,
+      () -> m_gyro.getConfigurator().apply(gyroConfig).isOK()
+    );
+
+    // Odometry reads the yaw, and traction monitoring and the EKF estimator the accelerations and yaw rate, every
+    // control loop
+    m_accelerationX = m_gyro.getAccelerationX();
+    m_accelerationY = m_gyro.getAccelerationY();
+    m_yawRate = m_gyro.getAngularVelocityZWorld();
+    CanBusManager.phoenixSignals(
+      m_gyro,
+      1 / config.Drivetrain.ControlLoopPeriodSeconds,
+      m_gyro.getYaw(),
+      m_accelerationX,
+      m_accelerationY,
+      m_yawRate
+    );
+    CanBusManager.phoenixSignals(m_gyro, 10, m_gyro.getAccelerationZ());
+
+    if (RobotBase.isSimulation()) {
+      t_simGroundTruthPose =
+        Telemetry.structSignal("Drive/Sim/GroundTruthPose", Pose2d.struct, LogLevel.Essential, 1);
+      t_simPoseError = Telemetry.doubleSignal("Drive/Sim/PoseError (m)", LogLevel.Essential);
+      r_simPoseError = FlightRecorder.doubleChannel("Drive/Sim/PoseError (m)", 0);
+    }
 
     // Create swerve modules
     m_swerveController = new SwerveController(config, config.Drivetrain.DrivePID, config.Drivetrain.SteeringPID);
 
     // Configure snap-to PID
-    m_snapToRotationController = m_config.Drivetrain.SnapToPID.createPIDController(0.02);
+    m_snapToRotationController =
+      m_config.Drivetrain.SnapToPID.createPIDController(m_config.Drivetrain.ControlLoopPeriodSeconds);
     m_snapToRotationController.enableContinuousInput(-Math.PI, Math.PI);
 
     // Create kinematics and odometry tooling
@@ -110,8 +301,11 @@ public class Drivetrain extends SubsystemBase {
         m_config.RearLeftSwerveModule.getModuleLocation(),
         m_config.RearRightSwerveModule.getModuleLocation()
       );
-    m_poseEstimator =
-      new SwerveDrivePoseEstimator(m_kinematics, m_gyro.getRotation2d(), getModulePositions(), new Pose2d());
+
+    // Log every input the estimator reads so matches can be replayed through it
+    updateOdometryInputs();
+    m_inputs.startLogging(DataLogManager.getLog());
+    m_estimator = new DrivetrainEstimator(m_config, m_kinematics, m_inputs, new Pose2d());
 
     // Set up PP to feed current path poses to the field widget
     PathPlannerLogging.setLogActivePathCallback(poses -> driverDashboard.FieldWidget.getObject("path").setPoses(poses));
@@ -144,36 +338,124 @@ public class Drivetrain extends SubsystemBase {
   public void resetGyro() {
     m_gyro.setYaw(Robot.onBlueAlliance() ? 180 : 0);
 
-    m_poseEstimator.resetPosition(m_gyro.getRotation2d(), getModulePositions(), m_poseEstimator.getEstimatedPosition());
+    resetEstimator(m_estimator.getEstimatedPosition());
   }
 
   /**
-   * Drives using a ChassisSpeeds
+   * Requests robot-relative chassis speeds. The request is picked up by the control loop on its next run
    * @param desiredChassisSpeeds The desired speeds of the robot
    */
   private void driveRobotRelative(ChassisSpeeds desiredChassisSpeeds) {
-    // If snap-to is enabled, calculate and set the rotational speed to reach the setpoint
-    if (m_snapToGyroEnabled) {
-      var currentRotationRadians = MathUtil.angleModulus(m_gyro.getRotation2d().getRadians());
-      desiredChassisSpeeds.omegaRadiansPerSecond = m_snapToRotationController.calculate(currentRotationRadians);
+    // Copy the values so callers can reuse their ChassisSpeeds instance
+    m_requestedSpeeds.vxMetersPerSecond = desiredChassisSpeeds.vxMetersPerSecond;
+    m_requestedSpeeds.vyMetersPerSecond = desiredChassisSpeeds.vyMetersPerSecond;
+    m_requestedSpeeds.omegaRadiansPerSecond = desiredChassisSpeeds.omegaRadiansPerSecond;
+    m_requestTimestamp = Timer.getFPGATimestamp();
+  }
 
-      // Use the LEDs to indicate how close the robot is to being aligned
-      if (Math.abs(desiredChassisSpeeds.omegaRadiansPerSecond) < 0.1) {
-        m_leds.setStripTemporaryPattern(new SolidPattern(Color.GREEN));
-      } else {
-        m_leds.setStripTemporaryPattern(new PulsePattern(Color.RED, 0.5));
+  /**
+   * Runs odometry, snap-to and module control at the drivetrain's control rate. This runs on the main robot thread
+   * through TimedRobot.addPeriodic, so the requested speeds handed off by commands never change underneath it
+   */
+  public void controlPeriodic() {
+    p_control.start();
+
+    // Update odometry at the control rate so the estimator integrates smaller steps
+    updateOdometryInputs();
+    m_inputs.logOdometry();
+    m_estimator.updateOdometry(m_inputs);
+    m_swerveController.recordMeasuredStates();
+    var gyroAngle = Rotation2d.fromDegrees(m_inputs.GyroYawDegrees);
+
+    if (m_characterizing) {
+      m_characterization.update();
+      p_control.stop();
+      return;
+    }
+
+    // Steering autotuning runs the steering motors in place of their PIDs
+    if (m_steeringAutotuning) {
+      m_swerveController.getEncoderHeadings(m_steeringHeadings);
+      for (int i = 0; i < m_steeringAutotuners.length; i++) {
+        m_steeringOutputs[i] = m_steeringAutotuners[i].calculate(m_steeringHeadings[i], m_inputs.OdometryTimestamp);
       }
+      m_swerveController.setSteeringOutputs(m_steeringOutputs);
+
+      p_control.stop();
+      return;
+    }
+
+    // Stop if nothing has requested speeds recently, e.g. when the command driving the robot ends
+    var requestIsStale = Timer.getFPGATimestamp() - m_requestTimestamp > DRIVE_REQUEST_TIMEOUT_SECONDS;
+    var vx = requestIsStale ? 0 : m_requestedSpeeds.vxMetersPerSecond;
+    var vy = requestIsStale ? 0 : m_requestedSpeeds.vyMetersPerSecond;
+    var omega = requestIsStale ? 0 : m_requestedSpeeds.omegaRadiansPerSecond;
+
+    // Ease the driver's translation back in while traction is lost, rather than spinning the wheels harder
+    var traction = m_estimator.getTraction();
+    if (traction.TractionLost && DriverStation.isTeleopEnabled()) {
+      var maxChange =
+        m_config.Drivetrain.TractionLossAccelerationMetersPerSecondSquared *
+        m_config.Drivetrain.ControlLoopPeriodSeconds;
+      vx = m_lastCommandedVx + MathUtil.clamp(vx - m_lastCommandedVx, -maxChange, maxChange);
+      vy = m_lastCommandedVy + MathUtil.clamp(vy - m_lastCommandedVy, -maxChange, maxChange);
+    }
+    m_lastCommandedVx = vx;
+    m_lastCommandedVy = vy;
+    r_tractionLost.record(traction.TractionLost);
+    r_slippingModules.record(getSlippingModules(traction));
+
+    // If snap-to is enabled, calculate and set the rotational speed to reach the setpoint. Autotuning turns in place
+    // in its place
+    if (m_snapToAutotuner != null && m_snapToAutotuner.isRunning()) {
+      vx = 0;
+      vy = 0;
+      omega = m_snapToAutotuner.calculate(MathUtil.angleModulus(gyroAngle.getRadians()), m_inputs.OdometryTimestamp);
+    } else if (m_snapToGyroEnabled) {
+      omega = m_snapToRotationController.calculate(MathUtil.angleModulus(gyroAngle.getRadians()));
+      m_snapToOutput = omega;
     }
 
+    // Set the desired states for each module
+    m_swerveController.setDesiredStates(
+      calculateModuleStates(
+        m_kinematics,
+        vx,
+        vy,
+        omega,
+        m_config.Drivetrain.ControlLoopPeriodSeconds,
+        m_config.Drivetrain.MaxSpeedMetersPerSecond
+      )
+    );
+
+    p_control.stop();
+  }
+
+  /**
+   * Converts robot-relative speeds into desaturated module states for one control period
+   * @param kinematics
+   * @param vx
+   * @param vy
+   * @param omega
+   * @param periodSeconds The control loop period
+   * @param maxSpeedMetersPerSecond The maximum module speed
+   */
+  public static SwerveModuleState[] calculateModuleStates(
+    SwerveDriveKinematics kinematics,
+    double vx,
+    double vy,
+    double omega,
+    double periodSeconds,
+    double maxSpeedMetersPerSecond
+  ) {
     // Correct drift by taking the input speeds and converting them to a desired per-period speed. This is known as "discretizing"
-    desiredChassisSpeeds = ChassisSpeeds.discretize(desiredChassisSpeeds, 0.02);
+    var desiredChassisSpeeds = ChassisSpeeds.discretize(vx, vy, omega, periodSeconds);
 
     // Calculate the module states from the chassis speeds
-    var swerveModuleStates = m_kinematics.toSwerveModuleStates(desiredChassisSpeeds);
-    SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, m_config.Drivetrain.MaxSpeedMetersPerSecond);
+    var swerveModuleStates = kinematics.toSwerveModuleStates(desiredChassisSpeeds);
+    SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, maxSpeedMetersPerSecond);
 
-    // Set the desired states for each module
-    m_swerveController.setDesiredStates(swerveModuleStates);
+    return swerveModuleStates;
   }
 
   private void drivePathPlanner(ChassisSpeeds robotRelativeSpeeds) {
@@ -204,16 +486,30 @@ public class Drivetrain extends SubsystemBase {
   /**
    * Gets the current pose of the drivetrain from odometry
    */
-  private Pose2d getPose() {
-    return m_poseEstimator.getEstimatedPosition();
+  public Pose2d getPose() {
+    return m_estimator.getEstimatedPosition();
   }
 
   /**
    * Resets the position of odometry to the input pose
    * @param pose The pose to reset the estimator to
    */
-  private void setEstimatorPose(Pose2d pose) {
-    m_poseEstimator.resetPosition(m_gyro.getRotation2d(), getModulePositions(), pose);
+  public void setEstimatorPose(Pose2d pose) {
+    resetEstimator(pose);
+
+    // Autos reset the pose when they start, which places the simulated robot there too
+    if (RobotBase.isSimulation()) m_simGroundTruthPose = pose;
+  }
+
+  /**
+   * Changes the drive and steering motor current limits. Waits for the devices to acknowledge, so call it from a
+   * background thread
+   * @param driveSupplyAmps Supply current limit of each drive motor
+   * @param driveStatorAmps Stator current limit of each drive motor, or infinity to leave it off
+   * @param steeringAmps Smart current limit of each steering motor
+   */
+  public void setCurrentLimits(double driveSupplyAmps, double driveStatorAmps, int steeringAmps) {
+    m_swerveController.setCurrentLimits(driveSupplyAmps, driveStatorAmps, steeringAmps);
   }
 
   /**
@@ -256,94 +552,300 @@ public class Drivetrain extends SubsystemBase {
     return m_kinematics.toChassisSpeeds(m_swerveController.getModuleStates());
   }
 
+  /**
+   * Resets the estimator to a pose with fresh odometry inputs, and logs the reset for replay
+   * @param pose
+   */
+  private void resetEstimator(Pose2d pose) {
+    updateOdometryInputs();
+    m_inputs.logReset(pose);
+    m_estimator.resetPosition(m_inputs, pose);
+  }
+
+  /**
+   * Reads the gyro and module positions into the estimator inputs
+   */
+  private void updateOdometryInputs() {
+    m_inputs.OdometryTimestamp = Timer.getFPGATimestamp();
+    m_inputs.GyroYawDegrees = m_gyro.getRotation2d().getDegrees();
+
+    var positions = getModulePositions();
+    System.arraycopy(positions, 0, m_inputs.ModulePositions, 0, positions.length);
+    m_swerveController.getVelocities(m_inputs.ModuleVelocitiesMetersPerSecond);
+
+    // The simulated Pigeon doesn't model acceleration or angular velocity
+    if (RobotBase.isSimulation()) {
+      m_inputs.AccelerationXG = m_simAccelerationXG;
+      m_inputs.AccelerationYG = m_simAccelerationYG;
+      m_inputs.YawRateDegreesPerSecond = m_simYawRateDegreesPerSecond;
+    } else {
+      m_inputs.AccelerationXG = m_accelerationX.refresh().getValueAsDouble();
+      m_inputs.AccelerationYG = m_accelerationY.refresh().getValueAsDouble();
+      m_inputs.YawRateDegreesPerSecond = m_yawRate.refresh().getValueAsDouble();
+    }
+  }
+
+  /**
+   * Gets the slipping modules as a bit mask, FL in the lowest bit
+   */
+  private static int getSlippingModules(TractionMonitor traction) {
+    var mask = 0;
+    for (int i = 0; i < traction.ModuleSlipping.length; i++) {
+      if (traction.ModuleSlipping[i]) mask |= 1 << i;
+    }
+
+    return mask;
+  }
+
+  /**
+   * Reads the measured chassis speeds, the dashboard estimation switches and the limelights into the estimator inputs
+   */
+  private void updateVisionInputs() {
+    m_inputs.VisionTimestamp = Timer.getFPGATimestamp();
+
+    var currentSpeeds = getRobotRelativeChassisSpeeds();
+    m_inputs.VxMetersPerSecond = currentSpeeds.vxMetersPerSecond;
+    m_inputs.VyMetersPerSecond = currentSpeeds.vyMetersPerSecond;
+    m_inputs.OmegaRadiansPerSecond = currentSpeeds.omegaRadiansPerSecond;
+
+    m_inputs.Rear.EstimationEnabled = m_driverDashboard.RearPoseEstimationSwitch.getBoolean(false);
+    LimelightRear.updateInputs(m_inputs.Rear);
+    m_inputs.Front.EstimationEnabled = m_driverDashboard.FrontPoseEstimationSwitch.getBoolean(false);
+    LimelightFront.updateInputs(m_inputs.Front);
+  }
+
   /**
    * Evaluates the pose estimation using the limelight cameras
    */
   private void evaluatePoseEstimation() {
-    var currentSpeeds = getRobotRelativeChassisSpeeds();
+    updateVisionInputs();
+    m_inputs.logVision();
+    m_estimator.evaluateVision(m_inputs);
 
-    var withinTrustedVelocity =
-      currentSpeeds.omegaRadiansPerSecond < 0.2 && // 1 rad/s is about 60 degrees/s
-      currentSpeeds.vxMetersPerSecond < 2 &&
-      currentSpeeds.vyMetersPerSecond < 2;
-    SmartDashboard.putBoolean("Drive/PoseEstimation/WithinTrustedVelocity", withinTrustedVelocity);
+    t_withinTrustedVelocity.set(m_estimator.WithinTrustedVelocity);
+    t_favoringVision.set(m_estimator.FavoringVision);
 
-    EnableContinuousPoseEstimationRear = m_driverDashboard.RearPoseEstimationSwitch.getBoolean(false);
-    SmartDashboard.putBoolean("Drive/PoseEstimation/RearEstimationEnabled", EnableContinuousPoseEstimationRear);
+    EnableContinuousPoseEstimationRear = m_inputs.Rear.EstimationEnabled;
+    t_rearEstimationEnabled.set(EnableContinuousPoseEstimationRear);
     if (EnableContinuousPoseEstimationRear) {
       // Rear Limelight
-      // If we have a valid target and we're moving in a trusted velocity range, update the pose estimator
-      var primaryTarget = LimelightRear.getApriltagId();
-      var isValidTarget = LimelightRear.isValidApriltag(primaryTarget);
-      SmartDashboard.putBoolean("Drive/PoseEstimation/Rear/IsValidTarget", isValidTarget);
-
-      m_driverDashboard.RearApTagIdField.setDouble(primaryTarget);
-      m_driverDashboard.RearApTagOffsetDial.setDouble(LimelightRear.getHorizontalOffsetFromTarget().getDegrees());
-
-      if (isValidTarget && withinTrustedVelocity) {
-        var llPose = LimelightRear.getRobotPose(Alliance.Blue);
-
-        m_poseEstimator.addVisionMeasurement(llPose.Pose.toPose2d(), llPose.Timestamp, llPose.StdDeviations);
-      }
+      t_rearIsValidTarget.set(m_estimator.RearIsValidTarget);
+      m_driverDashboard.RearApTagIdField.set(m_inputs.Rear.TargetId);
+      m_driverDashboard.RearApTagOffsetDial.set(m_inputs.Rear.HorizontalOffsetDegrees);
+      r_rearTargetId.record(m_inputs.Rear.TargetId);
+      r_rearTargetOffset.record(m_inputs.Rear.HorizontalOffsetDegrees);
+      // Only recorded with a target, so frames without one don't count against the acceptance rate
+      if (m_estimator.RearIsValidTarget) r_rearAccepted.record(m_estimator.RearAccepted);
     }
 
-    EnableContinuousPoseEstimationFront = m_driverDashboard.FrontPoseEstimationSwitch.getBoolean(false);
-    SmartDashboard.putBoolean("Drive/PoseEstimation/FrontEstimationEnabled", EnableContinuousPoseEstimationFront);
+    EnableContinuousPoseEstimationFront = m_inputs.Front.EstimationEnabled;
+    t_frontEstimationEnabled.set(EnableContinuousPoseEstimationFront);
     if (EnableContinuousPoseEstimationFront) {
       // Front Limelight
-      // If we have a valid target and we're moving in a trusted velocity range, update the pose estimator
-      var frontPrimaryTarget = LimelightFront.getApriltagId();
-      var frontIsValidTarget = LimelightFront.isValidApriltag(frontPrimaryTarget);
-      m_driverDashboard.FrontApTagIdField.setDouble(frontPrimaryTarget);
-      SmartDashboard.putBoolean("Drive/PoseEstimation/Front/IsValidTarget", frontIsValidTarget);
+      m_driverDashboard.FrontApTagIdField.set(m_inputs.Front.TargetId);
+      t_frontIsValidTarget.set(m_estimator.FrontIsValidTarget);
+      r_frontTargetId.record(m_inputs.Front.TargetId);
+      if (m_estimator.FrontIsValidTarget) r_frontAccepted.record(m_estimator.FrontAccepted);
+    }
 
-      if (frontIsValidTarget && withinTrustedVelocity) {
-        var llPose = LimelightFront.getRobotPose(Alliance.Blue);
+    if (m_estimator.RearAccepted || m_estimator.FrontAccepted) {
+      r_visionPoseX.record(m_estimator.LastVisionPose.getX());
+      r_visionPoseY.record(m_estimator.LastVisionPose.getY());
+    }
+  }
 
-        m_poseEstimator.addVisionMeasurement(llPose.Pose.toPose2d(), llPose.Timestamp, llPose.StdDeviations);
-      }
+  //#endregion
+
+  //#region Warm-up
+
+  /**
+   * Runs the drive request, kinematics, module control and pose estimation paths once with made-up inputs, so the JIT
+   * compiles them before the first enabled loop. The module outputs are suppressed and the real estimator isn't
+   * touched. Only call while disabled
+   * @param iteration Varies the inputs so every branch gets exercised
+   */
+  public void warmupStep(int iteration) {
+    var phase = iteration * 0.01;
+    var period = m_config.Drivetrain.ControlLoopPeriodSeconds;
+
+    // Drive request, kinematics and module control
+    m_warmupSpeeds.vxMetersPerSecond = 2 * Math.sin(phase);
+    m_warmupSpeeds.vyMetersPerSecond = 2 * Math.cos(phase);
+    m_warmupSpeeds.omegaRadiansPerSecond = Math.sin(phase * 3);
+    driveRobotRelative(m_warmupSpeeds);
+    m_requestTimestamp = 0; // Leave the request stale so the control loop never acts on it
+
+    m_swerveController.setOutputsSuppressed(true);
+    m_swerveController.setDesiredStates(
+      calculateModuleStates(
+        m_kinematics,
+        m_warmupSpeeds.vxMetersPerSecond,
+        m_warmupSpeeds.vyMetersPerSecond,
+        m_warmupSpeeds.omegaRadiansPerSecond,
+        period,
+        m_config.Drivetrain.MaxSpeedMetersPerSecond
+      )
+    );
+    m_swerveController.setOutputsSuppressed(false);
+
+    // Odometry, on a scratch estimator
+    if (m_warmupEstimator == null) {
+      m_warmupEstimator = new DrivetrainEstimator(m_config, m_kinematics, m_warmupInputs, new Pose2d());
     }
+    m_warmupInputs.OdometryTimestamp = iteration * period;
+    m_warmupInputs.GyroYawDegrees = Math.toDegrees(phase);
+    for (int i = 0; i < m_warmupInputs.ModulePositions.length; i++) {
+      m_warmupInputs.ModulePositions[i] = new SwerveModulePosition(phase, Rotation2d.fromRadians(phase));
+    }
+    m_warmupEstimator.updateOdometry(m_warmupInputs);
+
+    // Vision: parse the real Limelight data, then feed a valid made-up target so the measurement path runs too
+    LimelightRear.updateInputs(m_warmupInputs.Rear);
+    LimelightFront.updateInputs(m_warmupInputs.Front);
+    m_warmupInputs.VisionTimestamp = m_warmupInputs.OdometryTimestamp;
+    m_warmupInputs.VxMetersPerSecond = 0;
+    m_warmupInputs.VyMetersPerSecond = 0;
+    m_warmupInputs.OmegaRadiansPerSecond = 0;
+    m_warmupInputs.Rear.EstimationEnabled = true;
+    m_warmupInputs.Rear.TargetId = 7;
+    m_warmupInputs.Rear.BotPose[0] = 1.5 + Math.sin(phase) * 0.1;
+    m_warmupInputs.Rear.BotPose[1] = 5.5;
+    m_warmupInputs.Rear.BotPose[5] = 180;
+    m_warmupInputs.Rear.BotPose[7] = 1 + iteration % 2;
+    m_warmupEstimator.evaluateVision(m_warmupInputs);
+  }
+
+  /**
+   * Drops the scratch state used for warm-up
+   */
+  public void finishWarmup() {
+    m_warmupEstimator = null;
   }
 
   //#endregion
 
   /**
-   * Updates odometry and any other periodic drivetrain events
+   * Runs vision pose estimation and any other periodic drivetrain events at the main loop rate
    */
   @Override
   public void periodic() {
-    // Level2 Logging
-    var chassisSpeed = getRobotRelativeChassisSpeeds();
-    SmartDashboard.putNumber("Drive/MeasuredChassisSpeeds/X (m/s)", chassisSpeed.vxMetersPerSecond);
-    SmartDashboard.putNumber("Drive/MeasuredChassisSpeeds/Y (m/s)", chassisSpeed.vyMetersPerSecond);
-    SmartDashboard.putNumber("Drive/MeasuredChassisSpeeds/Z (rad/s)", chassisSpeed.omegaRadiansPerSecond);
+    p_periodic.start();
 
     // Pose estimation
     evaluatePoseEstimation();
 
+    r_gyroYaw.record(m_gyro.getRotation2d().getDegrees());
+
+    var estimatedPose = getPose();
+    r_estimatedPoseX.record(estimatedPose.getX());
+    r_estimatedPoseY.record(estimatedPose.getY());
+    r_estimatedPoseDeg.record(estimatedPose.getRotation().getDegrees());
+
+    // Use the LEDs to indicate how close the robot is to being aligned
+    var snapToAligned = m_snapToGyroEnabled && Math.abs(m_snapToOutput) < 0.1;
+    r_snapToEnabled.record(m_snapToGyroEnabled);
+    r_snapToAligned.record(snapToAligned);
+    if (m_snapToGyroEnabled) {
+      if (snapToAligned) {
+        m_leds.setStripTemporaryPattern(new SolidPattern(Color.GREEN));
+      } else {
+        m_leds.setStripTemporaryPattern(new PulsePattern(Color.RED, 0.5));
+      }
+    }
+
+    p_periodic.stop();
+  }
+
+  /**
+   * Publishes dashboard and telemetry values at the telemetry rate
+   */
+  public void publishTelemetry() {
+    // Level2 Logging
+    var chassisSpeed = getRobotRelativeChassisSpeeds();
+    t_chassisSpeedX.set(chassisSpeed.vxMetersPerSecond);
+    t_chassisSpeedY.set(chassisSpeed.vyMetersPerSecond);
+    t_chassisSpeedZ.set(chassisSpeed.omegaRadiansPerSecond);
+
     // Update pose estimation on shuffleboard and logging
     var gyroAngle = m_gyro.getRotation2d();
-    d_currentHeading.setDouble(gyroAngle.getDegrees());
-    m_driverDashboard.HeadingGyro.setDouble(gyroAngle.getDegrees());
-    SmartDashboard.putNumber("Drive/Gyro (deg)", gyroAngle.getDegrees());
-    SmartDashboard.putNumber("Drive/Acceleration/X", m_gyro.getAccelerationX().getValueAsDouble());
-    SmartDashboard.putNumber("Drive/Acceleration/Y", m_gyro.getAccelerationY().getValueAsDouble());
-    SmartDashboard.putNumber("Drive/Acceleration/Z", m_gyro.getAccelerationZ().getValueAsDouble());
-
-    var estimatedPose = m_poseEstimator.update(gyroAngle, getModulePositions());
-    SmartDashboard.putNumber("Drive/EstimatedPose/X (m)", estimatedPose.getX());
-    SmartDashboard.putNumber("Drive/EstimatedPose/Y (m)", estimatedPose.getY());
-    SmartDashboard.putNumber("Drive/EstimatedPose/Omega (deg)", estimatedPose.getRotation().getDegrees());
+    d_currentHeading.set(gyroAngle.getDegrees());
+    m_driverDashboard.HeadingGyro.set(gyroAngle.getDegrees());
+    t_gyroDegrees.set(gyroAngle.getDegrees());
+    t_accelerationX.set(m_gyro.getAccelerationX().getValueAsDouble());
+    t_accelerationY.set(m_gyro.getAccelerationY().getValueAsDouble());
+    t_accelerationZ.set(m_gyro.getAccelerationZ().getValueAsDouble());
+
+    var estimatedPose = getPose();
+    t_estimatedPose.set(estimatedPose);
     m_driverDashboard.FieldWidget.setRobotPose(estimatedPose);
 
+    var traction = m_estimator.getTraction();
+    t_tractionLost.set(traction.TractionLost);
+    t_chassisSlipping.set(traction.ChassisSlipping);
+    t_collisionDetected.set(traction.CollisionDetected);
+    t_slippingModules.set(getSlippingModules(traction));
+    t_chassisVelocityError.set(traction.ChassisVelocityErrorMetersPerSecond);
+
     // Update SnapTo shuffleboard and logging
-    d_snapToEnabledEntry.setBoolean(m_snapToGyroEnabled);
-    SmartDashboard.putBoolean("Drive/SnapTo/Enabled", m_snapToGyroEnabled);
+    d_snapToEnabledEntry.set(m_snapToGyroEnabled);
+    t_snapToEnabled.set(m_snapToGyroEnabled);
 
     var snapToSetpointRad = m_snapToRotationController.getSetpoint();
-    d_snapAngle.setDouble(snapToSetpointRad);
-    SmartDashboard.putNumber("Drive/SnapTo/Setpoint (rad)", snapToSetpointRad);
-    SmartDashboard.putNumber("Drive/SnapTo/Setpoint (deg)", Rotation2d.fromRadians(snapToSetpointRad).getDegrees());
+    d_snapAngle.set(snapToSetpointRad);
+    t_snapToSetpointRad.set(snapToSetpointRad);
+    t_snapToSetpointDeg.set(Math.toDegrees(snapToSetpointRad));
+
+    m_swerveController.publishTelemetry();
+  }
+
+  /**
+   * Integrates the simulated module states into the gyro yaw and a ground truth pose, and publishes how far the
+   * estimated pose is from it. The robot-relative acceleration and yaw rate the Pigeon would measure are taken from
+   * the same states
+   */
+  @Override
+  public void simulationPeriodic() {
+    var speeds = getRobotRelativeChassisSpeeds();
+    var dt = TimedRobot.kDefaultPeriod;
+
+    var omega = speeds.omegaRadiansPerSecond;
+    var ax = (speeds.vxMetersPerSecond - m_simLastSpeeds.vxMetersPerSecond) / dt - omega * speeds.vyMetersPerSecond;
+    var ay = (speeds.vyMetersPerSecond - m_simLastSpeeds.vyMetersPerSecond) / dt + omega * speeds.vxMetersPerSecond;
+    m_simAccelerationXG = ax / 9.80665;
+    m_simAccelerationYG = ay / 9.80665;
+    m_simYawRateDegreesPerSecond = Math.toDegrees(omega);
+    m_simLastSpeeds = speeds;
+
+    m_simYawDegrees += Math.toDegrees(speeds.omegaRadiansPerSecond * dt);
+    m_gyro.getSimState().setRawYaw(m_simYawDegrees);
+
+    m_simGroundTruthPose =
+      m_simGroundTruthPose.exp(
+        new Twist2d(
+          speeds.vxMetersPerSecond * dt,
+          speeds.vyMetersPerSecond * dt,
+          speeds.omegaRadiansPerSecond * dt
+        )
+      );
+
+    var poseError = getPose().getTranslation().getDistance(m_simGroundTruthPose.getTranslation());
+    t_simGroundTruthPose.set(m_simGroundTruthPose);
+    t_simPoseError.set(poseError);
+    r_simPoseError.record(poseError);
+  }
+
+  /**
+   * Gets where the simulated robot actually is, as opposed to where the estimator thinks it is
+   */
+  public Pose2d getSimGroundTruthPose() {
+    return m_simGroundTruthPose;
+  }
+
+  /**
+   * Gets the current drawn by the simulated drive and steering motors
+   */
+  public double getSimulatedCurrentDrawAmps() {
+    return m_swerveController.getSimulatedCurrentDrawAmps();
   }
 
   //#region Commands
@@ -427,6 +929,177 @@ public class Drivetrain extends SubsystemBase {
     });
   }
 
+  /**
+   * Characterizes the drive motors with every module held straight ahead, saving kS, kV and kA in the drive motors'
+   * units, volts per rotor rotation per second, as "Drive/Feedforward". Needs about 2.5m clear ahead of the robot
+   */
+  public Command characterizeCommand() {
+    if (m_characterization == null) {
+      var module = m_config.FrontLeftSwerveModule;
+      m_characterization =
+        new FeedforwardCharacterization(
+          "Drive",
+          this,
+          m_swerveController::setCharacterizationVoltage,
+          m_swerveController::getAverageDriveRotorPosition,
+          m_swerveController::getAverageDriveRotorVelocity
+        )
+          .withMaxTravel(
+            CTREConverter.metersToRotations(
+              CHARACTERIZATION_MAX_TRAVEL_METERS,
+              module.DriveWheelCircumferenceMeters,
+              module.DriveGearRatio
+            )
+          )
+          .withLoopPeriod(m_config.Drivetrain.ControlLoopPeriodSeconds);
+    }
+
+    return Commands
+      .runOnce(() -> m_characterizing = true)
+      .andThen(m_characterization.command())
+      .finallyDo(() -> m_characterizing = false)
+      .withName("Drive Characterization");
+  }
+
+  /**
+   * Spins the robot in place and measures the wheels' effective diameter, saving it as "Drive/WheelDiameter" to
+   * override every module's configured diameter from the next boot
+   */
+  public Command calibrateWheelRadiusCommand() {
+    if (m_wheelCalibration == null) m_wheelCalibration = new WheelRadiusCalibration(m_config);
+
+    var limiter = new SlewRateLimiter(WHEEL_CALIBRATION_ACCELERATION);
+    var speeds = new ChassisSpeeds();
+    var timer = new Timer();
+
+    return Commands
+      .runOnce(
+        () -> {
+          limiter.reset(0);
+          timer.restart();
+          m_wheelCalibration.reset();
+        },
+        this
+      )
+      .andThen(
+        this.run(() -> {
+            speeds.omegaRadiansPerSecond = limiter.calculate(WHEEL_CALIBRATION_OMEGA_RADIANS_PER_SECOND);
+            driveRobotRelative(speeds);
+
+            // Only measure once the robot spins steadily and the modules have turned to face along their arcs
+            if (timer.hasElapsed(WHEEL_CALIBRATION_SETTLE_SECONDS)) m_wheelCalibration.update(m_inputs);
+          })
+          .until(() -> m_wheelCalibration.getRotationRadians() >= WHEEL_CALIBRATION_ROTATIONS * 2 * Math.PI)
+          .withTimeout(
+            WHEEL_CALIBRATION_SETTLE_SECONDS +
+            2 * WHEEL_CALIBRATION_ROTATIONS * 2 * Math.PI / WHEEL_CALIBRATION_OMEGA_RADIANS_PER_SECOND
+          )
+      )
+      .andThen(this::saveWheelDiameter)
+      .withName("Wheel Radius Calibration");
+  }
+
+  /**
+   * Saves the diameter measured by the wheel radius calibration, unless it turned too little or is implausible
+   */
+  private void saveWheelDiameter() {
+    var rotations = m_wheelCalibration.getRotationRadians() / (2 * Math.PI);
+    var scale = m_wheelCalibration.getDiameterScale();
+    if (rotations < 1 || !(Math.abs(scale - 1) <= WHEEL_CALIBRATION_MAX_CHANGE)) {
+      DriverStation.reportWarning(
+        String.format("[Drivetrain] Wheel calibration rejected: %.2f rotations, diameter scale %.4f", rotations, scale),
+        false
+      );
+      return;
+    }
+
+    var configuredDiameter = m_config.FrontLeftSwerveModule.DriveWheelDiameterMeters;
+    DataLogManager.log(
+      String.format(
+        "[Drivetrain] Wheel diameter %.5fm measured over %.2f rotations, was %.5fm. Applies from the next boot",
+        configuredDiameter * scale,
+        rotations,
+        configuredDiameter
+      )
+    );
+    TuningStore.save(
+      "Drive/WheelDiameter",
+      Map.of("DiameterMeters", configuredDiameter * scale, "Scale", scale, "Rotations", rotations)
+    );
+  }
+
+  /**
+   * Oscillates every module's steering with a relay, then saves a steering kP for
+   * DrivetrainConfig.SteeringTargetSettleSeconds from the average ultimate gain and period as "Drive/SteeringPID".
+   * The drive motors are held still
+   */
+  public Command autotuneSteeringCommand() {
+    if (m_steeringAutotuners == null) {
+      m_steeringAutotuners = new RelayAutotuner[m_steeringHeadings.length];
+      for (int i = 0; i < m_steeringAutotuners.length; i++) {
+        m_steeringAutotuners[i] =
+          new RelayAutotuner(
+            STEERING_RELAY_OUTPUT,
+            STEERING_RELAY_HYSTERESIS,
+            AUTOTUNE_CYCLES,
+            m_config.Drivetrain.SteeringTargetSettleSeconds
+          )
+            .withContinuousInput(0, 1);
+      }
+    }
+
+    return Commands
+      .runOnce(
+        () -> {
+          m_swerveController.getEncoderHeadings(m_steeringHeadings);
+          for (int i = 0; i < m_steeringAutotuners.length; i++) m_steeringAutotuners[i].start(m_steeringHeadings[i]);
+          m_steeringAutotuning = true;
+        },
+        this
+      )
+      .andThen(
+        Commands
+          .waitUntil(() -> Arrays.stream(m_steeringAutotuners).noneMatch(RelayAutotuner::isRunning))
+          .withTimeout(AUTOTUNE_TIMEOUT_SECONDS)
+      )
+      .andThen(() -> RelayAutotuner.save("Drive/SteeringPID", RelayAutotuner.average(m_steeringAutotuners)))
+      .finallyDo(() -> {
+        m_steeringAutotuning = false;
+        for (var autotuner : m_steeringAutotuners) autotuner.cancel();
+      })
+      .withName("Steering Autotune");
+  }
+
+  /**
+   * Turns the robot in place back and forth across its heading with a relay, then saves a snap-to kP for
+   * DrivetrainConfig.SnapToTargetSettleSeconds as "Drive/SnapToPID"
+   */
+  public Command autotuneSnapToCommand() {
+    if (m_snapToAutotuner == null) {
+      m_snapToAutotuner =
+        new RelayAutotuner(
+          SNAP_TO_RELAY_OUTPUT,
+          SNAP_TO_RELAY_HYSTERESIS,
+          AUTOTUNE_CYCLES,
+          m_config.Drivetrain.SnapToTargetSettleSeconds
+        )
+          .withContinuousInput(-Math.PI, Math.PI);
+    }
+
+    return Commands
+      .runOnce(
+        () -> {
+          setSnapToEnabled(false);
+          m_snapToAutotuner.start(MathUtil.angleModulus(m_gyro.getRotation2d().getRadians()));
+        },
+        this
+      )
+      .andThen(Commands.waitUntil(() -> !m_snapToAutotuner.isRunning()).withTimeout(AUTOTUNE_TIMEOUT_SECONDS))
+      .andThen(() -> RelayAutotuner.save("Drive/SnapToPID", m_snapToAutotuner.getResult()))
+      .finallyDo(m_snapToAutotuner::cancel)
+      .withName("Snap-To Autotune");
+  }
+
   public Map<String, Command> getNamedCommands() {
     return Map.of("Enable_Lock_On", enableLockOn(), "Disable_Snap_To", disableSnapToCommand());
   }
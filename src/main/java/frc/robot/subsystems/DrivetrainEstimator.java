@@ -0,0 +1,157 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import frc.robot.config.RobotConfig;
+import prime.physics.EkfSwervePoseEstimator;
+import prime.physics.LimelightPose;
+import prime.physics.SwervePoseEstimator;
+import prime.physics.WpilibSwervePoseEstimator;
+
+/**
+ * The drivetrain's pose estimation, separated from the hardware. It only reads {@link DrivetrainInputs}, so it runs
+ * the same on the robot and when replaying a match log.
+ *
+ * Odometry goes through a {@link TractionMonitor}, which corrects the positions of slipping modules. After traction
+ * is lost, vision is accepted at any speed and trusted more until odometry has had time to be corrected.
+ *
+ * The estimate itself is WPILib's SwerveDrivePoseEstimator, or an {@link EkfSwervePoseEstimator} that also fuses the
+ * IMU when the config enables it.
+ */
+public class DrivetrainEstimator {
+
+  private static final double GRAVITY_METERS_PER_SECOND_SQUARED = 9.80665;
+
+  private SwervePoseEstimator m_poseEstimator;
+  private TractionMonitor m_traction;
+  private double m_visionStdDevScale;
+
+  // Results of the last vision evaluation
+  public boolean WithinTrustedVelocity;
+  public boolean FavoringVision;
+  public boolean RearIsValidTarget;
+  public boolean FrontIsValidTarget;
+  public boolean RearAccepted;
+  public boolean FrontAccepted;
+  public Pose2d LastVisionPose;
+
+  /**
+   * Creates a new estimator starting at the given pose
+   * @param config
+   * @param kinematics The drivetrain's kinematics, in module order FL, FR, RL, RR
+   * @param inputs The current odometry inputs
+   * @param initialPose
+   */
+  public DrivetrainEstimator(
+    RobotConfig config,
+    SwerveDriveKinematics kinematics,
+    DrivetrainInputs inputs,
+    Pose2d initialPose
+  ) {
+    m_traction = new TractionMonitor(config);
+    m_traction.reset(inputs);
+    m_visionStdDevScale = config.Drivetrain.TractionLossVisionStdDevScale;
+
+    var gyroAngle = Rotation2d.fromDegrees(inputs.GyroYawDegrees);
+    var drivetrain = config.Drivetrain;
+    if (drivetrain.UseEkfPoseEstimator) {
+      m_poseEstimator =
+        new EkfSwervePoseEstimator(
+          new Translation2d[] {
+            config.FrontLeftSwerveModule.getModuleLocation(),
+            config.FrontRightSwerveModule.getModuleLocation(),
+            config.RearLeftSwerveModule.getModuleLocation(),
+            config.RearRightSwerveModule.getModuleLocation(),
+          },
+          gyroAngle,
+          inputs.ModulePositions,
+          initialPose,
+          drivetrain.EkfWheelVelocityStdDev,
+          drivetrain.EkfAccelerationStdDev,
+          drivetrain.EkfAngularAccelerationStdDev,
+          drivetrain.EkfGyroStdDevRadians,
+          drivetrain.EkfYawRateStdDev,
+          (int) Math.ceil(drivetrain.EkfHistorySeconds / drivetrain.ControlLoopPeriodSeconds)
+        );
+    } else {
+      m_poseEstimator =
+        new WpilibSwervePoseEstimator(
+          new SwerveDrivePoseEstimator(kinematics, gyroAngle, inputs.ModulePositions, initialPose)
+        );
+    }
+  }
+
+  /**
+   * Integrates the odometry inputs into the estimate
+   * @param inputs
+   */
+  public void updateOdometry(DrivetrainInputs inputs) {
+    m_poseEstimator.addImuSample(
+      inputs.AccelerationXG * GRAVITY_METERS_PER_SECOND_SQUARED,
+      inputs.AccelerationYG * GRAVITY_METERS_PER_SECOND_SQUARED,
+      Math.toRadians(inputs.YawRateDegreesPerSecond)
+    );
+
+    m_poseEstimator.updateWithTime(
+      inputs.OdometryTimestamp,
+      Rotation2d.fromDegrees(inputs.GyroYawDegrees),
+      m_traction.update(inputs)
+    );
+  }
+
+  /**
+   * Adds any vision measurements that should be trusted to the estimate
+   * @param inputs
+   */
+  public void evaluateVision(DrivetrainInputs inputs) {
+    WithinTrustedVelocity =
+      inputs.OmegaRadiansPerSecond < 0.2 && // 1 rad/s is about 60 degrees/s
+      inputs.VxMetersPerSecond < 2 &&
+      inputs.VyMetersPerSecond < 2;
+
+    // The measured velocities come from the wheels, so they can't be trusted either after losing traction
+    FavoringVision = m_traction.shouldFavorVision(inputs.VisionTimestamp);
+
+    // If we have a valid target and we're moving in a trusted velocity range, update the pose estimator
+    RearIsValidTarget = Limelight.isValidApriltag(inputs.Rear.TargetId);
+    RearAccepted = inputs.Rear.EstimationEnabled && RearIsValidTarget && (WithinTrustedVelocity || FavoringVision);
+    if (RearAccepted) addVisionMeasurement(inputs.Rear, inputs.VisionTimestamp);
+
+    FrontIsValidTarget = Limelight.isValidApriltag(inputs.Front.TargetId);
+    FrontAccepted = inputs.Front.EstimationEnabled && FrontIsValidTarget && (WithinTrustedVelocity || FavoringVision);
+    if (FrontAccepted) addVisionMeasurement(inputs.Front, inputs.VisionTimestamp);
+  }
+
+  /**
+   * Resets the estimate to a pose
+   * @param inputs The current odometry inputs
+   * @param pose
+   */
+  public void resetPosition(DrivetrainInputs inputs, Pose2d pose) {
+    m_traction.reset(inputs);
+    m_poseEstimator.resetPosition(Rotation2d.fromDegrees(inputs.GyroYawDegrees), inputs.ModulePositions, pose);
+  }
+
+  public Pose2d getEstimatedPosition() {
+    return m_poseEstimator.getEstimatedPosition();
+  }
+
+  /**
+   * Gets the traction monitor, with the results of the last odometry update
+   */
+  public TractionMonitor getTraction() {
+    return m_traction;
+  }
+
+  private void addVisionMeasurement(DrivetrainInputs.CameraInputs camera, double timestamp) {
+    var llPose = new LimelightPose(camera.BotPose, Limelight.calculateTrust(camera.BotPose[7]), timestamp);
+
+    var stdDevs = FavoringVision ? llPose.StdDeviations.times(m_visionStdDevScale) : llPose.StdDeviations;
+
+    LastVisionPose = llPose.Pose.toPose2d();
+    m_poseEstimator.addVisionMeasurement(LastVisionPose, llPose.Timestamp, stdDevs);
+  }
+}
@@ -0,0 +1,211 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+
+/**
+ * Every hardware input the drivetrain's pose estimation reads. The drivetrain fills this in from its devices and logs
+ * it, and log replay fills it in from a match log, so the estimator runs the same way in both.
+ */
+public class DrivetrainInputs {
+
+  public static final String ODOMETRY_ENTRY = "Replay/Drive/OdometryInputs";
+  public static final String VISION_ENTRY = "Replay/Drive/VisionInputs";
+  public static final String RESET_ENTRY = "Replay/Drive/PoseResets";
+
+  private static final int MODULE_COUNT = 4;
+  private static final int ODOMETRY_LENGTH = 4 + MODULE_COUNT * 3;
+  private static final int CAMERA_LENGTH = 3 + CameraInputs.BOT_POSE_LENGTH;
+  private static final int VISION_LENGTH = 3 + CAMERA_LENGTH * 2;
+
+  /**
+   * The inputs from one Limelight
+   */
+  public static class CameraInputs {
+
+    public static final int BOT_POSE_LENGTH = 11;
+
+    public boolean EstimationEnabled;
+    public int TargetId = -1;
+    public double HorizontalOffsetDegrees;
+    public double[] BotPose = new double[BOT_POSE_LENGTH];
+
+    private int write(double[] values, int offset) {
+      values[offset++] = EstimationEnabled ? 1 : 0;
+      values[offset++] = TargetId;
+      values[offset++] = HorizontalOffsetDegrees;
+      System.arraycopy(BotPose, 0, values, offset, BOT_POSE_LENGTH);
+
+      return offset + BOT_POSE_LENGTH;
+    }
+
+    private int read(double[] values, int offset) {
+      EstimationEnabled = values[offset++] != 0;
+      TargetId = (int) values[offset++];
+      HorizontalOffsetDegrees = values[offset++];
+      System.arraycopy(values, offset, BotPose, 0, BOT_POSE_LENGTH);
+
+      return offset + BOT_POSE_LENGTH;
+    }
+  }
+
+  // Odometry, sampled at the control rate. Velocities and accelerations are for traction monitoring and the EKF
+  // estimator, the IMU's accelerations are robot-relative and in g
+  public double OdometryTimestamp;
+  public double GyroYawDegrees;
+  public final SwerveModulePosition[] ModulePositions = new SwerveModulePosition[MODULE_COUNT];
+  public final double[] ModuleVelocitiesMetersPerSecond = new double[MODULE_COUNT];
+  public double AccelerationXG;
+  public double AccelerationYG;
+  public double YawRateDegreesPerSecond;
+
+  // Vision, sampled at the main loop rate
+  public double VisionTimestamp;
+  public double VxMetersPerSecond;
+  public double VyMetersPerSecond;
+  public double OmegaRadiansPerSecond;
+  public final CameraInputs Rear = new CameraInputs();
+  public final CameraInputs Front = new CameraInputs();
+
+  // Logging
+  private DoubleArrayLogEntry m_odometryLog;
+  private DoubleArrayLogEntry m_visionLog;
+  private DoubleArrayLogEntry m_resetLog;
+  private final double[] m_odometryValues = new double[ODOMETRY_LENGTH];
+  private final double[] m_visionValues = new double[VISION_LENGTH];
+  private final double[] m_resetValues = new double[3 + ODOMETRY_LENGTH];
+
+  public DrivetrainInputs() {
+    for (int i = 0; i < MODULE_COUNT; i++) ModulePositions[i] = new SwerveModulePosition();
+  }
+
+  /**
+   * Starts writing every input sample to the log
+   * @param log
+   */
+  public void startLogging(DataLog log) {
+    m_odometryLog = new DoubleArrayLogEntry(log, ODOMETRY_ENTRY);
+    m_visionLog = new DoubleArrayLogEntry(log, VISION_ENTRY);
+    m_resetLog = new DoubleArrayLogEntry(log, RESET_ENTRY);
+  }
+
+  //#region Odometry
+
+  public void logOdometry() {
+    if (m_odometryLog == null) return;
+
+    writeOdometry(m_odometryValues, 0);
+    m_odometryLog.append(m_odometryValues, toMicros(OdometryTimestamp));
+  }
+
+  public void readOdometry(double[] values, long timestampMicros) {
+    checkLayout(ODOMETRY_ENTRY, values, ODOMETRY_LENGTH);
+    OdometryTimestamp = timestampMicros / 1e6;
+    readOdometry(values, 0);
+  }
+
+  private void writeOdometry(double[] values, int offset) {
+    values[offset++] = GyroYawDegrees;
+    for (var position : ModulePositions) {
+      values[offset++] = position.distanceMeters;
+      values[offset++] = position.angle.getRadians();
+    }
+
+    System.arraycopy(ModuleVelocitiesMetersPerSecond, 0, values, offset, MODULE_COUNT);
+    offset += MODULE_COUNT;
+    values[offset++] = AccelerationXG;
+    values[offset++] = AccelerationYG;
+    values[offset++] = YawRateDegreesPerSecond;
+  }
+
+  private void readOdometry(double[] values, int offset) {
+    GyroYawDegrees = values[offset++];
+    for (int i = 0; i < MODULE_COUNT; i++) {
+      ModulePositions[i] = new SwerveModulePosition(values[offset++], Rotation2d.fromRadians(values[offset++]));
+    }
+
+    System.arraycopy(values, offset, ModuleVelocitiesMetersPerSecond, 0, MODULE_COUNT);
+    offset += MODULE_COUNT;
+    AccelerationXG = values[offset++];
+    AccelerationYG = values[offset++];
+    YawRateDegreesPerSecond = values[offset++];
+  }
+
+  //#endregion
+
+  //#region Vision
+
+  public void logVision() {
+    if (m_visionLog == null) return;
+
+    m_visionValues[0] = VxMetersPerSecond;
+    m_visionValues[1] = VyMetersPerSecond;
+    m_visionValues[2] = OmegaRadiansPerSecond;
+    Front.write(m_visionValues, Rear.write(m_visionValues, 3));
+    m_visionLog.append(m_visionValues, toMicros(VisionTimestamp));
+  }
+
+  public void readVision(double[] values, long timestampMicros) {
+    checkLayout(VISION_ENTRY, values, VISION_LENGTH);
+    VisionTimestamp = timestampMicros / 1e6;
+    VxMetersPerSecond = values[0];
+    VyMetersPerSecond = values[1];
+    OmegaRadiansPerSecond = values[2];
+    Front.read(values, Rear.read(values, 3));
+  }
+
+  //#endregion
+
+  //#region Resets
+
+  /**
+   * Logs a reset of the estimator to a pose, along with the odometry inputs it was reset with
+   * @param pose
+   */
+  public void logReset(Pose2d pose) {
+    if (m_resetLog == null) return;
+
+    m_resetValues[0] = pose.getX();
+    m_resetValues[1] = pose.getY();
+    m_resetValues[2] = pose.getRotation().getRadians();
+    writeOdometry(m_resetValues, 3);
+    m_resetLog.append(m_resetValues, toMicros(OdometryTimestamp));
+  }
+
+  /**
+   * Reads a logged reset into the odometry inputs and returns the pose it reset to
+   */
+  public Pose2d readReset(double[] values, long timestampMicros) {
+    checkLayout(RESET_ENTRY, values, m_resetValues.length);
+    OdometryTimestamp = timestampMicros / 1e6;
+    readOdometry(values, 3);
+
+    return new Pose2d(values[0], values[1], Rotation2d.fromRadians(values[2]));
+  }
+
+  //#endregion
+
+  /**
+   * Throws if a logged record doesn't have the current layout, e.g. a log from before a field was added. Only the
+   * current layout can be read
+   */
+  private static void checkLayout(String entry, double[] values, int expectedLength) {
+    if (values.length != expectedLength) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Unsupported log layout for %s: expected %d values, got %d. Replay a log recorded with this code",
+          entry,
+          expectedLength,
+          values.length
+        )
+      );
+    }
+  }
+
+  private static long toMicros(double seconds) {
+    return (long) (seconds * 1e6);
+  }
+}
@@ -1,18 +1,36 @@
 package frc.robot.subsystems;
 
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.REVLibError;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.config.IntakeConfig;
 import java.util.Map;
 import java.util.function.DoubleSupplier;
+import prime.can.CanBusManager;
+import prime.can.DeviceConfigurator;
+import prime.control.FeedforwardCharacterization;
+import prime.control.RelayAutotuner;
+import prime.logging.BooleanSignal;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
 import prime.movers.LazyCANSparkMax;
+import prime.physics.MotorThermalModel;
+import prime.physics.ThermalMonitor;
 
 public class Intake extends SubsystemBase {
 
@@ -30,6 +48,38 @@ public class Intake extends SubsystemBase {
   public boolean m_angleToggledIn;
   private Debouncer m_angleToggleDebouncer = new Debouncer(0.1, Debouncer.DebounceType.kBoth);
 
+  // Smart current limits at free speed, lowered to the stall limit when the power manager cuts it below them
+  private static final int ROLLERS_FREE_CURRENT_LIMIT = 50;
+  private static final int ANGLE_FREE_CURRENT_LIMIT = 60;
+
+  private FeedforwardCharacterization m_characterization;
+
+  // Relay autotuning around the middle of the arm's travel
+  private static final double ARM_RELAY_OUTPUT = 0.15; // Duty cycle
+  private static final double ARM_RELAY_HYSTERESIS = 0.5; // Motor rotations
+  private static final int ARM_AUTOTUNE_CYCLES = 4;
+  private static final double ARM_AUTOTUNE_TIMEOUT_SECONDS = 15;
+  private RelayAutotuner m_armAutotuner;
+
+  // Simulation models, only created when running in simulation
+  private static final double SIM_ANGLE_MOI = 0.0005; // kg*m^2 at the motor shaft
+  private static final double SIM_ROLLERS_MOI = 0.0002; // kg*m^2
+  private DCMotorSim m_angleSim;
+  private FlywheelSim m_rollersSim;
+  private DIOSim m_topLimitSwitchSim;
+  private DIOSim m_bottomLimitSwitchSim;
+
+  // Level2 logging
+  private DoubleSignal t_angleStartPoint = Telemetry.doubleSignal("Intake/AngleStartPoint", LogLevel.Level2);
+  private DoubleSignal t_angleSetpoint = Telemetry.doubleSignal("Intake/AngleSetpoint", LogLevel.Level2);
+  private DoubleSignal t_anglePidOutput = Telemetry.doubleSignal("Intake/AnglePIDOutput", LogLevel.Level2, 2);
+  private BooleanSignal t_toggledIn = Telemetry.booleanSignal("Intake/ToggledIn", LogLevel.Essential);
+  private DoubleSignal t_armPositionRight = Telemetry.doubleSignal("Intake/ArmPositionRight", LogLevel.Level2);
+  private DoubleSignal t_armPositionLeft = Telemetry.doubleSignal("Intake/ArmPositionLeft", LogLevel.Level2);
+  private DoubleSignal t_rightMotorOutput = Telemetry.doubleSignal("Intake/RightMotorOutput", LogLevel.Level2);
+  private DoubleSignal t_leftMotorOutput = Telemetry.doubleSignal("Intake/LeftMotorOutput", LogLevel.Level2);
+  private DoubleSignal t_rollersOutput = Telemetry.doubleSignal("Intake/RollersOutput", LogLevel.Level2);
+
   /**
    * Creates a new Intake subsystem
    * @param robotConfig
@@ -41,23 +91,33 @@ public class Intake extends SubsystemBase {
     m_bottomLimitSwitch = new DigitalInput(m_config.BottomLimitSwitchChannel);
 
     m_rollers = new LazyCANSparkMax(m_config.RollersCanId, MotorType.kBrushless);
-    m_rollers.restoreFactoryDefaults();
-    m_rollers.setInverted(m_config.RollersInverted);
-    m_rollers.setSmartCurrentLimit(40, 50);
+    configureMotor("Intake/Rollers", m_rollers, m_config.RollersInverted, 40, ROLLERS_FREE_CURRENT_LIMIT);
     // m_rollers.setOpenLoopRampRate(0.250);
 
     m_angleLeft = new LazyCANSparkMax(m_config.NeoLeftCanId, MotorType.kBrushless);
-    m_angleLeft.restoreFactoryDefaults();
-    m_angleLeft.setInverted(m_config.NeoLeftInverted);
-    m_angleLeft.setSmartCurrentLimit(40, 60);
+    configureMotor("Intake/AngleLeft", m_angleLeft, m_config.NeoLeftInverted, 40, ANGLE_FREE_CURRENT_LIMIT);
 
     m_angleRight = new LazyCANSparkMax(m_config.NeoRightCanId, MotorType.kBrushless);
-    m_angleRight.restoreFactoryDefaults();
-    m_angleRight.setInverted(m_config.NeoRightInverted);
-    m_angleRight.setSmartCurrentLimit(40, 60);
+    configureMotor("Intake/AngleRight", m_angleRight, m_config.NeoRightInverted, 40, ANGLE_FREE_CURRENT_LIMIT);
+
+    // The angle PID reads both encoder positions every main loop. The thermal models read every motor's current and
+    // temperature
+    CanBusManager.sparkMaxFrames("Intake/Rollers", m_rollers, 100, 100, 500);
+    CanBusManager.sparkMaxFrames("Intake/AngleLeft", m_angleLeft, 100, 100, 20);
+    CanBusManager.sparkMaxFrames("Intake/AngleRight", m_angleRight, 100, 100, 20);
+    registerThermalModel("Intake/Rollers", m_rollers);
+    registerThermalModel("Intake/AngleLeft", m_angleLeft);
+    registerThermalModel("Intake/AngleRight", m_angleRight);
+
+    if (RobotBase.isSimulation()) {
+      m_angleSim = new DCMotorSim(DCMotor.getNEO(2), 1, SIM_ANGLE_MOI);
+      m_rollersSim = new FlywheelSim(DCMotor.getNEO(1), 1, SIM_ROLLERS_MOI);
+      m_topLimitSwitchSim = new DIOSim(m_topLimitSwitch);
+      m_bottomLimitSwitchSim = new DIOSim(m_bottomLimitSwitch);
+    }
 
     m_angleStartPoint = getPositionRight();
-    SmartDashboard.putNumber("Intake/AngleStartPoint", m_angleStartPoint);
+    t_angleStartPoint.set(m_angleStartPoint);
 
     m_anglePid = m_config.IntakeAnglePid.createPIDController(0.02);
     m_anglePid.setSetpoint(m_angleStartPoint);
@@ -67,8 +127,57 @@ public class Intake extends SubsystemBase {
     setDefaultCommand(seekAngleSetpointCommand());
   }
 
+  /**
+   * Configures a motor in the background and saves it to flash, unless it already has this configuration. The current
+   * limit can't be read back, so a motor that isn't inverted is written on every boot
+   */
+  private static void configureMotor(
+    String name,
+    LazyCANSparkMax motor,
+    boolean inverted,
+    int stallCurrentLimit,
+    int freeCurrentLimit
+  ) {
+    DeviceConfigurator.configure(
+      name,
+      "currentLimit=" + stallCurrentLimit + "/" + freeCurrentLimit + ";inverted=" + inverted,
+      inverted ? motor::getInverted : DeviceConfigurator.ALWAYS_WRITE,
+      () -> {
+        var ok = motor.restoreFactoryDefaults() == REVLibError.kOk;
+        motor.setInverted(inverted);
+        ok &= motor.setSmartCurrentLimit(stallCurrentLimit, freeCurrentLimit) == REVLibError.kOk;
+
+        return ok && motor.burnFlash() == REVLibError.kOk;
+      }
+    );
+  }
+
+  /**
+   * Registers a thermal model for a motor. The SPARK MAX reports 0 for the temperature when the motor has no sensor
+   */
+  private static void registerThermalModel(String name, LazyCANSparkMax motor) {
+    ThermalMonitor.register(
+      "Intake",
+      name,
+      MotorThermalModel.neo(),
+      motor::getOutputCurrent,
+      motor::getMotorTemperature
+    );
+  }
+
   //#region Control Methods
 
+  /**
+   * Changes the smart stall current limit of every intake motor. The free limits are kept at or below it. Waits for
+   * the motors to acknowledge, so call it from a background thread
+   * @param amps
+   */
+  public void setCurrentLimit(int amps) {
+    m_rollers.setSmartCurrentLimit(amps, Math.min(amps, ROLLERS_FREE_CURRENT_LIMIT));
+    m_angleLeft.setSmartCurrentLimit(amps, Math.min(amps, ANGLE_FREE_CURRENT_LIMIT));
+    m_angleRight.setSmartCurrentLimit(amps, Math.min(amps, ANGLE_FREE_CURRENT_LIMIT));
+  }
+
   /**
    * Gets the current position of the Intake Angle from the right NEO's encoder
    * @return
@@ -109,18 +218,41 @@ public class Intake extends SubsystemBase {
   public void setIntakeRotation() {
     var currentPosition = getPositionRight();
     var setpoint = m_angleToggledIn ? m_angleStartPoint : (m_angleStartPoint - m_config.PositionDelta);
-    SmartDashboard.putNumber("Intake/AngleSetpoint", setpoint);
+    t_angleSetpoint.set(setpoint);
 
     var pidOutput = m_anglePid.calculate(currentPosition, setpoint);
-    SmartDashboard.putNumber("Intake/AnglePIDOutput", pidOutput);
+    t_anglePidOutput.set(pidOutput);
 
+    // Hold the arm up against gravity, which the P-only loop would otherwise leave as a steady error
+    var gravityOutput = m_config.ArmGravityVolts * getArmGravityCosine() / RobotController.getBatteryVoltage();
+
+    setAngleMotorSpeedWithinLimits(currentPosition, pidOutput + gravityOutput);
+  }
+
+  /**
+   * Gets the cosine of the arm's angle from horizontal, from its position relative to where it started stowed
+   */
+  public double getArmGravityCosine() {
+    var travelDegrees = m_config.ArmStowedAngleDegrees - m_config.ArmDeployedAngleDegrees;
+    var degreesPerRotation = travelDegrees / m_config.PositionDelta;
+    var degrees = m_config.ArmStowedAngleDegrees + (getPositionRight() - m_angleStartPoint) * degreesPerRotation;
+
+    return Math.cos(Math.toRadians(degrees));
+  }
+
+  /**
+   * Sets the speed of the Intake Angle Motors, stopping them at the limit switches and the ends of the arm's travel
+   * @param currentPosition
+   * @param speed
+   */
+  private void setAngleMotorSpeedWithinLimits(double currentPosition, double speed) {
     // artificial limits
-    if (currentPosition < m_angleStartPoint && pidOutput > 0 && !m_topLimitSwitch.get()) {
-      setAngleMotorSpeed(MathUtil.clamp(pidOutput, 0, 1));
+    if (currentPosition < m_angleStartPoint && speed > 0 && !m_topLimitSwitch.get()) {
+      setAngleMotorSpeed(MathUtil.clamp(speed, 0, 1));
     } else if (
-      currentPosition > (m_angleStartPoint - m_config.PositionDelta) && pidOutput < 0 && !m_bottomLimitSwitch.get()
+      currentPosition > (m_angleStartPoint - m_config.PositionDelta) && speed < 0 && !m_bottomLimitSwitch.get()
     ) {
-      setAngleMotorSpeed(MathUtil.clamp(pidOutput, -1, 0));
+      setAngleMotorSpeed(MathUtil.clamp(speed, -1, 0));
     } else {
       setAngleMotorSpeed(0);
     }
@@ -128,18 +260,48 @@ public class Intake extends SubsystemBase {
 
   //#endregion
 
-  @Override
-  public void periodic() {
+  /**
+   * Publishes dashboard and telemetry values at the telemetry rate
+   */
+  public void publishTelemetry() {
     // Level2 Logging
-    SmartDashboard.putBoolean("Intake/ToggledIn", m_angleToggledIn);
+    t_toggledIn.set(m_angleToggledIn);
+
+    t_armPositionRight.set(getPositionRight());
+    t_armPositionLeft.set(getPositionLeft());
+
+    t_rightMotorOutput.set(m_angleRight.get());
+    t_leftMotorOutput.set(m_angleLeft.get());
+
+    t_rollersOutput.set(m_rollers.get());
+  }
 
-    SmartDashboard.putNumber("Intake/ArmPositionRight", getPositionRight());
-    SmartDashboard.putNumber("Intake/ArmPositionLeft", getPositionLeft());
+  /**
+   * Steps the angle and roller models with the simulated motor outputs. The angle is modeled at the motor shaft, in
+   * the same rotations the encoders report, and trips the limit switches at the ends of its travel
+   */
+  @Override
+  public void simulationPeriodic() {
+    var batteryVoltage = RobotController.getBatteryVoltage();
+
+    m_angleSim.setInputVoltage(m_angleRight.get() * batteryVoltage);
+    m_angleSim.update(TimedRobot.kDefaultPeriod);
+    var position = m_angleStartPoint + m_angleSim.getAngularPositionRotations();
+    m_angleRight.getEncoder().setPosition(position);
+    m_angleLeft.getEncoder().setPosition(-position);
 
-    SmartDashboard.putNumber("Intake/RightMotorOutput", m_angleRight.get());
-    SmartDashboard.putNumber("Intake/LeftMotorOutput", m_angleLeft.get());
+    m_topLimitSwitchSim.setValue(position > m_angleStartPoint);
+    m_bottomLimitSwitchSim.setValue(position < m_angleStartPoint - m_config.PositionDelta);
 
-    SmartDashboard.putNumber("Intake/RollersOutput", m_rollers.get());
+    m_rollersSim.setInputVoltage(m_rollers.get() * batteryVoltage);
+    m_rollersSim.update(TimedRobot.kDefaultPeriod);
+  }
+
+  /**
+   * Gets the current drawn by the simulated angle and roller motors
+   */
+  public double getSimulatedCurrentDrawAmps() {
+    return Math.abs(m_angleSim.getCurrentDrawAmps()) + Math.abs(m_rollersSim.getCurrentDrawAmps());
   }
 
   //#region Commands
@@ -216,6 +378,67 @@ public class Intake extends SubsystemBase {
     });
   }
 
+  /**
+   * Characterizes the arm from stowed, lowering it first, saving kS, kV, kA and kG in volts per motor rotation per
+   * second as "Intake/Arm/Feedforward". Each test stops at the limit switches or the angle PID's soft limits
+   */
+  public Command characterizeArmCommand() {
+    if (m_characterization == null) {
+      m_characterization =
+        new FeedforwardCharacterization(
+          "Intake/Arm",
+          this,
+          volts -> setAngleMotorSpeed(volts / RobotController.getBatteryVoltage()),
+          this::getPositionRight,
+          null
+        )
+          .withGravity(this::getArmGravityCosine)
+          .withTravelLimits(
+            () -> m_topLimitSwitch.get() || getPositionRight() >= m_angleStartPoint,
+            () -> m_bottomLimitSwitch.get() || getPositionRight() <= m_angleStartPoint - m_config.PositionDelta
+          )
+          .withVoltages(0.5, 3, 4)
+          .withLoopPeriod(TimedRobot.kDefaultPeriod)
+          .withReverseFirst();
+    }
+
+    return m_characterization.updatingCommand().withName("Intake Arm Characterization");
+  }
+
+  /**
+   * Swings the arm back and forth across the middle of its travel with a relay, then saves an angle kP for
+   * IntakeConfig.ArmTargetSettleSeconds as "Intake/ArmPID"
+   */
+  public Command autotuneArmCommand() {
+    if (m_armAutotuner == null) {
+      m_armAutotuner =
+        new RelayAutotuner(
+          ARM_RELAY_OUTPUT,
+          ARM_RELAY_HYSTERESIS,
+          ARM_AUTOTUNE_CYCLES,
+          m_config.ArmTargetSettleSeconds
+        );
+    }
+
+    return Commands
+      .runOnce(() -> m_armAutotuner.start(m_angleStartPoint - m_config.PositionDelta / 2), this)
+      .andThen(
+        this.run(() -> {
+            var currentPosition = getPositionRight();
+            var output = m_armAutotuner.calculate(currentPosition, Timer.getFPGATimestamp());
+            setAngleMotorSpeedWithinLimits(currentPosition, output);
+          })
+          .until(() -> !m_armAutotuner.isRunning())
+          .withTimeout(ARM_AUTOTUNE_TIMEOUT_SECONDS)
+      )
+      .andThen(() -> RelayAutotuner.save("Intake/ArmPID", m_armAutotuner.getResult()))
+      .finallyDo(() -> {
+        m_armAutotuner.cancel();
+        setAngleMotorSpeed(0);
+      })
+      .withName("Intake Arm Autotune");
+  }
+
   public Map<String, Command> getNamedCommands() {
     return Map.of(
       "Set_Intake_Out",
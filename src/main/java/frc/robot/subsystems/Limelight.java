@@ -13,16 +13,23 @@ import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
 import prime.physics.LimelightPose;
 
 public class Limelight extends SubsystemBase implements AutoCloseable {
 
   private NetworkTable m_limelightTable;
-  private ExecutorService m_executorService = Executors.newSingleThreadExecutor();
+  private ExecutorService m_executorService;
+
+  // Level2 logging
+  private DoubleSignal t_primaryTargetId = Telemetry.doubleSignal("Limelight/PrimaryTargetID", LogLevel.Level2);
+  private DoubleSignal t_horizontalOffset = Telemetry.doubleSignal("Limelight/HorizontalOffset", LogLevel.Level2);
 
   /**
    * Creates a new Limelight subsystem and sets the camera's pose in the coordinate system of the robot.
@@ -30,6 +37,14 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
    */
   public Limelight(String tableName) {
     m_limelightTable = NetworkTableInstance.getDefault().getTable(tableName);
+
+    // Name the LED thread so it can be found in profilers and the allocation check
+    m_executorService =
+      Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "Limelight/" + tableName);
+        thread.setDaemon(true);
+        return thread;
+      });
   }
 
   //#region Basic Targeting Data
@@ -120,6 +135,20 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
     return new LimelightPose(poseData, calculateTrust(poseData[7]));
   }
 
+  /**
+   * Reads the targeting data the pose estimator uses into a set of drivetrain inputs
+   * @param inputs
+   */
+  public void updateInputs(DrivetrainInputs.CameraInputs inputs) {
+    inputs.TargetId = getApriltagId();
+    inputs.HorizontalOffsetDegrees = getHorizontalOffsetFromTarget().getDegrees();
+
+    var poseData = m_limelightTable.getEntry("botpose_wpiblue").getDoubleArray(new double[0]);
+    var length = Math.min(poseData.length, inputs.BotPose.length);
+    System.arraycopy(poseData, 0, inputs.BotPose, 0, length);
+    Arrays.fill(inputs.BotPose, length, inputs.BotPose.length, 0);
+  }
+
   /**
    * 3D transform of the robot in the coordinate system of the primary in-view AprilTag
    */
@@ -169,7 +198,7 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
    * Calculates a trust value based on the number of tags in view.
    * @return
    */
-  public Matrix<N3, N1> calculateTrust(double tagCount) {
+  public static Matrix<N3, N1> calculateTrust(double tagCount) {
     // Trust level is a function of the number of tags in view
     // var trustLevel = 0.490956d + Math.pow(9998.51d, -(6.95795d * tagCount));
 
@@ -278,17 +307,20 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
 
   //#endregion
 
-  public void periodic() {
+  /**
+   * Publishes dashboard and telemetry values at the telemetry rate
+   */
+  public void publishTelemetry() {
     // Level2 logging
-    SmartDashboard.putNumber("Limelight/PrimaryTargetID", getApriltagId());
-    SmartDashboard.putNumber("Limelight/HorizontalOffset", getHorizontalOffsetFromTarget().getDegrees());
+    t_primaryTargetId.set(getApriltagId());
+    t_horizontalOffset.set(getHorizontalOffsetFromTarget().getDegrees());
   }
 
   public boolean isSpeakerCenterTarget(int apriltagId) {
     return apriltagId == 4 || apriltagId == 7;
   }
 
-  public boolean isValidApriltag(int apriltagId) {
+  public static boolean isValidApriltag(int apriltagId) {
     return apriltagId >= 1 && apriltagId <= 16;
   }
 
@@ -3,10 +3,9 @@ package frc.robot.subsystems;
 import edu.wpi.first.wpilibj.AddressableLED;
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.config.LEDConfig;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import prime.control.LEDs.Patterns.LEDPattern;
 
 public class PwmLEDs extends SubsystemBase {
@@ -15,7 +14,7 @@ public class PwmLEDs extends SubsystemBase {
   private AddressableLED _led;
   private AddressableLEDBuffer _ledBuffer;
 
-  private final ScheduledExecutorService _updateLoopExecutor = Executors.newScheduledThreadPool(1);
+  private final Notifier _updateLoopNotifier = new Notifier(this::ledUpdateLoop);
   private LEDPattern _persistentPattern;
   private LEDPattern _temporaryPattern;
 
@@ -34,8 +33,10 @@ public class PwmLEDs extends SubsystemBase {
     _led.setData(_ledBuffer);
     _led.start();
 
-    // Start the pattern update loop at 142hz with a default pattern
-    _updateLoopExecutor.scheduleAtFixedRate(this::ledUpdateLoop, 0, 7, java.util.concurrent.TimeUnit.MILLISECONDS);
+    // Start the pattern update loop at 142hz with a default pattern. The notifier runs on the FPGA clock, so the
+    // patterns stay in step with simulated time
+    _updateLoopNotifier.setName("LEDs");
+    _updateLoopNotifier.startPeriodic(0.007);
   }
 
   /**
@@ -82,7 +83,7 @@ public class PwmLEDs extends SubsystemBase {
         var msg = "[LEDs:ERROR] LED update loop has failed 3 times. Stopping loop.";
         DriverStation.reportError(msg, false);
         System.out.println(msg);
-        _updateLoopExecutor.shutdown();
+        _updateLoopNotifier.stop();
       }
     }
   }
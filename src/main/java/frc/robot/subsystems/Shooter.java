@@ -1,36 +1,81 @@
 package frc.robot.subsystems;
 
+import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.VictorSPXControlMode;
-import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+import com.ctre.phoenix6.configs.CurrentLimitsConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.config.ShooterConfig;
 import java.util.Map;
+import prime.can.CanBusManager;
+import prime.can.DeviceConfigurator;
+import prime.control.FeedforwardCharacterization;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.Patterns.BlinkPattern;
 import prime.control.LEDs.Patterns.ChasePattern;
 import prime.control.LEDs.Patterns.SolidPattern;
+import prime.diagnostics.LoopProfiler;
+import prime.diagnostics.ProfiledSection;
+import prime.logging.BooleanSignal;
+import prime.logging.DoubleSignal;
+import prime.logging.FlightRecorder;
+import prime.logging.LogLevel;
+import prime.logging.RecorderChannel;
+import prime.logging.Telemetry;
+import prime.movers.LazyDoubleSolenoid;
+import prime.movers.LazyTalonFX;
+import prime.movers.LazyVictorSPX;
 
 public class Shooter extends SubsystemBase {
 
   private ShooterConfig m_config;
 
   private PwmLEDs m_leds;
-  private TalonFX m_talonFX;
-  private VictorSPX m_victorSPX;
-  private DoubleSolenoid m_elevationSolenoid;
+  private LazyTalonFX m_talonFX;
+  private LazyVictorSPX m_victorSPX;
+  private LazyDoubleSolenoid m_elevationSolenoid;
+  private CurrentLimitsConfigs m_currentLimits = new CurrentLimitsConfigs().withSupplyCurrentLimitEnable(true);
+  private double m_launchSpeed = 0;
   private DigitalInput m_noteDetector;
 
+  // Characterization, sampled every main loop
+  private static final double CHARACTERIZATION_SIGNAL_HZ = 1 / TimedRobot.kDefaultPeriod;
+  private final VoltageOut m_voltageOut = new VoltageOut(0);
+  private FeedforwardCharacterization m_characterization;
+
+  private ProfiledSection p_periodic = LoopProfiler.section("Shooter/Periodic");
+
+  // Level2 logging
+  private DoubleSignal t_launchMotorOutput = Telemetry.doubleSignal("Shooter/LaunchMotorOutput", LogLevel.Level2);
+  private DoubleSignal t_launchMotorVelocity = Telemetry.doubleSignal("Shooter/LaunchMotorVelocity", LogLevel.Level2);
+  private DoubleSignal t_guideMotorOutput = Telemetry.doubleSignal("Shooter/GuideMotorOutput", LogLevel.Level2);
+  private BooleanSignal t_noteDetected = Telemetry.booleanSignal("Shooter/NoteDetected", LogLevel.Essential);
+
+  // Flight recorder channels
+  private RecorderChannel r_launchMotorOutput = FlightRecorder.doubleChannel("Shooter/LaunchMotorOutput", 0);
+  private RecorderChannel r_launchMotorVelocity = FlightRecorder.doubleChannel("Shooter/LaunchMotorVelocity", 0);
+  private RecorderChannel r_noteDetected = FlightRecorder.booleanChannel("Shooter/NoteDetected", 0);
+
+  // Simulation model, only created when running in simulation
+  private static final double SIM_FLYWHEEL_MOI = 0.002; // kg*m^2
+  private FlywheelSim m_flywheelSim;
+
   // #endregion
 
   /**
@@ -42,17 +87,31 @@ public class Shooter extends SubsystemBase {
     m_leds = leds;
     setName("Shooter");
 
-    m_talonFX = new TalonFX(m_config.TalonFXCanID);
-    m_talonFX.getConfigurator().apply(new TalonFXConfiguration());
-    m_talonFX.setInverted(true);
-    m_talonFX.setNeutralMode(NeutralModeValue.Brake);
+    m_talonFX = new LazyTalonFX(m_config.TalonFXCanID);
+    var talonConfig = new TalonFXConfiguration();
+    talonConfig.MotorOutput.Inverted = InvertedValue.Clockwise_Positive;
+    talonConfig.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+    DeviceConfigurator.configure(
+      "Shooter/TalonFX",
+      talonConfig.toString(),
+      DeviceConfigurator.motorOutput(m_talonFX, talonConfig.MotorOutput),
+      () -> m_talonFX.getConfigurator().apply(talonConfig).isOK()
+    );
 
-    m_victorSPX = new VictorSPX(m_config.VictorSPXCanID);
-    m_victorSPX.configFactoryDefault();
+    // Only logged, once per main loop
+    CanBusManager.phoenixSignals(m_talonFX, 50, m_talonFX.getVelocity(), m_talonFX.getDutyCycle());
+
+    m_victorSPX = new LazyVictorSPX(m_config.VictorSPXCanID);
+    DeviceConfigurator.configure(
+      "Shooter/VictorSPX",
+      "factoryDefault",
+      DeviceConfigurator.ALWAYS_WRITE,
+      () -> m_victorSPX.configFactoryDefault() == ErrorCode.OK
+    );
     m_victorSPX.setNeutralMode(NeutralMode.Brake);
 
     m_elevationSolenoid =
-      new DoubleSolenoid(
+      new LazyDoubleSolenoid(
         30,
         PneumaticsModuleType.REVPH,
         m_config.ElevationSolenoidForwardChannel,
@@ -60,6 +119,13 @@ public class Shooter extends SubsystemBase {
       );
 
     m_noteDetector = new DigitalInput(m_config.NoteDetectorDIOChannel);
+
+    if (RobotBase.isSimulation()) {
+      m_flywheelSim = new FlywheelSim(DCMotor.getFalcon500(1), 1, SIM_FLYWHEEL_MOI);
+
+      // The beam sensor reads high when nothing is blocking it
+      new DIOSim(m_noteDetector).setValue(true);
+    }
   }
 
   //#region Control Methods
@@ -69,6 +135,7 @@ public class Shooter extends SubsystemBase {
    * @param speed
    */
   public void runShooter(double speed) {
+    m_launchSpeed = speed;
     m_talonFX.set(speed);
     m_victorSPX.set(VictorSPXControlMode.PercentOutput, speed * 3);
   }
@@ -81,11 +148,29 @@ public class Shooter extends SubsystemBase {
    * Stops the shooter motors
    */
   public void stopMotors() {
+    m_launchSpeed = 0;
     m_talonFX.stopMotor();
     m_victorSPX.set(VictorSPXControlMode.PercentOutput, 0);
     m_leds.restorePersistentStripPattern();
   }
 
+  /**
+   * Gets a boolean indicating whether the launch motor is running
+   */
+  public boolean isShooting() {
+    return m_launchSpeed != 0;
+  }
+
+  /**
+   * Changes the launch motor's supply current limit. Waits for the motor to acknowledge, so call it from a background
+   * thread
+   * @param amps
+   */
+  public void setCurrentLimit(double amps) {
+    m_currentLimits.SupplyCurrentLimit = amps;
+    m_talonFX.getConfigurator().apply(m_currentLimits);
+  }
+
   /**
    * Gets a boolean indicating whether a note is blocking the beam sensor
    * @return
@@ -114,6 +199,8 @@ public class Shooter extends SubsystemBase {
 
   @Override
   public void periodic() {
+    p_periodic.start();
+
     var newNoteDetectedValue = isNoteLoaded();
     if (newNoteDetectedValue != m_lastNoteDetectedValue) {
       if (newNoteDetectedValue && !m_lastNoteDetectedValue) {
@@ -126,11 +213,42 @@ public class Shooter extends SubsystemBase {
       m_lastNoteDetectedValue = newNoteDetectedValue;
     }
 
+    r_launchMotorOutput.record(m_talonFX.get());
+    r_launchMotorVelocity.record(m_talonFX.getVelocity().getValueAsDouble());
+    r_noteDetected.record(newNoteDetectedValue);
+
+    p_periodic.stop();
+  }
+
+  /**
+   * Publishes dashboard and telemetry values at the telemetry rate
+   */
+  public void publishTelemetry() {
     // Level2 Logging
-    SmartDashboard.putNumber("Shooter/LaunchMotorOutput", m_talonFX.get());
-    SmartDashboard.putNumber("Shooter/LaunchMotorVelocity", m_talonFX.getVelocity().getValueAsDouble());
-    SmartDashboard.putNumber("Shooter/GuideMotorOutput", m_victorSPX.getMotorOutputPercent());
-    SmartDashboard.putBoolean("Shooter/NoteDetected", newNoteDetectedValue);
+    t_launchMotorOutput.set(m_talonFX.get());
+    t_launchMotorVelocity.set(m_talonFX.getVelocity().getValueAsDouble());
+    t_guideMotorOutput.set(m_victorSPX.getMotorOutputPercent());
+    t_noteDetected.set(m_lastNoteDetectedValue);
+  }
+
+  /**
+   * Steps the flywheel model with the simulated launch motor output
+   */
+  @Override
+  public void simulationPeriodic() {
+    var motorSimState = m_talonFX.getSimState();
+    motorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
+
+    m_flywheelSim.setInputVoltage(motorSimState.getMotorVoltage());
+    m_flywheelSim.update(TimedRobot.kDefaultPeriod);
+    motorSimState.setRotorVelocity(Units.radiansToRotations(m_flywheelSim.getAngularVelocityRadPerSec()));
+  }
+
+  /**
+   * Gets the current drawn by the simulated launch motor
+   */
+  public double getSimulatedCurrentDrawAmps() {
+    return Math.abs(m_flywheelSim.getCurrentDrawAmps());
   }
 
   //#region Shooter Commands
@@ -188,6 +306,35 @@ public class Shooter extends SubsystemBase {
     });
   }
 
+  /**
+   * Characterizes the launch motor's flywheel, saving kS, kV and kA in volts per rotor rotation per second as
+   * "Shooter/Feedforward" for tuning a velocity loop. The launch motor runs open loop, so nothing applies them yet. The
+   * guide motor doesn't run, so don't load a note
+   */
+  public Command characterizeCommand() {
+    var position = m_talonFX.getPosition();
+    var velocity = m_talonFX.getVelocity();
+
+    if (m_characterization == null) {
+      m_characterization =
+        new FeedforwardCharacterization(
+          "Shooter",
+          this,
+          volts -> m_talonFX.setControl(m_voltageOut.withOutput(volts)),
+          () -> position.refresh().getValueAsDouble(),
+          () -> velocity.refresh().getValueAsDouble()
+        )
+          .withVoltages(1, 6, 5)
+          .withLoopPeriod(TimedRobot.kDefaultPeriod);
+    }
+
+    return Commands
+      .runOnce(() -> position.setUpdateFrequency(CHARACTERIZATION_SIGNAL_HZ))
+      .andThen(m_characterization.updatingCommand())
+      .finallyDo(() -> position.setUpdateFrequency(0)) // Back to the rate declared in the constructor, it isn't read
+      .withName("Shooter Characterization");
+  }
+
   public Map<String, Command> getNamedCommands() {
     return Map.of(
       "Set_Elevation_Up",
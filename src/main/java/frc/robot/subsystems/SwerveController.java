@@ -2,19 +2,22 @@ package frc.robot.subsystems;
 
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.networktables.StructArrayPublisher;
 import frc.robot.config.RobotConfig;
 import prime.control.PrimePIDConstants;
+import prime.logging.LogLevel;
+import prime.logging.StructArraySignal;
+import prime.logging.Telemetry;
 
 public class SwerveController {
 
   private SwerveModule m_frontLeftModule, m_frontRightModule, m_rearLeftModule, m_rearRightModule;
 
   // Logging
-  private StructArrayPublisher<SwerveModuleState> m_desiredModulesStatesPublisher;
-  private StructArrayPublisher<SwerveModuleState> m_measuredModulesStatesPublisher;
-  private StructArrayPublisher<SwerveModulePosition> m_measuredModulesPositionsPublisher;
+  private StructArraySignal<SwerveModuleState> m_desiredModulesStatesPublisher;
+  private StructArraySignal<SwerveModuleState> m_measuredModulesStatesPublisher;
+  private StructArraySignal<SwerveModulePosition> m_measuredModulesPositionsPublisher;
+  private SwerveModuleState[] m_lastDesiredStates;
+  private boolean m_outputsSuppressed = false;
 
   /**
    * Creates a new SwerveController with the specified configuration and PID constants.
@@ -24,27 +27,24 @@ public class SwerveController {
    */
   public SwerveController(RobotConfig config, PrimePIDConstants drivePID, PrimePIDConstants steeringPID) {
     // Create swerve modules in CCW order from FL to FR
-    m_frontLeftModule = new SwerveModule(config.FrontLeftSwerveModule, drivePID, steeringPID);
-    m_frontRightModule = new SwerveModule(config.FrontRightSwerveModule, drivePID, steeringPID);
-    m_rearLeftModule = new SwerveModule(config.RearLeftSwerveModule, drivePID, steeringPID);
-    m_rearRightModule = new SwerveModule(config.RearRightSwerveModule, drivePID, steeringPID);
+    var controlPeriod = config.Drivetrain.ControlLoopPeriodSeconds;
+    m_frontLeftModule = new SwerveModule(config.FrontLeftSwerveModule, drivePID, steeringPID, controlPeriod);
+    m_frontRightModule = new SwerveModule(config.FrontRightSwerveModule, drivePID, steeringPID, controlPeriod);
+    m_rearLeftModule = new SwerveModule(config.RearLeftSwerveModule, drivePID, steeringPID, controlPeriod);
+    m_rearRightModule = new SwerveModule(config.RearRightSwerveModule, drivePID, steeringPID, controlPeriod);
 
     // Start logging modules states
     m_desiredModulesStatesPublisher =
-      NetworkTableInstance
-        .getDefault()
-        .getStructArrayTopic("Drive/DesiredSwerveModuleStates", SwerveModuleState.struct)
-        .publish();
+      Telemetry.structArraySignal("Drive/DesiredSwerveModuleStates", SwerveModuleState.struct, LogLevel.Level2, 1);
     m_measuredModulesStatesPublisher =
-      NetworkTableInstance
-        .getDefault()
-        .getStructArrayTopic("Drive/MeasuredSwerveModuleStates", SwerveModuleState.struct)
-        .publish();
+      Telemetry.structArraySignal("Drive/MeasuredSwerveModuleStates", SwerveModuleState.struct, LogLevel.Level2, 1);
     m_measuredModulesPositionsPublisher =
-      NetworkTableInstance
-        .getDefault()
-        .getStructArrayTopic("Drive/MeasuredSwerveModulePositions", SwerveModulePosition.struct)
-        .publish();
+      Telemetry.structArraySignal(
+        "Drive/MeasuredSwerveModulePositions",
+        SwerveModulePosition.struct,
+        LogLevel.Level2,
+        1
+      );
   }
 
   /**
@@ -52,8 +52,8 @@ public class SwerveController {
    * @param desiredStates
    */
   public void setDesiredStates(SwerveModuleState[] desiredStates) {
-    // Log desired states
-    m_desiredModulesStatesPublisher.set(desiredStates);
+    // Keep the desired states for the telemetry loop, unless they're only warming up the JIT
+    if (!m_outputsSuppressed) m_lastDesiredStates = desiredStates;
 
     m_frontLeftModule.setDesiredState(desiredStates[0]);
     m_frontRightModule.setDesiredState(desiredStates[1]);
@@ -61,6 +61,31 @@ public class SwerveController {
     m_rearRightModule.setDesiredState(desiredStates[3]);
   }
 
+  /**
+   * Suppresses or restores every module's motor outputs
+   * @param suppressed
+   */
+  public void setOutputsSuppressed(boolean suppressed) {
+    m_outputsSuppressed = suppressed;
+    m_frontLeftModule.setOutputsSuppressed(suppressed);
+    m_frontRightModule.setOutputsSuppressed(suppressed);
+    m_rearLeftModule.setOutputsSuppressed(suppressed);
+    m_rearRightModule.setOutputsSuppressed(suppressed);
+  }
+
+  /**
+   * Changes every module's current limits. Waits for the devices to acknowledge, so call it from a background thread
+   * @param driveSupplyAmps
+   * @param driveStatorAmps
+   * @param steeringAmps
+   */
+  public void setCurrentLimits(double driveSupplyAmps, double driveStatorAmps, int steeringAmps) {
+    m_frontLeftModule.setCurrentLimits(driveSupplyAmps, driveStatorAmps, steeringAmps);
+    m_frontRightModule.setCurrentLimits(driveSupplyAmps, driveStatorAmps, steeringAmps);
+    m_rearLeftModule.setCurrentLimits(driveSupplyAmps, driveStatorAmps, steeringAmps);
+    m_rearRightModule.setCurrentLimits(driveSupplyAmps, driveStatorAmps, steeringAmps);
+  }
+
   public SwerveModuleState[] getModuleStates() {
     var states = new SwerveModuleState[] {
       m_frontLeftModule.getModuleState(),
@@ -69,12 +94,19 @@ public class SwerveController {
       m_rearRightModule.getModuleState(),
     };
 
-    // Log measured states
-    m_measuredModulesStatesPublisher.set(states);
-
     return states;
   }
 
+  /**
+   * Records every module's measured state. Call once per control loop
+   */
+  public void recordMeasuredStates() {
+    m_frontLeftModule.recordMeasuredState();
+    m_frontRightModule.recordMeasuredState();
+    m_rearLeftModule.recordMeasuredState();
+    m_rearRightModule.recordMeasuredState();
+  }
+
   public SwerveModulePosition[] getPositions() {
     var positions = new SwerveModulePosition[] {
       m_frontLeftModule.getPosition(),
@@ -83,12 +115,101 @@ public class SwerveController {
       m_rearRightModule.getPosition(),
     };
 
-    // Log measured positions
-    m_measuredModulesPositionsPublisher.set(positions);
-
     return positions;
   }
 
+  /**
+   * Reads every module's drive velocity in m/s, in order FL, FR, RL, RR
+   * @param velocities Filled in with the velocities
+   */
+  public void getVelocities(double[] velocities) {
+    velocities[0] = m_frontLeftModule.getVelocityMetersPerSecond();
+    velocities[1] = m_frontRightModule.getVelocityMetersPerSecond();
+    velocities[2] = m_rearLeftModule.getVelocityMetersPerSecond();
+    velocities[3] = m_rearRightModule.getVelocityMetersPerSecond();
+  }
+
+  /**
+   * Reads every module's steering encoder heading in rotations, in order FL, FR, RL, RR
+   * @param headings Filled in with the headings
+   */
+  public void getEncoderHeadings(double[] headings) {
+    headings[0] = m_frontLeftModule.getEncoderHeading();
+    headings[1] = m_frontRightModule.getEncoderHeading();
+    headings[2] = m_rearLeftModule.getEncoderHeading();
+    headings[3] = m_rearRightModule.getEncoderHeading();
+  }
+
+  /**
+   * Runs every module's steering motor at a duty cycle with the drive motors held still, in order FL, FR, RL, RR
+   * @param outputs
+   */
+  public void setSteeringOutputs(double[] outputs) {
+    m_frontLeftModule.setSteeringOutput(outputs[0]);
+    m_frontRightModule.setSteeringOutput(outputs[1]);
+    m_rearLeftModule.setSteeringOutput(outputs[2]);
+    m_rearRightModule.setSteeringOutput(outputs[3]);
+  }
+
+  /**
+   * Holds every module straight ahead and drives it at a voltage, for characterizing the drive
+   * @param volts
+   */
+  public void setCharacterizationVoltage(double volts) {
+    m_frontLeftModule.setCharacterizationVoltage(volts);
+    m_frontRightModule.setCharacterizationVoltage(volts);
+    m_rearLeftModule.setCharacterizationVoltage(volts);
+    m_rearRightModule.setCharacterizationVoltage(volts);
+  }
+
+  /**
+   * Gets the modules' average drive rotor position in rotations
+   */
+  public double getAverageDriveRotorPosition() {
+    return (
+      (m_frontLeftModule.getDriveRotorPosition() +
+        m_frontRightModule.getDriveRotorPosition() +
+        m_rearLeftModule.getDriveRotorPosition() +
+        m_rearRightModule.getDriveRotorPosition()) /
+      4
+    );
+  }
+
+  /**
+   * Gets the modules' average drive rotor velocity in rotations per second
+   */
+  public double getAverageDriveRotorVelocity() {
+    return (
+      (m_frontLeftModule.getDriveRotorVelocity() +
+        m_frontRightModule.getDriveRotorVelocity() +
+        m_rearLeftModule.getDriveRotorVelocity() +
+        m_rearRightModule.getDriveRotorVelocity()) /
+      4
+    );
+  }
+
+  /**
+   * Publishes the desired and measured module states. Called from the telemetry loop rather than the control loop
+   */
+  public void publishTelemetry() {
+    if (m_lastDesiredStates != null) m_desiredModulesStatesPublisher.set(m_lastDesiredStates);
+
+    m_measuredModulesStatesPublisher.set(getModuleStates());
+    m_measuredModulesPositionsPublisher.set(getPositions());
+  }
+
+  /**
+   * Gets the current drawn by all simulated module motors
+   */
+  public double getSimulatedCurrentDrawAmps() {
+    return (
+      m_frontLeftModule.getSimulatedCurrentDrawAmps() +
+      m_frontRightModule.getSimulatedCurrentDrawAmps() +
+      m_rearLeftModule.getSimulatedCurrentDrawAmps() +
+      m_rearRightModule.getSimulatedCurrentDrawAmps()
+    );
+  }
+
   public void stopAllMotors() {
     m_frontLeftModule.stopMotors();
     m_frontRightModule.stopMotors();
@@ -1,25 +1,42 @@
 package frc.robot.subsystems;
 
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.CurrentLimitsConfigs;
 import com.ctre.phoenix6.configs.MagnetSensorConfigs;
 import com.ctre.phoenix6.configs.Slot0Configs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.AbsoluteSensorRangeValue;
+import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.REVLibError;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.config.SwerveModuleConfig;
+import prime.can.CanBusManager;
+import prime.can.DeviceConfigurator;
 import prime.control.PrimePIDConstants;
+import prime.logging.BlackBox;
+import prime.logging.FlightRecorder;
+import prime.logging.RecorderChannel;
 import prime.movers.LazyCANSparkMax;
+import prime.physics.MotorThermalModel;
+import prime.physics.ThermalMonitor;
 import prime.utilities.CTREConverter;
 
 public class SwerveModule extends SubsystemBase {
@@ -29,35 +46,121 @@ public class SwerveModule extends SubsystemBase {
   // Devices
   private LazyCANSparkMax m_SteeringMotor;
   private TalonFX m_driveMotor;
+  private CurrentLimitsConfigs m_driveCurrentLimits;
   private CANcoder m_encoder;
   private PIDController m_steeringPidController;
+  private boolean m_outputsSuppressed = false;
 
   // Start at velocity 0, no feed forward, use slot 0
   private final VelocityVoltage m_voltageVelocity = new VelocityVoltage(0, 0, false, 0, 0, false, false, false);
-
-  public SwerveModule(SwerveModuleConfig moduleConfig, PrimePIDConstants drivePID, PrimePIDConstants steeringPID) {
+  private final VoltageOut m_voltageOut = new VoltageOut(0);
+
+  // Flight recorder channels, recorded at full rate
+  private RecorderChannel r_desiredSpeed;
+  private RecorderChannel r_desiredAngle;
+  private RecorderChannel r_measuredSpeed;
+  private RecorderChannel r_measuredAngle;
+  private RecorderChannel r_steeringOutput;
+
+  // Black box channels
+  private int b_desiredSpeed;
+  private int b_desiredAngle;
+  private int b_measuredSpeed;
+  private int b_measuredAngle;
+
+  // The steering motor's smart current limit at free speed, lowered to the stall limit when the power manager cuts
+  // it below this
+  private static final int STEERING_FREE_CURRENT_LIMIT = 80;
+
+  // Simulation models, only created when running in simulation
+  private static final double SIM_STEERING_GEAR_RATIO = 150.0 / 7.0;
+  private static final double SIM_DRIVE_MOI = 0.025; // kg*m^2, reflected robot mass per module
+  private static final double SIM_STEERING_MOI = 0.004; // kg*m^2
+  private DCMotorSim m_driveSim;
+  private DCMotorSim m_steeringSim;
+
+  public SwerveModule(
+    SwerveModuleConfig moduleConfig,
+    PrimePIDConstants drivePID,
+    PrimePIDConstants steeringPID,
+    double controlPeriodSeconds
+  ) {
     m_config = moduleConfig;
     setName(m_config.ModuleName);
 
-    setupSteeringMotor(steeringPID);
+    setupSteeringMotor(steeringPID, controlPeriodSeconds);
     setupDriveMotor(drivePID);
     setupCanCoder();
+
+    // Odometry and the steering PID read these every control loop. The steering motor is only commanded, its angle
+    // comes from the CANCoder
+    var controlFrequencyHz = 1 / controlPeriodSeconds;
+    CanBusManager.phoenixSignals(
+      m_driveMotor,
+      controlFrequencyHz,
+      m_driveMotor.getPosition(),
+      m_driveMotor.getVelocity()
+    );
+    CanBusManager.phoenixSignals(m_encoder, controlFrequencyHz, m_encoder.getPosition());
+    CanBusManager.sparkMaxFrames("Drive/" + m_config.ModuleName + "/SteeringMotor", m_SteeringMotor, 100, 500, 500);
+
+    // The drive motor's thermal model samples its current and temperature from the power manager's thread
+    var statorCurrent = m_driveMotor.getStatorCurrent();
+    var deviceTemp = m_driveMotor.getDeviceTemp();
+    CanBusManager.phoenixSignals(m_driveMotor, 20, statorCurrent);
+    CanBusManager.phoenixSignals(m_driveMotor, 4, deviceTemp);
+    ThermalMonitor.register(
+      "Drive",
+      "Drive/" + m_config.ModuleName + "/DriveMotor",
+      MotorThermalModel.falcon500(),
+      () -> statorCurrent.refresh().getValueAsDouble(),
+      () -> deviceTemp.refresh().getValueAsDouble()
+    );
+
+    var prefix = "Drive/Modules/" + m_config.ModuleName + "/";
+    r_desiredSpeed = FlightRecorder.doubleChannel(prefix + "DesiredSpeed (m/s)", 0);
+    r_desiredAngle = FlightRecorder.doubleChannel(prefix + "DesiredAngle (rot)", 0);
+    r_measuredSpeed = FlightRecorder.doubleChannel(prefix + "MeasuredSpeed (m/s)", 0);
+    r_measuredAngle = FlightRecorder.doubleChannel(prefix + "MeasuredAngle (rot)", 0);
+    r_steeringOutput = FlightRecorder.doubleChannel(prefix + "SteeringOutput", 0);
+
+    b_desiredSpeed = BlackBox.channel(prefix + "DesiredSpeed (m/s)");
+    b_desiredAngle = BlackBox.channel(prefix + "DesiredAngle (rot)");
+    b_measuredSpeed = BlackBox.channel(prefix + "MeasuredSpeed (m/s)");
+    b_measuredAngle = BlackBox.channel(prefix + "MeasuredAngle (rot)");
+
+    if (RobotBase.isSimulation()) {
+      m_driveSim = new DCMotorSim(DCMotor.getFalcon500(1), m_config.DriveGearRatio, SIM_DRIVE_MOI);
+      m_steeringSim = new DCMotorSim(DCMotor.getNEO(1), SIM_STEERING_GEAR_RATIO, SIM_STEERING_MOI);
+    }
   }
 
   //#region Setup methods
 
   // Sets up the steering motor and PID controller
-  private void setupSteeringMotor(PrimePIDConstants pid) {
+  private void setupSteeringMotor(PrimePIDConstants pid, double controlPeriodSeconds) {
     m_SteeringMotor = new LazyCANSparkMax(m_config.SteeringMotorCanId, MotorType.kBrushless);
-    m_SteeringMotor.restoreFactoryDefaults();
-
-    m_SteeringMotor.setSmartCurrentLimit(100, 80);
     m_SteeringMotor.clearFaults();
-    m_SteeringMotor.setIdleMode(CANSparkMax.IdleMode.kBrake);
-    m_SteeringMotor.setInverted(m_config.SteerInverted); // CCW inversion
+
+    // Saved to flash, so it only has to be written when it changes
+    DeviceConfigurator.configure(
+      "Drive/" + m_config.ModuleName + "/SteeringMotor",
+      "currentLimit=100/" + STEERING_FREE_CURRENT_LIMIT + ";idle=brake;inverted=" + m_config.SteerInverted,
+      () ->
+        m_SteeringMotor.getIdleMode() == CANSparkMax.IdleMode.kBrake &&
+        m_SteeringMotor.getInverted() == m_config.SteerInverted,
+      () -> {
+        var ok = m_SteeringMotor.restoreFactoryDefaults() == REVLibError.kOk;
+        ok &= m_SteeringMotor.setSmartCurrentLimit(100, STEERING_FREE_CURRENT_LIMIT) == REVLibError.kOk;
+        ok &= m_SteeringMotor.setIdleMode(CANSparkMax.IdleMode.kBrake) == REVLibError.kOk;
+        m_SteeringMotor.setInverted(m_config.SteerInverted); // CCW inversion
+
+        return ok && m_SteeringMotor.burnFlash() == REVLibError.kOk;
+      }
+    );
 
     // Create a PID controller to calculate steering motor output
-    m_steeringPidController = pid.createPIDController(0.02);
+    m_steeringPidController = pid.createPIDController(controlPeriodSeconds);
     m_steeringPidController.enableContinuousInput(0, 1); // 0 to 1 rotation
     m_steeringPidController.setTolerance((1 / 360.0) * 2); // 2 degrees in units of rotations
   }
@@ -66,47 +169,73 @@ public class SwerveModule extends SubsystemBase {
   public void setupDriveMotor(PrimePIDConstants pid) {
     m_driveMotor = new TalonFX(m_config.DriveMotorCanId);
     m_driveMotor.clearStickyFaults();
-    m_driveMotor.getConfigurator().apply(new TalonFXConfiguration()); // Reset to factory default
 
+    // Applying a full configuration resets every setting it doesn't mention to factory default
     TalonFXConfiguration driveMotorConfig = new TalonFXConfiguration();
 
     // Set the PID values for slot 0
     driveMotorConfig.Slot0 =
-      new Slot0Configs().withKP(pid.kP).withKI(pid.kI).withKD(pid.kD).withKS(pid.kS).withKV(pid.kV);
+      new Slot0Configs().withKP(pid.kP).withKI(pid.kI).withKD(pid.kD).withKS(pid.kS).withKV(pid.kV).withKA(pid.kA);
 
     // Set the voltage limits
     driveMotorConfig.Voltage.PeakForwardVoltage = 12;
     driveMotorConfig.Voltage.PeakReverseVoltage = -12;
 
-    // Set the current limits
+    // Set the current limits. The power manager changes the supply limit on a copy
     driveMotorConfig.withCurrentLimits(m_config.DriveCurrentLimitConfiguration);
+    var limits = m_config.DriveCurrentLimitConfiguration;
+    m_driveCurrentLimits =
+      new CurrentLimitsConfigs()
+        .withStatorCurrentLimitEnable(limits.StatorCurrentLimitEnable)
+        .withStatorCurrentLimit(limits.StatorCurrentLimit)
+        .withSupplyCurrentLimitEnable(limits.SupplyCurrentLimitEnable)
+        .withSupplyCurrentLimit(limits.SupplyCurrentLimit)
+        .withSupplyCurrentThreshold(limits.SupplyCurrentThreshold)
+        .withSupplyTimeThreshold(limits.SupplyTimeThreshold);
 
     // Set the ramp rates
     driveMotorConfig.withClosedLoopRamps(m_config.DriveClosedLoopRampConfiguration);
 
+    // Set the neutral mode and inversion
+    driveMotorConfig.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+    driveMotorConfig.MotorOutput.Inverted =
+      m_config.DriveInverted ? InvertedValue.Clockwise_Positive : InvertedValue.CounterClockwise_Positive;
+
     // Apply the configuration
-    m_driveMotor.getConfigurator().apply(driveMotorConfig);
-    m_driveMotor.setNeutralMode(NeutralModeValue.Brake);
-    m_driveMotor.setInverted(m_config.DriveInverted); // Clockwise Inversion
+    DeviceConfigurator.configure(
+      "Drive/" + m_config.ModuleName + "/DriveMotor",
+      driveMotorConfig.toString(),
+      DeviceConfigurator.motorOutput(m_driveMotor, driveMotorConfig.MotorOutput),
+      () -> m_driveMotor.getConfigurator().apply(driveMotorConfig).isOK()
+    );
   }
 
   // Sets up the CANCoder
   public void setupCanCoder() {
     m_encoder = new CANcoder(m_config.CANCoderCanId);
     m_encoder.clearStickyFaults();
-    m_encoder.getConfigurator().apply(new CANcoderConfiguration());
-
-    // AbsoluteSensorRangeValue
-    m_encoder
-      .getConfigurator()
-      .apply(
-        new CANcoderConfiguration()
-          .withMagnetSensor(
-            new MagnetSensorConfigs()
-              .withAbsoluteSensorRange(AbsoluteSensorRangeValue.Unsigned_0To1)
-              .withMagnetOffset(-m_config.StartingOffset)
-          )
+
+    // AbsoluteSensorRangeValue, everything else at factory default
+    var encoderConfig = new CANcoderConfiguration()
+      .withMagnetSensor(
+        new MagnetSensorConfigs()
+          .withAbsoluteSensorRange(AbsoluteSensorRangeValue.Unsigned_0To1)
+          .withMagnetOffset(-m_config.StartingOffset)
       );
+
+    DeviceConfigurator.configure(
+      "Drive/" + m_config.ModuleName + "/CANCoder",
+      encoderConfig.toString(),
+      () -> {
+        var magnet = new MagnetSensorConfigs();
+
+        return (
+          m_encoder.getConfigurator().refresh(magnet).isOK() &&
+          magnet.AbsoluteSensorRange == AbsoluteSensorRangeValue.Unsigned_0To1
+        );
+      },
+      () -> m_encoder.getConfigurator().apply(encoderConfig).isOK()
+    );
   }
 
   //#endregion
@@ -121,34 +250,61 @@ public class SwerveModule extends SubsystemBase {
    */
   public void setDesiredState(SwerveModuleState desiredState) {
     // Optimize the desired state
-    desiredState = optimize(desiredState);
+    desiredState = optimize(desiredState, getEncoderHeadingRotation2d());
 
-    // Set the drive motor to the desired speed
+    // Calculate the drive motor's desired speed
     var speedRotationsPerSecond = CTREConverter.metersToRotations(
       desiredState.speedMetersPerSecond,
       m_config.DriveWheelCircumferenceMeters,
       m_config.DriveGearRatio
     );
 
+    // Calculate the steering motor's output to reach the desired angle
+    var setpoint = desiredState.angle.getRotations() % 1;
+    if (setpoint < 0) setpoint += 1;
+
+    var newOutput = MathUtil.clamp(m_steeringPidController.calculate(getEncoderHeading(), setpoint), -1, 1);
+
+    if (m_outputsSuppressed) return;
+
     m_driveMotor.setControl(
       m_voltageVelocity.withVelocity(speedRotationsPerSecond) // TODO: evaluate effect of removing ".withAcceleration(speedRotationsPerSecond / 2)"
     );
+    m_SteeringMotor.set(newOutput);
 
-    // Set the steering motor to the desired angle
-    var setpoint = desiredState.angle.getRotations() % 1;
-    if (setpoint < 0) setpoint += 1;
+    r_desiredSpeed.record(desiredState.speedMetersPerSecond);
+    r_desiredAngle.record(setpoint);
+    r_steeringOutput.record(newOutput);
+    BlackBox.set(b_desiredSpeed, desiredState.speedMetersPerSecond);
+    BlackBox.set(b_desiredAngle, setpoint);
+  }
 
-    var newOutput = m_steeringPidController.calculate(getEncoderHeading(), setpoint);
+  /**
+   * Holds the module straight ahead and drives it at a voltage, for characterizing the drive
+   * @param volts
+   */
+  public void setCharacterizationVoltage(double volts) {
+    var newOutput = MathUtil.clamp(m_steeringPidController.calculate(getEncoderHeading(), 0), -1, 1);
 
-    m_SteeringMotor.set(MathUtil.clamp(newOutput, -1, 1));
+    m_driveMotor.setControl(m_voltageOut.withOutput(volts));
+    m_SteeringMotor.set(newOutput);
+  }
+
+  /**
+   * Holds the drive motor still and runs the steering motor at a duty cycle, for autotuning the steering loop
+   * @param output
+   */
+  public void setSteeringOutput(double output) {
+    m_driveMotor.setControl(m_voltageVelocity.withVelocity(0));
+    m_SteeringMotor.set(output);
   }
 
   /**
    * Optimizes the module angle & drive inversion to ensure the module takes the shortest path to drive at the desired angle
    * @param desiredState
+   * @param currentAngle The module's current heading
    */
-  private SwerveModuleState optimize(SwerveModuleState desiredState) {
-    Rotation2d currentAngle = getEncoderHeadingRotation2d();
+  public static SwerveModuleState optimize(SwerveModuleState desiredState, Rotation2d currentAngle) {
     var delta = desiredState.angle.minus(currentAngle);
     if (Math.abs(delta.getDegrees()) > 90.0) {
       return new SwerveModuleState(
@@ -160,6 +316,33 @@ public class SwerveModule extends SubsystemBase {
     }
   }
 
+  /**
+   * Runs setDesiredState's calculations without writing to the motors or logs, e.g. while warming up the JIT. The
+   * steering PID is reset when outputs are restored
+   * @param suppressed
+   */
+  public void setOutputsSuppressed(boolean suppressed) {
+    if (m_outputsSuppressed && !suppressed) m_steeringPidController.reset();
+
+    m_outputsSuppressed = suppressed;
+  }
+
+  /**
+   * Changes the drive motor's supply and stator current limits and the steering motor's smart stall limit, keeping
+   * its free limit at or below the stall limit. Waits for both devices to acknowledge, so call it from a background
+   * thread
+   * @param driveSupplyAmps
+   * @param driveStatorAmps The stator limit, or infinity to leave it off
+   * @param steeringAmps
+   */
+  public void setCurrentLimits(double driveSupplyAmps, double driveStatorAmps, int steeringAmps) {
+    m_driveCurrentLimits.SupplyCurrentLimit = driveSupplyAmps;
+    m_driveCurrentLimits.StatorCurrentLimitEnable = Double.isFinite(driveStatorAmps);
+    if (Double.isFinite(driveStatorAmps)) m_driveCurrentLimits.StatorCurrentLimit = driveStatorAmps;
+    m_driveMotor.getConfigurator().apply(m_driveCurrentLimits);
+    m_SteeringMotor.setSmartCurrentLimit(steeringAmps, Math.min(steeringAmps, STEERING_FREE_CURRENT_LIMIT));
+  }
+
   // Stops both motors within the Module
   public void stopMotors() {
     m_driveMotor.stopMotor();
@@ -187,6 +370,19 @@ public class SwerveModule extends SubsystemBase {
     return new SwerveModuleState(getVelocityMetersPerSecond(), getEncoderHeadingRotation2d());
   }
 
+  /**
+   * Records the measured speed and angle to the flight recorder and black box. Call once per control loop
+   */
+  public void recordMeasuredState() {
+    var speed = getVelocityMetersPerSecond();
+    var angle = getEncoderHeading();
+
+    r_measuredSpeed.record(speed);
+    r_measuredAngle.record(angle);
+    BlackBox.set(b_measuredSpeed, speed);
+    BlackBox.set(b_measuredAngle, angle);
+  }
+
   /**
    * Gets the velocity of the drive motor in meters per second
    */
@@ -198,6 +394,20 @@ public class SwerveModule extends SubsystemBase {
     );
   }
 
+  /**
+   * Gets the drive motor's rotor position in rotations, the unit its slot 0 gains are in
+   */
+  public double getDriveRotorPosition() {
+    return m_driveMotor.getPosition().getValueAsDouble();
+  }
+
+  /**
+   * Gets the drive motor's rotor velocity in rotations per second, the unit its slot 0 gains are in
+   */
+  public double getDriveRotorVelocity() {
+    return m_driveMotor.getVelocity().getValueAsDouble();
+  }
+
   // Gets the heading of the encoder in rotations
   public double getEncoderHeading() {
     return m_encoder.getPosition().getValueAsDouble();
@@ -219,4 +429,39 @@ public class SwerveModule extends SubsystemBase {
     // d_driveVoltageEntry.setDouble(m_driveMotor.getMotorVoltage().getValueAsDouble());
     // d_moduleHeadingEntry.setDouble(getEncoderHeadingRotation2d().getDegrees());
   }
+
+  /**
+   * Steps the drive and steering models with the simulated motor outputs and feeds the results back to the
+   * TalonFX rotor and the CANcoder
+   */
+  @Override
+  public void simulationPeriodic() {
+    var batteryVoltage = RobotController.getBatteryVoltage();
+
+    // The TalonFX runs its velocity loop on the simulated device, so read back the voltage it applied
+    var driveSimState = m_driveMotor.getSimState();
+    driveSimState.setSupplyVoltage(batteryVoltage);
+    m_driveSim.setInputVoltage(driveSimState.getMotorVoltage());
+    m_driveSim.update(TimedRobot.kDefaultPeriod);
+    driveSimState.setRawRotorPosition(m_driveSim.getAngularPositionRotations() * m_config.DriveGearRatio);
+    driveSimState.setRotorVelocity(
+      Units.radiansToRotations(m_driveSim.getAngularVelocityRadPerSec()) * m_config.DriveGearRatio
+    );
+
+    // The steering PID runs on the roboRIO, so the SPARK MAX output is the duty cycle we set
+    m_steeringSim.setInputVoltage(m_SteeringMotor.get() * batteryVoltage);
+    m_steeringSim.update(TimedRobot.kDefaultPeriod);
+
+    var encoderSimState = m_encoder.getSimState();
+    encoderSimState.setSupplyVoltage(batteryVoltage);
+    encoderSimState.setRawPosition(m_steeringSim.getAngularPositionRotations());
+    encoderSimState.setVelocity(Units.radiansToRotations(m_steeringSim.getAngularVelocityRadPerSec()));
+  }
+
+  /**
+   * Gets the current drawn by the simulated module motors
+   */
+  public double getSimulatedCurrentDrawAmps() {
+    return Math.abs(m_driveSim.getCurrentDrawAmps()) + Math.abs(m_steeringSim.getCurrentDrawAmps());
+  }
 }
@@ -0,0 +1,275 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.config.DrivetrainConfig;
+import frc.robot.config.RobotConfig;
+import frc.robot.config.SwerveModuleConfig;
+
+/**
+ * Detects slipping modules, wheels spinning without the robot moving, and collisions, and corrects the module
+ * positions odometry integrates for them.
+ *
+ * Every control loop the module velocities are fitted to one rigid-body motion of the chassis. A module that
+ * disagrees with the fit is slipping: it's dropped and the rest are refitted, up to two modules. The fit is compared
+ * with a chassis velocity integrated from the IMU's accelerations and the gyro, which is pulled toward the wheels
+ * while they can be trusted. When the two disagree the whole drivetrain is slipping, e.g. while pushing, and an
+ * acceleration beyond what the wheels can grip is a collision.
+ *
+ * A slipping module's distance advances with the motion the other modules agree on, and when the whole drivetrain is
+ * slipping every module advances with the IMU's velocity. Like {@link DrivetrainEstimator}, it only reads
+ * {@link DrivetrainInputs}, so it runs the same when replaying a match log.
+ */
+public class TractionMonitor {
+
+  private static final double GRAVITY_METERS_PER_SECOND_SQUARED = 9.80665;
+  private static final int MIN_FITTED_MODULES = 2;
+
+  // How quickly the IMU velocity follows the wheels, while they're trusted and while they're slipping. Slipping still
+  // follows slowly so accelerometer bias can't hold the slip forever
+  private static final double IMU_TRACKING_SECONDS = 0.2;
+  private static final double IMU_DRIFT_SECONDS = 2.0;
+
+  private final DrivetrainConfig m_config;
+  private final int m_moduleCount;
+  private final double[] m_moduleX;
+  private final double[] m_moduleY;
+
+  // Scratch space for the fit
+  private final double[] m_wheelVx;
+  private final double[] m_wheelVy;
+  private final double[] m_weights;
+  private double m_fitVx;
+  private double m_fitVy;
+  private double m_fitOmega;
+
+  // Chassis velocity integrated from the IMU, robot-relative
+  private double m_imuVx;
+  private double m_imuVy;
+
+  private final SwerveModulePosition[] m_correctedPositions;
+  private final double[] m_lastDistances;
+  private double m_lastTimestamp = Double.NaN;
+  private double m_lastYawDegrees;
+  private double m_lastTractionLossTimestamp = Double.NEGATIVE_INFINITY;
+
+  // Results of the last update
+  public final boolean[] ModuleSlipping;
+  public boolean ChassisSlipping;
+  public boolean CollisionDetected;
+  public boolean TractionLost;
+  public double ChassisVelocityErrorMetersPerSecond;
+
+  /**
+   * @param config The robot's config, for the module locations in order FL, FR, RL, RR and the traction thresholds
+   */
+  public TractionMonitor(RobotConfig config) {
+    m_config = config.Drivetrain;
+
+    var modules = new SwerveModuleConfig[] {
+      config.FrontLeftSwerveModule,
+      config.FrontRightSwerveModule,
+      config.RearLeftSwerveModule,
+      config.RearRightSwerveModule,
+    };
+    m_moduleCount = modules.length;
+    m_moduleX = new double[m_moduleCount];
+    m_moduleY = new double[m_moduleCount];
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_moduleX[i] = modules[i].getModuleLocation().getX();
+      m_moduleY[i] = modules[i].getModuleLocation().getY();
+    }
+
+    m_wheelVx = new double[m_moduleCount];
+    m_wheelVy = new double[m_moduleCount];
+    m_weights = new double[m_moduleCount];
+    m_correctedPositions = new SwerveModulePosition[m_moduleCount];
+    m_lastDistances = new double[m_moduleCount];
+    for (int i = 0; i < m_moduleCount; i++) m_correctedPositions[i] = new SwerveModulePosition();
+    ModuleSlipping = new boolean[m_moduleCount];
+  }
+
+  /**
+   * Checks the inputs for slip and collisions
+   * @param inputs
+   * @return The module positions odometry should integrate. Reused on the next update
+   */
+  public SwerveModulePosition[] update(DrivetrainInputs inputs) {
+    var dt = inputs.OdometryTimestamp - m_lastTimestamp;
+    if (!(dt > 0)) {
+      reset(inputs);
+      return m_correctedPositions;
+    }
+
+    var omega = MathUtil.angleModulus(Math.toRadians(inputs.GyroYawDegrees - m_lastYawDegrees)) / dt;
+    m_lastTimestamp = inputs.OdometryTimestamp;
+    m_lastYawDegrees = inputs.GyroYawDegrees;
+
+    fitModules(inputs);
+
+    // Integrate the IMU in the robot's rotating frame
+    var ax = inputs.AccelerationXG * GRAVITY_METERS_PER_SECOND_SQUARED;
+    var ay = inputs.AccelerationYG * GRAVITY_METERS_PER_SECOND_SQUARED;
+    var imuVx = m_imuVx + (ax + omega * m_imuVy) * dt;
+    var imuVy = m_imuVy + (ay - omega * m_imuVx) * dt;
+
+    ChassisVelocityErrorMetersPerSecond = Math.hypot(m_fitVx - imuVx, m_fitVy - imuVy);
+    ChassisSlipping = ChassisVelocityErrorMetersPerSecond > m_config.ChassisSlipThresholdMetersPerSecond;
+    CollisionDetected = Math.hypot(inputs.AccelerationXG, inputs.AccelerationYG) > m_config.CollisionThresholdG;
+
+    var gain = Math.min(1, dt / (ChassisSlipping ? IMU_DRIFT_SECONDS : IMU_TRACKING_SECONDS));
+    m_imuVx = imuVx + (m_fitVx - imuVx) * gain;
+    m_imuVy = imuVy + (m_fitVy - imuVy) * gain;
+
+    var anyModuleSlipping = false;
+    for (var slipping : ModuleSlipping) anyModuleSlipping |= slipping;
+    if (anyModuleSlipping || ChassisSlipping || CollisionDetected) {
+      m_lastTractionLossTimestamp = inputs.OdometryTimestamp;
+    }
+    TractionLost = inputs.OdometryTimestamp - m_lastTractionLossTimestamp < m_config.TractionRecoverySeconds;
+
+    // Advance the modules that can't be trusted with the motion that can
+    var wholeChassis = ChassisSlipping || CollisionDetected;
+    var vx = wholeChassis ? m_imuVx : m_fitVx;
+    var vy = wholeChassis ? m_imuVy : m_fitVy;
+    var w = wholeChassis ? omega : m_fitOmega;
+    for (int i = 0; i < m_moduleCount; i++) {
+      var position = inputs.ModulePositions[i];
+      var corrected = m_correctedPositions[i];
+
+      if (wholeChassis || ModuleSlipping[i]) {
+        var angle = position.angle;
+        var moduleVx = vx - w * m_moduleY[i];
+        var moduleVy = vy + w * m_moduleX[i];
+        corrected.distanceMeters += (moduleVx * angle.getCos() + moduleVy * angle.getSin()) * dt;
+      } else {
+        corrected.distanceMeters += position.distanceMeters - m_lastDistances[i];
+      }
+
+      corrected.angle = position.angle;
+      m_lastDistances[i] = position.distanceMeters;
+    }
+
+    return m_correctedPositions;
+  }
+
+  /**
+   * Starts over from the inputs, with the module positions uncorrected and the IMU velocity matching the wheels
+   * @param inputs
+   */
+  public void reset(DrivetrainInputs inputs) {
+    m_lastTimestamp = inputs.OdometryTimestamp;
+    m_lastYawDegrees = inputs.GyroYawDegrees;
+
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_correctedPositions[i].distanceMeters = inputs.ModulePositions[i].distanceMeters;
+      m_correctedPositions[i].angle = inputs.ModulePositions[i].angle;
+      m_lastDistances[i] = inputs.ModulePositions[i].distanceMeters;
+    }
+
+    fitModules(inputs);
+    m_imuVx = m_fitVx;
+    m_imuVy = m_fitVy;
+
+    ChassisSlipping = false;
+    CollisionDetected = false;
+    TractionLost = false;
+    ChassisVelocityErrorMetersPerSecond = 0;
+    m_lastTractionLossTimestamp = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Gets whether traction was lost recently enough that odometry may still be off, so vision should be trusted more
+   * @param timestamp
+   */
+  public boolean shouldFavorVision(double timestamp) {
+    return timestamp - m_lastTractionLossTimestamp < m_config.TractionLossVisionSeconds;
+  }
+
+  //#region Fitting
+
+  /**
+   * Fits the module velocities to one chassis motion, dropping the module that disagrees most as long as it
+   * disagrees by more than the threshold
+   */
+  private void fitModules(DrivetrainInputs inputs) {
+    for (int i = 0; i < m_moduleCount; i++) {
+      var speed = inputs.ModuleVelocitiesMetersPerSecond[i];
+      var angle = inputs.ModulePositions[i].angle;
+      m_wheelVx[i] = speed * angle.getCos();
+      m_wheelVy[i] = speed * angle.getSin();
+      m_weights[i] = 1;
+      ModuleSlipping[i] = false;
+    }
+
+    var fittedModules = m_moduleCount;
+    fit();
+
+    while (fittedModules > MIN_FITTED_MODULES) {
+      var worst = -1;
+      var worstResidual = m_config.ModuleSlipThresholdMetersPerSecond;
+      for (int i = 0; i < m_moduleCount; i++) {
+        var residual = getResidual(i);
+        if (m_weights[i] > 0 && residual > worstResidual) {
+          worst = i;
+          worstResidual = residual;
+        }
+      }
+
+      if (worst < 0) return;
+
+      m_weights[worst] = 0;
+      ModuleSlipping[worst] = true;
+      fittedModules--;
+      fit();
+    }
+  }
+
+  /**
+   * Least-squares fit of the weighted module velocities to a chassis velocity at the robot's center and a rotation
+   * rate. Solved about the weighted centroid of the modules, where the two separate
+   */
+  private void fit() {
+    var totalWeight = 0.0;
+    var centroidX = 0.0;
+    var centroidY = 0.0;
+    var meanVx = 0.0;
+    var meanVy = 0.0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      totalWeight += m_weights[i];
+      centroidX += m_weights[i] * m_moduleX[i];
+      centroidY += m_weights[i] * m_moduleY[i];
+      meanVx += m_weights[i] * m_wheelVx[i];
+      meanVy += m_weights[i] * m_wheelVy[i];
+    }
+    centroidX /= totalWeight;
+    centroidY /= totalWeight;
+    meanVx /= totalWeight;
+    meanVy /= totalWeight;
+
+    var torque = 0.0;
+    var inertia = 0.0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      var dx = m_moduleX[i] - centroidX;
+      var dy = m_moduleY[i] - centroidY;
+      torque += m_weights[i] * (dx * m_wheelVy[i] - dy * m_wheelVx[i]);
+      inertia += m_weights[i] * (dx * dx + dy * dy);
+    }
+
+    m_fitOmega = inertia > 0 ? torque / inertia : 0;
+    m_fitVx = meanVx + m_fitOmega * centroidY;
+    m_fitVy = meanVy - m_fitOmega * centroidX;
+  }
+
+  /**
+   * Gets how far a module's velocity is from the fitted chassis motion
+   */
+  private double getResidual(int module) {
+    var predictedVx = m_fitVx - m_fitOmega * m_moduleY[module];
+    var predictedVy = m_fitVy + m_fitOmega * m_moduleX[module];
+
+    return Math.hypot(m_wheelVx[module] - predictedVx, m_wheelVy[module] - predictedVy);
+  }
+
+  //#endregion
+}
@@ -0,0 +1,84 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import frc.robot.config.RobotConfig;
+import frc.robot.config.SwerveModuleConfig;
+
+/**
+ * Measures the wheels' effective radius while the robot spins in place.
+ *
+ * Spinning in place, every module travels an arc of its distance from the robot's center times the gyro's rotation.
+ * The module positions are converted from rotor rotations with the configured wheel diameter, so the arc over the
+ * distance they report scales that diameter to the one the wheels actually roll on. Worn treads read long, so the
+ * scale comes out below 1. Like {@link TractionMonitor}, it only reads {@link DrivetrainInputs}.
+ */
+public class WheelRadiusCalibration {
+
+  private final double[] m_moduleRadii;
+  private final double[] m_lastDistances;
+  private double m_lastYawDegrees;
+  private boolean m_started;
+
+  private double m_rotationRadians;
+  private double m_gyroArcMeters;
+  private double m_wheelDistanceMeters;
+
+  /**
+   * @param config The robot's config, for the module locations in order FL, FR, RL, RR
+   */
+  public WheelRadiusCalibration(RobotConfig config) {
+    var modules = new SwerveModuleConfig[] {
+      config.FrontLeftSwerveModule,
+      config.FrontRightSwerveModule,
+      config.RearLeftSwerveModule,
+      config.RearRightSwerveModule,
+    };
+    m_moduleRadii = new double[modules.length];
+    for (int i = 0; i < modules.length; i++) m_moduleRadii[i] = modules[i].getModuleLocation().getNorm();
+    m_lastDistances = new double[modules.length];
+  }
+
+  /**
+   * Starts a new measurement from the next update
+   */
+  public void reset() {
+    m_started = false;
+    m_rotationRadians = 0;
+    m_gyroArcMeters = 0;
+    m_wheelDistanceMeters = 0;
+  }
+
+  /**
+   * Adds the rotation and module travel since the last update. Call every loop while the robot spins
+   * @param inputs
+   */
+  public void update(DrivetrainInputs inputs) {
+    if (m_started) {
+      var rotation = Math.abs(MathUtil.angleModulus(Math.toRadians(inputs.GyroYawDegrees - m_lastYawDegrees)));
+      m_rotationRadians += rotation;
+
+      for (int i = 0; i < m_moduleRadii.length; i++) {
+        m_gyroArcMeters += rotation * m_moduleRadii[i];
+        m_wheelDistanceMeters += Math.abs(inputs.ModulePositions[i].distanceMeters - m_lastDistances[i]);
+      }
+    }
+
+    m_started = true;
+    m_lastYawDegrees = inputs.GyroYawDegrees;
+    for (int i = 0; i < m_moduleRadii.length; i++) m_lastDistances[i] = inputs.ModulePositions[i].distanceMeters;
+  }
+
+  /**
+   * Gets how far the robot has turned since the measurement started, in radians
+   */
+  public double getRotationRadians() {
+    return m_rotationRadians;
+  }
+
+  /**
+   * Gets what to multiply the configured wheel diameter by, or NaN if the wheels haven't moved
+   */
+  public double getDiameterScale() {
+    return m_wheelDistanceMeters > 0 ? m_gyroArcMeters / m_wheelDistanceMeters : Double.NaN;
+  }
+}
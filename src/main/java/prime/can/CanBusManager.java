@@ -0,0 +1,180 @@
+package prime.can;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+import com.revrobotics.REVLibError;
+import edu.wpi.first.hal.can.CANJNI;
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
+import prime.movers.LazyWriteFilter;
+
+/**
+ * Sets how often each CAN device sends the status signals the code actually reads, and turns the rest off.
+ *
+ * Subsystems declare their signals and rates when they create their devices, and {@link #apply} sends them all once
+ * the devices are configured. Every Phoenix 6 signal that isn't declared is disabled by optimizeBusUtilization(), so a
+ * signal that's read without being declared stops updating. Declare it here first.
+ *
+ * Bus utilization (0 to 1), error counts and skipped lazy writes are published under CAN/.
+ */
+public final class CanBusManager {
+
+  // The largest SPARK MAX frame period, for frames nothing reads
+  public static final int UNUSED_FRAME_PERIOD_MS = 65535;
+
+  /**
+   * Phoenix 6 signals that update at the same rate
+   */
+  private static class SignalGroup {
+
+    public final double FrequencyHz;
+    public final BaseStatusSignal[] Signals;
+
+    SignalGroup(double frequencyHz, BaseStatusSignal[] signals) {
+      FrequencyHz = frequencyHz;
+      Signals = signals;
+    }
+  }
+
+  /**
+   * The status frame periods of one SPARK MAX
+   */
+  private static class SparkMaxFrames {
+
+    public final String Name;
+    public final CANSparkMax Motor;
+    public final int Status0PeriodMs;
+    public final int Status1PeriodMs;
+    public final int Status2PeriodMs;
+
+    SparkMaxFrames(String name, CANSparkMax motor, int status0PeriodMs, int status1PeriodMs, int status2PeriodMs) {
+      Name = name;
+      Motor = motor;
+      Status0PeriodMs = status0PeriodMs;
+      Status1PeriodMs = status1PeriodMs;
+      Status2PeriodMs = status2PeriodMs;
+    }
+  }
+
+  private static final LinkedHashSet<ParentDevice> s_phoenixDevices = new LinkedHashSet<>();
+  private static final ArrayList<SignalGroup> s_signalGroups = new ArrayList<>();
+  private static final ArrayList<SparkMaxFrames> s_sparkMaxes = new ArrayList<>();
+
+  // Reused every telemetry loop, RobotController.getCANStatus() allocates a new one
+  private static final CANStatus s_canStatus = new CANStatus();
+  private static final DoubleSignal t_utilization = Telemetry.doubleSignal("CAN/Utilization", LogLevel.Essential);
+  private static final DoubleSignal t_busOffCount = Telemetry.doubleSignal("CAN/BusOffCount", LogLevel.Essential);
+  private static final DoubleSignal t_txFullCount = Telemetry.doubleSignal("CAN/TxFullCount", LogLevel.Level2);
+  private static final DoubleSignal t_receiveErrors = Telemetry.doubleSignal("CAN/ReceiveErrors", LogLevel.Level2);
+  private static final DoubleSignal t_transmitErrors = Telemetry.doubleSignal("CAN/TransmitErrors", LogLevel.Level2);
+  private static final DoubleSignal t_suppressedWrites = Telemetry.doubleSignal(
+    "CAN/SuppressedWrites",
+    LogLevel.Level2
+  );
+
+  private CanBusManager() {}
+
+  //#region Declaring
+
+  /**
+   * Declares Phoenix 6 signals a subsystem reads. Call again for signals at other rates
+   * @param device The device the signals belong to
+   * @param frequencyHz How often the signals should update
+   * @param signals
+   */
+  public static void phoenixSignals(ParentDevice device, double frequencyHz, BaseStatusSignal... signals) {
+    s_phoenixDevices.add(device);
+    s_signalGroups.add(new SignalGroup(frequencyHz, signals));
+  }
+
+  /**
+   * Declares the status frame periods of a SPARK MAX. Frames 3 to 6 (analog sensor, alternate encoder and duty cycle
+   * encoder) aren't used on this robot and are slowed to the maximum period
+   * @param name The name to report errors with
+   * @param motor
+   * @param status0PeriodMs Applied output and faults. Followers read this frame
+   * @param status1PeriodMs Velocity, temperature, bus voltage and current
+   * @param status2PeriodMs Position
+   */
+  public static void sparkMaxFrames(
+    String name,
+    CANSparkMax motor,
+    int status0PeriodMs,
+    int status1PeriodMs,
+    int status2PeriodMs
+  ) {
+    s_sparkMaxes.add(new SparkMaxFrames(name, motor, status0PeriodMs, status1PeriodMs, status2PeriodMs));
+  }
+
+  //#endregion
+
+  //#region Applying
+
+  /**
+   * Sends every declared rate, then disables the Phoenix 6 signals that weren't declared. Call once after the devices
+   * are configured
+   */
+  public static void apply() {
+    var startNanos = System.nanoTime();
+
+    for (var group : s_signalGroups) {
+      var status = BaseStatusSignal.setUpdateFrequencyForAll(group.FrequencyHz, group.Signals);
+      if (!status.isOK()) {
+        DriverStation.reportWarning("[CanBusManager] Failed to set signal frequencies: " + status.getName(), false);
+      }
+    }
+
+    for (var device : s_phoenixDevices) {
+      var status = device.optimizeBusUtilization();
+      if (!status.isOK()) {
+        DriverStation.reportWarning(
+          "[CanBusManager] Failed to optimize device " + device.getDeviceID() + ": " + status.getName(),
+          false
+        );
+      }
+    }
+
+    for (var frames : s_sparkMaxes) {
+      var motor = frames.Motor;
+      var ok = motor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, frames.Status0PeriodMs) == REVLibError.kOk;
+      ok &= motor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, frames.Status1PeriodMs) == REVLibError.kOk;
+      ok &= motor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, frames.Status2PeriodMs) == REVLibError.kOk;
+      ok &= motor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, UNUSED_FRAME_PERIOD_MS) == REVLibError.kOk;
+      ok &= motor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, UNUSED_FRAME_PERIOD_MS) == REVLibError.kOk;
+      ok &= motor.setPeriodicFramePeriod(PeriodicFrame.kStatus5, UNUSED_FRAME_PERIOD_MS) == REVLibError.kOk;
+      ok &= motor.setPeriodicFramePeriod(PeriodicFrame.kStatus6, UNUSED_FRAME_PERIOD_MS) == REVLibError.kOk;
+
+      if (!ok) DriverStation.reportWarning("[CanBusManager] Failed to set frame periods on " + frames.Name, false);
+    }
+
+    System.out.printf(
+      "[CanBusManager] Set rates for %d Phoenix devices and %d SPARK MAXes in %.0fms%n",
+      s_phoenixDevices.size(),
+      s_sparkMaxes.size(),
+      (System.nanoTime() - startNanos) / 1e6
+    );
+  }
+
+  //#endregion
+
+  /**
+   * Publishes the measured bus utilization, error counts and the number of writes the lazy device wrappers skipped
+   */
+  public static void publishTelemetry() {
+    CANJNI.getCANStatus(s_canStatus);
+
+    t_utilization.set(s_canStatus.percentBusUtilization);
+    t_busOffCount.set(s_canStatus.busOffCount);
+    t_txFullCount.set(s_canStatus.txFullCount);
+    t_receiveErrors.set(s_canStatus.receiveErrorCount);
+    t_transmitErrors.set(s_canStatus.transmitErrorCount);
+    t_suppressedWrites.set(LazyWriteFilter.getTotalSuppressedWrites());
+  }
+}
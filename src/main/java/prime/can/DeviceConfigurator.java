@@ -0,0 +1,214 @@
+package prime.can;
+
+import com.ctre.phoenix6.configs.MotorOutputConfigs;
+import com.ctre.phoenix6.hardware.TalonFX;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Preferences;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+
+/**
+ * Applies CAN device configurations in parallel at startup, and skips devices that already have their configuration.
+ *
+ * Each configuration is described by a string (e.g. a Phoenix 6 config's toString()). A hash of it is stored in
+ * Preferences once the device accepts it, and it isn't written again while the description is unchanged and the
+ * device still reads back a setting the configuration changes from factory default. A device swapped in on the same
+ * CAN ID reads back the default, so it's always configured. Only use this for settings the device keeps through a
+ * power cycle; call burnFlash() in SPARK MAX configurations. Setting the "DeviceConfig/ForceApply" preference to true
+ * writes every configuration again on the next boot. Simulated devices start from defaults on every run, so nothing
+ * is skipped in simulation.
+ */
+public final class DeviceConfigurator {
+
+  private static final String PREFERENCE_PREFIX = "DeviceConfig/";
+  private static final String FORCE_APPLY_KEY = PREFERENCE_PREFIX + "ForceApply";
+  private static final int THREAD_COUNT = 8;
+
+  /**
+   * Writes a configuration to a device
+   */
+  @FunctionalInterface
+  public interface ConfigAction {
+    /**
+     * @return true if the device accepted the configuration
+     */
+    boolean apply();
+  }
+
+  /**
+   * Reads back a setting from the device that its configuration changes from factory default, e.g. its neutral mode.
+   * Called on the configuring thread
+   */
+  @FunctionalInterface
+  public interface ConfigCheck {
+    /**
+     * @return true if the device has the configured value, false if it doesn't or didn't answer
+     */
+    boolean matches();
+  }
+
+  /**
+   * For a configuration with nothing that reads back differently from factory default, e.g. a factory reset, so it's
+   * always written in case the device was swapped for one with other settings
+   */
+  public static final ConfigCheck ALWAYS_WRITE = () -> false;
+
+  /**
+   * Reads back a TalonFX's neutral mode and inversion, which factory default sets to coast and counter-clockwise
+   * @param expected The motor output the configuration sets. At least one of them must differ from factory default
+   */
+  public static ConfigCheck motorOutput(TalonFX talon, MotorOutputConfigs expected) {
+    return () -> {
+      var actual = new MotorOutputConfigs();
+
+      return (
+        talon.getConfigurator().refresh(actual).isOK() &&
+        actual.NeutralMode == expected.NeutralMode &&
+        actual.Inverted == expected.Inverted
+      );
+    };
+  }
+
+  /**
+   * The outcome of configuring one device
+   */
+  public static class Result {
+
+    public final String DeviceName;
+    public boolean Skipped;
+    public boolean Succeeded;
+    public double DurationMs;
+
+    Result(String deviceName) {
+      DeviceName = deviceName;
+    }
+  }
+
+  private static ExecutorService s_executor;
+  private static final ArrayList<Future<Result>> s_pending = new ArrayList<>();
+  private static boolean s_forceApply;
+
+  private DeviceConfigurator() {}
+
+  /**
+   * Configures a device on a background thread, unless it already has this configuration
+   * @param deviceName A unique name for the device, e.g. "Drive/Front-Left/DriveMotor"
+   * @param description Every setting in the configuration. Any change to it causes the configuration to be written
+   * @param check Reads back a non-default setting, only checked when the description is unchanged
+   * @param action Writes the configuration. Only touch this device in it
+   */
+  public static synchronized void configure(
+    String deviceName,
+    String description,
+    ConfigCheck check,
+    ConfigAction action
+  ) {
+    if (s_executor == null) {
+      Preferences.initBoolean(FORCE_APPLY_KEY, false);
+      s_forceApply = RobotBase.isSimulation() || Preferences.getBoolean(FORCE_APPLY_KEY, false);
+      s_executor =
+        Executors.newFixedThreadPool(
+          THREAD_COUNT,
+          runnable -> {
+            var thread = new Thread(runnable, "DeviceConfigurator");
+            thread.setDaemon(true);
+            return thread;
+          }
+        );
+    }
+
+    var key = PREFERENCE_PREFIX + deviceName;
+    var hash = hash(description);
+    var forceApply = s_forceApply;
+
+    s_pending.add(
+      s_executor.submit(() -> {
+        var result = new Result(deviceName);
+        if (!forceApply && hash.equals(Preferences.getString(key, "")) && check.matches()) {
+          result.Skipped = true;
+          result.Succeeded = true;
+          return result;
+        }
+
+        var startNanos = System.nanoTime();
+        result.Succeeded = action.apply();
+        result.DurationMs = (System.nanoTime() - startNanos) / 1e6;
+
+        // Only remember configurations the device accepted, so a failed one is retried on the next boot
+        if (result.Succeeded) {
+          Preferences.setString(key, hash);
+        } else {
+          Preferences.remove(key);
+        }
+
+        return result;
+      })
+    );
+  }
+
+  /**
+   * Waits for every configuration to finish and reports how long each device took
+   * @param timeoutSeconds How long to wait for all devices in total
+   * @return The results, in the order the devices were submitted
+   */
+  public static synchronized ArrayList<Result> awaitAll(double timeoutSeconds) {
+    var results = new ArrayList<Result>();
+    if (s_executor == null) return results;
+
+    var startNanos = System.nanoTime();
+    var deadlineNanos = startNanos + (long) (timeoutSeconds * 1e9);
+    var applied = 0;
+    var skipped = 0;
+
+    for (var pending : s_pending) {
+      try {
+        var result = pending.get(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        results.add(result);
+
+        if (result.Skipped) {
+          skipped++;
+        } else {
+          applied++;
+          System.out.printf("[DeviceConfigurator] %s configured in %.0fms%n", result.DeviceName, result.DurationMs);
+        }
+
+        if (!result.Succeeded) {
+          DriverStation.reportWarning("[DeviceConfigurator] " + result.DeviceName + " rejected its configuration", false);
+        }
+      } catch (TimeoutException e) {
+        DriverStation.reportWarning("[DeviceConfigurator] Timed out waiting for device configurations", false);
+        break;
+      } catch (Exception e) {
+        DriverStation.reportError("[DeviceConfigurator] Failed to configure a device: " + e.getMessage(), false);
+      }
+    }
+
+    System.out.printf(
+      "[DeviceConfigurator] %d devices configured and %d already up to date, waited %.0fms%n",
+      applied,
+      skipped,
+      (System.nanoTime() - startNanos) / 1e6
+    );
+
+    Preferences.setBoolean(FORCE_APPLY_KEY, false);
+    s_pending.clear();
+    s_executor.shutdown();
+    s_executor = null;
+
+    return results;
+  }
+
+  private static String hash(String description) {
+    var crc = new CRC32();
+    crc.update(description.getBytes(StandardCharsets.UTF_8));
+
+    return Long.toHexString(crc.getValue());
+  }
+}
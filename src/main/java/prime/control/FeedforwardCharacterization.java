@@ -0,0 +1,341 @@
+package prime.control;
+
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import prime.utilities.TuningStore;
+
+/**
+ * Characterizes a mechanism's feedforward on the robot, like WPILib's SysId but fitted on the spot.
+ *
+ * The routine runs a quasistatic test, a slow voltage ramp, and a dynamic test, a voltage step, in each direction.
+ * Like {@link RelayAutotuner}, it has no thread of its own: {@link #update} applies the voltage and samples the
+ * position and velocity on the main thread, called either by the mechanism's control loop in place of its controllers
+ * ({@link #command}) or by the routine itself every main loop ({@link #updatingCommand}). Every sample is written to
+ * the log under Characterization/. When the tests are done, kS, kV and kA, and kG for a mechanism lifting against
+ * gravity, are fitted with {@link FeedforwardFit} and saved in the {@link TuningStore} as "name/Feedforward".
+ *
+ * Each test stops at its timeout, at the mechanism's travel limit in that direction, or after a maximum travel.
+ */
+public class FeedforwardCharacterization {
+
+  private static final double REST_SECONDS = 1.5;
+  private static final double MIN_VELOCITY_FRACTION = 0.02; // Of the fastest sample, slower is static friction
+  private static final int DERIVATIVE_SPAN = 2; // Samples on each side of a central difference
+
+  private enum Test {
+    QUASISTATIC_FORWARD(true, 1),
+    QUASISTATIC_REVERSE(true, -1),
+    DYNAMIC_FORWARD(false, 1),
+    DYNAMIC_REVERSE(false, -1);
+
+    final boolean Quasistatic;
+    final double Direction;
+
+    Test(boolean quasistatic, double direction) {
+      Quasistatic = quasistatic;
+      Direction = direction;
+    }
+  }
+
+  private final String m_name;
+  private final Subsystem m_subsystem;
+  private final DoubleConsumer m_voltage;
+  private final DoubleSupplier m_position;
+  private final DoubleSupplier m_velocity;
+  private DoubleSupplier m_gravityCosine;
+  private BooleanSupplier m_forwardLimit = () -> false;
+  private BooleanSupplier m_reverseLimit = () -> false;
+  private double m_maxTravel = Double.POSITIVE_INFINITY;
+  private double m_rampVoltsPerSecond = 1;
+  private double m_stepVolts = 7;
+  private double m_timeoutSeconds = 10;
+  private double m_loopPeriodSeconds = 0.02;
+  private boolean m_reverseFirst = false;
+
+  private DoubleArrayLogEntry m_log;
+  private FeedforwardFit.Result m_lastResult;
+
+  private Test m_activeTest;
+  private boolean m_testFinished;
+  private double m_testStartTimestamp;
+  private double m_testStartPosition;
+  private double m_appliedVolts;
+  private final double[] m_logValues = new double[4];
+  private double[] m_timestamps;
+  private double[] m_volts;
+  private double[] m_positions;
+  private double[] m_velocities;
+  private double[] m_cosines;
+  private int[] m_tests;
+  private int m_count;
+
+  /**
+   * @param name The name results are logged and saved under
+   * @param subsystem The subsystem the routine requires
+   * @param voltage Applies a voltage to the mechanism
+   * @param position The mechanism's position
+   * @param velocity The mechanism's velocity, or null to differentiate the position
+   */
+  public FeedforwardCharacterization(
+    String name,
+    Subsystem subsystem,
+    DoubleConsumer voltage,
+    DoubleSupplier position,
+    DoubleSupplier velocity
+  ) {
+    m_name = name;
+    m_subsystem = subsystem;
+    m_voltage = voltage;
+    m_position = position;
+    m_velocity = velocity;
+  }
+
+  //#region Settings
+
+  /**
+   * Fits kG, for a mechanism that lifts against gravity
+   * @param cosine The cosine of the mechanism's angle from horizontal
+   */
+  public FeedforwardCharacterization withGravity(DoubleSupplier cosine) {
+    m_gravityCosine = cosine;
+    return this;
+  }
+
+  /**
+   * Stops tests at the mechanism's travel limits
+   * @param forward Whether it can't go further forward
+   * @param reverse Whether it can't go further in reverse
+   */
+  public FeedforwardCharacterization withTravelLimits(BooleanSupplier forward, BooleanSupplier reverse) {
+    m_forwardLimit = forward;
+    m_reverseLimit = reverse;
+    return this;
+  }
+
+  /**
+   * Stops each test after the mechanism has moved this far, e.g. before a drivetrain runs out of room
+   * @param maxTravel In the position's units
+   */
+  public FeedforwardCharacterization withMaxTravel(double maxTravel) {
+    m_maxTravel = maxTravel;
+    return this;
+  }
+
+  /**
+   * @param rampVoltsPerSecond How quickly the quasistatic tests ramp the voltage
+   * @param stepVolts The dynamic tests' voltage
+   * @param timeoutSeconds The longest a test runs
+   */
+  public FeedforwardCharacterization withVoltages(double rampVoltsPerSecond, double stepVolts, double timeoutSeconds) {
+    m_rampVoltsPerSecond = rampVoltsPerSecond;
+    m_stepVolts = stepVolts;
+    m_timeoutSeconds = timeoutSeconds;
+    return this;
+  }
+
+  /**
+   * @param loopPeriodSeconds How often {@link #update} is called, which sizes the sample buffers
+   */
+  public FeedforwardCharacterization withLoopPeriod(double loopPeriodSeconds) {
+    m_loopPeriodSeconds = loopPeriodSeconds;
+    return this;
+  }
+
+  /**
+   * Runs the reverse tests before the forward ones, for a mechanism that starts at its forward limit
+   */
+  public FeedforwardCharacterization withReverseFirst() {
+    m_reverseFirst = true;
+    return this;
+  }
+
+  //#endregion
+
+  /**
+   * Creates the command that runs every test, then fits and saves the feedforward. The mechanism's control loop calls
+   * {@link #update} while it runs
+   */
+  public Command command() {
+    var tests = m_reverseFirst
+      ? new Test[] { Test.QUASISTATIC_REVERSE, Test.QUASISTATIC_FORWARD, Test.DYNAMIC_REVERSE, Test.DYNAMIC_FORWARD }
+      : new Test[] { Test.QUASISTATIC_FORWARD, Test.QUASISTATIC_REVERSE, Test.DYNAMIC_FORWARD, Test.DYNAMIC_REVERSE };
+
+    return Commands
+      .sequence(
+        Commands.runOnce(this::begin, m_subsystem),
+        runTest(tests[0]),
+        Commands.waitSeconds(REST_SECONDS),
+        runTest(tests[1]),
+        Commands.waitSeconds(REST_SECONDS),
+        runTest(tests[2]),
+        Commands.waitSeconds(REST_SECONDS),
+        runTest(tests[3]),
+        Commands.runOnce(this::fit)
+      )
+      .finallyDo(this::end)
+      .withName(m_name + " Characterization");
+  }
+
+  /**
+   * Like {@link #command}, for a mechanism without a control loop of its own: the command calls {@link #update}
+   * every main loop
+   */
+  public Command updatingCommand() {
+    return command().deadlineWith(Commands.run(this::update)).withName(m_name + " Characterization");
+  }
+
+  /**
+   * Gets the result of the last completed run, or null
+   */
+  public FeedforwardFit.Result getLastResult() {
+    return m_lastResult;
+  }
+
+  private Command runTest(Test test) {
+    return Commands.runOnce(() -> startTest(test)).andThen(Commands.waitUntil(() -> m_testFinished));
+  }
+
+  //#region Sampling
+
+  private void begin() {
+    var capacity = (int) Math.ceil(4 * m_timeoutSeconds / m_loopPeriodSeconds) + 4;
+    if (m_timestamps == null || m_timestamps.length < capacity) {
+      m_timestamps = new double[capacity];
+      m_volts = new double[capacity];
+      m_positions = new double[capacity];
+      m_velocities = new double[capacity];
+      m_cosines = new double[capacity];
+      m_tests = new int[capacity];
+    }
+    m_count = 0;
+    m_activeTest = null;
+
+    if (m_log == null) m_log = new DoubleArrayLogEntry(DataLogManager.getLog(), "Characterization/" + m_name);
+  }
+
+  private void startTest(Test test) {
+    m_testStartTimestamp = Timer.getFPGATimestamp();
+    m_testStartPosition = m_position.getAsDouble();
+    m_appliedVolts = 0;
+    m_testFinished = false;
+    m_activeTest = test;
+  }
+
+  /**
+   * Applies the active test's voltage and records the position and velocity the last voltage produced. The control
+   * loop calls this every loop while the routine runs, in place of its controllers; it applies 0V between tests
+   */
+  public void update() {
+    if (m_activeTest == null) {
+      m_voltage.accept(0);
+      return;
+    }
+
+    var timestamp = Timer.getFPGATimestamp();
+    var elapsed = timestamp - m_testStartTimestamp;
+    var position = m_position.getAsDouble();
+    var forward = m_activeTest.Direction > 0;
+
+    if (
+      elapsed > m_timeoutSeconds ||
+      (forward ? m_forwardLimit : m_reverseLimit).getAsBoolean() ||
+      Math.abs(position - m_testStartPosition) > m_maxTravel ||
+      m_count == m_timestamps.length
+    ) {
+      m_voltage.accept(0);
+      m_activeTest = null;
+      m_testFinished = true;
+      return;
+    }
+
+    m_timestamps[m_count] = timestamp;
+    m_volts[m_count] = m_appliedVolts;
+    m_positions[m_count] = position;
+    m_velocities[m_count] = m_velocity != null ? m_velocity.getAsDouble() : Double.NaN;
+    m_cosines[m_count] = m_gravityCosine != null ? m_gravityCosine.getAsDouble() : 0;
+    m_tests[m_count] = m_activeTest.ordinal();
+
+    m_logValues[0] = m_activeTest.ordinal();
+    m_logValues[1] = m_appliedVolts;
+    m_logValues[2] = position;
+    m_logValues[3] = m_velocities[m_count];
+    m_log.append(m_logValues);
+    m_count++;
+
+    var magnitude = m_activeTest.Quasistatic ? m_rampVoltsPerSecond * elapsed : m_stepVolts;
+    m_appliedVolts = m_activeTest.Direction * magnitude;
+    m_voltage.accept(m_appliedVolts);
+  }
+
+  private void end() {
+    m_activeTest = null;
+    m_voltage.accept(0);
+  }
+
+  //#endregion
+
+  //#region Fitting
+
+  /**
+   * Differentiates the samples within each test and fits them
+   */
+  private void fit() {
+    // Velocities from the position where the mechanism doesn't measure them
+    var velocities = new double[m_count];
+    for (int i = 0; i < m_count; i++) {
+      velocities[i] = m_velocity != null ? m_velocities[i] : differentiate(m_positions, i);
+    }
+
+    var maxSpeed = 0.0;
+    for (var velocity : velocities) if (Double.isFinite(velocity)) maxSpeed = Math.max(maxSpeed, Math.abs(velocity));
+
+    var fit = new FeedforwardFit(m_gravityCosine != null);
+    for (int i = 0; i < m_count; i++) {
+      var acceleration = differentiate(velocities, i);
+      if (!Double.isFinite(velocities[i]) || !Double.isFinite(acceleration)) continue;
+      if (Math.abs(velocities[i]) < maxSpeed * MIN_VELOCITY_FRACTION) continue;
+
+      fit.addSample(m_volts[i], velocities[i], acceleration, m_cosines[i]);
+    }
+
+    m_lastResult = fit.solve();
+    if (m_lastResult == null) {
+      DriverStation.reportWarning("[" + m_name + "] Characterization didn't move enough to fit", false);
+      return;
+    }
+
+    DataLogManager.log("[" + m_name + "] Characterization: " + m_lastResult);
+
+    var values = new TreeMap<String, Double>();
+    values.put("kS", m_lastResult.kS);
+    values.put("kV", m_lastResult.kV);
+    values.put("kA", m_lastResult.kA);
+    if (m_gravityCosine != null) values.put("kG", m_lastResult.kG);
+    values.put("RSquared", m_lastResult.RSquared);
+    values.put("Samples", (double) m_lastResult.Samples);
+    TuningStore.save(m_name + "/Feedforward", values);
+  }
+
+  /**
+   * Central difference of a sampled value against time, or NaN if the span leaves the sample's test
+   */
+  private double differentiate(double[] values, int index) {
+    var before = index - DERIVATIVE_SPAN;
+    var after = index + DERIVATIVE_SPAN;
+    if (before < 0 || after >= m_count || m_tests[before] != m_tests[index] || m_tests[after] != m_tests[index]) {
+      return Double.NaN;
+    }
+
+    return (values[after] - values[before]) / (m_timestamps[after] - m_timestamps[before]);
+  }
+  //#endregion
+}
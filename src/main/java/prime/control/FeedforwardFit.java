@@ -0,0 +1,131 @@
+package prime.control;
+
+/**
+ * Least-squares fit of the feedforward V = kS·sgn(v) + kV·v + kA·a + kG·cos(θ) to voltage, velocity and
+ * acceleration samples. The kG term is only fitted for mechanisms that lift against gravity, e.g. an arm.
+ *
+ * Samples only add to the normal equations, so the fit takes the same memory for any number of them.
+ */
+public class FeedforwardFit {
+
+  /** The fitted gains, in the units of the samples */
+  public static class Result {
+
+    public final double kS;
+    public final double kV;
+    public final double kA;
+    public final double kG;
+    public final double RSquared;
+    public final int Samples;
+
+    Result(double kS, double kV, double kA, double kG, double rSquared, int samples) {
+      this.kS = kS;
+      this.kV = kV;
+      this.kA = kA;
+      this.kG = kG;
+      RSquared = rSquared;
+      Samples = samples;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("kS=%.4f kV=%.4f kA=%.4f kG=%.4f R²=%.4f (%d samples)", kS, kV, kA, kG, RSquared, Samples);
+    }
+  }
+
+  private final int m_terms;
+  private final double[] m_row;
+  private final double[] m_xtx; // XᵀX
+  private final double[] m_xty; // Xᵀy
+  private double m_yty;
+  private double m_ySum;
+  private int m_count;
+
+  /**
+   * @param withGravity Whether to fit kG
+   */
+  public FeedforwardFit(boolean withGravity) {
+    m_terms = withGravity ? 4 : 3;
+    m_row = new double[m_terms];
+    m_xtx = new double[m_terms * m_terms];
+    m_xty = new double[m_terms];
+  }
+
+  /**
+   * Adds a sample
+   * @param volts The voltage applied
+   * @param velocity
+   * @param acceleration
+   * @param gravityCosine The cosine of the mechanism's angle from horizontal. Ignored without gravity
+   */
+  public void addSample(double volts, double velocity, double acceleration, double gravityCosine) {
+    m_row[0] = Math.signum(velocity);
+    m_row[1] = velocity;
+    m_row[2] = acceleration;
+    if (m_terms > 3) m_row[3] = gravityCosine;
+
+    for (int i = 0; i < m_terms; i++) {
+      for (int j = 0; j < m_terms; j++) m_xtx[i * m_terms + j] += m_row[i] * m_row[j];
+      m_xty[i] += m_row[i] * volts;
+    }
+    m_yty += volts * volts;
+    m_ySum += volts;
+    m_count++;
+  }
+
+  public int getSampleCount() {
+    return m_count;
+  }
+
+  /**
+   * Solves for the gains, or returns null if the samples don't determine them, e.g. the mechanism never moved
+   */
+  public Result solve() {
+    if (m_count <= m_terms) return null;
+
+    // Gaussian elimination with partial pivoting on a copy of the normal equations
+    var n = m_terms;
+    var a = m_xtx.clone();
+    var b = m_xty.clone();
+    for (int column = 0; column < n; column++) {
+      var pivot = column;
+      for (int row = column + 1; row < n; row++) {
+        if (Math.abs(a[row * n + column]) > Math.abs(a[pivot * n + column])) pivot = row;
+      }
+      if (Math.abs(a[pivot * n + column]) < 1e-12) return null;
+
+      for (int k = 0; k < n; k++) {
+        var swap = a[column * n + k];
+        a[column * n + k] = a[pivot * n + k];
+        a[pivot * n + k] = swap;
+      }
+      var swap = b[column];
+      b[column] = b[pivot];
+      b[pivot] = swap;
+
+      for (int row = column + 1; row < n; row++) {
+        var factor = a[row * n + column] / a[column * n + column];
+        for (int k = column; k < n; k++) a[row * n + k] -= factor * a[column * n + k];
+        b[row] -= factor * b[column];
+      }
+    }
+
+    var gains = new double[n];
+    for (int row = n - 1; row >= 0; row--) {
+      var sum = b[row];
+      for (int k = row + 1; k < n; k++) sum -= a[row * n + k] * gains[k];
+      gains[row] = sum / a[row * n + row];
+    }
+
+    // Residual sum of squares from the normal equations: yᵀy - 2 gᵀXᵀy + gᵀXᵀXg
+    var residual = m_yty;
+    for (int i = 0; i < n; i++) {
+      residual -= 2 * gains[i] * m_xty[i];
+      for (int j = 0; j < n; j++) residual += gains[i] * m_xtx[i * n + j] * gains[j];
+    }
+    var total = m_yty - m_ySum * m_ySum / m_count;
+    var rSquared = total > 0 ? 1 - residual / total : 0;
+
+    return new Result(gains[0], gains[1], gains[2], n > 3 ? gains[3] : 0, rSquared, m_count);
+  }
+}
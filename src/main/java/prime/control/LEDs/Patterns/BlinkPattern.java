@@ -28,7 +28,7 @@ public class BlinkPattern extends LEDPattern {
         buffer.setRGB(startingIndex + i, color.r, color.g, color.b);
       }
 
-      LastFrameTime = System.currentTimeMillis();
+      LastFrameTime = currentTimeMillis();
     }
   }
 }
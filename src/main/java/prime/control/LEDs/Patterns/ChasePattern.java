@@ -22,7 +22,7 @@ public class ChasePattern extends LEDPattern {
   public void updateBuffer(int startingIndex, int length, AddressableLEDBuffer buffer) {
     var totalFrameCount = length + CHASE_LENGTH + FADE_LENGTH;
     var frameSpeedS = EffectSpeedSeconds / totalFrameCount;
-    var currentTime = System.currentTimeMillis();
+    var currentTime = currentTimeMillis();
 
     if (currentTime - LastFrameTime >= (frameSpeedS * 1000)) {
       if (!Reversed) {
@@ -91,7 +91,7 @@ public class ChasePattern extends LEDPattern {
         }
       }
 
-      LastFrameTime = System.currentTimeMillis();
+      LastFrameTime = currentTimeMillis();
     }
   }
 }
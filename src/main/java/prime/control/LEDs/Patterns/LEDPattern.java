@@ -1,6 +1,7 @@
 package prime.control.LEDs.Patterns;
 
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.RobotController;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.LEDEffect;
 
@@ -83,8 +84,16 @@ public abstract class LEDPattern {
    * Check if the pattern is updatable based on the speed
    */
   protected boolean isUpdatable() {
-    var currentTime = System.currentTimeMillis();
+    var currentTime = currentTimeMillis();
 
     return currentTime - LastFrameTime >= (EffectSpeedSeconds * 1000);
   }
+
+  /**
+   * Gets the current time in milliseconds from the FPGA clock. In simulation this clock can be paused and stepped,
+   * which keeps the patterns deterministic
+   */
+  protected static long currentTimeMillis() {
+    return RobotController.getFPGATime() / 1000;
+  }
 }
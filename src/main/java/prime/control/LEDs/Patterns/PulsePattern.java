@@ -62,7 +62,7 @@ public class PulsePattern extends LEDPattern {
         Frame = 0;
       }
 
-      LastFrameTime = System.currentTimeMillis();
+      LastFrameTime = currentTimeMillis();
     }
   }
 }
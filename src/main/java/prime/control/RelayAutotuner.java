@@ -0,0 +1,257 @@
+package prime.control;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.TreeMap;
+import prime.utilities.TuningStore;
+
+/**
+ * Finds a loop's ultimate gain and period with the relay feedback experiment and proposes a proportional gain for a
+ * target settle time.
+ *
+ * In place of the loop's controller, the relay outputs +d while the measurement is below the setpoint and -d while
+ * it's above, with a little hysteresis ε against noise. The loop settles into an oscillation at its ultimate period
+ * Tu, and the describing function of the relay with hysteresis gives the ultimate gain Ku = 4d / (π·√(a² - ε²)) from
+ * the oscillation's amplitude a. An oscillation no wider than the hysteresis has no result.
+ *
+ * Steering, heading and arm position loops all integrate their controller's output, so the ultimate point is
+ * fitted to an integrator with dead time, K·e^(-Ls)/s, where L = Tu/4 and K = 2π / (Tu·Ku). The proportional gain
+ * comes from the SIMC rule kP = 1 / (K·(τc + L)), with the closed-loop time constant τc picked so the loop settles
+ * to 2% in L + 4τc. τc is kept at least L for a gain margin of about 3, so a settle time the loop can't reach safely
+ * is lengthened rather than met.
+ *
+ * It has no thread of its own: the loop being tuned calls {@link #calculate} in place of its controller, at its own
+ * rate, so the result includes the loop's sample delay.
+ */
+public class RelayAutotuner {
+
+  private static final int SKIPPED_SWITCHES = 2; // The approach to the setpoint and the first swing past it
+  private static final double SETTLE_BAND_TIME_CONSTANTS = 4; // To 2% of a first-order step
+
+  /** The identified loop and the proposed gain */
+  public static class Result {
+
+    public final double UltimateGain;
+    public final double UltimatePeriodSeconds;
+    public final double ProcessGain;
+    public final double DeadTimeSeconds;
+    public final double kP;
+    public final double SettleSeconds;
+
+    Result(double ultimateGain, double ultimatePeriodSeconds, double targetSettleSeconds) {
+      UltimateGain = ultimateGain;
+      UltimatePeriodSeconds = ultimatePeriodSeconds;
+      DeadTimeSeconds = ultimatePeriodSeconds / 4;
+      ProcessGain = 2 * Math.PI / (ultimatePeriodSeconds * ultimateGain);
+
+      var timeConstant = Math.max(
+        (targetSettleSeconds - DeadTimeSeconds) / SETTLE_BAND_TIME_CONSTANTS,
+        DeadTimeSeconds
+      );
+      kP = 1 / (ProcessGain * (timeConstant + DeadTimeSeconds));
+      SettleSeconds = DeadTimeSeconds + SETTLE_BAND_TIME_CONSTANTS * timeConstant;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+        "Ku=%.4f Tu=%.4fs K=%.4f L=%.4fs kP=%.4f settles in %.3fs",
+        UltimateGain,
+        UltimatePeriodSeconds,
+        ProcessGain,
+        DeadTimeSeconds,
+        kP,
+        SettleSeconds
+      );
+    }
+  }
+
+  private final double m_relayOutput;
+  private final double m_hysteresis;
+  private final int m_cycles;
+  private final double m_targetSettleSeconds;
+  private boolean m_continuous = false;
+  private double m_minimumInput;
+  private double m_maximumInput;
+
+  private boolean m_running = false;
+  private double m_setpoint;
+  private double m_output;
+  private int m_switches;
+  private int m_lastRisingSwitch;
+  private double m_lastRisingTimestamp;
+  private double m_cycleMax;
+  private double m_cycleMin;
+
+  // Sums over the measured cycles
+  private int m_measuredCycles;
+  private double m_periodSum;
+  private double m_amplitudeSum;
+  private Result m_result;
+
+  /**
+   * @param relayOutput The relay's output d, in the controller's output units
+   * @param hysteresis How far past the setpoint the measurement goes before the relay switches
+   * @param cycles How many oscillations to measure
+   * @param targetSettleSeconds The settle time to propose the gain for
+   */
+  public RelayAutotuner(double relayOutput, double hysteresis, int cycles, double targetSettleSeconds) {
+    m_relayOutput = relayOutput;
+    m_hysteresis = hysteresis;
+    m_cycles = cycles;
+    m_targetSettleSeconds = targetSettleSeconds;
+  }
+
+  /**
+   * Wraps the error like {@link edu.wpi.first.math.controller.PIDController#enableContinuousInput}
+   * @param minimumInput
+   * @param maximumInput
+   */
+  public RelayAutotuner withContinuousInput(double minimumInput, double maximumInput) {
+    m_continuous = true;
+    m_minimumInput = minimumInput;
+    m_maximumInput = maximumInput;
+    return this;
+  }
+
+  /**
+   * Starts a new experiment
+   * @param setpoint The measurement to oscillate around
+   */
+  public void start(double setpoint) {
+    m_running = true;
+    m_setpoint = setpoint;
+    m_output = 0;
+    m_switches = 0;
+    m_lastRisingSwitch = 0;
+    m_cycleMax = Double.NEGATIVE_INFINITY;
+    m_cycleMin = Double.POSITIVE_INFINITY;
+    m_measuredCycles = 0;
+    m_periodSum = 0;
+    m_amplitudeSum = 0;
+    m_result = null;
+  }
+
+  /**
+   * Stops the experiment without a result
+   */
+  public void cancel() {
+    m_running = false;
+  }
+
+  /**
+   * Gets the relay's output for a measurement. Returns 0 once enough cycles are measured
+   * @param measurement
+   * @param timestamp In seconds
+   */
+  public double calculate(double measurement, double timestamp) {
+    if (!m_running) return 0;
+
+    var error = m_setpoint - measurement;
+    if (m_continuous) {
+      var halfRange = (m_maximumInput - m_minimumInput) / 2;
+      error = MathUtil.inputModulus(error, -halfRange, halfRange);
+    }
+
+    // The deviation from the setpoint, which the amplitude is measured on so wrapping can't distort it
+    m_cycleMax = Math.max(m_cycleMax, -error);
+    m_cycleMin = Math.min(m_cycleMin, -error);
+
+    if (m_output == 0) {
+      m_output = error < 0 ? -m_relayOutput : m_relayOutput;
+    } else if (error > m_hysteresis && m_output < 0) {
+      m_output = m_relayOutput;
+      onRisingSwitch(timestamp);
+    } else if (error < -m_hysteresis && m_output > 0) {
+      m_output = -m_relayOutput;
+      m_switches++;
+    }
+
+    return m_running ? m_output : 0;
+  }
+
+  /**
+   * Measures the cycle that ended when the output switched up
+   */
+  private void onRisingSwitch(double timestamp) {
+    m_switches++;
+
+    if (m_lastRisingSwitch > SKIPPED_SWITCHES) {
+      m_periodSum += timestamp - m_lastRisingTimestamp;
+      m_amplitudeSum += (m_cycleMax - m_cycleMin) / 2;
+      m_measuredCycles++;
+    }
+
+    m_lastRisingSwitch = m_switches;
+    m_lastRisingTimestamp = timestamp;
+    m_cycleMax = Double.NEGATIVE_INFINITY;
+    m_cycleMin = Double.POSITIVE_INFINITY;
+
+    if (m_measuredCycles >= m_cycles) {
+      var amplitude = m_amplitudeSum / m_measuredCycles;
+      if (amplitude > m_hysteresis) {
+        var relayAmplitude = Math.sqrt(amplitude * amplitude - m_hysteresis * m_hysteresis);
+        var ultimateGain = 4 * m_relayOutput / (Math.PI * relayAmplitude);
+        m_result = new Result(ultimateGain, m_periodSum / m_measuredCycles, m_targetSettleSeconds);
+      }
+      m_running = false;
+    }
+  }
+
+  /**
+   * Gets whether the experiment is running
+   */
+  public boolean isRunning() {
+    return m_running;
+  }
+
+  /**
+   * Gets the result of the last experiment, or null if it didn't finish
+   */
+  public Result getResult() {
+    return m_result;
+  }
+
+  /**
+   * Averages the ultimate points several tuners found on identical loops, e.g. every swerve module's steering, or
+   * returns null if any of them didn't finish
+   * @param tuners
+   */
+  public static Result average(RelayAutotuner... tuners) {
+    var gainSum = 0.0;
+    var periodSum = 0.0;
+    for (var tuner : tuners) {
+      if (tuner.m_result == null) return null;
+
+      gainSum += tuner.m_result.UltimateGain;
+      periodSum += tuner.m_result.UltimatePeriodSeconds;
+    }
+
+    return new Result(gainSum / tuners.length, periodSum / tuners.length, tuners[0].m_targetSettleSeconds);
+  }
+
+  /**
+   * Saves a result's gain and what it was identified from in the {@link TuningStore}, or warns if there's no result
+   * @param name
+   * @param result
+   */
+  public static void save(String name, Result result) {
+    if (result == null) {
+      DriverStation.reportWarning(
+        "[RelayAutotuner] " + name + " didn't oscillate past the hysteresis before timing out",
+        false
+      );
+      return;
+    }
+
+    DataLogManager.log("[RelayAutotuner] " + name + ": " + result);
+
+    var values = new TreeMap<String, Double>();
+    values.put("kP", result.kP);
+    values.put("UltimateGain", result.UltimateGain);
+    values.put("UltimatePeriodSeconds", result.UltimatePeriodSeconds);
+    values.put("SettleSeconds", result.SettleSeconds);
+    TuningStore.save(name, values);
+  }
+}
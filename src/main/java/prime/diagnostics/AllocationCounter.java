@@ -0,0 +1,41 @@
+package prime.diagnostics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads how many bytes a thread has allocated on the heap, using the JVM's per-thread allocation counters. Reading a
+ * counter doesn't allocate. Returns 0 on JVMs that don't support it.
+ */
+public final class AllocationCounter {
+
+  private static final com.sun.management.ThreadMXBean s_threadBean = getThreadBean();
+
+  private AllocationCounter() {}
+
+  public static boolean isSupported() {
+    return s_threadBean != null;
+  }
+
+  /**
+   * Gets the total bytes allocated by the calling thread
+   */
+  public static long currentThreadBytes() {
+    return s_threadBean != null ? s_threadBean.getCurrentThreadAllocatedBytes() : 0;
+  }
+
+  /**
+   * Gets the total bytes allocated by a thread, or 0 if it has exited
+   * @param threadId
+   */
+  public static long threadBytes(long threadId) {
+    return s_threadBean != null ? Math.max(s_threadBean.getThreadAllocatedBytes(threadId), 0) : 0;
+  }
+
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean)) return null;
+    if (!threadBean.isThreadAllocatedMemorySupported()) return null;
+
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    return threadBean;
+  }
+}
@@ -0,0 +1,81 @@
+package prime.diagnostics;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+/**
+ * Keeps the JVM's class data sharing (CDS) archive in step with the deployed jar.
+ *
+ * The archive holds the classes robotInit and the first loops load, already parsed and verified, so the next JVM
+ * start maps them instead of loading them again. An archive only works with the JVM build and jar that made it, so
+ * the robot makes its own: when the archive is missing or older than the jar, {@link #dumpIfNeeded} dumps the classes
+ * loaded so far. The JVM ignores an archive that doesn't match and starts normally.
+ *
+ * Enabled by the frc.cds.archive system property, which the deploy sets along with -XX:SharedArchiveFile and
+ * -XX:+RecordDynamicDumpInfo.
+ */
+public class ClassDataArchive {
+
+  public static final String ARCHIVE_PROPERTY = "frc.cds.archive";
+
+  private final File m_archive;
+  private boolean m_needsDump;
+
+  public ClassDataArchive() {
+    var archivePath = System.getProperty(ARCHIVE_PROPERTY);
+    m_archive = archivePath != null && RobotBase.isReal() ? new File(archivePath) : null;
+    if (m_archive == null) return;
+
+    var jar = getRobotJar();
+    m_needsDump = jar != null && (!m_archive.exists() || m_archive.lastModified() < jar.lastModified());
+    System.out.println("[ClassDataArchive] " + getStatus());
+  }
+
+  /**
+   * @return "in use", "stale" or "disabled"
+   */
+  public String getStatus() {
+    if (m_archive == null) return "disabled";
+
+    return m_needsDump ? "stale" : "in use";
+  }
+
+  /**
+   * Dumps the archive if it's stale. The JVM pauses while it writes, so only call it while disabled and off the field,
+   * once the classes the match needs have loaded
+   */
+  public void dumpIfNeeded() {
+    if (!m_needsDump) return;
+    m_needsDump = false;
+
+    var startNanos = System.nanoTime();
+    try {
+      // The same as "jcmd <pid> VM.cds dynamic_dump <file>", without needing jcmd on the robot
+      ManagementFactory
+        .getPlatformMBeanServer()
+        .invoke(
+          new ObjectName("com.sun.management:type=DiagnosticCommand"),
+          "vmCds",
+          new Object[] { new String[] { "dynamic_dump", m_archive.getAbsolutePath() } },
+          new String[] { String[].class.getName() }
+        );
+
+      System.out.printf("[ClassDataArchive] Wrote %s in %.0fms%n", m_archive, (System.nanoTime() - startNanos) / 1e6);
+    } catch (Exception e) {
+      DriverStation.reportWarning("[ClassDataArchive] Failed to write the archive: " + e.getMessage(), false);
+    }
+  }
+
+  private static File getRobotJar() {
+    try {
+      var jar = new File(ClassDataArchive.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+      return jar.isFile() ? jar : null;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package prime.diagnostics;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-bucket histogram of durations. Recording is constant time and never allocates.
+ */
+public class LatencyHistogram {
+
+  private static final long BUCKET_WIDTH_NANOS = 50_000; // 0.05ms
+  private static final int BUCKET_COUNT = 800; // Up to 40ms, anything longer lands in the last bucket
+
+  private final long[] m_buckets = new long[BUCKET_COUNT];
+  private long m_count = 0;
+  private long m_maxNanos = 0;
+
+  /**
+   * Records a duration
+   * @param nanos
+   */
+  public void record(long nanos) {
+    var bucket = (int) Math.min(nanos / BUCKET_WIDTH_NANOS, BUCKET_COUNT - 1);
+
+    m_buckets[Math.max(bucket, 0)]++;
+    m_count++;
+    if (nanos > m_maxNanos) m_maxNanos = nanos;
+  }
+
+  /**
+   * Gets the upper bound of the bucket containing the given percentile, in milliseconds
+   * @param percentile (0 - 1)
+   */
+  public double getPercentileMs(double percentile) {
+    if (m_count == 0) return 0;
+
+    var target = (long) Math.ceil(percentile * m_count);
+    var cumulative = 0L;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += m_buckets[i];
+
+      if (cumulative >= target) return Math.min((i + 1) * BUCKET_WIDTH_NANOS, m_maxNanos) / 1e6;
+    }
+
+    return getMaxMs();
+  }
+
+  /**
+   * Adds every duration recorded in another histogram to this one
+   * @param other
+   */
+  public void merge(LatencyHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; i++) m_buckets[i] += other.m_buckets[i];
+    m_count += other.m_count;
+    if (other.m_maxNanos > m_maxNanos) m_maxNanos = other.m_maxNanos;
+  }
+
+  public double getMaxMs() {
+    return m_maxNanos / 1e6;
+  }
+
+  public long getCount() {
+    return m_count;
+  }
+
+  public void reset() {
+    Arrays.fill(m_buckets, 0);
+    m_count = 0;
+    m_maxNanos = 0;
+  }
+}
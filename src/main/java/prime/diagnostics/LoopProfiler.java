@@ -0,0 +1,244 @@
+package prime.diagnostics;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.event.EventLoop;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.ArrayList;
+import java.util.HashMap;
+import prime.logging.BlackBox;
+import prime.logging.BlackBox.EventType;
+import prime.logging.FlightRecorder;
+import prime.logging.LogLevel;
+import prime.logging.RecorderChannel;
+import prime.logging.Telemetry;
+
+/**
+ * Times subsystem periodics, command executes and the input phase of every main loop, aggregates them into
+ * histograms and attributes loop overruns to the sections that used the most time.
+ *
+ * Summaries are published once a second to Profiler/{section} as [p50, p99, max (ms), overrun attributions].
+ */
+public final class LoopProfiler {
+
+  private static final int SUMMARY_PERIOD_LOOPS = 50;
+  private static final int OFFENDER_COUNT = 3;
+  private static final long OVERRUN_REPORT_INTERVAL_NANOS = 1_000_000_000;
+
+  private static final ArrayList<ProfiledSection> s_sections = new ArrayList<>();
+  private static final HashMap<String, ProfiledSection> s_commandSections = new HashMap<>();
+  private static final ProfiledSection s_robotPeriodic = section("Robot/Periodic");
+  private static final ProfiledSection s_inputPhase = section("Robot/Inputs");
+  private static final ProfiledSection[] s_offenders = new ProfiledSection[OFFENDER_COUNT];
+
+  private static final RecorderChannel r_loopPeriod = FlightRecorder.doubleChannel("Robot/LoopPeriod (ms)", 0);
+  private static final RecorderChannel r_periodicTime = FlightRecorder.doubleChannel("Robot/PeriodicTime (ms)", 0);
+
+  private static long s_loopBudgetNanos = 20_000_000;
+  private static long s_lastLoopStartNanos = 0;
+  private static long s_lastMarkNanos = 0;
+  private static long s_lastOverrunReportNanos = 0;
+  private static int s_loopsSinceSummary = 0;
+  private static boolean s_trackAllocations = false;
+
+  private LoopProfiler() {}
+
+  //#region Setup
+
+  /**
+   * Creates a section to time with start()/stop()
+   * @param name
+   */
+  public static ProfiledSection section(String name) {
+    var section = new ProfiledSection(name);
+    s_sections.add(section);
+
+    return section;
+  }
+
+  /**
+   * Sets the time a loop can take before it's counted as an overrun
+   * @param periodSeconds
+   */
+  public static void setLoopBudget(double periodSeconds) {
+    s_loopBudgetNanos = (long) (periodSeconds * 1e9);
+  }
+
+  /**
+   * Turns on measuring the bytes each section allocates. Reading the allocation counter costs a little time, so this
+   * is meant for the desktop allocation check rather than the robot
+   * @param enabled
+   */
+  public static void setAllocationTracking(boolean enabled) {
+    s_trackAllocations = enabled && AllocationCounter.isSupported();
+  }
+
+  static boolean isTrackingAllocations() {
+    return s_trackAllocations;
+  }
+
+  /**
+   * Gets a section by name, or null if there isn't one
+   * @param name
+   */
+  public static ProfiledSection getSection(String name) {
+    for (int i = 0; i < s_sections.size(); i++) {
+      if (s_sections.get(i).Name.equals(name)) return s_sections.get(i);
+    }
+
+    return null;
+  }
+
+  /**
+   * Binds the marker that starts the input phase. Call before any triggers are bound to the loop
+   * @param buttonLoop The scheduler's default button loop
+   */
+  public static void beginInputBindings(EventLoop buttonLoop) {
+    buttonLoop.bind(LoopProfiler::markInputPhaseStart);
+  }
+
+  /**
+   * Binds the marker that ends the input phase, and installs the command execute hook. Call after all triggers are
+   * bound to the loop
+   * @param buttonLoop The scheduler's default button loop
+   */
+  public static void endInputBindings(EventLoop buttonLoop) {
+    buttonLoop.bind(LoopProfiler::markInputPhaseEnd);
+    CommandScheduler.getInstance().onCommandExecute(command -> markCommandExecuted(command.getName()));
+  }
+
+  //#endregion
+
+  //#region Loop
+
+  /**
+   * Call at the very start of robotPeriodic. Closes out the previous loop and attributes it if it overran
+   */
+  public static void beginLoop() {
+    var now = System.nanoTime();
+
+    if (s_lastLoopStartNanos != 0) {
+      var loopPeriodNanos = now - s_lastLoopStartNanos;
+      r_loopPeriod.record(loopPeriodNanos / 1e6);
+
+      if (loopPeriodNanos > s_loopBudgetNanos) attributeOverrun(loopPeriodNanos, now);
+    }
+
+    for (int i = 0; i < s_sections.size(); i++) s_sections.get(i).endLoop();
+
+    s_lastLoopStartNanos = now;
+    s_robotPeriodic.start();
+  }
+
+  /**
+   * Call at the very end of robotPeriodic
+   */
+  public static void endLoop() {
+    s_robotPeriodic.stop();
+    r_periodicTime.record(s_robotPeriodic.getCurrentLoopNanos() / 1e6);
+
+    if (++s_loopsSinceSummary >= SUMMARY_PERIOD_LOOPS) {
+      s_loopsSinceSummary = 0;
+
+      if (Telemetry.isEnabled(LogLevel.Level2)) {
+        for (int i = 0; i < s_sections.size(); i++) s_sections.get(i).publishSummary();
+      }
+    }
+  }
+
+  /**
+   * Gets the histogram of time spent in robotPeriodic, including the command scheduler
+   */
+  public static LatencyHistogram getPeriodicHistogram() {
+    return s_robotPeriodic.getHistogram();
+  }
+
+  /**
+   * Clears all histograms, e.g. when the robot changes modes
+   */
+  public static void reset() {
+    for (int i = 0; i < s_sections.size(); i++) s_sections.get(i).reset();
+  }
+
+  private static void markInputPhaseStart() {
+    s_lastMarkNanos = System.nanoTime();
+  }
+
+  private static void markInputPhaseEnd() {
+    var now = System.nanoTime();
+    s_inputPhase.add(now - s_lastMarkNanos);
+    s_lastMarkNanos = now;
+  }
+
+  /**
+   * Attributes the time since the previous mark to the command that just executed
+   */
+  private static void markCommandExecuted(String commandName) {
+    var now = System.nanoTime();
+
+    var section = s_commandSections.get(commandName);
+    if (section == null) {
+      section = section("Command/" + commandName);
+      s_commandSections.put(commandName, section);
+    }
+
+    section.add(now - s_lastMarkNanos);
+    s_lastMarkNanos = now;
+  }
+
+  //#endregion
+
+  //#region Overruns
+
+  /**
+   * Finds the sections that used the most time in the loop that overran and reports them
+   */
+  private static void attributeOverrun(long loopPeriodNanos, long now) {
+    // Pick the top offenders without allocating. The robotPeriodic section contains the others, so skip it
+    for (int i = 0; i < OFFENDER_COUNT; i++) s_offenders[i] = null;
+
+    for (int i = 0; i < s_sections.size(); i++) {
+      var section = s_sections.get(i);
+      if (section == s_robotPeriodic || section.getCurrentLoopNanos() == 0) continue;
+
+      for (int slot = 0; slot < OFFENDER_COUNT; slot++) {
+        if (
+          s_offenders[slot] == null ||
+          section.getCurrentLoopNanos() > s_offenders[slot].getCurrentLoopNanos()
+        ) {
+          for (int shift = OFFENDER_COUNT - 1; shift > slot; shift--) s_offenders[shift] = s_offenders[shift - 1];
+          s_offenders[slot] = section;
+          break;
+        }
+      }
+    }
+
+    for (var offender : s_offenders) {
+      if (offender != null) offender.attributeOverrun();
+    }
+
+    // Only build a report string at a limited rate
+    if (now - s_lastOverrunReportNanos < OVERRUN_REPORT_INTERVAL_NANOS) return;
+    s_lastOverrunReportNanos = now;
+
+    var report = new StringBuilder("[LoopProfiler] Loop took ")
+      .append(String.format("%.1f", loopPeriodNanos / 1e6))
+      .append("ms (periodic ")
+      .append(String.format("%.1f", s_robotPeriodic.getCurrentLoopNanos() / 1e6))
+      .append("ms). Top offenders:");
+    for (var offender : s_offenders) {
+      if (offender == null) continue;
+
+      report
+        .append(' ')
+        .append(offender.Name)
+        .append('=')
+        .append(String.format("%.1f", offender.getCurrentLoopNanos() / 1e6))
+        .append("ms");
+    }
+
+    var message = report.toString();
+    DriverStation.reportWarning(message, false);
+    BlackBox.event(EventType.Marker, "Overrun");
+  }
+  //#endregion
+}
@@ -0,0 +1,127 @@
+package prime.diagnostics;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * A named block of code timed by the {@link LoopProfiler}. A section can run several times per loop; its time is
+ * summed per loop before it's added to the histogram. Sections must only be used from the main robot thread.
+ */
+public class ProfiledSection {
+
+  public final String Name;
+
+  private final LatencyHistogram m_histogram = new LatencyHistogram();
+  private final DoubleArrayPublisher m_summaryPublisher;
+  private final double[] m_summary = new double[4]; // p50, p99, max (ms), overrun attributions
+
+  private long m_startNanos;
+  private long m_loopNanos = 0;
+  private long m_lastLoopNanos = 0;
+  private boolean m_ranThisLoop = false;
+  private long m_overrunAttributions = 0;
+
+  // Allocations, only measured while LoopProfiler allocation tracking is on
+  private long m_startBytes;
+  private long m_loopBytes = 0;
+  private long m_maxLoopBytes = 0;
+  private long m_totalBytes = 0;
+  private long m_loopsRun = 0;
+
+  ProfiledSection(String name) {
+    Name = name;
+    m_summaryPublisher = NetworkTableInstance.getDefault().getDoubleArrayTopic("Profiler/" + name).publish();
+  }
+
+  /**
+   * Starts timing the section
+   */
+  public void start() {
+    if (LoopProfiler.isTrackingAllocations()) m_startBytes = AllocationCounter.currentThreadBytes();
+    m_startNanos = System.nanoTime();
+  }
+
+  /**
+   * Stops timing the section and adds the elapsed time to this loop's total
+   */
+  public void stop() {
+    add(System.nanoTime() - m_startNanos);
+    if (LoopProfiler.isTrackingAllocations()) m_loopBytes += AllocationCounter.currentThreadBytes() - m_startBytes;
+  }
+
+  void add(long nanos) {
+    m_loopNanos += nanos;
+    m_ranThisLoop = true;
+  }
+
+  /**
+   * Moves this loop's total into the histogram
+   */
+  void endLoop() {
+    if (m_ranThisLoop) {
+      m_histogram.record(m_loopNanos);
+      m_totalBytes += m_loopBytes;
+      m_maxLoopBytes = Math.max(m_maxLoopBytes, m_loopBytes);
+      m_loopsRun++;
+    }
+
+    m_lastLoopNanos = m_loopNanos;
+    m_loopNanos = 0;
+    m_loopBytes = 0;
+    m_ranThisLoop = false;
+  }
+
+  /**
+   * Gets the total time spent in this section during the last completed loop
+   */
+  public long getLastLoopNanos() {
+    return m_lastLoopNanos;
+  }
+
+  /**
+   * Gets the time spent in this section so far in the current loop
+   */
+  long getCurrentLoopNanos() {
+    return m_loopNanos;
+  }
+
+  /**
+   * Gets the mean bytes allocated in this section per loop it ran in, since the last reset
+   */
+  public double getMeanLoopBytes() {
+    return m_loopsRun > 0 ? (double) m_totalBytes / m_loopsRun : 0;
+  }
+
+  /**
+   * Gets the most bytes allocated in this section in a single loop, since the last reset
+   */
+  public long getMaxLoopBytes() {
+    return m_maxLoopBytes;
+  }
+
+  public LatencyHistogram getHistogram() {
+    return m_histogram;
+  }
+
+  void attributeOverrun() {
+    m_overrunAttributions++;
+  }
+
+  void publishSummary() {
+    if (m_histogram.getCount() == 0) return;
+
+    m_summary[0] = m_histogram.getPercentileMs(0.5);
+    m_summary[1] = m_histogram.getPercentileMs(0.99);
+    m_summary[2] = m_histogram.getMaxMs();
+    m_summary[3] = m_overrunAttributions;
+    m_summaryPublisher.set(m_summary);
+  }
+
+  void reset() {
+    m_histogram.reset();
+    m_overrunAttributions = 0;
+    m_totalBytes = 0;
+    m_maxLoopBytes = 0;
+    m_loopsRun = 0;
+  }
+}
@@ -0,0 +1,54 @@
+package prime.diagnostics;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times the phases of robot startup, so changes to startup time (e.g. from the class data archive) can be measured.
+ *
+ * Phases are printed when startup finishes and published to Robot/Startup/{phase} (ms). The time the JVM spent before
+ * robotInit is reported as "JVM".
+ */
+public class StartupTimer {
+
+  private final StringBuilder m_summary = new StringBuilder();
+  private final long m_startNanos;
+  private long m_lastMarkNanos;
+
+  /**
+   * Starts timing. Create at the start of robotInit
+   */
+  public StartupTimer() {
+    m_startNanos = System.nanoTime();
+    m_lastMarkNanos = m_startNanos;
+
+    // Uptime is measured from when the JVM was created
+    record("JVM", ManagementFactory.getRuntimeMXBean().getUptime());
+  }
+
+  /**
+   * Ends the current phase
+   * @param phase The name of the phase that just finished
+   */
+  public void mark(String phase) {
+    var now = System.nanoTime();
+    record(phase, (now - m_lastMarkNanos) / 1e6);
+    m_lastMarkNanos = now;
+  }
+
+  /**
+   * Prints and publishes every phase and the total
+   */
+  public void finish() {
+    var robotInitMs = (System.nanoTime() - m_startNanos) / 1e6;
+    record("RobotInit", robotInitMs);
+    record("Total", ManagementFactory.getRuntimeMXBean().getUptime());
+
+    System.out.println("[StartupTimer]" + m_summary);
+  }
+
+  private void record(String phase, double milliseconds) {
+    SmartDashboard.putNumber("Robot/Startup/" + phase + " (ms)", milliseconds);
+    m_summary.append(String.format(" %s=%.0fms", phase, milliseconds));
+  }
+}
@@ -0,0 +1,280 @@
+package prime.logging;
+
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A fixed-size, off-heap ring buffer that holds the last few seconds of high-rate robot data, and dumps it to a
+ * .wpilog file when something goes wrong (brownout, loop overruns, exceptions, or a manual trigger).
+ *
+ * Channels are registered before {@link #start}, after which recording never allocates. Channel values are
+ * sample-and-hold: each committed frame stores the latest value set on every channel. Recording and {@link #trigger}
+ * belong to the main loop; other threads dump through {@link #requestTrigger}.
+ */
+public final class BlackBox {
+
+  public enum EventType {
+    CommandInitialized,
+    CommandFinished,
+    CommandInterrupted,
+    Marker,
+  }
+
+  private static final int EVENT_CAPACITY = 512;
+  private static final int EVENT_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES; // timestamp, type, name id
+  private static final long MIN_TRIGGER_INTERVAL_MICROS = 5_000_000;
+
+  // Channel registry
+  private static final ArrayList<String> s_channelNames = new ArrayList<>();
+  private static final HashMap<String, Integer> s_eventNameIds = new HashMap<>();
+  private static final ArrayList<String> s_eventNames = new ArrayList<>();
+
+  // Frame ring, laid out as [timestamp (long), channel values (double)...] per frame
+  private static double[] s_current;
+  private static ByteBuffer s_frames;
+  private static ByteBuffer s_frameSnapshot;
+  private static int s_frameBytes;
+  private static int s_frameCount;
+  private static long s_framesWritten = 0;
+
+  // Event ring
+  private static ByteBuffer s_events;
+  private static ByteBuffer s_eventSnapshot;
+  private static long s_eventsWritten = 0;
+
+  // Dumping
+  private static File s_directory;
+  private static final ExecutorService s_dumpExecutor = Executors.newSingleThreadExecutor(r -> {
+    var thread = new Thread(r, "BlackBoxDump");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+  private static final AtomicBoolean s_dumpInProgress = new AtomicBoolean(false);
+  private static long s_lastTriggerMicros = Long.MIN_VALUE / 2;
+  private static volatile String s_requestedTrigger = null;
+
+  private BlackBox() {}
+
+  //#region Setup
+
+  /**
+   * Registers a channel. Must be called before {@link #start}
+   * @param name The entry name used when the buffer is dumped
+   * @return The channel index to pass to {@link #set}
+   */
+  public static synchronized int channel(String name) {
+    if (s_frames != null) throw new IllegalStateException("BlackBox channels must be registered before start()");
+
+    s_channelNames.add(name);
+    return s_channelNames.size() - 1;
+  }
+
+  /**
+   * Allocates the ring buffer for all registered channels
+   * @param directory Where dumps are written
+   * @param durationSeconds How much history to keep
+   * @param frameRateHz How often {@link #commitFrame} is called
+   */
+  public static synchronized void start(File directory, double durationSeconds, double frameRateHz) {
+    if (s_frames != null) return;
+
+    s_directory = directory;
+    s_frameCount = (int) Math.ceil(durationSeconds * frameRateHz);
+    s_frameBytes = Long.BYTES + Double.BYTES * s_channelNames.size();
+    s_current = new double[s_channelNames.size()];
+    Arrays.fill(s_current, Double.NaN);
+
+    s_frames = ByteBuffer.allocateDirect(s_frameBytes * s_frameCount);
+    s_frameSnapshot = ByteBuffer.allocateDirect(s_frames.capacity());
+    s_events = ByteBuffer.allocateDirect(EVENT_BYTES * EVENT_CAPACITY);
+    s_eventSnapshot = ByteBuffer.allocateDirect(s_events.capacity());
+  }
+
+  //#endregion
+
+  //#region Recording
+
+  /**
+   * Sets the latest value of a channel, which is held until the next call
+   * @param channel
+   * @param value
+   */
+  public static void set(int channel, double value) {
+    if (s_current == null || channel >= s_current.length) return;
+
+    s_current[channel] = value;
+  }
+
+  /**
+   * Writes the latest value of every channel into the ring as one frame, then takes any dump requested from another
+   * thread
+   */
+  public static void commitFrame() {
+    if (s_frames == null) return;
+
+    var offset = (int) (s_framesWritten % s_frameCount) * s_frameBytes;
+    s_frames.putLong(offset, RobotController.getFPGATime());
+    for (int i = 0; i < s_current.length; i++) {
+      s_frames.putDouble(offset + Long.BYTES + i * Double.BYTES, s_current[i]);
+    }
+
+    s_framesWritten++;
+
+    var requestedTrigger = s_requestedTrigger;
+    if (requestedTrigger != null) {
+      s_requestedTrigger = null;
+      trigger(requestedTrigger);
+    }
+  }
+
+  /**
+   * Records a named event, e.g. a command starting. Only the first occurrence of a name allocates
+   * @param type
+   * @param name
+   */
+  public static void event(EventType type, String name) {
+    if (s_events == null) return;
+
+    var nameId = s_eventNameIds.get(name);
+    if (nameId == null) {
+      nameId = s_eventNames.size();
+      s_eventNames.add(name);
+      s_eventNameIds.put(name, nameId);
+    }
+
+    var offset = (int) (s_eventsWritten % EVENT_CAPACITY) * EVENT_BYTES;
+    s_events.putLong(offset, RobotController.getFPGATime());
+    s_events.putInt(offset + Long.BYTES, type.ordinal());
+    s_events.putInt(offset + Long.BYTES + Integer.BYTES, nameId);
+    s_eventsWritten++;
+  }
+
+  //#endregion
+
+  //#region Dumping
+
+  /**
+   * Requests a dump from a thread other than the main loop, which takes it on its next {@link #commitFrame} so the
+   * rings are never copied while they're being written
+   * @param reason Included in the dump's file name
+   */
+  public static void requestTrigger(String reason) {
+    s_requestedTrigger = reason;
+  }
+
+  /**
+   * Snapshots the buffer and writes it to a file in the background. Triggers within a few seconds of the last one,
+   * or while a dump is still being written, are ignored. Call from the main loop only, see {@link #requestTrigger}
+   * @param reason Included in the dump's file name
+   */
+  public static synchronized void trigger(String reason) {
+    submitDump(reason, false);
+  }
+
+  /**
+   * Like {@link #trigger}, but waits for the dump to be written, for when the robot program is about to exit and
+   * would kill the background writer with it. Dumps even within a few seconds of the last trigger
+   * @param reason Included in the dump's file name
+   * @param timeoutSeconds The longest to wait for the file
+   */
+  public static synchronized void triggerAndWait(String reason, double timeoutSeconds) {
+    var dump = submitDump(reason, true);
+    if (dump == null) return;
+
+    try {
+      dump.get((long) (timeoutSeconds * 1e6), TimeUnit.MICROSECONDS);
+    } catch (Exception e) {
+      DriverStation.reportWarning("[BlackBox:WARN] Dump didn't finish before exiting: " + reason, false);
+    }
+  }
+
+  /**
+   * Snapshots the buffer and submits it to be written
+   * @param ignoreInterval Whether to dump within a few seconds of the last trigger
+   * @return The dump being written, or null if the trigger was ignored
+   */
+  private static Future<?> submitDump(String reason, boolean ignoreInterval) {
+    if (s_frames == null) return null;
+
+    var now = RobotController.getFPGATime();
+    if (!ignoreInterval && now - s_lastTriggerMicros < MIN_TRIGGER_INTERVAL_MICROS) return null;
+    if (!s_dumpInProgress.compareAndSet(false, true)) return null;
+
+    s_lastTriggerMicros = now;
+    event(EventType.Marker, "Trigger: " + reason);
+
+    // Copy the rings so recording can continue while the dump is written
+    s_frameSnapshot.put(0, s_frames, 0, s_frames.capacity());
+    s_eventSnapshot.put(0, s_events, 0, s_events.capacity());
+    var framesWritten = s_framesWritten;
+    var eventsWritten = s_eventsWritten;
+    var eventNames = new ArrayList<>(s_eventNames);
+
+    DriverStation.reportWarning("[BlackBox:WARN] Dumping last " + s_frameCount + " frames: " + reason, false);
+    return s_dumpExecutor.submit(() -> {
+      try {
+        writeDump(reason, framesWritten, eventsWritten, eventNames);
+      } catch (Exception e) {
+        DriverStation.reportError("[BlackBox:ERROR] Failed to write dump: " + e.getMessage(), e.getStackTrace());
+      } finally {
+        s_dumpInProgress.set(false);
+      }
+    });
+  }
+
+  private static void writeDump(String reason, long framesWritten, long eventsWritten, ArrayList<String> eventNames) {
+    if (!s_directory.isDirectory() && !s_directory.mkdirs()) {
+      throw new IllegalStateException("Unable to create " + s_directory);
+    }
+
+    var filename = "BLACKBOX_" + System.currentTimeMillis() + "_" + reason.replaceAll("[^A-Za-z0-9]", "") + ".wpilog";
+    var log = new DataLog(s_directory.getAbsolutePath(), filename, 0.25, "reason=" + reason);
+
+    var entries = new DoubleLogEntry[s_channelNames.size()];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = new DoubleLogEntry(log, "BlackBox/" + s_channelNames.get(i));
+    }
+
+    // Write frames oldest to newest
+    var firstFrame = Math.max(0, framesWritten - s_frameCount);
+    for (long f = firstFrame; f < framesWritten; f++) {
+      var offset = (int) (f % s_frameCount) * s_frameBytes;
+      var timestamp = s_frameSnapshot.getLong(offset);
+
+      for (int i = 0; i < entries.length; i++) {
+        var value = s_frameSnapshot.getDouble(offset + Long.BYTES + i * Double.BYTES);
+        if (!Double.isNaN(value)) entries[i].append(value, timestamp);
+      }
+    }
+
+    // Write events oldest to newest
+    var eventEntry = new StringLogEntry(log, "BlackBox/Events");
+    var eventTypes = EventType.values();
+    var firstEvent = Math.max(0, eventsWritten - EVENT_CAPACITY);
+    for (long e = firstEvent; e < eventsWritten; e++) {
+      var offset = (int) (e % EVENT_CAPACITY) * EVENT_BYTES;
+      var timestamp = s_eventSnapshot.getLong(offset);
+      var type = eventTypes[s_eventSnapshot.getInt(offset + Long.BYTES)];
+      var name = eventNames.get(s_eventSnapshot.getInt(offset + Long.BYTES + Integer.BYTES));
+
+      eventEntry.append(type.name() + ": " + name, timestamp);
+    }
+
+    log.close();
+  }
+  //#endregion
+}
@@ -0,0 +1,35 @@
+package prime.logging;
+
+import java.util.function.Consumer;
+
+/**
+ * A boolean telemetry signal that only publishes when the value changes
+ */
+public class BooleanSignal extends TelemetrySignal {
+
+  private final Consumer<Boolean> m_sink;
+  private boolean m_lastValue;
+
+  /**
+   * @param sink Where published values are written to (publisher or dashboard entry)
+   * @param level The log level of the signal
+   * @param decimation Publish only every Nth call to set
+   */
+  public BooleanSignal(Consumer<Boolean> sink, LogLevel level, int decimation) {
+    super(level, decimation);
+    m_sink = sink;
+  }
+
+  /**
+   * Publishes a new value if the signal is enabled, due for a sample, and the value has changed
+   * @param value
+   */
+  public void set(boolean value) {
+    if (!shouldSample()) return;
+    if (!m_forcePublish && value == m_lastValue) return;
+
+    m_forcePublish = false;
+    m_lastValue = value;
+    m_sink.accept(value); // Boolean.valueOf is cached, so this does not allocate
+  }
+}
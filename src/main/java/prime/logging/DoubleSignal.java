@@ -0,0 +1,40 @@
+package prime.logging;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * A double telemetry signal that only publishes values that changed by more than a tolerance
+ */
+public class DoubleSignal extends TelemetrySignal {
+
+  private final DoubleConsumer m_sink;
+  private final double m_tolerance;
+  private double m_lastValue = Double.NaN;
+
+  /**
+   * @param sink Where published values are written to (publisher or dashboard entry)
+   * @param level The log level of the signal
+   * @param decimation Publish only every Nth call to set
+   * @param tolerance The minimum change in value that gets published
+   */
+  public DoubleSignal(DoubleConsumer sink, LogLevel level, int decimation, double tolerance) {
+    super(level, decimation);
+    m_sink = sink;
+    m_tolerance = tolerance;
+  }
+
+  /**
+   * Publishes a new value if the signal is enabled, due for a sample, and the value has changed
+   * @param value
+   */
+  public void set(double value) {
+    if (!shouldSample()) return;
+
+    // NaN never compares as within tolerance, so the first value is always published
+    if (!m_forcePublish && Math.abs(value - m_lastValue) <= m_tolerance) return;
+
+    m_forcePublish = false;
+    m_lastValue = value;
+    m_sink.accept(value);
+  }
+}
@@ -0,0 +1,317 @@
+package prime.logging;
+
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DataLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes typed DataLog entries straight from subsystems without going through NetworkTables.
+ *
+ * Samples are pushed by the main robot thread into a lock-free single-producer/single-consumer ring buffer,
+ * which a background thread drains into .wpilog files. Files are rotated when they reach a maximum size,
+ * and the oldest recordings are deleted to keep the directory within a disk budget.
+ */
+public final class FlightRecorder {
+
+  private static final String FILE_PREFIX = "FRC_REC_";
+  private static final String FILE_EXTENSION = ".wpilog";
+  private static final int CAPACITY = 1 << 14; // Must be a power of 2
+  private static final int MASK = CAPACITY - 1;
+  private static final long DRAIN_PERIOD_MS = 20;
+  private static final long ROTATION_CHECK_PERIOD_MS = 1000;
+
+  // Channel registry, only appended to
+  private static final ArrayList<RecorderChannel> s_channels = new ArrayList<>();
+
+  // Ring buffer. m_head is only written by the producer, m_tail only by the consumer
+  private static final int[] s_ids = new int[CAPACITY];
+  private static final long[] s_timestamps = new long[CAPACITY];
+  private static final double[] s_values = new double[CAPACITY];
+  private static final AtomicLong s_head = new AtomicLong();
+  private static final AtomicLong s_tail = new AtomicLong();
+  private static long s_tailCache = 0;
+  private static final AtomicLong s_droppedSamples = new AtomicLong();
+
+  // Writer state, only touched by the writer thread
+  private static volatile boolean s_running = false;
+  private static Thread s_writerThread;
+  private static File s_directory;
+  private static long s_maxFileBytes;
+  private static long s_diskBudgetBytes;
+  private static DataLog s_log;
+  private static File s_currentFile;
+  private static DataLogEntry[] s_entries = new DataLogEntry[0];
+  private static int s_fileIndex = 0;
+
+  private FlightRecorder() {}
+
+  //#region Channels
+
+  /**
+   * Registers a double channel
+   * @param name The entry name in the log
+   * @param sampleRateHz The maximum sample rate, or 0 to record every call
+   */
+  public static RecorderChannel doubleChannel(String name, double sampleRateHz) {
+    return register(name, RecorderChannel.ValueType.Double, sampleRateHz);
+  }
+
+  /**
+   * Registers a boolean channel
+   * @param name The entry name in the log
+   * @param sampleRateHz The maximum sample rate, or 0 to record every call
+   */
+  public static RecorderChannel booleanChannel(String name, double sampleRateHz) {
+    return register(name, RecorderChannel.ValueType.Boolean, sampleRateHz);
+  }
+
+  /**
+   * Registers an integer channel
+   * @param name The entry name in the log
+   * @param sampleRateHz The maximum sample rate, or 0 to record every call
+   */
+  public static RecorderChannel integerChannel(String name, double sampleRateHz) {
+    return register(name, RecorderChannel.ValueType.Integer, sampleRateHz);
+  }
+
+  private static RecorderChannel register(String name, RecorderChannel.ValueType type, double sampleRateHz) {
+    synchronized (s_channels) {
+      var channel = new RecorderChannel(s_channels.size(), name, type, sampleRateHz);
+      s_channels.add(channel);
+
+      return channel;
+    }
+  }
+
+  //#endregion
+
+  //#region Lifecycle
+
+  /**
+   * Gets the default recording directory: a USB drive when one is plugged in, otherwise the user's home
+   */
+  public static File getDefaultDirectory() {
+    if (RobotBase.isReal()) {
+      var usbDrive = new File("/u");
+      if (usbDrive.isDirectory() && usbDrive.canWrite()) return new File(usbDrive, "logs/recorder");
+
+      return new File("/home/lvuser/logs/recorder");
+    }
+
+    return new File(Filesystem.getOperatingDirectory(), "logs/recorder");
+  }
+
+  /**
+   * Starts the background writer
+   * @param directory Where to write recordings
+   * @param maxFileBytes The size at which a recording is rotated into a new file
+   * @param diskBudgetBytes The total size of recordings to keep in the directory
+   */
+  public static synchronized void start(File directory, long maxFileBytes, long diskBudgetBytes) {
+    if (s_running) return;
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      DriverStation.reportError("[FlightRecorder:ERROR] Unable to create " + directory, false);
+      return;
+    }
+
+    s_directory = directory;
+    s_maxFileBytes = maxFileBytes;
+    s_diskBudgetBytes = diskBudgetBytes;
+
+    s_running = true;
+    s_writerThread = new Thread(FlightRecorder::writerLoop, "FlightRecorder");
+    s_writerThread.setDaemon(true);
+    s_writerThread.setPriority(Thread.MIN_PRIORITY);
+    s_writerThread.start();
+  }
+
+  /**
+   * Stops the writer after draining any buffered samples and closes the current file
+   */
+  public static synchronized void stop() {
+    if (!s_running) return;
+
+    s_running = false;
+    try {
+      s_writerThread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public static boolean isRunning() {
+    return s_running;
+  }
+
+  /**
+   * Gets the number of samples dropped because the writer fell behind
+   */
+  public static long getDroppedSampleCount() {
+    return s_droppedSamples.get();
+  }
+
+  //#endregion
+
+  //#region Producer
+
+  /**
+   * Pushes a sample into the ring buffer. Called only from the main robot thread, never blocks or allocates
+   */
+  static void enqueue(int id, long timestamp, double value) {
+    var head = s_head.get();
+
+    if (head - s_tailCache >= CAPACITY) {
+      s_tailCache = s_tail.get();
+
+      if (head - s_tailCache >= CAPACITY) {
+        s_droppedSamples.incrementAndGet();
+        return;
+      }
+    }
+
+    var index = (int) (head & MASK);
+    s_ids[index] = id;
+    s_timestamps[index] = timestamp;
+    s_values[index] = value;
+
+    // Publish the slot to the consumer
+    s_head.lazySet(head + 1);
+  }
+
+  //#endregion
+
+  //#region Writer
+
+  private static void writerLoop() {
+    openNextFile();
+    var lastRotationCheck = System.currentTimeMillis();
+
+    while (s_running) {
+      drain();
+
+      var now = System.currentTimeMillis();
+      if (now - lastRotationCheck >= ROTATION_CHECK_PERIOD_MS) {
+        lastRotationCheck = now;
+
+        if (s_currentFile.length() >= s_maxFileBytes) {
+          openNextFile();
+        }
+      }
+
+      try {
+        Thread.sleep(DRAIN_PERIOD_MS);
+      } catch (InterruptedException e) {
+        break;
+      }
+    }
+
+    drain();
+    s_log.close();
+  }
+
+  /**
+   * Writes every buffered sample to the current log
+   */
+  private static void drain() {
+    var tail = s_tail.get();
+    var head = s_head.get();
+
+    while (tail < head) {
+      var index = (int) (tail & MASK);
+      append(s_ids[index], s_timestamps[index], s_values[index]);
+      tail++;
+    }
+
+    s_tail.lazySet(tail);
+  }
+
+  private static void append(int id, long timestamp, double value) {
+    if (id >= s_entries.length || s_entries[id] == null) createEntries();
+
+    var entry = s_entries[id];
+    if (entry instanceof DoubleLogEntry) {
+      ((DoubleLogEntry) entry).append(value, timestamp);
+    } else if (entry instanceof BooleanLogEntry) {
+      ((BooleanLogEntry) entry).append(value != 0, timestamp);
+    } else if (entry instanceof IntegerLogEntry) {
+      ((IntegerLogEntry) entry).append((long) value, timestamp);
+    }
+  }
+
+  /**
+   * Creates log entries for any channels registered since the last call
+   */
+  private static void createEntries() {
+    synchronized (s_channels) {
+      var entries = Arrays.copyOf(s_entries, s_channels.size());
+
+      for (int i = 0; i < entries.length; i++) {
+        if (entries[i] != null) continue;
+
+        var channel = s_channels.get(i);
+        switch (channel.Type) {
+          case Boolean:
+            entries[i] = new BooleanLogEntry(s_log, channel.Name);
+            break;
+          case Integer:
+            entries[i] = new IntegerLogEntry(s_log, channel.Name);
+            break;
+          case Double:
+          default:
+            entries[i] = new DoubleLogEntry(s_log, channel.Name);
+            break;
+        }
+      }
+
+      s_entries = entries;
+    }
+  }
+
+  /**
+   * Closes the current file, frees disk space to stay within budget, and starts a new file
+   */
+  private static void openNextFile() {
+    if (s_log != null) s_log.close();
+
+    enforceDiskBudget();
+
+    var filename = FILE_PREFIX + System.currentTimeMillis() + "_" + (s_fileIndex++) + FILE_EXTENSION;
+    s_currentFile = new File(s_directory, filename);
+    s_log = new DataLog(s_directory.getAbsolutePath(), filename);
+
+    // Entries belong to a log, so they're recreated lazily for the new file
+    s_entries = new DataLogEntry[0];
+  }
+
+  /**
+   * Deletes the oldest recordings until the directory fits within the budget, leaving room for one new file
+   */
+  private static void enforceDiskBudget() {
+    var files = s_directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_EXTENSION));
+    if (files == null) return;
+
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+    var totalBytes = s_maxFileBytes;
+    for (var file : files) totalBytes += file.length();
+
+    for (int i = 0; i < files.length && totalBytes > s_diskBudgetBytes; i++) {
+      totalBytes -= files[i].length();
+      if (!files[i].delete()) {
+        DriverStation.reportWarning("[FlightRecorder:WARN] Unable to delete " + files[i], false);
+      }
+    }
+  }
+  //#endregion
+}
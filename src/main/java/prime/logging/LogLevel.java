@@ -0,0 +1,21 @@
+package prime.logging;
+
+/**
+ * The importance of a telemetry signal. Signals at a level above the currently active level are not published.
+ */
+public enum LogLevel {
+  /**
+   * Signals the drive team needs during a match. Always published, even in competition mode
+   */
+  Essential,
+
+  /**
+   * Mechanism state used for tuning and match review ("Level2 logging")
+   */
+  Level2,
+
+  /**
+   * High-volume streams that are only useful while debugging on the bench
+   */
+  Debug,
+}
@@ -0,0 +1,60 @@
+package prime.logging;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * A typed signal written to the flight recorder at up to a fixed sample rate.
+ * Channels must only be recorded from the main robot thread.
+ */
+public class RecorderChannel {
+
+  public enum ValueType {
+    Double,
+    Boolean,
+    Integer,
+  }
+
+  public final int Id;
+  public final String Name;
+  public final ValueType Type;
+
+  private final long m_minPeriodMicros;
+  private long m_lastSampleMicros = Long.MIN_VALUE / 2;
+
+  RecorderChannel(int id, String name, ValueType type, double sampleRateHz) {
+    Id = id;
+    Name = name;
+    Type = type;
+    m_minPeriodMicros = sampleRateHz > 0 ? (long) (1e6 / sampleRateHz) : 0;
+  }
+
+  /**
+   * Records a value if the recorder is running and the channel is due for a sample
+   * @param value
+   */
+  public void record(double value) {
+    if (!FlightRecorder.isRunning()) return;
+
+    var now = RobotController.getFPGATime();
+    if (now - m_lastSampleMicros < m_minPeriodMicros) return;
+
+    m_lastSampleMicros = now;
+    FlightRecorder.enqueue(Id, now, value);
+  }
+
+  /**
+   * Records a boolean value if the recorder is running and the channel is due for a sample
+   * @param value
+   */
+  public void record(boolean value) {
+    record(value ? 1 : 0);
+  }
+
+  /**
+   * Records an integer value if the recorder is running and the channel is due for a sample
+   * @param value
+   */
+  public void record(long value) {
+    record((double) value);
+  }
+}
@@ -0,0 +1,43 @@
+package prime.logging;
+
+import edu.wpi.first.networktables.StructArrayPublisher;
+import java.util.Arrays;
+
+/**
+ * A struct array telemetry signal (e.g. SwerveModuleState[]) that only publishes when an element changes
+ */
+public class StructArraySignal<T> extends TelemetrySignal {
+
+  private final StructArrayPublisher<T> m_publisher;
+  private T[] m_lastValue;
+
+  /**
+   * @param publisher The publisher to write values to
+   * @param level The log level of the signal
+   * @param decimation Publish only every Nth call to set
+   */
+  public StructArraySignal(StructArrayPublisher<T> publisher, LogLevel level, int decimation) {
+    super(level, decimation);
+    m_publisher = publisher;
+  }
+
+  /**
+   * Publishes a new value if the signal is enabled, due for a sample, and any element has changed
+   * @param value
+   */
+  public void set(T[] value) {
+    if (!shouldSample()) return;
+    if (!m_forcePublish && Arrays.equals(value, m_lastValue)) return;
+
+    m_forcePublish = false;
+    m_publisher.set(value);
+
+    // Copied, since the caller may refill its array before the next set. The copy is only reallocated when the length
+    // changes, so publishing the same number of elements doesn't allocate
+    if (m_lastValue == null || m_lastValue.length != value.length) {
+      m_lastValue = Arrays.copyOf(value, value.length);
+    } else {
+      System.arraycopy(value, 0, m_lastValue, 0, value.length);
+    }
+  }
+}
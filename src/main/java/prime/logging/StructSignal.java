@@ -0,0 +1,36 @@
+package prime.logging;
+
+import edu.wpi.first.networktables.StructPublisher;
+import java.util.Objects;
+
+/**
+ * A struct-serialized telemetry signal (e.g. a Pose2d) that only publishes when the value changes
+ */
+public class StructSignal<T> extends TelemetrySignal {
+
+  private final StructPublisher<T> m_publisher;
+  private T m_lastValue;
+
+  /**
+   * @param publisher The publisher to write values to
+   * @param level The log level of the signal
+   * @param decimation Publish only every Nth call to set
+   */
+  public StructSignal(StructPublisher<T> publisher, LogLevel level, int decimation) {
+    super(level, decimation);
+    m_publisher = publisher;
+  }
+
+  /**
+   * Publishes a new value if the signal is enabled, due for a sample, and the value has changed
+   * @param value
+   */
+  public void set(T value) {
+    if (!shouldSample()) return;
+    if (!m_forcePublish && Objects.equals(value, m_lastValue)) return;
+
+    m_forcePublish = false;
+    m_lastValue = value;
+    m_publisher.set(value);
+  }
+}
@@ -0,0 +1,148 @@
+package prime.logging;
+
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * Creates typed telemetry signals and controls which levels are published.
+ *
+ * Publishers are created once when the signal is created, under the SmartDashboard table so existing
+ * dashboard layouts and log keys keep working.
+ */
+public final class Telemetry {
+
+  private static final NetworkTable s_table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+
+  private static LogLevel s_level = LogLevel.Level2;
+  private static boolean s_competitionMode = false;
+
+  private Telemetry() {}
+
+  //#region Levels
+
+  /**
+   * Sets the highest level that is published when not in competition mode
+   * @param level
+   */
+  public static void setLevel(LogLevel level) {
+    s_level = level;
+  }
+
+  /**
+   * Enables/disables competition mode. In competition mode only Essential signals are published
+   * @param enabled
+   */
+  public static void setCompetitionMode(boolean enabled) {
+    s_competitionMode = enabled;
+  }
+
+  public static boolean isCompetitionMode() {
+    return s_competitionMode;
+  }
+
+  /**
+   * Gets whether signals at the given level are currently published
+   * @param level
+   */
+  public static boolean isEnabled(LogLevel level) {
+    var activeLevel = s_competitionMode ? LogLevel.Essential : s_level;
+
+    return level.ordinal() <= activeLevel.ordinal();
+  }
+
+  //#endregion
+
+  //#region Signal factories
+
+  /**
+   * Creates a double signal published under SmartDashboard/{key}
+   * @param key
+   * @param level
+   * @param decimation Publish only every Nth call to set
+   */
+  public static DoubleSignal doubleSignal(String key, LogLevel level, int decimation) {
+    var publisher = s_table.getDoubleTopic(key).publish();
+
+    return new DoubleSignal(publisher::set, level, decimation, 0);
+  }
+
+  /**
+   * Creates a double signal published under SmartDashboard/{key} on every call
+   * @param key
+   * @param level
+   */
+  public static DoubleSignal doubleSignal(String key, LogLevel level) {
+    return doubleSignal(key, level, 1);
+  }
+
+  /**
+   * Creates a boolean signal published under SmartDashboard/{key}
+   * @param key
+   * @param level
+   * @param decimation Publish only every Nth call to set
+   */
+  public static BooleanSignal booleanSignal(String key, LogLevel level, int decimation) {
+    var publisher = s_table.getBooleanTopic(key).publish();
+
+    return new BooleanSignal(publisher::set, level, decimation);
+  }
+
+  /**
+   * Creates a boolean signal published under SmartDashboard/{key} on every call
+   * @param key
+   * @param level
+   */
+  public static BooleanSignal booleanSignal(String key, LogLevel level) {
+    return booleanSignal(key, level, 1);
+  }
+
+  /**
+   * Creates a struct signal published under SmartDashboard/{key}
+   * @param key
+   * @param struct The struct serializer of the type, e.g. Pose2d.struct
+   * @param level
+   * @param decimation Publish only every Nth call to set
+   */
+  public static <T> StructSignal<T> structSignal(String key, Struct<T> struct, LogLevel level, int decimation) {
+    return new StructSignal<>(s_table.getStructTopic(key, struct).publish(), level, decimation);
+  }
+
+  /**
+   * Creates a struct array signal published at the root of NetworkTables under {key}
+   * @param key
+   * @param struct The struct serializer of the element type, e.g. SwerveModuleState.struct
+   * @param level
+   * @param decimation Publish only every Nth call to set
+   */
+  public static <T> StructArraySignal<T> structArraySignal(
+    String key,
+    Struct<T> struct,
+    LogLevel level,
+    int decimation
+  ) {
+    var publisher = NetworkTableInstance.getDefault().getStructArrayTopic(key, struct).publish();
+
+    return new StructArraySignal<>(publisher, level, decimation);
+  }
+
+  /**
+   * Wraps a Shuffleboard entry in a double signal so unchanged values are not re-sent
+   * @param entry
+   * @param level
+   */
+  public static DoubleSignal doubleEntry(GenericEntry entry, LogLevel level) {
+    return new DoubleSignal(entry::setDouble, level, 1, 0);
+  }
+
+  /**
+   * Wraps a Shuffleboard entry in a boolean signal so unchanged values are not re-sent
+   * @param entry
+   * @param level
+   */
+  public static BooleanSignal booleanEntry(GenericEntry entry, LogLevel level) {
+    return new BooleanSignal(entry::setBoolean, level, 1);
+  }
+  //#endregion
+}
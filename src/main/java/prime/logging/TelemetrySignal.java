@@ -0,0 +1,45 @@
+package prime.logging;
+
+/**
+ * Base class for a telemetry signal with a log level and a decimation rate.
+ */
+public abstract class TelemetrySignal {
+
+  private final LogLevel m_level;
+  private final int m_decimation;
+  private int m_callsSinceSample;
+
+  /**
+   * Set when the signal was skipped because its level was disabled, so the next value is always published
+   */
+  protected boolean m_forcePublish = true;
+
+  /**
+   * @param level The log level of the signal
+   * @param decimation Publish only every Nth call to set (1 = every call)
+   */
+  protected TelemetrySignal(LogLevel level, int decimation) {
+    m_level = level;
+    m_decimation = Math.max(decimation, 1);
+    m_callsSinceSample = m_decimation; // Sample on the first call
+  }
+
+  public LogLevel getLevel() {
+    return m_level;
+  }
+
+  /**
+   * Gets whether the current call to set should sample the value, based on the active level and decimation rate
+   */
+  protected boolean shouldSample() {
+    if (!Telemetry.isEnabled(m_level)) {
+      m_forcePublish = true;
+      return false;
+    }
+
+    if (++m_callsSinceSample < m_decimation) return false;
+
+    m_callsSinceSample = 0;
+    return true;
+  }
+}
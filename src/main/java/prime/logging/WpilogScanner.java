@@ -0,0 +1,148 @@
+package prime.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a .wpilog file in one streaming pass over a memory-mapped view of it.
+ *
+ * Unlike DataLogReader, records are never copied into objects. The handler picks the entries it wants when they
+ * start, and only records for those entries are handed to it, as an offset into the mapped buffer.
+ */
+public final class WpilogScanner {
+
+  private static final byte[] MAGIC = "WPILOG".getBytes(StandardCharsets.US_ASCII);
+  private static final int MIN_VERSION = 0x0100;
+  private static final long WINDOW_BYTES = 256L << 20; // Files are mapped 256MB at a time
+  private static final int CONTROL_START = 0;
+
+  /**
+   * Receives the entries and records of a log
+   */
+  public interface RecordHandler {
+    /**
+     * Called when an entry starts
+     * @param entry The entry's id
+     * @param name
+     * @param type The entry's data type, e.g. "double" or "boolean"
+     * @return true to receive the entry's records
+     */
+    boolean onStart(int entry, String name, String type);
+
+    /**
+     * Called for each record of a subscribed entry. The buffer is little-endian, and is only valid during the call
+     * @param entry The entry's id
+     * @param timestampMicros
+     * @param buffer
+     * @param offset The position of the record's payload in the buffer
+     * @param size The payload's size in bytes
+     */
+    void onRecord(int entry, long timestampMicros, MappedByteBuffer buffer, int offset, int size);
+  }
+
+  private WpilogScanner() {}
+
+  /**
+   * Scans a log file, calling the handler for every entry start and every record of a subscribed entry
+   * @param file
+   * @param handler
+   * @return The number of records in the file
+   * @throws IOException If the file can't be read or isn't a valid log
+   */
+  public static long scan(File file, RecordHandler handler) throws IOException {
+    try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      var fileSize = channel.size();
+      var windowStart = 0L;
+      var buffer = map(channel, windowStart, fileSize);
+
+      // Header: magic, version, then a length-prefixed extra header string
+      if (buffer.limit() < 12) throw new IOException("Not a valid WPILOG file: " + file);
+      for (int i = 0; i < MAGIC.length; i++) {
+        if (buffer.get(i) != MAGIC[i]) throw new IOException("Not a valid WPILOG file: " + file);
+      }
+      if ((buffer.getShort(6) & 0xFFFF) < MIN_VERSION) throw new IOException("Unsupported WPILOG version: " + file);
+
+      var position = 12L + (buffer.getInt(8) & 0xFFFFFFFFL);
+      var subscribed = new boolean[256];
+      var recordCount = 0L;
+
+      while (position < fileSize) {
+        // Remap when the record header might cross the end of the window. The largest header is 17 bytes
+        if (position + 17 > windowStart + buffer.limit() && windowStart + buffer.limit() < fileSize) {
+          windowStart = position;
+          buffer = map(channel, windowStart, fileSize);
+        }
+
+        var p = (int) (position - windowStart);
+        var header = buffer.get(p) & 0xFF;
+        var entryLength = (header & 0x3) + 1;
+        var sizeLength = ((header >> 2) & 0x3) + 1;
+        var timestampLength = ((header >> 4) & 0x7) + 1;
+        var headerLength = 1 + entryLength + sizeLength + timestampLength;
+        if (position + headerLength > fileSize) break; // Truncated by a power loss
+
+        var entry = (int) readVarInt(buffer, p + 1, entryLength);
+        var size = (int) readVarInt(buffer, p + 1 + entryLength, sizeLength);
+        var timestamp = readVarInt(buffer, p + 1 + entryLength + sizeLength, timestampLength);
+        var recordLength = headerLength + (long) size;
+        if (position + recordLength > fileSize) break;
+
+        // Remap when the payload crosses the end of the window
+        if (position + recordLength > windowStart + buffer.limit()) {
+          windowStart = position;
+          buffer = map(channel, windowStart, fileSize);
+          p = 0;
+        }
+
+        var payload = p + headerLength;
+        if (entry == 0) {
+          if (size >= 17 && buffer.get(payload) == CONTROL_START) {
+            var startedEntry = buffer.getInt(payload + 1);
+            var nameLength = buffer.getInt(payload + 5);
+            var name = readString(buffer, payload + 9, nameLength);
+            var type = readString(buffer, payload + 13 + nameLength, buffer.getInt(payload + 9 + nameLength));
+
+            if (startedEntry >= subscribed.length) {
+              subscribed = Arrays.copyOf(subscribed, Math.max(subscribed.length * 2, startedEntry + 1));
+            }
+            subscribed[startedEntry] = handler.onStart(startedEntry, name, type);
+          }
+        } else if (entry < subscribed.length && subscribed[entry]) {
+          handler.onRecord(entry, timestamp, buffer, payload, size);
+        }
+
+        position += recordLength;
+        recordCount++;
+      }
+
+      return recordCount;
+    }
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, long start, long fileSize) throws IOException {
+    var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, fileSize - start));
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    return buffer;
+  }
+
+  private static long readVarInt(MappedByteBuffer buffer, int offset, int length) {
+    var value = 0L;
+    for (int i = 0; i < length; i++) value |= (buffer.get(offset + i) & 0xFFL) << (8 * i);
+
+    return value;
+  }
+
+  private static String readString(MappedByteBuffer buffer, int offset, int length) {
+    var bytes = new byte[length];
+    buffer.get(offset, bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -2,23 +2,50 @@ package prime.movers;
 
 import com.revrobotics.CANSparkMax;
 
+/**
+ * A CANSparkMax that skips set() calls that wouldn't change its output. See {@link LazyWriteFilter}
+ */
 public class LazyCANSparkMax extends CANSparkMax {
 
   protected double mLastSpeed = Double.NaN;
+  private final LazyWriteFilter m_filter;
 
   public LazyCANSparkMax(int deviceId, MotorType type) {
+    this(deviceId, type, 0, LazyWriteFilter.DEFAULT_KEEP_ALIVE_SECONDS);
+  }
+
+  /**
+   * @param deviceId
+   * @param type
+   * @param changeThreshold How much the speed has to change to be sent
+   * @param keepAliveSeconds How long to go without sending before the speed is sent again anyway
+   */
+  public LazyCANSparkMax(int deviceId, MotorType type, double changeThreshold, double keepAliveSeconds) {
     super(deviceId, type);
+    m_filter = new LazyWriteFilter(changeThreshold, keepAliveSeconds);
   }
 
   public double getLastSpeed() {
     return mLastSpeed;
   }
 
+  public long getSuppressedWrites() {
+    return m_filter.getSuppressedWrites();
+  }
+
   @Override
   public void set(double speed) {
-    if (speed == mLastSpeed) return;
+    if (!m_filter.shouldWrite(speed)) return;
 
     mLastSpeed = speed;
     super.set(speed);
   }
+
+  @Override
+  public void stopMotor() {
+    if (!m_filter.shouldWrite(LazyWriteFilter.STOPPED)) return;
+
+    mLastSpeed = 0;
+    super.stopMotor();
+  }
 }
@@ -0,0 +1,45 @@
+package prime.movers;
+
+import edu.wpi.first.wpilibj.DoubleSolenoid;
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+
+/**
+ * A DoubleSolenoid that skips set() calls for the position it's already in. See {@link LazyWriteFilter}
+ */
+public class LazyDoubleSolenoid extends DoubleSolenoid {
+
+  private final LazyWriteFilter m_filter;
+
+  public LazyDoubleSolenoid(int module, PneumaticsModuleType moduleType, int forwardChannel, int reverseChannel) {
+    this(module, moduleType, forwardChannel, reverseChannel, LazyWriteFilter.DEFAULT_KEEP_ALIVE_SECONDS);
+  }
+
+  /**
+   * @param module
+   * @param moduleType
+   * @param forwardChannel
+   * @param reverseChannel
+   * @param keepAliveSeconds How long to go without setting the position before it's sent again anyway
+   */
+  public LazyDoubleSolenoid(
+    int module,
+    PneumaticsModuleType moduleType,
+    int forwardChannel,
+    int reverseChannel,
+    double keepAliveSeconds
+  ) {
+    super(module, moduleType, forwardChannel, reverseChannel);
+    m_filter = new LazyWriteFilter(0, keepAliveSeconds);
+  }
+
+  public long getSuppressedWrites() {
+    return m_filter.getSuppressedWrites();
+  }
+
+  @Override
+  public void set(Value value) {
+    if (!m_filter.shouldWrite(value.ordinal())) return;
+
+    super.set(value);
+  }
+}
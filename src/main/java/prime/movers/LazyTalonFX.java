@@ -0,0 +1,62 @@
+package prime.movers;
+
+import com.ctre.phoenix6.controls.ControlRequest;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+/**
+ * A TalonFX that skips duty cycle set() calls that wouldn't change its output. Other control requests go through
+ * setControl() as usual and make the next set() write again, since the motor no longer has the last duty cycle. See
+ * {@link LazyWriteFilter}
+ *
+ * TalonFX overloads setControl() for each request type, and all of them end up as the device's applied control. So
+ * instead of overriding every overload, set() and stopMotor() compare the applied control with the request they last
+ * sent, which also catches request types added to Phoenix later.
+ */
+public class LazyTalonFX extends TalonFX {
+
+  private final LazyWriteFilter m_filter;
+  private ControlRequest m_lastFilteredRequest; // The request set() or stopMotor() last sent
+
+  public LazyTalonFX(int deviceId) {
+    this(deviceId, 0, LazyWriteFilter.DEFAULT_KEEP_ALIVE_SECONDS);
+  }
+
+  /**
+   * @param deviceId
+   * @param changeThreshold How much the speed has to change to be sent
+   * @param keepAliveSeconds How long to go without sending before the speed is sent again anyway
+   */
+  public LazyTalonFX(int deviceId, double changeThreshold, double keepAliveSeconds) {
+    super(deviceId);
+    m_filter = new LazyWriteFilter(changeThreshold, keepAliveSeconds);
+  }
+
+  public long getSuppressedWrites() {
+    return m_filter.getSuppressedWrites();
+  }
+
+  @Override
+  public void set(double speed) {
+    invalidateIfControlledElsewhere();
+    if (!m_filter.shouldWrite(speed)) return;
+
+    super.set(speed);
+    m_lastFilteredRequest = getAppliedControl();
+  }
+
+  @Override
+  public void stopMotor() {
+    invalidateIfControlledElsewhere();
+    if (!m_filter.shouldWrite(LazyWriteFilter.STOPPED)) return;
+
+    super.stopMotor();
+    m_lastFilteredRequest = getAppliedControl();
+  }
+
+  /**
+   * Forgets the filter's last output when a setControl() call replaced the request set() or stopMotor() last sent
+   */
+  private void invalidateIfControlledElsewhere() {
+    if (getAppliedControl() != m_lastFilteredRequest) m_filter.invalidate();
+  }
+}
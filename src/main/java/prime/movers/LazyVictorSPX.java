@@ -0,0 +1,41 @@
+package prime.movers;
+
+import com.ctre.phoenix.motorcontrol.VictorSPXControlMode;
+import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+
+/**
+ * A VictorSPX that skips set() calls that wouldn't change its output. Changing the control mode is always sent. See
+ * {@link LazyWriteFilter}
+ */
+public class LazyVictorSPX extends VictorSPX {
+
+  private final LazyWriteFilter m_filter;
+  private VictorSPXControlMode m_lastMode;
+
+  public LazyVictorSPX(int deviceNumber) {
+    this(deviceNumber, 0, LazyWriteFilter.DEFAULT_KEEP_ALIVE_SECONDS);
+  }
+
+  /**
+   * @param deviceNumber
+   * @param changeThreshold How much the output has to change to be sent
+   * @param keepAliveSeconds How long to go without sending before the output is sent again anyway
+   */
+  public LazyVictorSPX(int deviceNumber, double changeThreshold, double keepAliveSeconds) {
+    super(deviceNumber);
+    m_filter = new LazyWriteFilter(changeThreshold, keepAliveSeconds);
+  }
+
+  public long getSuppressedWrites() {
+    return m_filter.getSuppressedWrites();
+  }
+
+  @Override
+  public void set(VictorSPXControlMode mode, double value) {
+    if (mode != m_lastMode) m_filter.invalidate();
+    if (!m_filter.shouldWrite(value)) return;
+
+    m_lastMode = mode;
+    super.set(mode, value);
+  }
+}
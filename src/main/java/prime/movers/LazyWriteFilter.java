@@ -0,0 +1,91 @@
+package prime.movers;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Decides whether a device write can be skipped because the device already has the value.
+ *
+ * A write is skipped when it's within the change threshold of the last value sent, unless the keep-alive period has
+ * passed since then. The keep-alive resends the value now and then, so a device that reset (e.g. in a brownout)
+ * doesn't stay at its default. A change to or from exactly 0 is always sent, so a stop is never swallowed.
+ *
+ * Used by the lazy device wrappers on the main thread.
+ */
+public class LazyWriteFilter {
+
+  public static final double DEFAULT_KEEP_ALIVE_SECONDS = 1.0;
+
+  // A value that never matches a real output, for writes that aren't a number (e.g. stopMotor())
+  public static final double STOPPED = Double.NEGATIVE_INFINITY;
+
+  private static long s_totalSuppressedWrites = 0;
+
+  private final double m_changeThreshold;
+  private final long m_keepAliveMicros;
+  private double m_lastValue = Double.NaN;
+  private long m_lastWriteMicros = 0;
+  private long m_suppressedWrites = 0;
+
+  /**
+   * Creates a filter that only skips writes of the same value, with the default keep-alive
+   */
+  public LazyWriteFilter() {
+    this(0, DEFAULT_KEEP_ALIVE_SECONDS);
+  }
+
+  /**
+   * @param changeThreshold How much a value has to change to be written
+   * @param keepAliveSeconds How long to go without writing before the value is sent again anyway
+   */
+  public LazyWriteFilter(double changeThreshold, double keepAliveSeconds) {
+    m_changeThreshold = changeThreshold;
+    m_keepAliveMicros = (long) (keepAliveSeconds * 1e6);
+  }
+
+  /**
+   * Checks whether a value should be written, and remembers it if so
+   * @param value
+   * @return false if the write can be skipped
+   */
+  public boolean shouldWrite(double value) {
+    var now = RobotController.getFPGATime();
+
+    if (!Double.isNaN(m_lastValue) && now - m_lastWriteMicros < m_keepAliveMicros) {
+      var crossesZero = (value == 0) != (m_lastValue == 0);
+      if (value == m_lastValue || (!crossesZero && Math.abs(value - m_lastValue) < m_changeThreshold)) {
+        m_suppressedWrites++;
+        s_totalSuppressedWrites++;
+        return false;
+      }
+    }
+
+    m_lastValue = value;
+    m_lastWriteMicros = now;
+    return true;
+  }
+
+  /**
+   * Forgets the last value, so the next write is always sent. Call when the device is written another way
+   */
+  public void invalidate() {
+    m_lastValue = Double.NaN;
+  }
+
+  /**
+   * Gets the last value written, or NaN if nothing has been written yet
+   */
+  public double getLastValue() {
+    return m_lastValue;
+  }
+
+  public long getSuppressedWrites() {
+    return m_suppressedWrites;
+  }
+
+  /**
+   * Gets the number of writes skipped by every filter
+   */
+  public static long getTotalSuppressedWrites() {
+    return s_totalSuppressedWrites;
+  }
+}
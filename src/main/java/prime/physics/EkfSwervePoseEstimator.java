@@ -0,0 +1,424 @@
+package prime.physics;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * A swerve pose estimator built on an extended Kalman filter over the pose and the field-relative velocity,
+ * [x, y, heading, vx, vy, omega].
+ *
+ * Each odometry update predicts with the IMU's acceleration as the control input, then corrects with the chassis
+ * velocity fitted from the module position deltas, the gyro's heading and the IMU's yaw rate. Vision measurements are
+ * latency compensated: the filter rewinds to the history step at the image's timestamp, applies the measurement, and
+ * replays the steps after it.
+ *
+ * Everything is kept in preallocated primitive arrays, so updates and vision measurements don't allocate. Only
+ * {@link #getEstimatedPosition()} does, once per update it's called after.
+ */
+public class EkfSwervePoseEstimator implements SwervePoseEstimator {
+
+  private static final int N = 6;
+  private static final int X = 0;
+  private static final int Y = 1;
+  private static final int HEADING = 2;
+  private static final int VX = 3;
+  private static final int VY = 4;
+  private static final int OMEGA = 5;
+
+  // Initial uncertainty, and what's left of the pose's after a reset
+  private static final double INITIAL_POSITION_VARIANCE = 0.01 * 0.01;
+  private static final double INITIAL_HEADING_VARIANCE = 0.01 * 0.01;
+  private static final double INITIAL_VELOCITY_VARIANCE = 1;
+
+  /** One odometry update: the inputs it ran with and the estimate after it, so it can be replayed */
+  private static class Step {
+
+    double Timestamp;
+    double Dt;
+    double OdometryVx; // Robot-relative
+    double OdometryVy;
+    double OdometryOmega;
+    double GyroHeading; // Field-relative
+    double YawRate;
+    double AccelerationX; // Robot-relative
+    double AccelerationY;
+    final double[] State = new double[N];
+    final double[] Covariance = new double[N * N];
+  }
+
+  private final int m_moduleCount;
+  private final double[] m_moduleX; // Relative to the modules' centroid
+  private final double[] m_moduleY;
+  private final double m_centroidX;
+  private final double m_centroidY;
+  private final double m_moduleInertia;
+
+  private final double m_wheelVariance;
+  private final double m_wheelOmegaVariance;
+  private final double m_accelerationVariance;
+  private final double m_angularAccelerationVariance;
+  private final double m_gyroVariance;
+  private final double m_yawRateVariance;
+
+  private final double[] m_state = new double[N];
+  private final double[] m_covariance = new double[N * N];
+
+  // Scratch space
+  private final double[] m_jacobian = new double[N * N];
+  private final double[] m_product = new double[N * N];
+  private final double[] m_row = new double[N];
+  private final double[] m_gain = new double[N];
+
+  private final Step[] m_history;
+  private int m_historyStart;
+  private int m_historyCount;
+
+  private final double[] m_lastDistances;
+  private double m_lastTimestamp = Double.NaN;
+  private double m_gyroOffset; // Field heading minus gyro angle
+  private double m_accelerationX;
+  private double m_accelerationY;
+  private double m_yawRate = Double.NaN;
+
+  private Pose2d m_pose;
+
+  /**
+   * Creates a new estimator starting at the given pose
+   * @param moduleLocations Relative to the robot's center, in the order of the module positions
+   * @param gyroAngle
+   * @param modulePositions
+   * @param initialPose
+   * @param wheelVelocityStdDev How far the chassis velocity fitted from the wheels is off, in m/s
+   * @param accelerationStdDev How far the real acceleration is from the IMU's, in m/s²
+   * @param angularAccelerationStdDev How far the rotation rate can change unmeasured, in rad/s²
+   * @param gyroStdDev How far the gyro's heading is off, in radians
+   * @param yawRateStdDev How far the IMU's yaw rate is off, in rad/s
+   * @param historySize How many updates to keep for latency compensation. Older vision measurements are dropped
+   */
+  public EkfSwervePoseEstimator(
+    Translation2d[] moduleLocations,
+    Rotation2d gyroAngle,
+    SwerveModulePosition[] modulePositions,
+    Pose2d initialPose,
+    double wheelVelocityStdDev,
+    double accelerationStdDev,
+    double angularAccelerationStdDev,
+    double gyroStdDev,
+    double yawRateStdDev,
+    int historySize
+  ) {
+    m_moduleCount = moduleLocations.length;
+    m_moduleX = new double[m_moduleCount];
+    m_moduleY = new double[m_moduleCount];
+    m_lastDistances = new double[m_moduleCount];
+
+    var centroidX = 0.0;
+    var centroidY = 0.0;
+    for (var location : moduleLocations) {
+      centroidX += location.getX() / m_moduleCount;
+      centroidY += location.getY() / m_moduleCount;
+    }
+    m_centroidX = centroidX;
+    m_centroidY = centroidY;
+
+    var inertia = 0.0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_moduleX[i] = moduleLocations[i].getX() - centroidX;
+      m_moduleY[i] = moduleLocations[i].getY() - centroidY;
+      inertia += m_moduleX[i] * m_moduleX[i] + m_moduleY[i] * m_moduleY[i];
+    }
+    m_moduleInertia = inertia;
+
+    m_wheelVariance = wheelVelocityStdDev * wheelVelocityStdDev;
+    m_wheelOmegaVariance = m_wheelVariance * m_moduleCount / inertia; // Each module is noisier than their mean
+    m_accelerationVariance = accelerationStdDev * accelerationStdDev;
+    m_angularAccelerationVariance = angularAccelerationStdDev * angularAccelerationStdDev;
+    m_gyroVariance = gyroStdDev * gyroStdDev;
+    m_yawRateVariance = yawRateStdDev * yawRateStdDev;
+
+    m_history = new Step[historySize];
+    for (int i = 0; i < historySize; i++) m_history[i] = new Step();
+
+    for (int i = 0; i < N; i++) {
+      m_covariance[i * N + i] = i < VX ? INITIAL_POSITION_VARIANCE : INITIAL_VELOCITY_VARIANCE;
+    }
+    m_covariance[HEADING * N + HEADING] = INITIAL_HEADING_VARIANCE;
+
+    resetPosition(gyroAngle, modulePositions, initialPose);
+  }
+
+  @Override
+  public void addImuSample(double accelerationX, double accelerationY, double yawRateRadiansPerSecond) {
+    m_accelerationX = accelerationX;
+    m_accelerationY = accelerationY;
+    m_yawRate = yawRateRadiansPerSecond;
+  }
+
+  @Override
+  public void updateWithTime(double timestampSeconds, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+    var dt = timestampSeconds - m_lastTimestamp;
+
+    // Fit the module deltas to one robot-relative twist about the modules' centroid
+    var meanDx = 0.0;
+    var meanDy = 0.0;
+    var torque = 0.0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      var position = modulePositions[i];
+      var distance = position.distanceMeters - m_lastDistances[i];
+      var dx = distance * position.angle.getCos();
+      var dy = distance * position.angle.getSin();
+      meanDx += dx / m_moduleCount;
+      meanDy += dy / m_moduleCount;
+      torque += m_moduleX[i] * dy - m_moduleY[i] * dx;
+      m_lastDistances[i] = position.distanceMeters;
+    }
+    var dTheta = m_moduleInertia > 0 ? torque / m_moduleInertia : 0;
+    var twistX = meanDx + dTheta * m_centroidY;
+    var twistY = meanDy - dTheta * m_centroidX;
+
+    // Without a time step from the last update, e.g. the first one, the twist is integrated as is
+    if (!(dt > 0)) {
+      var cos = Math.cos(m_state[HEADING]);
+      var sin = Math.sin(m_state[HEADING]);
+      m_state[X] += twistX * cos - twistY * sin;
+      m_state[Y] += twistX * sin + twistY * cos;
+      m_state[HEADING] = MathUtil.angleModulus(gyroAngle.getRadians() + m_gyroOffset);
+      m_lastTimestamp = timestampSeconds;
+      m_pose = null;
+      return;
+    }
+
+    var step = pushStep();
+    step.Timestamp = timestampSeconds;
+    step.Dt = dt;
+    step.OdometryVx = twistX / dt;
+    step.OdometryVy = twistY / dt;
+    step.OdometryOmega = dTheta / dt;
+    step.GyroHeading = gyroAngle.getRadians() + m_gyroOffset;
+    step.YawRate = m_yawRate;
+    step.AccelerationX = m_accelerationX;
+    step.AccelerationY = m_accelerationY;
+    runStep(step);
+
+    m_lastTimestamp = timestampSeconds;
+    m_pose = null;
+  }
+
+  @Override
+  public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds, Matrix<N3, N1> stdDevs) {
+    // Find the newest step at or before the image
+    var index = m_historyCount - 1;
+    while (index >= 0 && getStep(index).Timestamp > timestampSeconds) index--;
+    if (index < 0) return;
+
+    // Rewind to it, apply the measurement and replay the steps after it
+    var step = getStep(index);
+    System.arraycopy(step.State, 0, m_state, 0, N);
+    System.arraycopy(step.Covariance, 0, m_covariance, 0, N * N);
+
+    var xStdDev = stdDevs.get(0, 0);
+    var yStdDev = stdDevs.get(1, 0);
+    var headingStdDev = stdDevs.get(2, 0);
+    correct(X, visionPose.getX() - m_state[X], xStdDev * xStdDev);
+    correct(Y, visionPose.getY() - m_state[Y], yStdDev * yStdDev);
+    correct(HEADING, visionPose.getRotation().getRadians() - m_state[HEADING], headingStdDev * headingStdDev);
+    saveStep(step);
+
+    for (int i = index + 1; i < m_historyCount; i++) runStep(getStep(i));
+
+    m_state[HEADING] = MathUtil.angleModulus(m_state[HEADING]);
+    m_pose = null;
+  }
+
+  @Override
+  public void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d pose) {
+    m_state[X] = pose.getX();
+    m_state[Y] = pose.getY();
+    m_state[HEADING] = pose.getRotation().getRadians();
+    m_gyroOffset = pose.getRotation().getRadians() - gyroAngle.getRadians();
+
+    // The velocity carries over, but the pose starts over uncorrelated with it
+    for (int i = 0; i < VX; i++) {
+      for (int j = 0; j < N; j++) {
+        m_covariance[i * N + j] = 0;
+        m_covariance[j * N + i] = 0;
+      }
+    }
+    m_covariance[X * N + X] = INITIAL_POSITION_VARIANCE;
+    m_covariance[Y * N + Y] = INITIAL_POSITION_VARIANCE;
+    m_covariance[HEADING * N + HEADING] = INITIAL_HEADING_VARIANCE;
+
+    for (int i = 0; i < m_moduleCount; i++) m_lastDistances[i] = modulePositions[i].distanceMeters;
+
+    // Vision from before the reset is of the old pose
+    m_historyCount = 0;
+    m_pose = null;
+  }
+
+  @Override
+  public Pose2d getEstimatedPosition() {
+    if (m_pose == null) m_pose = new Pose2d(m_state[X], m_state[Y], new Rotation2d(m_state[HEADING]));
+
+    return m_pose;
+  }
+
+  //#region Filter
+
+  /**
+   * Runs one update from the current estimate and saves the result in the step
+   */
+  private void runStep(Step step) {
+    predict(step.Dt, step.AccelerationX, step.AccelerationY);
+
+    // The wheels measure the robot-relative velocity, a rotation of the field-relative one
+    var cos = Math.cos(m_state[HEADING]);
+    var sin = Math.sin(m_state[HEADING]);
+    var vx = m_state[VX];
+    var vy = m_state[VY];
+    setRow(0, 0, -sin * vx + cos * vy, cos, sin, 0);
+    correct(m_row, step.OdometryVx - (cos * vx + sin * vy), m_wheelVariance);
+
+    cos = Math.cos(m_state[HEADING]);
+    sin = Math.sin(m_state[HEADING]);
+    vx = m_state[VX];
+    vy = m_state[VY];
+    setRow(0, 0, -cos * vx - sin * vy, -sin, cos, 0);
+    correct(m_row, step.OdometryVy - (-sin * vx + cos * vy), m_wheelVariance);
+
+    correct(OMEGA, step.OdometryOmega - m_state[OMEGA], m_wheelOmegaVariance);
+    correct(HEADING, step.GyroHeading - m_state[HEADING], m_gyroVariance);
+    if (!Double.isNaN(step.YawRate)) correct(OMEGA, step.YawRate - m_state[OMEGA], m_yawRateVariance);
+
+    m_state[HEADING] = MathUtil.angleModulus(m_state[HEADING]);
+    saveStep(step);
+  }
+
+  /**
+   * Predicts the state dt ahead, with the robot-relative acceleration as the control input
+   */
+  private void predict(double dt, double accelerationX, double accelerationY) {
+    var cos = Math.cos(m_state[HEADING]);
+    var sin = Math.sin(m_state[HEADING]);
+    var ax = cos * accelerationX - sin * accelerationY;
+    var ay = sin * accelerationX + cos * accelerationY;
+    var dAxdHeading = -sin * accelerationX - cos * accelerationY;
+    var dAydHeading = cos * accelerationX - sin * accelerationY;
+    var halfDtSquared = 0.5 * dt * dt;
+
+    m_state[X] += m_state[VX] * dt + ax * halfDtSquared;
+    m_state[Y] += m_state[VY] * dt + ay * halfDtSquared;
+    m_state[HEADING] += m_state[OMEGA] * dt;
+    m_state[VX] += ax * dt;
+    m_state[VY] += ay * dt;
+
+    // P = F P Fᵀ + Q
+    var f = m_jacobian;
+    for (int i = 0; i < N * N; i++) f[i] = i % (N + 1) == 0 ? 1 : 0;
+    f[X * N + VX] = dt;
+    f[Y * N + VY] = dt;
+    f[HEADING * N + OMEGA] = dt;
+    f[X * N + HEADING] = dAxdHeading * halfDtSquared;
+    f[Y * N + HEADING] = dAydHeading * halfDtSquared;
+    f[VX * N + HEADING] = dAxdHeading * dt;
+    f[VY * N + HEADING] = dAydHeading * dt;
+
+    for (int i = 0; i < N; i++) {
+      for (int j = 0; j < N; j++) {
+        var sum = 0.0;
+        for (int k = 0; k < N; k++) sum += f[i * N + k] * m_covariance[k * N + j];
+        m_product[i * N + j] = sum;
+      }
+    }
+    for (int i = 0; i < N; i++) {
+      for (int j = 0; j < N; j++) {
+        var sum = 0.0;
+        for (int k = 0; k < N; k++) sum += m_product[i * N + k] * f[j * N + k];
+        m_covariance[i * N + j] = sum;
+      }
+    }
+
+    // White noise acceleration, integrated into the velocity and the position
+    var dtCubedThirds = dt * dt * dt / 3;
+    m_covariance[X * N + X] += m_accelerationVariance * dtCubedThirds;
+    m_covariance[Y * N + Y] += m_accelerationVariance * dtCubedThirds;
+    m_covariance[HEADING * N + HEADING] += m_angularAccelerationVariance * dtCubedThirds;
+    m_covariance[VX * N + VX] += m_accelerationVariance * dt;
+    m_covariance[VY * N + VY] += m_accelerationVariance * dt;
+    m_covariance[OMEGA * N + OMEGA] += m_angularAccelerationVariance * dt;
+  }
+
+  /**
+   * Corrects the estimate with a measurement of one state directly. Heading innovations are wrapped
+   */
+  private void correct(int index, double innovation, double variance) {
+    setRow(0, 0, 0, 0, 0, 0);
+    m_row[index] = 1;
+    correct(m_row, index == HEADING ? MathUtil.angleModulus(innovation) : innovation, variance);
+  }
+
+  /**
+   * Corrects the estimate with a scalar measurement, whose Jacobian is the row
+   */
+  private void correct(double[] row, double innovation, double variance) {
+    // K = P Hᵀ / (H P Hᵀ + R)
+    var s = variance;
+    for (int i = 0; i < N; i++) {
+      var sum = 0.0;
+      for (int j = 0; j < N; j++) sum += m_covariance[i * N + j] * row[j];
+      m_gain[i] = sum;
+      s += row[i] * sum;
+    }
+    if (!(s > 0) || Double.isInfinite(s)) return;
+    for (int i = 0; i < N; i++) m_gain[i] /= s;
+
+    // x += K y, and P -= K H P, where H P = s Kᵀ
+    for (int i = 0; i < N; i++) {
+      m_state[i] += m_gain[i] * innovation;
+      for (int j = 0; j < N; j++) m_covariance[i * N + j] -= m_gain[i] * m_gain[j] * s;
+    }
+  }
+
+  private void setRow(double x, double y, double heading, double vx, double vy, double omega) {
+    m_row[X] = x;
+    m_row[Y] = y;
+    m_row[HEADING] = heading;
+    m_row[VX] = vx;
+    m_row[VY] = vy;
+    m_row[OMEGA] = omega;
+  }
+
+  //#endregion
+
+  //#region History
+
+  /**
+   * Gets a step by age, 0 being the oldest kept
+   */
+  private Step getStep(int index) {
+    return m_history[(m_historyStart + index) % m_history.length];
+  }
+
+  /**
+   * Gets the slot for a new step, overwriting the oldest when the history is full
+   */
+  private Step pushStep() {
+    if (m_historyCount < m_history.length) return m_history[(m_historyStart + m_historyCount++) % m_history.length];
+
+    var step = m_history[m_historyStart];
+    m_historyStart = (m_historyStart + 1) % m_history.length;
+    return step;
+  }
+
+  private void saveStep(Step step) {
+    System.arraycopy(m_state, 0, step.State, 0, N);
+    System.arraycopy(m_covariance, 0, step.Covariance, 0, N * N);
+  }
+
+  //#endregion
+}
@@ -20,6 +20,16 @@ public class LimelightPose {
   public Matrix<N3, N1> StdDeviations;
 
   public LimelightPose(double[] data, Matrix<N3, N1> stdDeviations) {
+    this(data, stdDeviations, Timer.getFPGATimestamp());
+  }
+
+  /**
+   * Creates a pose from Limelight botpose data that was read at a known time, e.g. when replaying a log
+   * @param data The botpose array
+   * @param stdDeviations
+   * @param readTimestamp The FPGA time in seconds when the data was read
+   */
+  public LimelightPose(double[] data, Matrix<N3, N1> stdDeviations, double readTimestamp) {
     if (data.length < 6) {
       System.err.println("Bad LL 3D Pose Data!");
       return;
@@ -36,7 +46,7 @@ public class LimelightPose {
       );
 
     var latencyMs = data[6];
-    Timestamp = Timer.getFPGATimestamp() - (latencyMs / 1000.0);
+    Timestamp = readTimestamp - (latencyMs / 1000.0);
     TagCount = data[7];
     TagSpan = data[8];
     AvgTagDistanceMeters = data[9];
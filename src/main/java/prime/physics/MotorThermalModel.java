@@ -0,0 +1,129 @@
+package prime.physics;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * A first-order thermal model of a motor's windings, for predicting when it will overheat.
+ *
+ * The windings heat with I²R losses and cool to ambient through a single thermal resistance, so at a constant current
+ * the temperature settles at ambient + rise * I² with the model's time constant. When the motor reports a temperature
+ * the estimate is pulled toward it, which also picks up heat left over from the last match. The sensor sits outside
+ * the windings and lags them, so a reading above the estimate is taken as is and a reading below it is only followed
+ * slowly.
+ *
+ * Updated on one thread. The getters can be called from any thread.
+ */
+public class MotorThermalModel {
+
+  public static final double AMBIENT_CELSIUS = 25;
+
+  private final double m_limitCelsius;
+  private final double m_timeConstantSeconds;
+  private final double m_riseCelsiusPerAmpSquared;
+  private final double m_sensorCorrectionSeconds;
+
+  private volatile double m_temperatureCelsius = AMBIENT_CELSIUS;
+  private volatile double m_currentAmps;
+  private boolean m_initialized = false;
+
+  /**
+   * @param limitCelsius The hottest the windings should get
+   * @param timeConstantSeconds How long the windings take to reach 63% of a temperature change
+   * @param riseCelsiusPerAmpSquared How far above ambient the windings settle per amp squared of current
+   * @param sensorCorrectionSeconds How long it takes to follow a sensor reading below the estimate
+   */
+  public MotorThermalModel(
+    double limitCelsius,
+    double timeConstantSeconds,
+    double riseCelsiusPerAmpSquared,
+    double sensorCorrectionSeconds
+  ) {
+    m_limitCelsius = limitCelsius;
+    m_timeConstantSeconds = timeConstantSeconds;
+    m_riseCelsiusPerAmpSquared = riseCelsiusPerAmpSquared;
+    m_sensorCorrectionSeconds = sensorCorrectionSeconds;
+  }
+
+  /**
+   * A Falcon 500, settling at about 85°C on 40A. Estimates, refine them against logged temperatures
+   */
+  public static MotorThermalModel falcon500() {
+    return new MotorThermalModel(90, 300, 0.0375, 30);
+  }
+
+  /**
+   * A NEO, settling at about 97°C on 40A. Estimates, refine them against logged temperatures
+   */
+  public static MotorThermalModel neo() {
+    return new MotorThermalModel(80, 180, 0.045, 30);
+  }
+
+  /**
+   * Steps the model
+   * @param currentAmps The motor (stator) current, not the supply current
+   * @param measuredCelsius The temperature the motor reports, or 0 or less if it has no sensor
+   * @param dtSeconds Time since the last update
+   */
+  public void update(double currentAmps, double measuredCelsius, double dtSeconds) {
+    var sensed = measuredCelsius > 0;
+    var temperature = m_initialized ? m_temperatureCelsius : (sensed ? measuredCelsius : AMBIENT_CELSIUS);
+    m_initialized = true;
+
+    var steadyState = AMBIENT_CELSIUS + m_riseCelsiusPerAmpSquared * currentAmps * currentAmps;
+    temperature += (steadyState - temperature) * (1 - Math.exp(-dtSeconds / m_timeConstantSeconds));
+
+    if (sensed && measuredCelsius > temperature) {
+      temperature = measuredCelsius;
+    } else if (sensed) {
+      temperature += (measuredCelsius - temperature) * Math.min(1, dtSeconds / m_sensorCorrectionSeconds);
+    }
+
+    m_temperatureCelsius = temperature;
+    m_currentAmps = Math.abs(currentAmps);
+  }
+
+  /**
+   * Gets the estimated winding temperature
+   */
+  public double getTemperatureCelsius() {
+    return m_temperatureCelsius;
+  }
+
+  /**
+   * Gets how much of the range between ambient and the limit is left, from 1 when cold to 0 at the limit
+   */
+  public double getHeadroom() {
+    return MathUtil.clamp((m_limitCelsius - m_temperatureCelsius) / (m_limitCelsius - AMBIENT_CELSIUS), 0, 1);
+  }
+
+  /**
+   * Gets how long until the windings reach the limit if the current stays where it is. Infinite if they never will
+   */
+  public double getSecondsToLimit() {
+    var temperature = m_temperatureCelsius;
+    var steadyState = AMBIENT_CELSIUS + m_riseCelsiusPerAmpSquared * m_currentAmps * m_currentAmps;
+    if (temperature >= m_limitCelsius) return 0;
+    if (steadyState <= m_limitCelsius) return Double.POSITIVE_INFINITY;
+
+    return m_timeConstantSeconds * Math.log((steadyState - temperature) / (steadyState - m_limitCelsius));
+  }
+
+  /**
+   * Gets the current the motor can draw forever without reaching the limit
+   */
+  public double getSustainableAmps() {
+    return Math.sqrt((m_limitCelsius - AMBIENT_CELSIUS) / m_riseCelsiusPerAmpSquared);
+  }
+
+  /**
+   * Gets the highest current that wouldn't reach the limit within the horizon. Far above the sustainable current when
+   * the motor is cold, it falls to the sustainable current as the motor reaches the limit and below it past the limit
+   * @param horizonSeconds
+   */
+  public double getAllowedAmps(double horizonSeconds) {
+    var decay = Math.exp(-horizonSeconds / m_timeConstantSeconds);
+    var steadyState = (m_limitCelsius - decay * m_temperatureCelsius) / (1 - decay);
+
+    return Math.sqrt(Math.max(0, steadyState - AMBIENT_CELSIUS) / m_riseCelsiusPerAmpSquared);
+  }
+}
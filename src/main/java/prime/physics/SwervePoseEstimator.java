@@ -0,0 +1,48 @@
+package prime.physics;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * A swerve pose estimator, the calls SwerveDrivePoseEstimator takes, so the drivetrain can switch between
+ * implementations. See {@link WpilibSwervePoseEstimator} and {@link EkfSwervePoseEstimator}
+ */
+public interface SwervePoseEstimator {
+  /**
+   * Adds an IMU sample for the next odometry update. Estimators that don't use the IMU ignore it
+   * @param accelerationX Robot-relative, in m/s²
+   * @param accelerationY Robot-relative, in m/s²
+   * @param yawRateRadiansPerSecond CCW+
+   */
+  default void addImuSample(double accelerationX, double accelerationY, double yawRateRadiansPerSecond) {}
+
+  /**
+   * Integrates a gyro and module position sample
+   * @param timestampSeconds When the sample was taken, in FPGA time
+   * @param gyroAngle
+   * @param modulePositions
+   */
+  void updateWithTime(double timestampSeconds, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions);
+
+  /**
+   * Adds a vision measurement taken at a time in the recent past
+   * @param visionPose
+   * @param timestampSeconds When the image was captured, in FPGA time
+   * @param stdDevs Standard deviations of x and y in meters, and heading in radians
+   */
+  void addVisionMeasurement(Pose2d visionPose, double timestampSeconds, Matrix<N3, N1> stdDevs);
+
+  /**
+   * Resets the estimate to a pose
+   * @param gyroAngle
+   * @param modulePositions
+   * @param pose
+   */
+  void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d pose);
+
+  Pose2d getEstimatedPosition();
+}
@@ -0,0 +1,115 @@
+package prime.physics;
+
+import edu.wpi.first.wpilibj.RobotController;
+import java.util.ArrayList;
+import java.util.function.DoubleSupplier;
+import prime.logging.DoubleSignal;
+import prime.logging.LogLevel;
+import prime.logging.Telemetry;
+
+/**
+ * Keeps a {@link MotorThermalModel} for every motor that registers one, and tells whoever sets current limits how
+ * much current each group of motors can take before one of them overheats.
+ *
+ * Subsystems register their motors when they create them, with suppliers for the motor current and the temperature
+ * the motor reports. {@link #update} steps every model and is meant to run on the same background thread that
+ * applies the current limits. Each motor's headroom (1 when cold, 0 at its limit) is published under Thermal/ for the
+ * dashboard and the log, along with its estimated temperature and how long until it reaches its limit.
+ */
+public final class ThermalMonitor {
+
+  /**
+   * A registered motor and its model
+   */
+  private static class Motor {
+
+    public final String Group;
+    public final MotorThermalModel Model;
+    public final DoubleSupplier CurrentAmps;
+    public final DoubleSupplier TemperatureCelsius;
+    public final DoubleSignal t_headroom;
+    public final DoubleSignal t_temperature;
+    public final DoubleSignal t_secondsToLimit;
+
+    Motor(
+      String group,
+      String name,
+      MotorThermalModel model,
+      DoubleSupplier currentAmps,
+      DoubleSupplier temperatureCelsius
+    ) {
+      Group = group;
+      Model = model;
+      CurrentAmps = currentAmps;
+      TemperatureCelsius = temperatureCelsius;
+      t_headroom = Telemetry.doubleSignal("Thermal/" + name + "/Headroom", LogLevel.Essential);
+      t_temperature = Telemetry.doubleSignal("Thermal/" + name + "/Temperature (C)", LogLevel.Level2);
+      t_secondsToLimit = Telemetry.doubleSignal("Thermal/" + name + "/SecondsToLimit", LogLevel.Level2);
+    }
+  }
+
+  private static final ArrayList<Motor> s_motors = new ArrayList<>();
+
+  // Background thread only
+  private static long s_lastUpdateMicros = 0;
+
+  private ThermalMonitor() {}
+
+  /**
+   * Registers a motor. Call while creating the subsystems, before anything calls {@link #update}
+   * @param group The group of motors that share a current limit
+   * @param name The name to publish the motor under
+   * @param model
+   * @param currentAmps Supplies the motor (stator) current
+   * @param temperatureCelsius Supplies the temperature the motor reports, or 0 if it has no sensor
+   */
+  public static void register(
+    String group,
+    String name,
+    MotorThermalModel model,
+    DoubleSupplier currentAmps,
+    DoubleSupplier temperatureCelsius
+  ) {
+    s_motors.add(new Motor(group, name, model, currentAmps, temperatureCelsius));
+  }
+
+  /**
+   * Samples every motor and steps its model
+   */
+  public static void update() {
+    var now = RobotController.getFPGATime();
+    var dtSeconds = s_lastUpdateMicros == 0 ? 0 : (now - s_lastUpdateMicros) / 1e6;
+    s_lastUpdateMicros = now;
+
+    for (var motor : s_motors) {
+      motor.Model.update(motor.CurrentAmps.getAsDouble(), motor.TemperatureCelsius.getAsDouble(), dtSeconds);
+    }
+  }
+
+  /**
+   * Gets the highest current every motor in the group can draw without reaching its limit within the horizon. The
+   * hottest motor sets it, so motors sharing a limit are derated together
+   * @param group
+   * @param horizonSeconds
+   * @return The allowed current, or infinity if nothing is registered in the group
+   */
+  public static double getAllowedAmps(String group, double horizonSeconds) {
+    var allowedAmps = Double.POSITIVE_INFINITY;
+    for (var motor : s_motors) {
+      if (motor.Group.equals(group)) allowedAmps = Math.min(allowedAmps, motor.Model.getAllowedAmps(horizonSeconds));
+    }
+
+    return allowedAmps;
+  }
+
+  /**
+   * Publishes every motor's headroom, temperature and time to its limit
+   */
+  public static void publishTelemetry() {
+    for (var motor : s_motors) {
+      motor.t_headroom.set(motor.Model.getHeadroom());
+      motor.t_temperature.set(motor.Model.getTemperatureCelsius());
+      motor.t_secondsToLimit.set(motor.Model.getSecondsToLimit());
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package prime.physics;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * WPILib's SwerveDrivePoseEstimator as a {@link SwervePoseEstimator}. It doesn't use the IMU samples
+ */
+public class WpilibSwervePoseEstimator implements SwervePoseEstimator {
+
+  private final SwerveDrivePoseEstimator m_estimator;
+
+  public WpilibSwervePoseEstimator(SwerveDrivePoseEstimator estimator) {
+    m_estimator = estimator;
+  }
+
+  @Override
+  public void updateWithTime(double timestampSeconds, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+    m_estimator.updateWithTime(timestampSeconds, gyroAngle, modulePositions);
+  }
+
+  @Override
+  public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds, Matrix<N3, N1> stdDevs) {
+    m_estimator.addVisionMeasurement(visionPose, timestampSeconds, stdDevs);
+  }
+
+  @Override
+  public void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d pose) {
+    m_estimator.resetPosition(gyroAngle, modulePositions, pose);
+  }
+
+  @Override
+  public Pose2d getEstimatedPosition() {
+    return m_estimator.getEstimatedPosition();
+  }
+}
@@ -0,0 +1,150 @@
+package prime.utilities;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import prime.control.PrimePIDConstants;
+
+/**
+ * Results measured on the robot by tuning routines, e.g. feedforward gains from characterization, that override the
+ * config's defaults at boot.
+ *
+ * Results are read from tuning.json in the deploy directory, which is committed with the code, and from tuning.json
+ * in the robot's operating directory, where routines save what they measure so it survives a reboot. Every result
+ * carries the time it was measured and the newer one wins, so a new measurement replaces a deployed result and a
+ * result deployed later replaces the one on the robot. Each save is also written to the log, to be copied into
+ * src/main/deploy/tuning.json.
+ */
+public final class TuningStore {
+
+  private static final String FILE_NAME = "tuning.json";
+  private static final String TIMESTAMP_KEY = "timestamp";
+
+  // Guarded by the class
+  private static final HashMap<String, Map<String, Double>> s_results = new HashMap<>();
+  private static final TreeMap<String, Map<String, Double>> s_saved = new TreeMap<>();
+  private static File s_saveFile;
+
+  private TuningStore() {}
+
+  /**
+   * Loads the results from the deploy directory and the robot's operating directory
+   */
+  public static void load() {
+    load(new File(Filesystem.getDeployDirectory(), FILE_NAME), new File(Filesystem.getOperatingDirectory(), FILE_NAME));
+  }
+
+  /**
+   * Loads the results from a deployed file and a file saved on the robot, the newer of each result winning
+   * @param deployedFile
+   * @param savedFile Where new results are saved
+   */
+  public static synchronized void load(File deployedFile, File savedFile) {
+    s_results.clear();
+    s_saved.clear();
+    s_saveFile = savedFile;
+
+    merge(read(deployedFile));
+
+    var saved = read(savedFile);
+    s_saved.putAll(saved);
+    merge(saved);
+  }
+
+  /**
+   * Gets a result's values, or null if nothing has been measured
+   * @param name
+   */
+  public static synchronized Map<String, Double> get(String name) {
+    var values = s_results.get(name);
+
+    return values == null ? null : Collections.unmodifiableMap(values);
+  }
+
+  /**
+   * Saves a result on the robot and logs it. Writes the file, so don't call it every loop
+   * @param name
+   * @param values
+   */
+  @SuppressWarnings("unchecked")
+  public static synchronized void save(String name, Map<String, Double> values) {
+    var result = new TreeMap<String, Double>(values);
+    result.put(TIMESTAMP_KEY, System.currentTimeMillis() / 1000.0);
+    s_results.put(name, result);
+    s_saved.put(name, result);
+
+    var json = new JSONObject();
+    json.putAll(s_saved);
+    DataLogManager.log("[TuningStore] \"" + name + "\": " + JSONObject.toJSONString(result));
+
+    if (s_saveFile == null) return;
+
+    try (var writer = new FileWriter(s_saveFile)) {
+      writer.write(json.toJSONString());
+    } catch (IOException e) {
+      DriverStation.reportError("[TuningStore:ERROR] Failed to save " + s_saveFile + ": " + e.getMessage(), false);
+    }
+  }
+
+  /**
+   * Overrides PID and feedforward constants with the ones in a result, leaving the rest as they are
+   * @param name
+   * @param constants
+   */
+  public static void apply(String name, PrimePIDConstants constants) {
+    var values = get(name);
+    if (values == null) return;
+
+    constants.kP = values.getOrDefault("kP", constants.kP);
+    constants.kI = values.getOrDefault("kI", constants.kI);
+    constants.kD = values.getOrDefault("kD", constants.kD);
+    constants.kS = values.getOrDefault("kS", constants.kS);
+    constants.kV = values.getOrDefault("kV", constants.kV);
+    constants.kA = values.getOrDefault("kA", constants.kA);
+  }
+
+  /**
+   * Keeps each result in the file unless one measured later is already loaded
+   */
+  private static void merge(Map<String, Map<String, Double>> results) {
+    for (var entry : results.entrySet()) {
+      var current = s_results.get(entry.getKey());
+      var timestamp = entry.getValue().getOrDefault(TIMESTAMP_KEY, 0.0);
+
+      if (current == null || current.getOrDefault(TIMESTAMP_KEY, 0.0) <= timestamp) {
+        s_results.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private static Map<String, Map<String, Double>> read(File file) {
+    var results = new HashMap<String, Map<String, Double>>();
+    if (!file.exists()) return results;
+
+    try (var reader = new FileReader(file)) {
+      var json = (JSONObject) new JSONParser().parse(reader);
+
+      for (var name : json.keySet()) {
+        var values = new TreeMap<String, Double>();
+        var valuesJson = (JSONObject) json.get(name);
+        for (var key : valuesJson.keySet()) values.put((String) key, ((Number) valuesJson.get(key)).doubleValue());
+
+        results.put((String) name, values);
+      }
+    } catch (Exception e) {
+      DriverStation.reportError("[TuningStore:ERROR] Failed to read " + file + ": " + e.getMessage(), false);
+    }
+
+    return results;
+  }
+}